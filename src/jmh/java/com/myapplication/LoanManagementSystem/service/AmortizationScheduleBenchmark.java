@@ -0,0 +1,56 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoanService.generateAmortizationSchedule building the stored rows of a new loan, from a one-year
+ * monthly loan up to a ten-year weekly one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AmortizationScheduleBenchmark {
+
+    @Param({"MONTHLY", "WEEKLY"})
+    private Frequency frequency;
+
+    @Param({"12", "52", "120", "520"})
+    private int installments;
+
+    private final LoanService loanService = new LoanService();
+
+    private final BigDecimal totalRepayable = new BigDecimal("28500.00");
+
+    private Loan loan;
+
+    @Setup
+    public void setUp() {
+        loan = new Loan();
+        loan.setRepaymentFrequency(frequency);
+    }
+
+    @Benchmark
+    public List<RepaymentSchedule> generateAmortizationSchedule() {
+        return loanService.generateAmortizationSchedule(loan, installments, totalRepayable);
+    }
+}
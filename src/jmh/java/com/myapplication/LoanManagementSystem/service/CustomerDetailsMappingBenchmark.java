@@ -0,0 +1,101 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.projection.LoanScheduleRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping one page of customers to CustomerDetailsDto: the loan/schedule rows of the details query
+ * folded into nested loan and schedule DTOs by CustomerDetailsService.attachLoans. With compact=true
+ * each loan stores only its paid installments and the rest are expanded from the schedule rule.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerDetailsMappingBenchmark {
+
+    private static final LocalDate REGISTERED = LocalDate.of(2024, 1, 15);
+
+    @Param({"100"})
+    private int customers;
+
+    @Param({"3"})
+    private int loansPerCustomer;
+
+    @Param({"12", "52"})
+    private int installments;
+
+    @Param({"false", "true"})
+    private boolean compact;
+
+    private List<LoanScheduleRow> rows;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new ArrayList<>();
+        long loanId = 0;
+        for (long customerId = 1; customerId <= customers; customerId++) {
+            for (int l = 0; l < loansPerCustomer; l++) {
+                Loan loan = SyntheticLoans.loan(++loanId, Frequency.MONTHLY, installments, installments / 3, random);
+                if (compact) {
+                    loan.setCompactSchedule(true);
+                    loan.setInstallmentAmount(loan.getRepaymentSchedules().get(0).getAmountDue());
+                    loan.setFinalInstallmentAdjustment(loan.getTotalRepayableAmount()
+                            .subtract(loan.getInstallmentAmount().multiply(BigDecimal.valueOf(installments))));
+                }
+                for (RepaymentSchedule schedule : loan.getRepaymentSchedules()) {
+                    // A compact loan only has rows for installments that received money
+                    if (compact && schedule.getPaymentStatus() != RepaymentStatus.PAID) {
+                        continue;
+                    }
+                    rows.add(row(customerId, loan, schedule));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<CustomerDetailsDto> attachLoans() {
+        List<CustomerDetailsDto> page = new ArrayList<>(customers);
+        for (long id = 1; id <= customers; id++) {
+            page.add(new CustomerDetailsDto(id, "First" + id, "Last" + id, "ID-" + id, "0700000000", REGISTERED));
+        }
+        CustomerDetailsService.attachLoans(page, rows);
+        return page;
+    }
+
+    private static LoanScheduleRow row(long customerId, Loan loan, RepaymentSchedule schedule) {
+        return new LoanScheduleRow(customerId, loan.getId(), loan.getPrincipalAmount(), loan.getInterestRate(),
+                loan.getRepaymentPeriod(), loan.getTotalRepayableAmount(), loan.getStatus(), loan.getCreatedAt(),
+                loan.isCompactSchedule(), loan.getRepaymentFrequency(), loan.getScheduleStartDate(),
+                loan.getInstallmentAmount(), loan.getFinalInstallmentAdjustment(), loan.getNumberOfInstallments(),
+                schedule.getId(), schedule.getInstallmentNumber(), schedule.getDueDate(), schedule.getAmountDue(),
+                schedule.getEmi(), schedule.getAmountPaid(), schedule.getPaymentDate(), schedule.getPaymentStatus(),
+                schedule.getCreatedAt());
+    }
+}
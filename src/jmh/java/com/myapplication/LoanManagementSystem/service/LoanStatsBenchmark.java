@@ -0,0 +1,180 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.stats.LoanSummaryDto;
+import com.myapplication.LoanManagementSystem.dto.stats.LoansDisbursedVsPaidDto;
+import com.myapplication.LoanManagementSystem.dto.stats.PaymentSummaryDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.PortfolioRollup;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.repository.PortfolioRollupRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The three /stats summaries over a synthetic portfolio.
+ * streamReductions is the per-request stream reduction over every loan and schedule that the
+ * summaries used before the portfolio rollup, kept here as the reference; rollupSummaries is
+ * LoanStatsService as it is now, folding the rollup slot rows (served from memory instead of the
+ * database). Both give the same totals.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanStatsBenchmark {
+
+    @Param({"1000", "10000"})
+    private int loanCount;
+
+    private List<Loan> loans;
+
+    private LoanStatsService loanStatsService;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        loans = new ArrayList<>(loanCount);
+        for (int i = 1; i <= loanCount; i++) {
+            loans.add(SyntheticLoans.loan(i, Frequency.MONTHLY, 12, random.nextInt(13), random));
+        }
+
+        List<PortfolioRollup> slots = new ArrayList<>();
+        for (int slot = 0; slot < PortfolioRollup.SLOTS; slot++) {
+            slots.add(new PortfolioRollup(slot));
+        }
+        for (Loan loan : loans) {
+            PortfolioRollup slot = slots.get(PortfolioRollup.slotFor(loan.getId()));
+            slot.setLoanCount(slot.getLoanCount() + 1);
+            if (loan.getStatus() == LoanStatus.ACTIVE) {
+                slot.setActiveCount(slot.getActiveCount() + 1);
+            } else if (loan.getStatus() == LoanStatus.PAID) {
+                slot.setPaidCount(slot.getPaidCount() + 1);
+            } else if (loan.getStatus() == LoanStatus.DEFAULTED) {
+                slot.setDefaultedCount(slot.getDefaultedCount() + 1);
+            }
+            slot.setPrincipalDisbursed(slot.getPrincipalDisbursed().add(loan.getPrincipalAmount()));
+            slot.setTotalRepayable(slot.getTotalRepayable().add(loan.getTotalRepayableAmount()));
+            slot.setTotalInterestRate(slot.getTotalInterestRate().add(loan.getInterestRate()));
+            slot.setTotalRepaymentPeriod(slot.getTotalRepaymentPeriod() + loan.getRepaymentPeriod());
+            slot.setTotalInstallmentAmount(slot.getTotalInstallmentAmount().add(loan.getTotalRepayableAmount()
+                    .divide(new BigDecimal(loan.getNumberOfInstallments()), 2, RoundingMode.HALF_UP)));
+            for (RepaymentSchedule schedule : loan.getRepaymentSchedules()) {
+                slot.setTotalPaid(slot.getTotalPaid().add(schedule.getAmountPaid()));
+            }
+        }
+
+        // Only findAll() is called by getPortfolio()
+        PortfolioRollupRepository rollupRepository = (PortfolioRollupRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{PortfolioRollupRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && method.getParameterCount() == 0) {
+                        return slots;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        PortfolioRollupService portfolioRollupService = new PortfolioRollupService();
+        ReflectionTestUtils.setField(portfolioRollupService, "rollupRepository", rollupRepository);
+        loanStatsService = new LoanStatsService();
+        ReflectionTestUtils.setField(loanStatsService, "portfolioRollupService", portfolioRollupService);
+    }
+
+    @Benchmark
+    public void rollupSummaries(Blackhole blackhole) {
+        blackhole.consume(loanStatsService.getLoanSummary());
+        blackhole.consume(loanStatsService.getLoansDisbursedVsPaid());
+        blackhole.consume(loanStatsService.getPaymentSummary());
+    }
+
+    @Benchmark
+    public void streamReductions(Blackhole blackhole) {
+        blackhole.consume(streamLoanSummary(loans));
+        blackhole.consume(streamDisbursedVsPaid(loans));
+        blackhole.consume(streamPaymentSummary(loans));
+    }
+
+    private static LoanSummaryDto streamLoanSummary(List<Loan> loans) {
+        LoanSummaryDto summary = new LoanSummaryDto();
+        summary.setTotalLoans(loans.size());
+        BigDecimal totalPrincipal = loans.stream()
+                .map(Loan::getPrincipalAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        summary.setTotalAmountDisbursed(totalPrincipal);
+        Map<String, Integer> statusCounts = loans.stream()
+                .collect(Collectors.groupingBy(l -> l.getStatus().toString(), Collectors.summingInt(l -> 1)));
+        summary.setLoansByStatus(statusCounts);
+        summary.setAverageLoanAmount(loans.isEmpty() ? BigDecimal.ZERO :
+                totalPrincipal.divide(new BigDecimal(loans.size()), 2, RoundingMode.HALF_UP));
+        BigDecimal totalInterestRate = loans.stream()
+                .map(Loan::getInterestRate)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        summary.setAverageInterestRate(loans.isEmpty() ? BigDecimal.ZERO :
+                totalInterestRate.divide(new BigDecimal(loans.size()), 2, RoundingMode.HALF_UP));
+        summary.setAverageRepaymentPeriodMonths(loans.stream()
+                .mapToInt(l -> l.getRepaymentPeriod() == null ? 0 : l.getRepaymentPeriod())
+                .average().orElse(0.0));
+        return summary;
+    }
+
+    private static LoansDisbursedVsPaidDto streamDisbursedVsPaid(List<Loan> loans) {
+        LoansDisbursedVsPaidDto dto = new LoansDisbursedVsPaidDto();
+        BigDecimal totalDisbursed = loans.stream()
+                .map(Loan::getPrincipalAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        dto.setTotalAmountDisbursed(totalDisbursed);
+        BigDecimal totalPaid = loans.stream()
+                .flatMap(loan -> loan.getRepaymentSchedules().stream())
+                .map(rs -> rs.getAmountPaid() == null ? BigDecimal.ZERO : rs.getAmountPaid())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        dto.setTotalAmountPaid(totalPaid);
+        dto.setPercentagePaid(totalDisbursed.compareTo(BigDecimal.ZERO) > 0 ?
+                totalPaid.divide(totalDisbursed, 4, RoundingMode.HALF_UP).multiply(new BigDecimal("100")).doubleValue() : 0.0);
+        return dto;
+    }
+
+    private static PaymentSummaryDto streamPaymentSummary(List<Loan> loans) {
+        PaymentSummaryDto summary = new PaymentSummaryDto();
+        BigDecimal totalRepayable = loans.stream()
+                .map(Loan::getTotalRepayableAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        summary.setTotalAmountRepayable(totalRepayable);
+        BigDecimal totalPaid = loans.stream()
+                .flatMap(loan -> loan.getRepaymentSchedules().stream())
+                .map(rs -> rs.getAmountPaid() == null ? BigDecimal.ZERO : rs.getAmountPaid())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        summary.setTotalAmountPaid(totalPaid);
+        summary.setTotalRemainingBalance(totalRepayable.subtract(totalPaid));
+        List<BigDecimal> installmentAmounts = loans.stream()
+                .map(loan -> loan.getNumberOfInstallments() > 0
+                        ? loan.getTotalRepayableAmount().divide(new BigDecimal(loan.getNumberOfInstallments()), 2, RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO)
+                .collect(Collectors.toList());
+        BigDecimal sumInstallments = installmentAmounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        summary.setAverageInstallmentPayment(installmentAmounts.isEmpty() ? BigDecimal.ZERO :
+                sumInstallments.divide(new BigDecimal(installmentAmounts.size()), 2, RoundingMode.HALF_UP));
+        return summary;
+    }
+}
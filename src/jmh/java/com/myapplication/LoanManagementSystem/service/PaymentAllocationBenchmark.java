@@ -0,0 +1,79 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.Payment;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The allocation loop of PaymentService.bulkPayment: a payment of two and a half installments
+ * spread over the earliest open installments of a loan whose first quarter is already paid.
+ * The schedule is reset before every call (outside the measurement), so each call does the same work.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentAllocationBenchmark {
+
+    @Param({"12", "120", "520"})
+    private int installments;
+
+    private final PaymentService paymentService = new PaymentService();
+
+    private final LocalDate paymentDate = LocalDate.now();
+
+    private Loan loan;
+
+    private BigDecimal amount;
+
+    private int paidInstallments;
+
+    @Setup
+    public void setUp() {
+        paidInstallments = installments / 4;
+        loan = SyntheticLoans.loan(1, Frequency.MONTHLY, installments, paidInstallments, new Random(42));
+        BigDecimal installment = loan.getRepaymentSchedules().get(0).getAmountDue();
+        amount = installment.multiply(new BigDecimal("2.5"));
+    }
+
+    @Setup(Level.Invocation)
+    public void resetSchedule() {
+        List<RepaymentSchedule> schedules = loan.getRepaymentSchedules();
+        for (int i = paidInstallments; i < schedules.size(); i++) {
+            RepaymentSchedule schedule = schedules.get(i);
+            schedule.setAmountPaid(BigDecimal.ZERO);
+            schedule.setPaymentStatus(RepaymentStatus.PENDING);
+            schedule.setPaymentDate(null);
+        }
+    }
+
+    @Benchmark
+    public List<Payment> allocate() {
+        List<Payment> payments = new ArrayList<>();
+        paymentService.allocate(loan, amount, paymentDate, null, payments);
+        return payments;
+    }
+}
@@ -0,0 +1,55 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Loans with stored schedules, built in memory the way LoanService builds them, for the benchmarks.
+ */
+final class SyntheticLoans {
+
+    private static final LoanStatus[] STATUSES = {LoanStatus.ACTIVE, LoanStatus.ACTIVE, LoanStatus.ACTIVE,
+            LoanStatus.PAID, LoanStatus.DEFAULTED};
+
+    private SyntheticLoans() {
+    }
+
+    /**
+     * A loan with ids on the loan and every installment, as if loaded from the database.
+     * @param paidInstallments how many of the first installments are fully paid
+     */
+    static Loan loan(long id, Frequency frequency, int installments, int paidInstallments, Random random) {
+        Loan loan = new Loan();
+        loan.setId(id);
+        BigDecimal principal = BigDecimal.valueOf(1_000 + random.nextInt(99_000));
+        int rate = 5 + random.nextInt(25);
+        loan.setPrincipalAmount(principal);
+        loan.setInterestRate(BigDecimal.valueOf(rate));
+        loan.setRepaymentFrequency(frequency);
+        loan.setRepaymentPeriod(frequency == Frequency.WEEKLY ? Math.max(1, installments * 12 / 52) : installments);
+        // Flat interest, as LoanService charges it
+        BigDecimal totalRepayable = principal.add(principal.multiply(BigDecimal.valueOf(rate)).movePointLeft(2));
+        loan.setTotalRepayableAmount(totalRepayable);
+        loan.setNumberOfInstallments(installments);
+        loan.setStatus(STATUSES[(int) (id % STATUSES.length)]);
+
+        List<RepaymentSchedule> schedules = new LoanService().generateAmortizationSchedule(loan, installments, totalRepayable);
+        for (int i = 0; i < schedules.size(); i++) {
+            RepaymentSchedule schedule = schedules.get(i);
+            schedule.setId(id * 1_000 + i);
+            if (i < paidInstallments) {
+                schedule.setAmountPaid(schedule.getAmountDue());
+                schedule.setPaymentStatus(RepaymentStatus.PAID);
+            }
+        }
+        loan.setRepaymentSchedules(schedules);
+        return loan;
+    }
+}
@@ -0,0 +1,42 @@
+package com.myapplication.LoanManagementSystem.utils;
+
+import com.myapplication.LoanManagementSystem.dto.loancalculation.LoanCalculationResponseDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoanCalculator.calculateLoan for a typical principal, monthly and weekly, short and long periods.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanCalculatorBenchmark {
+
+    @Param({"MONTHLY", "WEEKLY"})
+    private Frequency frequency;
+
+    @Param({"12", "120"})
+    private int repaymentPeriod;
+
+    private final BigDecimal principal = new BigDecimal("25000.00");
+
+    @Benchmark
+    public LoanCalculationResponseDto calculateLoan() {
+        return LoanCalculator.calculateLoan(principal, repaymentPeriod, 14, frequency);
+    }
+}
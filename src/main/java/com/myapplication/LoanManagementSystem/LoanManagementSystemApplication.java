@@ -2,8 +2,10 @@ package com.myapplication.LoanManagementSystem;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class LoanManagementSystemApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,70 @@
+package com.myapplication.LoanManagementSystem.config;
+
+import com.myapplication.LoanManagementSystem.model.IdGenerators;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Moves each pooled id generator past the ids already in its table. Needed once when a table
+ * switches from IDENTITY keys to a table generator; afterwards the generator is already ahead
+ * and nothing changes. Runs once every singleton exists but before the web server starts, so no
+ * request can take an id from a generator that is still behind.
+ */
+@Component
+public class IdGeneratorAligner implements SmartInitializingSingleton {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        align();
+    }
+
+    // Also called after rows were inserted with explicit ids, e.g. by a bulk load
+    public void align() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            align(IdGenerators.LOANS, "loans", "id");
+            align(IdGenerators.REPAYMENT_SCHEDULES, "repayment_schedule", "schedule_id");
+            align(IdGenerators.PAYMENTS, "payments", "payment_id");
+            align(IdGenerators.PAYMENT_IMPORT_ERRORS, "payment_import_errors", "id");
+            align(IdGenerators.PAYMENT_RECEIPTS, "payment_receipts", "id");
+        });
+    }
+
+    private void align(String generator, String table, String idColumn) {
+        long maxId = ((Number) entityManager
+                .createNativeQuery("select coalesce(max(" + idColumn + "), 0) from " + table)
+                .getSingleResult()).longValue();
+        // The pooled optimizer hands out the block [value - allocationSize, value) for each value it reads
+        long floor = maxId + IdGenerators.ALLOCATION_SIZE + 1;
+
+        List<?> current = entityManager.createNativeQuery("select " + IdGenerators.VALUE_COLUMN
+                        + " from " + IdGenerators.TABLE + " where " + IdGenerators.NAME_COLUMN + " = ?1 for update")
+                .setParameter(1, generator)
+                .getResultList();
+        if (current.isEmpty()) {
+            entityManager.createNativeQuery("insert into " + IdGenerators.TABLE + " (" + IdGenerators.NAME_COLUMN
+                            + ", " + IdGenerators.VALUE_COLUMN + ") values (?1, ?2)")
+                    .setParameter(1, generator)
+                    .setParameter(2, floor)
+                    .executeUpdate();
+        } else if (((Number) current.get(0)).longValue() < floor) {
+            entityManager.createNativeQuery("update " + IdGenerators.TABLE + " set " + IdGenerators.VALUE_COLUMN
+                            + " = ?1 where " + IdGenerators.NAME_COLUMN + " = ?2")
+                    .setParameter(1, floor)
+                    .setParameter(2, generator)
+                    .executeUpdate();
+        }
+    }
+}
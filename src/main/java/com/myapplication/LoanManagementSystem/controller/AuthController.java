@@ -6,12 +6,19 @@ import com.myapplication.LoanManagementSystem.dto.UserRegistrationDto;
 import com.myapplication.LoanManagementSystem.model.User;
 import com.myapplication.LoanManagementSystem.apiresponses.RegisterResponse;
 import com.myapplication.LoanManagementSystem.repository.UserRepository;
+import com.myapplication.LoanManagementSystem.security.CustomUserDetailsService;
 import com.myapplication.LoanManagementSystem.security.JwtUtil;
+import com.myapplication.LoanManagementSystem.security.LoginAttemptLimiter;
+import com.myapplication.LoanManagementSystem.security.PasswordHashingBusyException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.*;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
@@ -25,6 +32,12 @@ public class AuthController {
     private JwtUtil jwtUtil;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private LoginAttemptLimiter loginAttemptLimiter;
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
 
     @PostMapping("/register")
     /*public ResponseEntity<?> registerUser(@RequestBody User user) {
@@ -34,7 +47,11 @@ public class AuthController {
         return ResponseEntity.ok().body(new ApiResponse(null, "Registration successful", HttpStatus.OK.value()));
     }*/
 
-    public ResponseEntity<?> registerUser(@RequestBody UserRegistrationDto registrationDto) {
+    public ResponseEntity<?> registerUser(@RequestBody UserRegistrationDto registrationDto, HttpServletRequest request) {
+        // Refuse excess attempts before hashing anything
+        if (!loginAttemptLimiter.tryAcquire(null, request.getRemoteAddr())) {
+            return tooManyAttempts();
+        }
         // Map the DTO to the User entity
         User user = new User();
         user.setUsername(registrationDto.getUsername());
@@ -42,17 +59,41 @@ public class AuthController {
         user.setLastname(registrationDto.getLastname());
         user.setEmail(registrationDto.getEmail());
         // Encrypt the password before saving
-        user.setPassword(new BCryptPasswordEncoder().encode(registrationDto.getPassword()));
+        try {
+            user.setPassword(passwordEncoder.encode(registrationDto.getPassword()));
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
+        }
 
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // The unique index on username
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse(null, "Username is already taken", HttpStatus.CONFLICT.value()));
+        }
+        userDetailsService.evict(user.getUsername());
         return ResponseEntity.ok().body(new ApiResponse(null, "Registration successful", HttpStatus.OK.value()));
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@RequestBody AuthenticationRequestDto authRequest) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(authRequest.getUsername(), authRequest.getPassword())
-        );
+    public ResponseEntity<?> authenticateUser(@RequestBody AuthenticationRequestDto authRequest, HttpServletRequest request) {
+        // getRemoteAddr() is the client's address behind a proxy too, see server.forward-headers-strategy
+        if (loginAttemptLimiter.isBlocked(authRequest.getUsername(), request.getRemoteAddr())) {
+            return tooManyAttempts();
+        }
+        try {
+            authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(authRequest.getUsername(), authRequest.getPassword())
+            );
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
+        } catch (AuthenticationException e) {
+            // Only failed sign-ins count towards the limit
+            loginAttemptLimiter.recordFailure(authRequest.getUsername(), request.getRemoteAddr());
+            throw e;
+        }
+        loginAttemptLimiter.recordSuccess(authRequest.getUsername());
     /*public ResponseEntity<?> authenticateUser(@RequestBody User request) {
         authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));*/
@@ -62,4 +103,17 @@ public class AuthController {
         /*String token = jwtUtil.generateToken(request.getUsername());
         return ResponseEntity.ok().body(new ApiResponse(token,"login successful", HttpStatus.OK.value()));
     }*/
+
+    private ResponseEntity<?> tooManyAttempts() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginAttemptLimiter.getWindowSeconds()))
+                .body(new ApiResponse(null, "Too many attempts, please try again later", HttpStatus.TOO_MANY_REQUESTS.value()));
+    }
+
+    // Back-pressure: the hashing pool is saturated, the client should retry after a short wait
+    private static ResponseEntity<?> busy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(new ApiResponse(null, e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value()));
+    }
 }
\ No newline at end of file
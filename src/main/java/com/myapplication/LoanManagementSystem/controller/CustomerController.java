@@ -1,19 +1,21 @@
 package com.myapplication.LoanManagementSystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto;
-import com.myapplication.LoanManagementSystem.dto.customerdetails.LoanDetailsDto;
-import com.myapplication.LoanManagementSystem.dto.customerdetails.RepaymentScheduleDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsPageDto;
 import com.myapplication.LoanManagementSystem.dto.CustomerRegistrationDto;
 import com.myapplication.LoanManagementSystem.dto.CustomerUpdateDto;
 import com.myapplication.LoanManagementSystem.model.Customer;
-import com.myapplication.LoanManagementSystem.model.Loan;
-import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.service.CustomerDetailsService;
 import com.myapplication.LoanManagementSystem.service.CustomerService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @CrossOrigin(origins = "*", allowedHeaders = "*",
@@ -22,9 +24,17 @@ import java.util.List;
 @RequestMapping("/customers")
 public class CustomerController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private CustomerDetailsService customerDetailsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // Basic GET for all customers (without nested details)
     @GetMapping
     public ResponseEntity<List<Customer>> getAllCustomers(){
@@ -34,21 +44,42 @@ public class CustomerController {
     // GET a customer by ID with details (loans and repayment schedules)
     @GetMapping("/details/{id}")
     public ResponseEntity<CustomerDetailsDto> getCustomerDetailsById(@PathVariable Long id) {
-        Customer customer = customerService.getCustomerById(id)
+        CustomerDetailsDto customerDto = customerDetailsService.getCustomerDetails(id)
                 .orElseThrow(() -> new RuntimeException("Customer not found with id " + id));
-        CustomerDetailsDto customerDto = mapCustomerToDetailsDto(customer);
         return ResponseEntity.ok(customerDto);
     }
 
     // GET all customers with details (loans and repayment schedules)
     @GetMapping("/details")
     public ResponseEntity<List<CustomerDetailsDto>> getAllCustomerDetails() {
-        List<Customer> customers = customerService.getAllCustomers();
-        List<CustomerDetailsDto> detailsDtos = new ArrayList<>();
-        for (Customer customer : customers) {
-            detailsDtos.add(mapCustomerToDetailsDto(customer));
-        }
-        return ResponseEntity.ok(detailsDtos);
+        return ResponseEntity.ok(customerDetailsService.getAllCustomerDetails());
+    }
+
+    // GET one page of customers with details, keyset-paginated by customer id.
+    // e.g., GET /customers/details/page?size=100, then ?afterId={nextCursor}&size=100
+    @GetMapping("/details/page")
+    public ResponseEntity<CustomerDetailsPageDto> getCustomerDetailsPage(
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(customerDetailsService.getCustomerDetailsPage(afterId, size));
+    }
+
+    // GET all customers with details as newline-delimited JSON, one customer per line,
+    // written to the response as each one is mapped.
+    @GetMapping(value = "/details/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamCustomerDetails() {
+        StreamingResponseBody body = outputStream -> {
+            customerDetailsService.streamCustomerDetails(dto -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(dto));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
     // POST endpoint for customer registration using the registration DTO.
@@ -83,53 +114,6 @@ public class CustomerController {
         customerService.deleteCustomer(id);
         return ResponseEntity.noContent().build();
     }
-
-    // Helper method to map a Customer entity to CustomerDetailsDto (including nested loans and repayment schedules)
-    private CustomerDetailsDto mapCustomerToDetailsDto(Customer customer) {
-        CustomerDetailsDto customerDto = new CustomerDetailsDto();
-        customerDto.setId(customer.getId());
-        customerDto.setFirstname(customer.getFirstname());
-        customerDto.setLastname(customer.getLastname());
-        customerDto.setNationalIdentityCard(customer.getNationalIdentityCard());
-        customerDto.setPhoneNumber(customer.getPhoneNumber());
-        customerDto.setRegistrationDate(customer.getRegistrationDate());
-
-        List<LoanDetailsDto> loanDtos = new ArrayList<>();
-        if (customer.getLoans() != null) {
-            for (Loan loan : customer.getLoans()) {
-                LoanDetailsDto loanDto = new LoanDetailsDto();
-                loanDto.setId(loan.getId());
-                loanDto.setPrincipalAmount(loan.getPrincipalAmount());
-                loanDto.setInterestRate(loan.getInterestRate());
-                loanDto.setRepaymentPeriod(loan.getRepaymentPeriod());
-                loanDto.setTotalRepayableAmount(loan.getTotalRepayableAmount());
-                // Convert enum to String if necessary; for example:
-                loanDto.setStatus(loan.getStatus());
-                loanDto.setCreatedAt(loan.getCreatedAt());
-
-                // Map repayment schedules for this loan
-                List<RepaymentScheduleDto> scheduleDtos = new ArrayList<>();
-                if (loan.getRepaymentSchedules() != null) {
-                    for (RepaymentSchedule schedule : loan.getRepaymentSchedules()) {
-                        RepaymentScheduleDto scheduleDto = new RepaymentScheduleDto();
-                        scheduleDto.setScheduleId(schedule.getId());
-                        scheduleDto.setDueDate(schedule.getDueDate());
-                        scheduleDto.setAmountDue(schedule.getAmountDue());
-                        scheduleDto.setEmi(schedule.getEmi());
-                        scheduleDto.setAmountPaid(schedule.getAmountPaid());
-                        scheduleDto.setPaymentDate(schedule.getPaymentDate());
-                        scheduleDto.setPaymentStatus(schedule.getPaymentStatus());
-                        scheduleDto.setCreatedAt(schedule.getCreatedAt());
-                        scheduleDtos.add(scheduleDto);
-                    }
-                }
-                loanDto.setRepaymentSchedules(scheduleDtos);
-                loanDtos.add(loanDto);
-            }
-        }
-        customerDto.setLoans(loanDtos);
-        return customerDto;
-    }
 }
 
 
@@ -1,12 +1,13 @@
 package com.myapplication.LoanManagementSystem.controller;
 
 import com.myapplication.LoanManagementSystem.dto.loancalculation.*;
+import com.myapplication.LoanManagementSystem.dto.BatchLoanResultDto;
 import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
 import com.myapplication.LoanManagementSystem.model.Customer;
 import com.myapplication.LoanManagementSystem.model.Loan;
 import com.myapplication.LoanManagementSystem.repository.CustomerRepository;
+import com.myapplication.LoanManagementSystem.service.LoanQuoteService;
 import com.myapplication.LoanManagementSystem.service.LoanService;
-import com.myapplication.LoanManagementSystem.utils.LoanCalculator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,6 +23,9 @@ public class LoanController {
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private LoanQuoteService loanQuoteService;
+
     // Inject the CustomerRepository to fetch Customer entities by id.
     @Autowired
     private CustomerRepository customerRepository;
@@ -60,6 +64,16 @@ public class LoanController {
         return ResponseEntity.ok(createdLoan);
     }
 
+    /**
+     * Creates many loans in one call, e.g. a group-lending cohort; reports each item's outcome and throughput.
+     * e.g., POST /loans/batch
+     * Request Body: [ { "customerId": 3, "principalAmount": 20000, "interestRate": 10, "repaymentPeriod": 12, "repaymentFrequency": "WEEKLY" }, ... ]
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchLoanResultDto> createLoans(@RequestBody List<LoanRequestDto> items) {
+        return ResponseEntity.ok(loanService.createLoans(items));
+    }
+
     // PUT endpoint for updating an existing loan using LoanRequestDto: /loans/update/{id}
     @PutMapping("/update/{id}")
     public ResponseEntity<Loan> updateLoan(@PathVariable Long id, @RequestBody LoanRequestDto dto) {
@@ -120,14 +134,20 @@ public class LoanController {
     // POST endpoint for calculating loan details: /loans/calculate
     @PostMapping("/calculate")
     public ResponseEntity<LoanCalculationResponseDto> calculateLoan(@RequestBody LoanCalculationRequestDto requestDto) {
-        LoanCalculationResponseDto response = LoanCalculator.calculateLoan(
-                requestDto.getPrincipalAmount(),
-                requestDto.getRepaymentPeriod(),
-                requestDto.getInterestRate(),
-                requestDto.getFrequency()// Now inputted by the user
-        );
+        // Served from the quote cache for inputs seen before, see LoanQuoteService
+        LoanCalculationResponseDto response = loanQuoteService.calculateLoan(requestDto);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Many quotes in one call, e.g. a product comparison grid; results come back in request order.
+     * e.g., POST /loans/calculate/batch
+     * Request Body: [ { "principalAmount": 20000, "repaymentPeriod": 12, "interestRate": 10, "frequency": "MONTHLY" }, ... ]
+     */
+    @PostMapping("/calculate/batch")
+    public ResponseEntity<List<LoanCalculationResponseDto>> calculateLoans(@RequestBody List<LoanCalculationRequestDto> requests) {
+        return ResponseEntity.ok(loanQuoteService.calculateLoans(requests));
+    }
 }
 
 
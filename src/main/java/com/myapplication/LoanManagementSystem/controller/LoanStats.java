@@ -2,15 +2,33 @@ package com.myapplication.LoanManagementSystem.controller;
 
 
 
+import com.myapplication.LoanManagementSystem.dto.simulation.SimulationRequestDto;
+import com.myapplication.LoanManagementSystem.dto.simulation.SimulationResultDto;
+import com.myapplication.LoanManagementSystem.dto.stats.AgingReportDto;
+import com.myapplication.LoanManagementSystem.dto.stats.CashflowProjectionDto;
 import com.myapplication.LoanManagementSystem.dto.stats.LoanSummaryDto;
 import com.myapplication.LoanManagementSystem.dto.stats.LoansDisbursedVsPaidDto;
 import com.myapplication.LoanManagementSystem.dto.stats.PaymentSummaryDto;
+import com.myapplication.LoanManagementSystem.dto.stats.RollupRebuildDto;
 import com.myapplication.LoanManagementSystem.dto.stats.TrendsDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.ProjectionGranularity;
+import com.myapplication.LoanManagementSystem.model.TrendGranularity;
+import com.myapplication.LoanManagementSystem.service.CashflowProjectionService;
 import com.myapplication.LoanManagementSystem.service.LoanStatsService;
+import com.myapplication.LoanManagementSystem.service.PortfolioAgingService;
+import com.myapplication.LoanManagementSystem.service.PortfolioRollupService;
+import com.myapplication.LoanManagementSystem.service.PortfolioSimulationService;
+import com.myapplication.LoanManagementSystem.service.TrendBucketService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
 @RestController
 @RequestMapping("/stats")
@@ -19,6 +37,21 @@ public class LoanStats {
     @Autowired
     private LoanStatsService loanStatsService;
 
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private TrendBucketService trendBucketService;
+
+    @Autowired
+    private PortfolioAgingService portfolioAgingService;
+
+    @Autowired
+    private CashflowProjectionService cashflowProjectionService;
+
+    @Autowired
+    private PortfolioSimulationService portfolioSimulationService;
+
     @GetMapping("/loans-summary")
     public ResponseEntity<LoanSummaryDto> getLoanSummary() {
         LoanSummaryDto summary = loanStatsService.getLoanSummary();
@@ -37,9 +70,71 @@ public class LoanStats {
         return ResponseEntity.ok(summary);
     }
 
+    /**
+     * Disbursement and collection trends.
+     * e.g., GET /stats/trends?from=2025-01-01&to=2025-06-30&granularity=MONTHLY
+     * from/to are optional; granularity is MONTHLY (default) or DAILY.
+     */
     @GetMapping("/trends")
-    public ResponseEntity<TrendsDto> getTrends() {
-        TrendsDto trends = loanStatsService.getTrends();
+    public ResponseEntity<TrendsDto> getTrends(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "MONTHLY") TrendGranularity granularity) {
+        TrendsDto trends = loanStatsService.getTrends(from, to, granularity);
         return ResponseEntity.ok(trends);
     }
+
+    /**
+     * Arrears aging buckets (current, 1-30, 31-60, 61-90, 91-180, 181+ days past due) and PAR1/30/60/90
+     * of the open loans. Computed once per business day.
+     * e.g., GET /stats/aging
+     */
+    @GetMapping("/aging")
+    public ResponseEntity<AgingReportDto> getAging() {
+        return ResponseEntity.ok(portfolioAgingService.getAging());
+    }
+
+    /**
+     * Expected collections from unpaid installments, bucketed from today.
+     * e.g., GET /stats/cashflow-projection?months=12&granularity=WEEKLY&frequency=MONTHLY&status=ACTIVE
+     * granularity is MONTHLY (default) or WEEKLY; bucketDays=10 gives fixed 10-day buckets instead.
+     * status may be repeated; by default ACTIVE and DEFAULTED loans are included.
+     */
+    @GetMapping("/cashflow-projection")
+    public ResponseEntity<CashflowProjectionDto> getCashflowProjection(
+            @RequestParam(defaultValue = "12") int months,
+            @RequestParam(defaultValue = "MONTHLY") ProjectionGranularity granularity,
+            @RequestParam(required = false) Integer bucketDays,
+            @RequestParam(required = false) Frequency frequency,
+            @RequestParam(name = "status", required = false) List<LoanStatus> statuses) {
+        int horizon = Math.max(1, Math.min(months, CashflowProjectionService.MAX_MONTHS));
+        return ResponseEntity.ok(cashflowProjectionService.getProjection(horizon, granularity, bucketDays, frequency, statuses));
+    }
+
+    /**
+     * What-if pricing of the active loans under one or more rate/period changes, e.g.
+     * POST /stats/simulation {"scenarios": [{"name": "monthly 12% to 14%", "frequency": "MONTHLY",
+     * "currentRate": 12, "newRate": 14}]}
+     * All scenarios are priced against the same snapshot of the active loans.
+     */
+    @PostMapping("/simulation")
+    public ResponseEntity<SimulationResultDto> simulate(@RequestBody SimulationRequestDto request) {
+        return ResponseEntity.ok(portfolioSimulationService.simulate(request.getScenarios(), request.isRefreshSnapshot()));
+    }
+
+    // Recomputes the trend buckets from the loans and payments tables.
+    @PostMapping("/trends/rebuild")
+    public ResponseEntity<?> rebuildTrends() {
+        trendBucketService.rebuild();
+        return ResponseEntity.ok("Trend buckets rebuilt successfully");
+    }
+
+    /**
+     * Recomputes the portfolio rollup from loans and repayment schedules.
+     * The response lists every total that had drifted from the recomputed value.
+     */
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<RollupRebuildDto> rebuildRollup() {
+        return ResponseEntity.ok(portfolioRollupService.rebuild());
+    }
 }
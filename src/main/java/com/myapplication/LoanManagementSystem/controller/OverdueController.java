@@ -0,0 +1,41 @@
+package com.myapplication.LoanManagementSystem.controller;
+
+import com.myapplication.LoanManagementSystem.dto.OverdueRunDto;
+import com.myapplication.LoanManagementSystem.service.OverdueService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Overdue classification runs. The job runs nightly on its own; these endpoints start a run on demand
+ * (e.g. to catch up a missed date) and report its progress.
+ */
+@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
+@RestController
+@RequestMapping("/overdue/runs")
+public class OverdueController {
+
+    @Autowired
+    private OverdueService overdueService;
+
+    /**
+     * Start (or resume) the run for a business date, today by default; it runs in the background.
+     * e.g., POST /overdue/runs?asOf=2025-03-15
+     */
+    @PostMapping
+    public ResponseEntity<OverdueRunDto> startRun(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        LocalDate date = asOf != null ? asOf : LocalDate.now();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(overdueService.start(date));
+    }
+
+    // e.g., GET /overdue/runs/4
+    @GetMapping("/{runId}")
+    public ResponseEntity<OverdueRunDto> getRun(@PathVariable Long runId) {
+        return ResponseEntity.ok(overdueService.getRun(runId));
+    }
+}
@@ -1,8 +1,12 @@
 package com.myapplication.LoanManagementSystem.controller;
 
 import com.myapplication.LoanManagementSystem.dto.payments.*;
+import com.myapplication.LoanManagementSystem.service.PaymentQueueFullException;
+import com.myapplication.LoanManagementSystem.service.PaymentQueueService;
 import com.myapplication.LoanManagementSystem.service.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,32 +22,84 @@ import java.util.List;
 @RequestMapping("/payments")
 public class PaymentController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private PaymentQueueService paymentQueueService;
+
     /**
      * Single installment payment.
      * e.g., PUT /payments/repayment-schedules/1/pay
-     * Request Body: { "paymentAmount": 10909.09, "paymentDate": "2025-03-15" }
+     * Request Body: { "paymentAmount": 10909.09, "paymentDate": "2025-03-15", "reference": "QFT4XK2L9P" }
+     * An Idempotency-Key header, or the reference field, makes retries safe: a repeated key returns
+     * the original receipt with an Idempotent-Replayed: true header instead of paying again.
+     * With ?async=true the payment is queued and 202 is returned with a tracking id, see PaymentQueueService.
      */
     @PutMapping("/repayment-schedules/{scheduleId}/pay")
     public ResponseEntity<?> payInstallment(
             @PathVariable Long scheduleId,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestParam(defaultValue = "false") boolean async,
             @RequestBody PaymentRequestDto dto) {
 
-        paymentService.payInstallment(scheduleId, dto);
-        return ResponseEntity.ok("Installment paid successfully");
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            dto.setReference(idempotencyKey);
+        }
+        if (async) {
+            try {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(paymentQueueService.enqueueInstallment(scheduleId, dto));
+            } catch (PaymentQueueFullException e) {
+                return queueFull(e);
+            }
+        }
+        return receipt(paymentService.payInstallment(scheduleId, dto));
     }
 
     /**
      * Bulk payment endpoint.
      * e.g., POST /payments
-     * Request Body: { "loanId": 5, "paymentAmount": 20000, "paymentDate": "2025-03-15" }
+     * Request Body: { "loanId": 5, "paymentAmount": 20000, "paymentDate": "2025-03-15", "reference": "QFT4XK2L9P" }
+     * Idempotent, and available in async mode, in the same way as the single installment payment.
      */
     @PostMapping
-    public ResponseEntity<?> bulkPayment(@RequestBody BulkPaymentRequestDto dto) {
-        paymentService.bulkPayment(dto);
-        return ResponseEntity.ok("Bulk payment processed successfully");
+    public ResponseEntity<?> bulkPayment(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestBody BulkPaymentRequestDto dto) {
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            dto.setReference(idempotencyKey);
+        }
+        if (async) {
+            try {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(paymentQueueService.enqueueBulk(dto));
+            } catch (PaymentQueueFullException e) {
+                return queueFull(e);
+            }
+        }
+        return receipt(paymentService.bulkPayment(dto));
+    }
+
+    /**
+     * Outcome of a payment accepted with ?async=true.
+     * e.g., GET /payments/queue/42
+     */
+    @GetMapping("/queue/{trackingId}")
+    public ResponseEntity<QueuedPaymentDto> getQueuedPayment(@PathVariable Long trackingId) {
+        return ResponseEntity.ok(paymentQueueService.getQueuedPayment(trackingId));
+    }
+
+    /**
+     * Batch payment endpoint for settlement files. Each item is allocated like a bulk payment;
+     * the response reports every item's outcome plus overall throughput.
+     * e.g., POST /payments/batch
+     * Request Body: [ { "loanId": 5, "paymentAmount": 20000, "paymentDate": "2025-03-15" }, ... ]
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchPaymentResultDto> batchPayments(@RequestBody List<BulkPaymentRequestDto> items) {
+        return ResponseEntity.ok(paymentService.batchPayments(items));
     }
 
     /**
@@ -68,6 +124,20 @@ public class PaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    private static ResponseEntity<PaymentReceiptDto> receipt(PaymentReceiptDto receipt) {
+        if (receipt.isDuplicate()) {
+            return ResponseEntity.ok().header("Idempotent-Replayed", "true").body(receipt);
+        }
+        return ResponseEntity.ok(receipt);
+    }
+
+    // Back-pressure: the client should retry after a short wait
+    private static ResponseEntity<String> queueFull(PaymentQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(e.getMessage());
+    }
+
     @GetMapping("/loan/{loanId}/summary")
     public ResponseEntity<PaymentSummaryDto> getPaymentSummary(@PathVariable Long loanId) {
         PaymentSummaryDto summary = paymentService.calculatePaymentSummary(loanId);
@@ -0,0 +1,60 @@
+package com.myapplication.LoanManagementSystem.controller;
+
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentImportStatusDto;
+import com.myapplication.LoanManagementSystem.model.PaymentImportError;
+import com.myapplication.LoanManagementSystem.service.PaymentImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+/**
+ * Settlement file imports: upload a CSV of payments, then poll the job for progress.
+ */
+@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
+@RestController
+@RequestMapping("/payments/import")
+public class PaymentImportController {
+
+    private static final int MAX_ERRORS_PER_PAGE = 1000;
+
+    @Autowired
+    private PaymentImportService paymentImportService;
+
+    /**
+     * Upload a settlement CSV; the import runs in the background.
+     * e.g., POST /payments/import with multipart field "file"
+     * CSV: loanId,paymentAmount,paymentDate
+     *      5,20000,2025-03-15
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<PaymentImportStatusDto> importPayments(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(paymentImportService.startImport(file));
+    }
+
+    // e.g., GET /payments/import/3
+    @GetMapping("/{jobId}")
+    public ResponseEntity<PaymentImportStatusDto> getStatus(@PathVariable Long jobId) {
+        return ResponseEntity.ok(paymentImportService.getStatus(jobId));
+    }
+
+    // Error rows in line order, e.g., GET /payments/import/3/errors?afterLine=0&limit=100
+    @GetMapping("/{jobId}/errors")
+    public ResponseEntity<List<PaymentImportError>> getErrors(
+            @PathVariable Long jobId,
+            @RequestParam(defaultValue = "0") long afterLine,
+            @RequestParam(defaultValue = "100") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_ERRORS_PER_PAGE));
+        return ResponseEntity.ok(paymentImportService.getErrors(jobId, afterLine, pageSize));
+    }
+
+    // Continue a failed import from its last checkpoint.
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<PaymentImportStatusDto> resume(@PathVariable Long jobId) {
+        return ResponseEntity.ok(paymentImportService.resume(jobId));
+    }
+}
@@ -0,0 +1,18 @@
+package com.myapplication.LoanManagementSystem.dto;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class BatchLoanItemResultDto {
+    // Position of the item in the request list
+    private int index;
+    private Long customerId;
+    private boolean success;
+    private Long loanId;
+    private int installments;
+    // Schedule rows inserted; 0 for a loan with a compact schedule
+    private int scheduleRows;
+    private BigDecimal totalRepayableAmount;
+    private String error;
+}
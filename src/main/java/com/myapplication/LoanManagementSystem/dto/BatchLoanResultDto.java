@@ -0,0 +1,20 @@
+package com.myapplication.LoanManagementSystem.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class BatchLoanResultDto {
+    private int itemCount;
+    private int succeeded;
+    private int failed;
+    // Installments scheduled, whether stored as rows or as a compact schedule
+    private int schedulesCreated;
+    // Loan plus schedule rows inserted
+    private long rowsInserted;
+    private long elapsedMillis;
+    private double loansPerSecond;
+    private double rowsPerSecond;
+    // One entry per request item, in request order
+    private List<BatchLoanItemResultDto> items;
+}
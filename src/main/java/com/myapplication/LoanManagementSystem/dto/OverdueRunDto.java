@@ -0,0 +1,24 @@
+package com.myapplication.LoanManagementSystem.dto;
+
+import com.myapplication.LoanManagementSystem.model.OverdueRunStatus;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class OverdueRunDto {
+    private Long runId;
+    private LocalDate asOfDate;
+    private LocalDate defaultCutoffDate;
+    private OverdueRunStatus status;
+    private int partitionCount;
+    private int partitionsCompleted;
+    private long schedulesMarkedLate;
+    private long loansDefaulted;
+    // Measured over the time spent processing, not time spent queued or stopped
+    private long processingMillis;
+    private String lastError;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
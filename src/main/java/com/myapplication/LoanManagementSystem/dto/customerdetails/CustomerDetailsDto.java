@@ -3,10 +3,13 @@ package com.myapplication.LoanManagementSystem.dto.customerdetails;
 
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
+@NoArgsConstructor
 public class CustomerDetailsDto {
     private Long id;
     private String firstname;
@@ -15,4 +18,16 @@ public class CustomerDetailsDto {
     private String phoneNumber;
     private LocalDate registrationDate;
     private List<LoanDetailsDto> loans;
+
+    // Used by the repository projection; loans are added once they are loaded.
+    public CustomerDetailsDto(Long id, String firstname, String lastname, String nationalIdentityCard,
+                              String phoneNumber, LocalDate registrationDate) {
+        this.id = id;
+        this.firstname = firstname;
+        this.lastname = lastname;
+        this.nationalIdentityCard = nationalIdentityCard;
+        this.phoneNumber = phoneNumber;
+        this.registrationDate = registrationDate;
+        this.loans = new ArrayList<>();
+    }
 }
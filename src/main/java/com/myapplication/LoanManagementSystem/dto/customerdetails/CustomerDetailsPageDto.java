@@ -0,0 +1,11 @@
+package com.myapplication.LoanManagementSystem.dto.customerdetails;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CustomerDetailsPageDto {
+    private List<CustomerDetailsDto> customers;
+    // Pass as afterId to fetch the next page; null when this is the last page.
+    private Long nextCursor;
+}
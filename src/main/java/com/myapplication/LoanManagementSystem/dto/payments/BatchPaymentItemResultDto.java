@@ -0,0 +1,19 @@
+package com.myapplication.LoanManagementSystem.dto.payments;
+
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+public class BatchPaymentItemResultDto {
+    // Position of the item in the request list
+    private int index;
+    private Long loanId;
+    private boolean success;
+    private BigDecimal amountAllocated;
+    // Part of the payment left over once every installment was paid
+    private BigDecimal amountUnallocated;
+    private int paymentsRecorded;
+    // The item's reference was already posted, so nothing was allocated
+    private boolean duplicate;
+    private String error;
+}
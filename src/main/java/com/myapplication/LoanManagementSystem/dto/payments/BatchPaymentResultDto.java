@@ -0,0 +1,20 @@
+package com.myapplication.LoanManagementSystem.dto.payments;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class BatchPaymentResultDto {
+    private int itemCount;
+    private int succeeded;
+    private int failed;
+    private int loanCount;
+    private int paymentsRecorded;
+    private BigDecimal totalAllocated;
+    private long elapsedMillis;
+    private double itemsPerSecond;
+    private double paymentsPerSecond;
+    // One entry per request item, in request order
+    private List<BatchPaymentItemResultDto> items;
+}
@@ -10,4 +10,6 @@ public class BulkPaymentRequestDto {
     private Long loanId;
     private BigDecimal paymentAmount;
     private LocalDate paymentDate;
+    // Gateway transaction reference (e.g. the M-Pesa receipt number); used as the idempotency key
+    private String reference;
 }
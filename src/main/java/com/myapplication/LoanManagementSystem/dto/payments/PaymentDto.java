@@ -1,12 +1,16 @@
 
 package com.myapplication.LoanManagementSystem.dto.payments;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class PaymentDto {
     private Long paymentId;
     private BigDecimal paymentAmount;
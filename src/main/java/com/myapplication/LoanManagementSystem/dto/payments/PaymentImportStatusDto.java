@@ -0,0 +1,29 @@
+package com.myapplication.LoanManagementSystem.dto.payments;
+
+import com.myapplication.LoanManagementSystem.model.PaymentImportStatus;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class PaymentImportStatusDto {
+    private Long jobId;
+    private String fileName;
+    private PaymentImportStatus status;
+    private long bytesTotal;
+    private long bytesProcessed;
+    private double percentComplete;
+    // Data rows read so far (blank lines and the header are not counted)
+    private long rowsProcessed;
+    private long rowsSucceeded;
+    // Rows that could not be parsed or posted; see /payments/import/{jobId}/errors
+    private long rowsFailed;
+    private long paymentsRecorded;
+    private BigDecimal amountAllocated;
+    // Measured over the time spent importing, not time spent queued or stopped
+    private double rowsPerSecond;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,22 @@
+package com.myapplication.LoanManagementSystem.dto.payments;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class PaymentReceiptDto {
+    private String message;
+    // Null when the request carried no idempotency key
+    private String idempotencyKey;
+    private Long loanId;
+    private Long scheduleId;
+    private BigDecimal paymentAmount;
+    private BigDecimal amountAllocated;
+    private int paymentsRecorded;
+    private LocalDate paymentDate;
+    private LocalDateTime postedAt;
+    // True when this is the stored result of an earlier request with the same key
+    private boolean duplicate;
+}
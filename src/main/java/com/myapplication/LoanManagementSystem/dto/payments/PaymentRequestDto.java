@@ -8,4 +8,6 @@ import java.time.LocalDate;
 public class PaymentRequestDto {
     private BigDecimal paymentAmount;
     private LocalDate paymentDate;
+    // Gateway transaction reference (e.g. the M-Pesa receipt number); used as the idempotency key
+    private String reference;
 }
@@ -0,0 +1,29 @@
+package com.myapplication.LoanManagementSystem.dto.payments;
+
+import com.myapplication.LoanManagementSystem.model.QueuedPaymentKind;
+import com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class QueuedPaymentDto {
+    // Poll GET /payments/queue/{trackingId} for the outcome
+    private Long trackingId;
+    private QueuedPaymentKind kind;
+    private QueuedPaymentStatus status;
+    private Long loanId;
+    private Long scheduleId;
+    private BigDecimal paymentAmount;
+    private LocalDate paymentDate;
+    private String reference;
+    private BigDecimal amountAllocated;
+    private int paymentsRecorded;
+    private boolean duplicate;
+    private int attempts;
+    private String error;
+    private LocalDateTime enqueuedAt;
+    private LocalDateTime processedAt;
+}
@@ -1,12 +1,16 @@
 package com.myapplication.LoanManagementSystem.dto.payments;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.myapplication.LoanManagementSystem.model.Frequency;
 import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class RepaymentScheduleDto {
     private Long scheduleId;
     private LocalDate dueDate;
@@ -17,4 +21,26 @@ public class RepaymentScheduleDto {
     private LocalDate paymentDate;
     private RepaymentStatus paymentStatus;
     private LocalDateTime createdAt;
+    // Matches stored rows to installments of a compact schedule; not part of the response
+    @JsonIgnore
+    private Integer installmentNumber;
+
+    // Used by the repository projection; shows either emi or ewi depending on the loan frequency.
+    public RepaymentScheduleDto(Long scheduleId, LocalDate dueDate, BigDecimal amountDue, BigDecimal emi, BigDecimal ewi,
+                                BigDecimal amountPaid, LocalDate paymentDate, RepaymentStatus paymentStatus,
+                                LocalDateTime createdAt, Frequency frequency, Integer installmentNumber) {
+        this.scheduleId = scheduleId;
+        this.installmentNumber = installmentNumber;
+        this.dueDate = dueDate;
+        this.amountDue = amountDue;
+        if (frequency == Frequency.MONTHLY) {
+            this.emi = emi;
+        } else if (frequency == Frequency.WEEKLY) {
+            this.ewi = ewi;
+        }
+        this.amountPaid = amountPaid;
+        this.paymentDate = paymentDate;
+        this.paymentStatus = paymentStatus;
+        this.createdAt = createdAt;
+    }
 }
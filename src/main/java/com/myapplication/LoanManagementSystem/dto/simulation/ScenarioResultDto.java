@@ -0,0 +1,19 @@
+package com.myapplication.LoanManagementSystem.dto.simulation;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class ScenarioResultDto {
+    private String name;
+    private long loansAffected;
+    private BigDecimal currentTotalRepayable;   // Matching loans priced with their current terms
+    private BigDecimal simulatedTotalRepayable; // The same loans priced with the scenario's terms
+    private BigDecimal totalRepayableDelta;
+    private BigDecimal currentInterest;
+    private BigDecimal simulatedInterest;
+    private BigDecimal interestDelta;
+    private long currentInstallments;
+    private long simulatedInstallments;
+}
@@ -0,0 +1,11 @@
+package com.myapplication.LoanManagementSystem.dto.simulation;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SimulationRequestDto {
+    private List<SimulationScenarioDto> scenarios;
+    private boolean refreshSnapshot;    // Reload the active loans instead of using the cached snapshot
+}
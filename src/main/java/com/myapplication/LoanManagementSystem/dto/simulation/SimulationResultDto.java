@@ -0,0 +1,13 @@
+package com.myapplication.LoanManagementSystem.dto.simulation;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class SimulationResultDto {
+    private LocalDateTime snapshotTakenAt;
+    private int snapshotLoans;              // Active loans in the snapshot
+    private List<ScenarioResultDto> scenarios;  // In request order
+}
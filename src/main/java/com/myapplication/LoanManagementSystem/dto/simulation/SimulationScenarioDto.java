@@ -0,0 +1,26 @@
+package com.myapplication.LoanManagementSystem.dto.simulation;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * One what-if: which active loans it applies to, and how their terms change.
+ * Rates are percentages with at most two decimals; periods are in months.
+ */
+@Data
+public class SimulationScenarioDto {
+    private String name;
+
+    // Filters; null matches every loan
+    private Frequency frequency;
+    private BigDecimal currentRate;
+    private Integer currentPeriod;
+
+    // Changes; set at most one of each pair
+    private BigDecimal newRate;
+    private BigDecimal rateChange;      // Percentage points added to the current rate
+    private Integer newPeriod;
+    private Integer periodChange;       // Months added to the current period
+}
@@ -0,0 +1,15 @@
+package com.myapplication.LoanManagementSystem.dto.stats;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class AgingBucketDto {
+    private String label;                  // e.g., "31-60"
+    private int minDaysPastDue;
+    private Integer maxDaysPastDue;        // null for the open-ended last bucket
+    private long loanCount;
+    private BigDecimal outstandingBalance; // Total repayable minus paid, of the loans in the bucket
+    private BigDecimal arrearsAmount;      // Unpaid amount of their installments already due
+}
@@ -0,0 +1,24 @@
+package com.myapplication.LoanManagementSystem.dto.stats;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class AgingReportDto {
+    private LocalDate asOfDate;
+    private long loanCount;                 // ACTIVE and DEFAULTED loans
+    private BigDecimal totalOutstanding;
+    private BigDecimal totalArrears;
+    // Portfolio at risk, as a % of totalOutstanding: the outstanding balance of loans at least 1 day
+    // (PAR1) or more than 30, 60 and 90 days past due
+    private BigDecimal par1;
+    private BigDecimal par30;
+    private BigDecimal par60;
+    private BigDecimal par90;
+    private List<AgingBucketDto> buckets;   // current, 1-30, 31-60, 61-90, 91-180, 181+
+    private LocalDateTime generatedAt;
+}
@@ -0,0 +1,15 @@
+package com.myapplication.LoanManagementSystem.dto.stats;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+public class CashflowBucketDto {
+    private String period;             // e.g., "2025-03" for monthly buckets, the first day otherwise
+    private LocalDate startDate;
+    private LocalDate endDate;         // Inclusive
+    private long installments;         // Unpaid installments falling due in the bucket
+    private BigDecimal expectedAmount; // Sum of amountDue - amountPaid of those installments
+}
@@ -0,0 +1,25 @@
+package com.myapplication.LoanManagementSystem.dto.stats;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.ProjectionGranularity;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class CashflowProjectionDto {
+    private LocalDate fromDate;             // Today
+    private LocalDate toDate;               // Last day projected (inclusive)
+    private ProjectionGranularity granularity; // null when bucketDays is used
+    private Integer bucketDays;
+    private Frequency frequency;            // null for all frequencies
+    private List<LoanStatus> loanStatuses;
+    private BigDecimal overdueAmount;       // Unpaid on installments already past due, not in any bucket
+    private BigDecimal totalExpected;       // Sum of the buckets
+    private List<CashflowBucketDto> buckets;
+    private LocalDateTime generatedAt;
+}
@@ -0,0 +1,16 @@
+package com.myapplication.LoanManagementSystem.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupDriftDto {
+    private String field;
+    private BigDecimal stored;   // Value held by the rollup before the rebuild
+    private BigDecimal actual;   // Value recomputed from loans and repayment schedules
+}
@@ -0,0 +1,12 @@
+package com.myapplication.LoanManagementSystem.dto.stats;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class RollupRebuildDto {
+    private boolean driftDetected;
+    private List<RollupDriftDto> drift; // Only the fields whose stored value differed
+    private LocalDateTime rebuiltAt;
+}
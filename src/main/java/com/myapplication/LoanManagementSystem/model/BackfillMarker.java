@@ -0,0 +1,25 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records that a one-off backfill of derived data has run against this database, so it is not
+ * repeated on later starts even when the derived table happens to be empty.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "backfill_markers")
+public class BackfillMarker {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
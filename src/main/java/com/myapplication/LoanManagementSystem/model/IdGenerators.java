@@ -0,0 +1,24 @@
+package com.myapplication.LoanManagementSystem.model;
+
+/**
+ * Shared settings of the pooled table id generators. Entities that are inserted in bulk use these
+ * instead of IDENTITY keys, which stop Hibernate from batching inserts.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "id_generators";
+    public static final String NAME_COLUMN = "generator_name";
+    public static final String VALUE_COLUMN = "next_val";
+
+    // Ids reserved per round trip to the generator table
+    public static final int ALLOCATION_SIZE = 50;
+
+    public static final String LOANS = "loans";
+    public static final String REPAYMENT_SCHEDULES = "repayment_schedule";
+    public static final String PAYMENTS = "payments";
+    public static final String PAYMENT_IMPORT_ERRORS = "payment_import_errors";
+    public static final String PAYMENT_RECEIPTS = "payment_receipts";
+
+    private IdGenerators() {
+    }
+}
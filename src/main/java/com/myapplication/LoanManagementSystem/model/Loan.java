@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -17,8 +18,12 @@ import java.util.List;
 @Table(name = "loans")
 public class Loan {
 
+    // Pooled table ids so loans created in bulk are inserted as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "loan_ids")
+    @TableGenerator(name = "loan_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.LOANS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id;
 
     // Many loans belong to one customer.
@@ -55,12 +60,35 @@ public class Loan {
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Optimistic lock; concurrent writers of the same row fail instead of overwriting each other.
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0 not null")
+    private Long version;
+
     // New field to store the number of installments generated (e.g., from your LoanCalculator)
     @Column(name = "number_of_installments")
     private int numberOfInstallments;
 
+    // Compact schedule: only installments that received money are stored as rows, the rest follow
+    // from the fields below. See CompactSchedule.
+    @Column(name = "compact_schedule", nullable = false, columnDefinition = "boolean default false not null")
+    private boolean compactSchedule;
+
+    // Installment n falls due n weeks/months after this date (kept for every loan, for rescheduling)
+    @Column(name = "schedule_start_date")
+    private LocalDate scheduleStartDate;
+
+    @Column(name = "installment_amount")
+    private BigDecimal installmentAmount;
+
+    // Added to the last installment so the installments sum to the total repayable amount
+    @Column(name = "final_installment_adjustment")
+    private BigDecimal finalInstallmentAdjustment;
+
     // One loan can have many repayment schedules.
+    // Batch-loaded so reading the schedules of several loans costs one query per batch, not one per loan.
     @OneToMany(mappedBy = "loan", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     private List<RepaymentSchedule> repaymentSchedules;
 }
 
@@ -0,0 +1,57 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One run of the overdue classification job for a business date. The work is split into
+ * OverdueRunPartition rows by loan id range; a run that stops part way is resumed by redoing only
+ * the partitions that did not complete. The counts are the sums over its partitions.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "overdue_runs", uniqueConstraints = @UniqueConstraint(name = "uk_overdue_run_date", columnNames = "as_of_date"))
+public class OverdueRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Installments due before this date are overdue
+    @Column(name = "as_of_date", nullable = false)
+    private LocalDate asOfDate;
+
+    @Enumerated(EnumType.STRING)
+    private OverdueRunStatus status;
+
+    // Loans with an installment due before this date are defaulted
+    @Column(name = "default_cutoff_date")
+    private LocalDate defaultCutoffDate;
+
+    @Column(name = "partition_count")
+    private int partitionCount;
+
+    @Column(name = "schedules_marked_late")
+    private long schedulesMarkedLate;
+
+    @Column(name = "loans_defaulted")
+    private long loansDefaulted;
+
+    // Time spent processing, summed over attempts
+    @Column(name = "processing_millis")
+    private long processingMillis;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,47 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * The loans with ids in [fromLoanId, toLoanId] for one overdue run. A partition owns whole loans,
+ * so partitions processed in parallel never touch the same loan.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "overdue_run_partitions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_overdue_partition", columnNames = {"run_id", "partition_no"}))
+public class OverdueRunPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "partition_no", nullable = false)
+    private int partitionNo;
+
+    @Column(name = "from_loan_id", nullable = false)
+    private long fromLoanId;
+
+    @Column(name = "to_loan_id", nullable = false)
+    private long toLoanId;
+
+    @Column(name = "schedules_marked_late")
+    private long schedulesMarkedLate;
+
+    @Column(name = "loans_defaulted")
+    private long loansDefaulted;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
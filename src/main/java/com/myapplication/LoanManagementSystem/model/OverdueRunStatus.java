@@ -0,0 +1,7 @@
+package com.myapplication.LoanManagementSystem.model;
+
+public enum OverdueRunStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
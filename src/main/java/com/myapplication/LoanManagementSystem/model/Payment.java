@@ -11,11 +11,15 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = @Index(name = "idx_payment_reference", columnList = "reference"))
 public class Payment {
 
+    // Pooled table ids so batches of payments are inserted with JDBC batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "payment_ids")
+    @TableGenerator(name = "payment_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.PAYMENTS, allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long paymentId;
 
     // How much was paid in this transaction
@@ -24,6 +28,10 @@ public class Payment {
     // Date the payment was made
     private LocalDate paymentDate;
 
+    // Idempotency key / gateway reference of the request that created this record, see PaymentReceipt
+    @Column(name = "reference", length = PaymentReceipt.MAX_KEY_LENGTH)
+    private String reference;
+
     // Timestamp for when this record was created
     private LocalDateTime createdAt = LocalDateTime.now();
 
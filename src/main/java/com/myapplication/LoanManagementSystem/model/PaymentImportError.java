@@ -0,0 +1,36 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A settlement file line that could not be posted, with the reason.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "payment_import_errors", indexes = @Index(name = "idx_import_error_job", columnList = "job_id, line_number"))
+public class PaymentImportError {
+
+    // Pooled table ids so a chunk's error rows are inserted as one JDBC batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "payment_import_error_ids")
+    @TableGenerator(name = "payment_import_error_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.PAYMENT_IMPORT_ERRORS, allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @Column(name = "line_number")
+    private long lineNumber;
+
+    // The offending line, truncated
+    @Column(name = "line", length = 500)
+    private String line;
+
+    @Column(name = "message", length = 500)
+    private String message;
+}
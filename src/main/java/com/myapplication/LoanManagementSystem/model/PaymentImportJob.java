@@ -0,0 +1,73 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One uploaded settlement file and how far its import has got. byteOffset and linesRead are the
+ * checkpoint: they are updated in the same transaction as each chunk's payments, so an import
+ * that stops for any reason continues from the first line that was not committed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "payment_import_jobs")
+public class PaymentImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    // Where the upload was spooled to disk
+    @Column(name = "stored_path", length = 1024)
+    private String storedPath;
+
+    @Enumerated(EnumType.STRING)
+    private PaymentImportStatus status;
+
+    @Column(name = "bytes_total")
+    private long bytesTotal;
+
+    // Checkpoint: offset of the first byte not yet imported
+    @Column(name = "byte_offset")
+    private long byteOffset;
+
+    // Checkpoint: lines consumed so far, including the header
+    @Column(name = "lines_read")
+    private long linesRead;
+
+    @Column(name = "rows_succeeded")
+    private long rowsSucceeded;
+
+    @Column(name = "rows_failed")
+    private long rowsFailed;
+
+    @Column(name = "payments_recorded")
+    private long paymentsRecorded;
+
+    @Column(name = "amount_allocated")
+    private BigDecimal amountAllocated = BigDecimal.ZERO;
+
+    // Time spent importing chunks, excluding any time the job was waiting or stopped
+    @Column(name = "processing_millis")
+    private long processingMillis;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
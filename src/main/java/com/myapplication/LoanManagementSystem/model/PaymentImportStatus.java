@@ -0,0 +1,8 @@
+package com.myapplication.LoanManagementSystem.model;
+
+public enum PaymentImportStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,34 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease on one payment queue partition. Only the instance holding an unexpired lease works the
+ * partition, so with several instances each loan's queued payments are still posted by a single
+ * worker, in order. An instance that stops renewing loses the lease once it expires.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "payment_queue_partitions")
+public class PaymentQueuePartition {
+
+    @Id
+    @Column(name = "partition_no")
+    private Integer partitionNo;
+
+    // Instance id of the current holder, null when released
+    @Column(name = "owner", length = 64)
+    private String owner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    public PaymentQueuePartition(int partitionNo) {
+        this.partitionNo = partitionNo;
+    }
+}
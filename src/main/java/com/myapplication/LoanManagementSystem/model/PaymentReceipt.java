@@ -0,0 +1,57 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The outcome of a payment request that carried an idempotency key (an Idempotency-Key header or
+ * the gateway's transaction reference). The unique key makes a retried request find the original
+ * outcome instead of posting the money again.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "payment_receipts",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_receipt_key", columnNames = "idempotency_key"))
+public class PaymentReceipt {
+
+    // Pooled table ids so a batch's receipts are inserted as one JDBC batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "payment_receipt_ids")
+    @TableGenerator(name = "payment_receipt_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.PAYMENT_RECEIPTS, allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false, length = PaymentReceipt.MAX_KEY_LENGTH)
+    private String idempotencyKey;
+
+    @Column(name = "loan_id")
+    private Long loanId;
+
+    // Set for single-installment payments only
+    @Column(name = "schedule_id")
+    private Long scheduleId;
+
+    @Column(name = "payment_amount")
+    private BigDecimal paymentAmount;
+
+    @Column(name = "amount_allocated")
+    private BigDecimal amountAllocated;
+
+    @Column(name = "payments_recorded")
+    private int paymentsRecorded;
+
+    @Column(name = "payment_date")
+    private LocalDate paymentDate;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public static final int MAX_KEY_LENGTH = 100;
+}
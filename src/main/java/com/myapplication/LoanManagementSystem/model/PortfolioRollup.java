@@ -0,0 +1,81 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running portfolio totals backing the /stats dashboard.
+ * The totals are striped over a fixed number of slot rows (slot = loanId mod SLOTS) so that
+ * concurrent loan and payment transactions do not all queue on the same row lock.
+ * The portfolio figure is the sum over all slots.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "portfolio_rollup")
+public class PortfolioRollup {
+
+    public static final int SLOTS = 16;
+
+    @Id
+    private Integer slot;
+
+    @Column(name = "loan_count")
+    private long loanCount;
+
+    @Column(name = "active_count")
+    private long activeCount;
+
+    @Column(name = "paid_count")
+    private long paidCount;
+
+    @Column(name = "defaulted_count")
+    private long defaultedCount;
+
+    @Column(name = "principal_disbursed")
+    private BigDecimal principalDisbursed = BigDecimal.ZERO;
+
+    @Column(name = "total_repayable")
+    private BigDecimal totalRepayable = BigDecimal.ZERO;
+
+    @Column(name = "total_paid")
+    private BigDecimal totalPaid = BigDecimal.ZERO;
+
+    // Kept so the average interest rate can be served without scanning loans.
+    @Column(name = "total_interest_rate")
+    private BigDecimal totalInterestRate = BigDecimal.ZERO;
+
+    @Column(name = "total_repayment_period")
+    private long totalRepaymentPeriod;
+
+    // Sum of each loan's installment amount, for the average installment figure.
+    @Column(name = "total_installment_amount")
+    private BigDecimal totalInstallmentAmount = BigDecimal.ZERO;
+
+    @Column(name = "rebuilt_at")
+    private LocalDateTime rebuiltAt;
+
+    public PortfolioRollup(int slot) {
+        this.slot = slot;
+    }
+
+    public static int slotFor(Long loanId) {
+        return loanId == null ? 0 : (int) Math.floorMod(loanId, (long) SLOTS);
+    }
+
+    public long countFor(LoanStatus status) {
+        if (status == null) {
+            return 0;
+        }
+        switch (status) {
+            case ACTIVE: return activeCount;
+            case PAID: return paidCount;
+            case DEFAULTED: return defaultedCount;
+            default: return 0;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+
+public enum ProjectionGranularity {
+    // Weeks start on Monday and are labelled by that date
+    WEEKLY(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
+    MONTHLY(DateTimeFormatter.ofPattern("yyyy-MM"));
+
+    private final DateTimeFormatter periodFormat;
+
+    ProjectionGranularity(DateTimeFormatter periodFormat) {
+        this.periodFormat = periodFormat;
+    }
+
+    // First day of the bucket containing the given date
+    public LocalDate bucketStart(LocalDate date) {
+        return this == MONTHLY ? date.withDayOfMonth(1) : date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    public LocalDate nextBucketStart(LocalDate bucketStart) {
+        return this == MONTHLY ? bucketStart.plusMonths(1) : bucketStart.plusWeeks(1);
+    }
+
+    public String formatPeriod(LocalDate bucketStart) {
+        return bucketStart.format(periodFormat);
+    }
+}
@@ -0,0 +1,76 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A payment accepted in async mode and waiting to be posted. The table is the queue: rows are
+ * written before the request returns, so nothing accepted is lost on a restart, and each loan's
+ * payments go to one partition where they are posted in id order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "payment_queue",
+        indexes = @Index(name = "idx_payment_queue_pending", columnList = "status, partition_no, id"))
+public class QueuedPayment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private QueuedPaymentKind kind;
+
+    @Column(name = "loan_id")
+    private Long loanId;
+
+    // Set for single-installment payments only
+    @Column(name = "schedule_id")
+    private Long scheduleId;
+
+    @Column(name = "partition_no")
+    private int partition;
+
+    @Column(name = "payment_amount")
+    private BigDecimal paymentAmount;
+
+    @Column(name = "payment_date")
+    private LocalDate paymentDate;
+
+    // Idempotency key; the worker uses "queue-<id>" when the client did not send one
+    @Column(name = "reference", length = PaymentReceipt.MAX_KEY_LENGTH)
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    private QueuedPaymentStatus status;
+
+    // Instance that claimed the row for posting
+    @Column(name = "owner", length = 64)
+    private String owner;
+
+    private int attempts;
+
+    @Column(name = "amount_allocated")
+    private BigDecimal amountAllocated;
+
+    @Column(name = "payments_recorded")
+    private int paymentsRecorded;
+
+    // The reference had already been posted, so this entry posted nothing
+    private boolean duplicate;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
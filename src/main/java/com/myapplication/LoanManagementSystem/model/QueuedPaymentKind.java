@@ -0,0 +1,6 @@
+package com.myapplication.LoanManagementSystem.model;
+
+public enum QueuedPaymentKind {
+    INSTALLMENT,
+    BULK
+}
@@ -0,0 +1,9 @@
+package com.myapplication.LoanManagementSystem.model;
+
+public enum QueuedPaymentStatus {
+    PENDING,
+    // Claimed by a worker and being posted
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
@@ -16,11 +16,18 @@ import java.util.List;
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Entity
-@Table(name = "repayment_schedule")
+@Table(name = "repayment_schedule",
+        uniqueConstraints = @UniqueConstraint(name = "uk_schedule_installment", columnNames = {"loan_id", "installment_number"}),
+        // Range scan for the overdue job: open installments due before a date
+        indexes = @Index(name = "idx_schedule_status_due", columnList = "payment_status, due_date, loan_id"))
 public class RepaymentSchedule {
 
+    // Pooled table ids so a loan's schedule rows are inserted as one JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "repayment_schedule_ids")
+    @TableGenerator(name = "repayment_schedule_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.REPAYMENT_SCHEDULES, allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "schedule_id")
     private Long id;
 
@@ -30,6 +37,10 @@ public class RepaymentSchedule {
     @JsonBackReference
     private Loan loan;
 
+    // 1-based position in the loan's schedule; null on rows created before it was recorded
+    @Column(name = "installment_number")
+    private Integer installmentNumber;
+
     @Column(name = "due_date")
     private LocalDate dueDate;
 
@@ -60,6 +71,11 @@ public class RepaymentSchedule {
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Optimistic lock; concurrent writers of the same row fail instead of overwriting each other.
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0 not null")
+    private Long version;
+
     // NEW: One-to-many relationship to payments with cascade delete and orphan removal.
     @OneToMany(mappedBy = "repaymentSchedule", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnoreProperties("loan")
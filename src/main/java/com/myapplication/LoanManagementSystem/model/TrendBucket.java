@@ -0,0 +1,51 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated disbursement or collection totals for one day or one month.
+ * Rows are incremented when loans are created and payments are posted, so the trends
+ * endpoint only reads the buckets in the requested range.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "trend_buckets",
+        uniqueConstraints = @UniqueConstraint(name = "uk_trend_bucket",
+                columnNames = {"kind", "granularity", "period_start"}))
+public class TrendBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false)
+    private TrendKind kind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false)
+    private TrendGranularity granularity;
+
+    // First day of the bucket (the 1st of the month for MONTHLY)
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    // Loans disbursed, or payment records posted, in the period
+    @Column(name = "item_count")
+    private long count;
+
+    @Column(name = "amount")
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    public TrendBucket(TrendKind kind, TrendGranularity granularity, LocalDate periodStart) {
+        this.kind = kind;
+        this.granularity = granularity;
+        this.periodStart = periodStart;
+    }
+}
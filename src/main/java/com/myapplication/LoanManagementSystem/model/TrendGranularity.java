@@ -0,0 +1,24 @@
+package com.myapplication.LoanManagementSystem.model;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+public enum TrendGranularity {
+    DAILY(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
+    MONTHLY(DateTimeFormatter.ofPattern("yyyy-MM"));
+
+    private final DateTimeFormatter periodFormat;
+
+    TrendGranularity(DateTimeFormatter periodFormat) {
+        this.periodFormat = periodFormat;
+    }
+
+    // First day of the bucket containing the given date
+    public LocalDate bucketStart(LocalDate date) {
+        return this == MONTHLY ? date.withDayOfMonth(1) : date;
+    }
+
+    public String formatPeriod(LocalDate bucketStart) {
+        return bucketStart.format(periodFormat);
+    }
+}
@@ -6,7 +6,7 @@ import lombok.Data;
 
 @Data
 @Entity
-@Table(name="users")
+@Table(name="users", indexes = @Index(name = "uk_users_username", columnList = "username", unique = true))
 
 public class User {
 
@@ -0,0 +1,9 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.BackfillMarker;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BackfillMarkerRepository extends JpaRepository<BackfillMarker, String> {
+}
@@ -2,11 +2,40 @@ package com.myapplication.LoanManagementSystem.repository;
 
 
 
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto;
 import com.myapplication.LoanManagementSystem.model.Customer;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
-    // Add custom queries if needed.
+
+    // Keyset pagination: the next page starts after the last id of the previous one.
+    @Query("select c.id from Customer c where :afterId is null or c.id > :afterId order by c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("select c.id from Customer c order by c.id")
+    List<Long> findAllIds();
+
+    @Query("select c.id from Customer c where c.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Customer columns selected straight into the details DTO; loans are attached from
+    // LoanRepository.findDetailRowsByCustomerIds.
+    @Query("select new com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto(" +
+            "c.id, c.firstname, c.lastname, c.nationalIdentityCard, c.phoneNumber, c.registrationDate) " +
+            "from Customer c where c.id = :id")
+    Optional<CustomerDetailsDto> findDetailsById(@Param("id") Long id);
+
+    @Query("select new com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto(" +
+            "c.id, c.firstname, c.lastname, c.nationalIdentityCard, c.phoneNumber, c.registrationDate) " +
+            "from Customer c where c.id in :ids order by c.id")
+    List<CustomerDetailsDto> findDetailsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -4,10 +4,111 @@ package com.myapplication.LoanManagementSystem.repository;
 
 
 import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.repository.projection.CompactLoanBalance;
+import com.myapplication.LoanManagementSystem.repository.projection.DailyTotal;
+import com.myapplication.LoanManagementSystem.repository.projection.LoanAggregate;
+import com.myapplication.LoanManagementSystem.repository.projection.LoanScheduleRow;
+import com.myapplication.LoanManagementSystem.repository.projection.LoanTermsRow;
+import com.myapplication.LoanManagementSystem.repository.projection.StatusCount;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface LoanRepository extends JpaRepository<Loan, Long> {
-    // Add custom queries if needed.
+
+    // Loan read for posting a payment; its version is incremented on commit even if nothing else changes.
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select l from Loan l where l.id = :id")
+    Optional<Loan> findByIdForPayment(@Param("id") Long id);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select l from Loan l where l.id in :ids")
+    List<Loan> findAllByIdForPayment(@Param("ids") Collection<Long> ids);
+
+    // Loans of the given customers with their schedules as flat rows, ordered so each loan's rows are contiguous.
+    @Query("select new com.myapplication.LoanManagementSystem.repository.projection.LoanScheduleRow(" +
+            "l.customer.id, l.id, l.principalAmount, l.interestRate, l.repaymentPeriod, l.totalRepayableAmount, " +
+            "l.status, l.createdAt, l.compactSchedule, l.repaymentFrequency, l.scheduleStartDate, l.installmentAmount, " +
+            "l.finalInstallmentAdjustment, l.numberOfInstallments, rs.id, rs.installmentNumber, rs.dueDate, " +
+            "rs.amountDue, rs.emi, rs.amountPaid, rs.paymentDate, rs.paymentStatus, rs.createdAt) " +
+            "from Loan l left join l.repaymentSchedules rs " +
+            "where l.customer.id in :customerIds order by l.id, rs.id")
+    List<LoanScheduleRow> findDetailRowsByCustomerIds(@Param("customerIds") Collection<Long> customerIds);
+
+    // The schedule rule of a loan with a compact schedule; empty for a loan whose installments are all rows.
+    @Query("select new com.myapplication.LoanManagementSystem.utils.CompactSchedule(l.id, l.scheduleStartDate, " +
+            "l.repaymentFrequency, l.installmentAmount, l.finalInstallmentAdjustment, l.numberOfInstallments, " +
+            "l.createdAt) from Loan l where l.id = :id and l.compactSchedule = true")
+    Optional<CompactSchedule> findCompactScheduleById(@Param("id") Long id);
+
+    // Rules of the active compact loans in the id range whose first installment could be due before the cutoff.
+    @Query("select new com.myapplication.LoanManagementSystem.utils.CompactSchedule(l.id, l.scheduleStartDate, " +
+            "l.repaymentFrequency, l.installmentAmount, l.finalInstallmentAdjustment, l.numberOfInstallments, " +
+            "l.createdAt) from Loan l where l.compactSchedule = true " +
+            "and l.status = com.myapplication.LoanManagementSystem.model.LoanStatus.ACTIVE " +
+            "and l.scheduleStartDate < :cutoff and l.id between :fromLoanId and :toLoanId")
+    List<CompactSchedule> findActiveCompactSchedulesStartedBefore(@Param("cutoff") LocalDate cutoff,
+                                                                  @Param("fromLoanId") long fromLoanId,
+                                                                  @Param("toLoanId") long toLoanId);
+
+    // Compact loans with one of the given statuses after the given id, in id order, for paging through them.
+    @Query("select new com.myapplication.LoanManagementSystem.repository.projection.CompactLoanBalance(l.id, " +
+            "l.scheduleStartDate, l.repaymentFrequency, l.installmentAmount, l.finalInstallmentAdjustment, " +
+            "l.numberOfInstallments, l.createdAt, l.totalRepayableAmount) from Loan l where l.compactSchedule = true and l.id > :afterId " +
+            "and l.status in :statuses order by l.id")
+    List<CompactLoanBalance> findCompactLoansAfter(@Param("afterId") long afterId,
+                                                   @Param("statuses") Collection<LoanStatus> statuses,
+                                                   Limit limit);
+
+    @Query("select new com.myapplication.LoanManagementSystem.repository.projection.LoanTermsRow(l.id, " +
+            "l.principalAmount, l.interestRate, l.repaymentPeriod, l.repaymentFrequency) from Loan l " +
+            "where l.id > :afterId and l.status = :status order by l.id")
+    List<LoanTermsRow> findLoanTermsAfter(@Param("afterId") long afterId, @Param("status") LoanStatus status, Limit limit);
+
+    @Query("select min(l.id) from Loan l")
+    Long findMinId();
+
+    @Query("select max(l.id) from Loan l")
+    Long findMaxId();
+
+    // Moves active loans to DEFAULTED; the version is bumped so writers holding the old state retry.
+    @Modifying
+    @Query("update Loan l set l.status = com.myapplication.LoanManagementSystem.model.LoanStatus.DEFAULTED, " +
+            "l.version = l.version + 1 " +
+            "where l.id in :ids and l.status = com.myapplication.LoanManagementSystem.model.LoanStatus.ACTIVE")
+    int markDefaulted(@Param("ids") Collection<Long> ids);
+
+    // Portfolio totals for the stats endpoints, computed in the database instead of loading every loan.
+    @Query("select count(l) as totalLoans, " +
+            "sum(l.principalAmount) as totalPrincipal, " +
+            "sum(l.totalRepayableAmount) as totalRepayable, " +
+            "sum(l.interestRate) as totalInterestRate, " +
+            "sum(coalesce(l.repaymentPeriod, 0)) as totalRepaymentPeriod, " +
+            "sum(case when l.numberOfInstallments > 0 " +
+            "then round(l.totalRepayableAmount / l.numberOfInstallments, 2) else 0 end) as totalInstallmentAmount " +
+            "from Loan l")
+    LoanAggregate aggregateLoans();
+
+    @Query("select l.status as status, count(l) as count from Loan l where l.status is not null group by l.status")
+    List<StatusCount> countByStatus();
+
+    // Loans disbursed per calendar day of creation, used to rebuild the trend buckets.
+    @Query("select year(l.createdAt) as year, month(l.createdAt) as month, day(l.createdAt) as day, " +
+            "count(l) as count, sum(l.principalAmount) as amount " +
+            "from Loan l where l.createdAt is not null " +
+            "group by year(l.createdAt), month(l.createdAt), day(l.createdAt)")
+    List<DailyTotal> sumDisbursementsByDay();
 }
@@ -0,0 +1,14 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.OverdueRunPartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OverdueRunPartitionRepository extends JpaRepository<OverdueRunPartition, Long> {
+    List<OverdueRunPartition> findByRunIdOrderByPartitionNo(Long runId);
+
+    List<OverdueRunPartition> findByRunIdAndCompletedFalseOrderByPartitionNo(Long runId);
+}
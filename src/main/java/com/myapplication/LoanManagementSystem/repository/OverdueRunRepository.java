@@ -0,0 +1,19 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.OverdueRun;
+import com.myapplication.LoanManagementSystem.model.OverdueRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OverdueRunRepository extends JpaRepository<OverdueRun, Long> {
+    Optional<OverdueRun> findByAsOfDate(LocalDate asOfDate);
+
+    List<OverdueRun> findByStatusOrderById(OverdueRunStatus status);
+
+    Optional<OverdueRun> findFirstByOrderByAsOfDateDesc();
+}
@@ -0,0 +1,13 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.PaymentImportError;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PaymentImportErrorRepository extends JpaRepository<PaymentImportError, Long> {
+    List<PaymentImportError> findByJobIdAndLineNumberGreaterThanOrderByLineNumber(Long jobId, long afterLine, Limit limit);
+}
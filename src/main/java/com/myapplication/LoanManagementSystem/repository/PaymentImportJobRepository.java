@@ -0,0 +1,14 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.PaymentImportJob;
+import com.myapplication.LoanManagementSystem.model.PaymentImportStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentImportJobRepository extends JpaRepository<PaymentImportJob, Long> {
+    List<PaymentImportJob> findByStatusInOrderById(Collection<PaymentImportStatus> statuses);
+}
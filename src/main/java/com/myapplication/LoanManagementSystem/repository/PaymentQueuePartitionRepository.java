@@ -0,0 +1,27 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.PaymentQueuePartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PaymentQueuePartitionRepository extends JpaRepository<PaymentQueuePartition, Integer> {
+
+    // Takes or renews the lease; 0 when another owner holds it and it has not expired
+    @Modifying
+    @Query("update PaymentQueuePartition p set p.owner = :owner, p.leaseUntil = :until " +
+            "where p.partitionNo = :partition and (p.owner = :owner or p.owner is null or p.leaseUntil < :now)")
+    int acquire(@Param("partition") int partition,
+                @Param("owner") String owner,
+                @Param("now") LocalDateTime now,
+                @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update PaymentQueuePartition p set p.owner = null, p.leaseUntil = null where p.owner = :owner")
+    int releaseAll(@Param("owner") String owner);
+}
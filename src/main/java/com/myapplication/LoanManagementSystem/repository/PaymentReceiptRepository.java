@@ -0,0 +1,19 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.PaymentReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentReceiptRepository extends JpaRepository<PaymentReceipt, Long> {
+    Optional<PaymentReceipt> findByIdempotencyKey(String idempotencyKey);
+
+    @Query("select r.idempotencyKey from PaymentReceipt r where r.idempotencyKey in :keys")
+    List<String> findExistingKeys(@Param("keys") Collection<String> keys);
+}
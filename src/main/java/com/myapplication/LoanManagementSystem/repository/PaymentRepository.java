@@ -1,8 +1,12 @@
 package com.myapplication.LoanManagementSystem.repository;
 
 
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentDto;
 import com.myapplication.LoanManagementSystem.model.Payment;
+import com.myapplication.LoanManagementSystem.repository.projection.DailyTotal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +15,23 @@ import java.util.List;
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findByLoan_Id(Long loanId);
 
+    @Query("select new com.myapplication.LoanManagementSystem.dto.payments.PaymentDto(" +
+            "p.paymentId, p.paymentAmount, p.paymentDate, p.createdAt) " +
+            "from Payment p where p.loan.id = :loanId order by p.paymentId")
+    List<PaymentDto> findPaymentDtosByLoanId(@Param("loanId") Long loanId);
+
+    // Payment records per calendar day of payment, used to rebuild the trend buckets.
+    @Query("select year(p.paymentDate) as year, month(p.paymentDate) as month, day(p.paymentDate) as day, " +
+            "count(p) as count, sum(p.paymentAmount) as amount " +
+            "from Payment p where p.paymentDate is not null " +
+            "group by year(p.paymentDate), month(p.paymentDate), day(p.paymentDate)")
+    List<DailyTotal> sumPaymentsByDay();
+
+    // Same grouping for a single loan, so its collections can be taken out of the buckets when it is removed.
+    @Query("select year(p.paymentDate) as year, month(p.paymentDate) as month, day(p.paymentDate) as day, " +
+            "count(p) as count, sum(p.paymentAmount) as amount " +
+            "from Payment p where p.loan.id = :loanId and p.paymentDate is not null " +
+            "group by year(p.paymentDate), month(p.paymentDate), day(p.paymentDate)")
+    List<DailyTotal> sumPaymentsByDayForLoan(@Param("loanId") Long loanId);
+
 }
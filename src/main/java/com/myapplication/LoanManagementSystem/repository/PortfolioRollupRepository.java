@@ -0,0 +1,55 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.PortfolioRollup;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface PortfolioRollupRepository extends JpaRepository<PortfolioRollup, Integer> {
+
+    // Deltas are applied as in-place increments so concurrent writers never lose an update.
+    @Modifying
+    @Query("update PortfolioRollup r set " +
+            "r.loanCount = r.loanCount + :loans, " +
+            "r.principalDisbursed = r.principalDisbursed + :principal, " +
+            "r.totalRepayable = r.totalRepayable + :repayable, " +
+            "r.totalInterestRate = r.totalInterestRate + :interestRate, " +
+            "r.totalRepaymentPeriod = r.totalRepaymentPeriod + :repaymentPeriod, " +
+            "r.totalInstallmentAmount = r.totalInstallmentAmount + :installmentAmount " +
+            "where r.slot = :slot")
+    int applyLoanDelta(@Param("slot") int slot,
+                       @Param("loans") long loans,
+                       @Param("principal") BigDecimal principal,
+                       @Param("repayable") BigDecimal repayable,
+                       @Param("interestRate") BigDecimal interestRate,
+                       @Param("repaymentPeriod") long repaymentPeriod,
+                       @Param("installmentAmount") BigDecimal installmentAmount);
+
+    @Modifying
+    @Query("update PortfolioRollup r set " +
+            "r.activeCount = r.activeCount + :active, " +
+            "r.paidCount = r.paidCount + :paid, " +
+            "r.defaultedCount = r.defaultedCount + :defaulted " +
+            "where r.slot = :slot")
+    int applyStatusDelta(@Param("slot") int slot,
+                         @Param("active") long active,
+                         @Param("paid") long paid,
+                         @Param("defaulted") long defaulted);
+
+    @Modifying
+    @Query("update PortfolioRollup r set r.totalPaid = r.totalPaid + :amount where r.slot = :slot")
+    int applyPaidDelta(@Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    // Used by the rebuild so in-flight deltas wait until the recomputed totals are written.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from PortfolioRollup r order by r.slot")
+    List<PortfolioRollup> findAllForUpdate();
+}
@@ -0,0 +1,47 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.QueuedPayment;
+import com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface QueuedPaymentRepository extends JpaRepository<QueuedPayment, Long> {
+    List<QueuedPayment> findByPartitionAndStatusOrderById(int partition, QueuedPaymentStatus status, Limit limit);
+
+    // Rows in the given statuses per partition, as [partition, count] pairs
+    @Query("select q.partition, count(q) from QueuedPayment q where q.status in :statuses group by q.partition")
+    List<Object[]> countByPartition(@Param("statuses") Collection<QueuedPaymentStatus> statuses);
+
+    // [id, loanId, partition] of the rows in the given statuses
+    @Query("select q.id, q.loanId, q.partition from QueuedPayment q where q.status in :statuses")
+    List<Object[]> findPartitions(@Param("statuses") Collection<QueuedPaymentStatus> statuses);
+
+    // Claims a pending row for the given owner; 0 if it is no longer pending
+    @Modifying
+    @Query("update QueuedPayment q set q.status = com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus.PROCESSING, " +
+            "q.owner = :owner where q.id = :id " +
+            "and q.status = com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus.PENDING")
+    int claim(@Param("id") Long id, @Param("owner") String owner);
+
+    // Returns the partition's rows claimed by any other owner, e.g. one that crashed mid-post, to pending
+    @Modifying
+    @Query("update QueuedPayment q set q.status = com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus.PENDING, " +
+            "q.owner = null where q.partition = :partition " +
+            "and q.status = com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus.PROCESSING " +
+            "and (q.owner is null or q.owner <> :owner)")
+    int releaseClaims(@Param("partition") int partition, @Param("owner") String owner);
+
+    @Modifying
+    @Query("update QueuedPayment q set q.partition = :partition, " +
+            "q.status = com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus.PENDING, q.owner = null " +
+            "where q.id in :ids")
+    int movePartition(@Param("ids") Collection<Long> ids, @Param("partition") int partition);
+}
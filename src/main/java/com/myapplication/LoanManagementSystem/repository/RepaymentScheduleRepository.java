@@ -2,13 +2,112 @@ package com.myapplication.LoanManagementSystem.repository;
 
 
 
+import com.myapplication.LoanManagementSystem.dto.payments.RepaymentScheduleDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
 import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.projection.AgingBucketTotal;
+import com.myapplication.LoanManagementSystem.repository.projection.DueDateTotal;
+import com.myapplication.LoanManagementSystem.repository.projection.InstallmentState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RepaymentScheduleRepository extends JpaRepository<RepaymentSchedule, Long> {
     List<RepaymentSchedule> findByLoan_Id(Long loanId);
+
+    @Query("select rs.loan.id from RepaymentSchedule rs where rs.id = :id")
+    Optional<Long> findLoanIdById(@Param("id") Long id);
+
+    // Read-only view of a loan's installments; the loan's frequency is joined in rather than lazily loaded per row.
+    @Query("select new com.myapplication.LoanManagementSystem.dto.payments.RepaymentScheduleDto(" +
+            "rs.id, rs.dueDate, rs.amountDue, rs.emi, rs.ewi, rs.amountPaid, rs.paymentDate, rs.paymentStatus, " +
+            "rs.createdAt, l.repaymentFrequency, rs.installmentNumber) " +
+            "from RepaymentSchedule rs join rs.loan l where l.id = :loanId order by rs.id")
+    List<RepaymentScheduleDto> findScheduleDtosByLoanId(@Param("loanId") Long loanId);
+
+    // Total received across all installments of all loans.
+    @Query("select sum(rs.amountPaid) from RepaymentSchedule rs")
+    BigDecimal sumAmountPaid();
+
+    @Query("select sum(rs.amountPaid) from RepaymentSchedule rs where rs.loan.id = :loanId")
+    BigDecimal sumAmountPaidByLoanId(@Param("loanId") Long loanId);
+
+    // Marks the open installments of a range of loans that fell due before asOf as LATE, in one statement.
+    // The version is bumped so a payment holding the old row state fails and retries instead of overwriting.
+    @Modifying
+    @Query("update RepaymentSchedule rs set rs.paymentStatus = com.myapplication.LoanManagementSystem.model.RepaymentStatus.LATE, " +
+            "rs.version = rs.version + 1 " +
+            "where rs.paymentStatus in :open and rs.dueDate < :asOf and rs.loan.id between :fromLoanId and :toLoanId")
+    int markLate(@Param("open") Collection<RepaymentStatus> open,
+                 @Param("asOf") LocalDate asOf,
+                 @Param("fromLoanId") long fromLoanId,
+                 @Param("toLoanId") long toLoanId);
+
+    // Active loans in the id range with an installment still open that fell due before the cutoff.
+    @Query("select distinct rs.loan.id from RepaymentSchedule rs " +
+            "where rs.paymentStatus <> com.myapplication.LoanManagementSystem.model.RepaymentStatus.PAID " +
+            "and rs.dueDate < :cutoff and rs.loan.id between :fromLoanId and :toLoanId " +
+            "and rs.loan.status = com.myapplication.LoanManagementSystem.model.LoanStatus.ACTIVE")
+    List<Long> findActiveLoanIdsOpenBefore(@Param("cutoff") LocalDate cutoff,
+                                           @Param("fromLoanId") long fromLoanId,
+                                           @Param("toLoanId") long toLoanId);
+
+    /**
+     * Arrears aging of the open loans whose schedule is fully stored, in one pass over repayment_schedule.
+     * A loan's days past due count from its oldest unpaid installment due before today; the bucket is
+     * 0 when nothing is overdue, then 1-30, 31-60, 61-90, 91-180 and over 180 days (buckets 1 to 5).
+     * The dates are the first day of each bucket's range, so the SQL needs no date arithmetic.
+     */
+    @Query(nativeQuery = true, value = "select t.bucket as bucket, count(*) as loans, " +
+            "sum(t.outstanding) as outstanding, sum(t.arrears) as arrears from (" +
+            "select case when a.oldest_due is null then 0 " +
+            "when a.oldest_due >= :from30 then 1 when a.oldest_due >= :from60 then 2 " +
+            "when a.oldest_due >= :from90 then 3 when a.oldest_due >= :from180 then 4 else 5 end as bucket, " +
+            "l.total_repayable_amount - a.paid as outstanding, a.arrears as arrears " +
+            "from loans l join (" +
+            "select rs.loan_id as loan_id, " +
+            "min(case when rs.payment_status <> 'PAID' and rs.due_date < :today then rs.due_date end) as oldest_due, " +
+            "sum(case when rs.payment_status <> 'PAID' and rs.due_date < :today " +
+            "then coalesce(rs.amount_due, 0) - coalesce(rs.amount_paid, 0) else 0 end) as arrears, " +
+            "sum(coalesce(rs.amount_paid, 0)) as paid " +
+            "from repayment_schedule rs group by rs.loan_id) a on a.loan_id = l.id " +
+            "where l.status in ('ACTIVE', 'DEFAULTED') and l.compact_schedule = false" +
+            ") t group by t.bucket")
+    List<AgingBucketTotal> sumAgingByBucket(@Param("today") LocalDate today,
+                                            @Param("from30") LocalDate from30,
+                                            @Param("from60") LocalDate from60,
+                                            @Param("from90") LocalDate from90,
+                                            @Param("from180") LocalDate from180);
+
+    // Unpaid amounts per due date, for installments due before the given date on loans matching the filters.
+    @Query("select rs.dueDate as dueDate, count(rs) as installments, " +
+            "sum(coalesce(rs.amountDue, 0) - coalesce(rs.amountPaid, 0)) as amount " +
+            "from RepaymentSchedule rs join rs.loan l " +
+            "where rs.paymentStatus <> com.myapplication.LoanManagementSystem.model.RepaymentStatus.PAID " +
+            "and rs.dueDate < :before and l.status in :statuses " +
+            "and (:frequency is null or l.repaymentFrequency = :frequency) " +
+            "group by rs.dueDate")
+    List<DueDateTotal> sumUnpaidByDueDate(@Param("before") LocalDate before,
+                                          @Param("statuses") Collection<LoanStatus> statuses,
+                                          @Param("frequency") Frequency frequency);
+
+    @Query("select new com.myapplication.LoanManagementSystem.repository.projection.InstallmentState(" +
+            "rs.loan.id, rs.installmentNumber, rs.dueDate, rs.amountDue, rs.amountPaid, rs.paymentStatus) " +
+            "from RepaymentSchedule rs where rs.loan.id in :loanIds")
+    List<InstallmentState> findInstallmentStatesByLoanIds(@Param("loanIds") Collection<Long> loanIds);
+
+    // (loanId, installmentNumber) of every stored installment of the given loans.
+    @Query("select rs.loan.id, rs.installmentNumber from RepaymentSchedule rs where rs.loan.id in :loanIds")
+    List<Object[]> findInstallmentNumbersByLoanIds(@Param("loanIds") Collection<Long> loanIds);
 }
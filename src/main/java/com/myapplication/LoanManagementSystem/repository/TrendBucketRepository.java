@@ -0,0 +1,37 @@
+package com.myapplication.LoanManagementSystem.repository;
+
+import com.myapplication.LoanManagementSystem.model.TrendBucket;
+import com.myapplication.LoanManagementSystem.model.TrendGranularity;
+import com.myapplication.LoanManagementSystem.model.TrendKind;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TrendBucketRepository extends JpaRepository<TrendBucket, Long> {
+
+    /**
+     * Adds count and amount to a bucket, creating it if it does not exist yet. A single statement, so
+     * concurrent writers to a new bucket never race between an update and an insert.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into trend_buckets (kind, granularity, period_start, item_count, amount) " +
+            "values (:kind, :granularity, :periodStart, :count, :amount) " +
+            "on duplicate key update item_count = item_count + :count, amount = amount + :amount")
+    int upsert(@Param("kind") String kind,
+               @Param("granularity") String granularity,
+               @Param("periodStart") LocalDate periodStart,
+               @Param("count") long count,
+               @Param("amount") BigDecimal amount);
+
+    List<TrendBucket> findByKindAndGranularityAndPeriodStartBetweenOrderByPeriodStart(
+            TrendKind kind, TrendGranularity granularity, LocalDate from, LocalDate to);
+
+    List<TrendBucket> findByKindAndGranularityOrderByPeriodStart(TrendKind kind, TrendGranularity granularity);
+}
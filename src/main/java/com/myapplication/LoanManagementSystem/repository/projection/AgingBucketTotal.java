@@ -0,0 +1,14 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Loans in one arrears bucket with their outstanding balance and overdue amount; see
+ * RepaymentScheduleRepository.sumAgingByBucket for the bucket numbers.
+ */
+public interface AgingBucketTotal {
+    Integer getBucket();
+    Long getLoans();
+    BigDecimal getOutstanding();
+    BigDecimal getArrears();
+}
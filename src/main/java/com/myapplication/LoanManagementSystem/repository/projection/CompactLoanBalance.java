@@ -0,0 +1,27 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A loan with a compact schedule: its schedule rule and the amount it must repay in total.
+ */
+public record CompactLoanBalance(
+        Long loanId,
+        LocalDate scheduleStartDate,
+        Frequency repaymentFrequency,
+        BigDecimal installmentAmount,
+        BigDecimal finalInstallmentAdjustment,
+        int numberOfInstallments,
+        LocalDateTime createdAt,
+        BigDecimal totalRepayableAmount) {
+
+    public CompactSchedule rule() {
+        return new CompactSchedule(loanId, scheduleStartDate, repaymentFrequency, installmentAmount,
+                finalInstallmentAdjustment, numberOfInstallments, createdAt);
+    }
+}
@@ -0,0 +1,14 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * One calendar day of a grouped trend query.
+ */
+public interface DailyTotal {
+    Integer getYear();
+    Integer getMonth();
+    Integer getDay();
+    Long getCount();
+    BigDecimal getAmount();
+}
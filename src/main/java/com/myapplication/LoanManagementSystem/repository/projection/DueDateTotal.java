@@ -0,0 +1,10 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface DueDateTotal {
+    LocalDate getDueDate();
+    Long getInstallments();
+    BigDecimal getAmount();
+}
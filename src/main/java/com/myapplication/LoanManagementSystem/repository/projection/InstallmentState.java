@@ -0,0 +1,18 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The payment state of one stored installment.
+ */
+public record InstallmentState(
+        Long loanId,
+        Integer installmentNumber,
+        LocalDate dueDate,
+        BigDecimal amountDue,
+        BigDecimal amountPaid,
+        RepaymentStatus paymentStatus) {
+}
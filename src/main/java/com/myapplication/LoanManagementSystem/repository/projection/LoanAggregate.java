@@ -0,0 +1,17 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Portfolio-wide loan totals computed in a single aggregate query.
+ * Sums are returned instead of averages so the service can keep its own rounding rules.
+ */
+public interface LoanAggregate {
+    Long getTotalLoans();
+    BigDecimal getTotalPrincipal();
+    BigDecimal getTotalRepayable();
+    BigDecimal getTotalInterestRate();
+    Long getTotalRepaymentPeriod();
+    // Sum of each loan's installment amount (totalRepayable / numberOfInstallments, rounded to 2 decimals)
+    BigDecimal getTotalInstallmentAmount();
+}
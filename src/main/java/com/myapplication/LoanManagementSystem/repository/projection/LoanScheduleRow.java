@@ -0,0 +1,40 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One loan joined with one of its repayment schedules, for the customer details view.
+ * The schedule columns are null for a loan without schedules. For a loan with a compact schedule
+ * only the stored installments come back as rows; the rest follow from the loan's schedule rule.
+ */
+public record LoanScheduleRow(
+        Long customerId,
+        Long loanId,
+        BigDecimal principalAmount,
+        BigDecimal interestRate,
+        Integer repaymentPeriod,
+        BigDecimal totalRepayableAmount,
+        LoanStatus status,
+        LocalDateTime loanCreatedAt,
+        boolean compactSchedule,
+        Frequency repaymentFrequency,
+        LocalDate scheduleStartDate,
+        BigDecimal installmentAmount,
+        BigDecimal finalInstallmentAdjustment,
+        int numberOfInstallments,
+        Long scheduleId,
+        Integer installmentNumber,
+        LocalDate dueDate,
+        BigDecimal amountDue,
+        BigDecimal emi,
+        BigDecimal amountPaid,
+        LocalDate paymentDate,
+        RepaymentStatus paymentStatus,
+        LocalDateTime scheduleCreatedAt) {
+}
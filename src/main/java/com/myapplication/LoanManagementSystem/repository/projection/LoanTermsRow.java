@@ -0,0 +1,16 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+
+import java.math.BigDecimal;
+
+/**
+ * The inputs LoanService priced a loan with, without loading the loan or its schedule.
+ */
+public record LoanTermsRow(
+        Long loanId,
+        BigDecimal principalAmount,
+        BigDecimal interestRate,
+        Integer repaymentPeriod,
+        Frequency repaymentFrequency) {
+}
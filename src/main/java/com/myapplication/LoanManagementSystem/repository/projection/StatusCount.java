@@ -0,0 +1,8 @@
+package com.myapplication.LoanManagementSystem.repository.projection;
+
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+
+public interface StatusCount {
+    LoanStatus getStatus();
+    Long getCount();
+}
@@ -3,24 +3,69 @@ package com.myapplication.LoanManagementSystem.security;
 
 import com.myapplication.LoanManagementSystem.model.User;
 import com.myapplication.LoanManagementSystem.repository.UserRepository;
+import com.myapplication.LoanManagementSystem.utils.BoundedCache;
+import com.myapplication.LoanManagementSystem.utils.CacheMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
 
+/**
+ * Loads users for sign-in. Recently used accounts are kept in a bounded cache for a few minutes, so
+ * a hot account signs in without a database round trip; evict() drops an account whose credentials
+ * change. Lookups are reported as the user-details cache through CacheMetrics.
+ */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
+
+    private static final String USER_CACHE = "user-details";
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.user-cache.size:10000}")
+    private int cacheSize;
+
+    @Value("${security.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private BoundedCache<String, Credentials> users;
+
+    // Only what sign-in needs; never handed out, so erasing the credentials of a UserDetails cannot reach it
+    private record Credentials(String username, String password) {
+    }
+
+    @PostConstruct
+    void init() {
+        users = new BoundedCache<>(cacheSize, Duration.ofSeconds(ttlSeconds));
+        CacheMetrics.register(meterRegistry, USER_CACHE, users);
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        Credentials credentials = users.get(username, name -> userRepository.findByUsername(name)
+                .map(user -> new Credentials(user.getUsername(), user.getPassword()))
+                .orElse(null));
+        if (credentials == null) {
+            throw new UsernameNotFoundException("User not found");
+        }
 
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(),
+        // A new UserDetails per call: the authentication manager erases its password after sign-in
+        return new org.springframework.security.core.userdetails.User(credentials.username(), credentials.password(),
                 List.of());
 
     }
-}
\ No newline at end of file
+
+    // Called when a user registers or changes their password
+    public void evict(String username) {
+        users.invalidate(username);
+    }
+}
@@ -0,0 +1,127 @@
+package com.myapplication.LoanManagementSystem.security;
+
+import com.myapplication.LoanManagementSystem.utils.BoundedCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Caps sign-in and registration attempts per username and per client address in fixed windows,
+ * so excess attempts are refused before any password is hashed. Only failed sign-ins count, so a
+ * user who keeps signing in successfully, or many users behind one address, are not locked out;
+ * every registration counts, since each one hashes a password and creates an account.
+ *
+ * Each counter lives in a bounded cache entry that expires with its window; when more keys are
+ * tracked than the cache holds, the least recently seen ones are forgotten first.
+ */
+@Component
+public class LoginAttemptLimiter {
+
+    @Value("${security.login-limit.per-username:10}")
+    private int perUsername;
+
+    @Value("${security.login-limit.per-ip:50}")
+    private int perIp;
+
+    @Value("${security.login-limit.window-seconds:60}")
+    private int windowSeconds;
+
+    @Value("${security.login-limit.tracked-keys:100000}")
+    private int trackedKeys;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BoundedCache<String, Window> windows;
+
+    private Counter rejectedByUsername;
+
+    private Counter rejectedByIp;
+
+    // Attempts counted so far in one window; only read and written under the limiter's lock
+    private static final class Window {
+        private int attempts;
+    }
+
+    @PostConstruct
+    void init() {
+        windows = new BoundedCache<>(trackedKeys, Duration.ofSeconds(windowSeconds));
+        rejectedByUsername = rejectedCounter("username");
+        rejectedByIp = rejectedCounter("ip");
+    }
+
+    /**
+     * Counts an attempt against the username and the address, unless either is already at its
+     * limit for the current window.
+     * @param username null when the attempt is not tied to a username
+     * @return false if the attempt must be refused
+     */
+    public synchronized boolean tryAcquire(String username, String ip) {
+        if (isBlocked(username, ip)) {
+            return false;
+        }
+        recordFailure(username, ip);
+        return true;
+    }
+
+    /**
+     * Whether the username or the address is already at its limit for the current window. Does not
+     * count an attempt; a sign-in that then fails is counted with recordFailure.
+     * @param username null when the attempt is not tied to a username
+     */
+    public synchronized boolean isBlocked(String username, String ip) {
+        if (window("ip:" + ip).attempts >= perIp) {
+            rejectedByIp.increment();
+            return true;
+        }
+        if (username != null && window(userKey(username)).attempts >= perUsername) {
+            rejectedByUsername.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts a failed attempt against the username and the address.
+     * @param username null when the attempt is not tied to a username
+     */
+    public synchronized void recordFailure(String username, String ip) {
+        window("ip:" + ip).attempts++;
+        if (username != null) {
+            window(userKey(username)).attempts++;
+        }
+    }
+
+    /**
+     * Clears the username's failed attempts after a successful sign-in; the address keeps its count.
+     */
+    public synchronized void recordSuccess(String username) {
+        if (username != null) {
+            windows.invalidate(userKey(username));
+        }
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    private static String userKey(String username) {
+        return "user:" + username.toLowerCase();
+    }
+
+    private Window window(String key) {
+        return windows.get(key, k -> new Window());
+    }
+
+    private Counter rejectedCounter(String limit) {
+        return Counter.builder("auth.attempts.rejected")
+                .description("Sign-in and registration attempts refused by the rate limit, by limit hit")
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+}
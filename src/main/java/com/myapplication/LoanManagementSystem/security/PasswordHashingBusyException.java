@@ -0,0 +1,10 @@
+package com.myapplication.LoanManagementSystem.security;
+
+/**
+ * Thrown when the password hashing queue is full; the client should retry later.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
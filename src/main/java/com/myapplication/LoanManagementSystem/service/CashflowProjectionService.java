@@ -0,0 +1,227 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.stats.CashflowBucketDto;
+import com.myapplication.LoanManagementSystem.dto.stats.CashflowProjectionDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.ProjectionGranularity;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.repository.projection.CompactLoanBalance;
+import com.myapplication.LoanManagementSystem.repository.projection.DueDateTotal;
+import com.myapplication.LoanManagementSystem.utils.BoundedCache;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expected collections over the coming months: the unpaid part of every installment, by due date,
+ * folded into weekly, monthly or fixed-size buckets starting today.
+ *
+ * The database groups the unpaid amounts by due date, so at most one row per day comes back
+ * whatever the bucket size; compact-schedule installments without a row are added from the rule.
+ * Results are cached per set of parameters and dropped when a payment or loan change commits.
+ */
+@Service
+public class CashflowProjectionService {
+
+    public static final int MAX_MONTHS = 60;
+
+    private static final List<LoanStatus> DEFAULT_STATUSES = List.of(LoanStatus.ACTIVE, LoanStatus.DEFAULTED);
+
+    // Compact loans read per page
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * The parameters of a projection. Today's date is part of the key, so results never carry over to
+     * the next day.
+     */
+    private record ProjectionKey(LocalDate today, int months, ProjectionGranularity granularity, Integer bucketDays,
+                                 Frequency frequency, List<LoanStatus> statuses) {
+    }
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private final BoundedCache<ProjectionKey, CashflowProjectionDto> projections =
+            new BoundedCache<>(100, Duration.ofDays(1));
+
+    // Bumped on every invalidation; a projection computed across a bump is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param months how far ahead to project, from today
+     * @param granularity WEEKLY or MONTHLY buckets; ignored when bucketDays is given
+     * @param bucketDays fixed bucket size in days, the first bucket starting today; null for calendar buckets
+     * @param frequency only loans with this repayment frequency; null for all
+     * @param statuses only loans with one of these statuses; null or empty for ACTIVE and DEFAULTED
+     */
+    public CashflowProjectionDto getProjection(int months, ProjectionGranularity granularity, Integer bucketDays,
+                                               Frequency frequency, List<LoanStatus> statuses) {
+        if (months < 1 || months > MAX_MONTHS) {
+            throw new RuntimeException("months must be between 1 and " + MAX_MONTHS);
+        }
+        if (bucketDays != null && bucketDays < 1) {
+            throw new RuntimeException("bucketDays must be at least 1");
+        }
+        List<LoanStatus> loanStatuses = statuses == null || statuses.isEmpty()
+                ? DEFAULT_STATUSES : List.copyOf(new TreeSet<>(statuses));
+        ProjectionKey key = new ProjectionKey(LocalDate.now(), months,
+                bucketDays == null ? granularity : null, bucketDays, frequency, loanStatuses);
+        CashflowProjectionDto projection = projections.get(key);
+        if (projection == null) {
+            long before = generation.get();
+            projection = compute(key);
+            if (generation.get() == before) {
+                projections.put(key, projection);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Called when payments are posted or loans change. The cached projections are dropped once the
+     * caller's transaction commits, so a projection recomputed in between cannot see the old state.
+     */
+    public void schedulesChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        projections.clear();
+    }
+
+    private CashflowProjectionDto compute(ProjectionKey key) {
+        LocalDate today = key.today();
+        LocalDate end = today.plusMonths(key.months());
+
+        // Unpaid amount and installment count per due date, overdue dates included
+        Map<LocalDate, BigDecimal> amountByDate = new TreeMap<>();
+        Map<LocalDate, Long> countByDate = new HashMap<>();
+        for (DueDateTotal total : scheduleRepository.sumUnpaidByDueDate(end, key.statuses(), key.frequency())) {
+            amountByDate.merge(total.getDueDate(), orZero(total.getAmount()), BigDecimal::add);
+            countByDate.merge(total.getDueDate(), total.getInstallments(), Long::sum);
+        }
+        addVirtualInstallments(key, end, amountByDate, countByDate);
+
+        List<CashflowBucketDto> buckets = new ArrayList<>();
+        LocalDate start = today;
+        while (start.isBefore(end)) {
+            LocalDate next = key.bucketDays() != null
+                    ? start.plusDays(key.bucketDays())
+                    : key.granularity().nextBucketStart(key.granularity().bucketStart(start));
+            if (next.isAfter(end)) {
+                next = end;
+            }
+            CashflowBucketDto bucket = new CashflowBucketDto();
+            bucket.setPeriod(key.bucketDays() != null ? start.toString() : key.granularity().formatPeriod(start));
+            bucket.setStartDate(start);
+            bucket.setEndDate(next.minusDays(1));
+            bucket.setExpectedAmount(BigDecimal.ZERO);
+            buckets.add(bucket);
+            start = next;
+        }
+
+        BigDecimal overdue = BigDecimal.ZERO;
+        BigDecimal expected = BigDecimal.ZERO;
+        int index = 0;
+        for (Map.Entry<LocalDate, BigDecimal> entry : amountByDate.entrySet()) {
+            LocalDate dueDate = entry.getKey();
+            if (dueDate.isBefore(today)) {
+                overdue = overdue.add(entry.getValue());
+                continue;
+            }
+            // Due dates come in ascending order, so the bucket index only moves forward
+            while (dueDate.isAfter(buckets.get(index).getEndDate())) {
+                index++;
+            }
+            CashflowBucketDto bucket = buckets.get(index);
+            bucket.setExpectedAmount(bucket.getExpectedAmount().add(entry.getValue()));
+            bucket.setInstallments(bucket.getInstallments() + countByDate.get(dueDate));
+            expected = expected.add(entry.getValue());
+        }
+
+        CashflowProjectionDto projection = new CashflowProjectionDto();
+        projection.setFromDate(today);
+        projection.setToDate(end.minusDays(1));
+        projection.setGranularity(key.granularity());
+        projection.setBucketDays(key.bucketDays());
+        projection.setFrequency(key.frequency());
+        projection.setLoanStatuses(key.statuses());
+        projection.setOverdueAmount(overdue);
+        projection.setTotalExpected(expected);
+        projection.setBuckets(buckets);
+        projection.setGeneratedAt(LocalDateTime.now());
+        return projection;
+    }
+
+    // Installments of compact schedules that have no row are unpaid and due as the rule says
+    private void addVirtualInstallments(ProjectionKey key, LocalDate end, Map<LocalDate, BigDecimal> amountByDate,
+                                        Map<LocalDate, Long> countByDate) {
+        long afterId = 0;
+        List<CompactLoanBalance> page;
+        do {
+            page = loanRepository.findCompactLoansAfter(afterId, key.statuses(), Limit.of(PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            Map<Long, Set<Integer>> stored = new HashMap<>();
+            for (Object[] row : scheduleRepository.findInstallmentNumbersByLoanIds(
+                    page.stream().map(CompactLoanBalance::loanId).toList())) {
+                stored.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((Integer) row[1]);
+            }
+            for (CompactLoanBalance loan : page) {
+                if (key.frequency() != null && key.frequency() != loan.repaymentFrequency()) {
+                    continue;
+                }
+                CompactSchedule rule = loan.rule();
+                Set<Integer> rows = stored.getOrDefault(loan.loanId(), Set.of());
+                for (int n = 1; n <= rule.count(); n++) {
+                    LocalDate dueDate = rule.dueDate(n);
+                    if (!dueDate.isBefore(end)) {
+                        break;
+                    }
+                    if (!rows.contains(n)) {
+                        amountByDate.merge(dueDate, rule.amountDue(n), BigDecimal::add);
+                        countByDate.merge(dueDate, 1L, Long::sum);
+                    }
+                }
+            }
+            afterId = page.get(page.size() - 1).loanId();
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
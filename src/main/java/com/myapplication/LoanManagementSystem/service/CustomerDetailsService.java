@@ -0,0 +1,194 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsPageDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.LoanDetailsDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.RepaymentScheduleDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.repository.CustomerRepository;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.projection.LoanScheduleRow;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Builds the nested customer → loans → repayment schedules view used by /customers/details.
+ * Nothing is hydrated as an entity: customers are selected straight into their DTOs, and loans
+ * with their schedules come back as flat rows that are folded into the nested DTOs. A details call
+ * runs a fixed number of statements however many loans and installments there are.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CustomerDetailsService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Maximum number of ids per IN list when loading several customers
+    private static final int FETCH_CHUNK_SIZE = 500;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    public Optional<CustomerDetailsDto> getCustomerDetails(Long id) {
+        return customerRepository.findDetailsById(id).map(customer -> {
+            attachLoans(List.of(customer));
+            return customer;
+        });
+    }
+
+    public List<CustomerDetailsDto> getAllCustomerDetails() {
+        List<Long> ids = customerRepository.findAllIds();
+        List<CustomerDetailsDto> detailsDtos = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += FETCH_CHUNK_SIZE) {
+            detailsDtos.addAll(loadDetails(ids.subList(from, Math.min(from + FETCH_CHUNK_SIZE, ids.size()))));
+        }
+        return detailsDtos;
+    }
+
+    /**
+     * One page of customers ordered by id, starting after the given cursor (null for the first page).
+     */
+    public CustomerDetailsPageDto getCustomerDetailsPage(Long afterId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Fetch one extra id to know whether another page follows
+        List<Long> ids = customerRepository.findIdsAfter(afterId, Limit.of(pageSize + 1));
+        boolean hasMore = ids.size() > pageSize;
+        if (hasMore) {
+            ids = ids.subList(0, pageSize);
+        }
+        CustomerDetailsPageDto page = new CustomerDetailsPageDto();
+        page.setCustomers(loadDetails(ids));
+        page.setNextCursor(hasMore ? ids.get(ids.size() - 1) : null);
+        return page;
+    }
+
+    /**
+     * Builds every customer in id order, one keyset chunk at a time, and hands each result to the
+     * sink as soon as its chunk is loaded. Only one chunk is held in memory at a time. Runs outside
+     * a transaction: each chunk's queries take a connection only for as long as they run, rather
+     * than holding one while the whole response is written to a slow client.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamCustomerDetails(Consumer<CustomerDetailsDto> sink) {
+        Long afterId = null;
+        List<Long> ids;
+        do {
+            ids = customerRepository.findIdsAfter(afterId, Limit.of(FETCH_CHUNK_SIZE));
+            loadDetails(ids).forEach(sink);
+            if (!ids.isEmpty()) {
+                afterId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == FETCH_CHUNK_SIZE);
+    }
+
+    // Customers by id, then their loans and schedules in one row query.
+    private List<CustomerDetailsDto> loadDetails(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<CustomerDetailsDto> customers = customerRepository.findDetailsByIdIn(ids);
+        attachLoans(customers);
+        return customers;
+    }
+
+    private void attachLoans(List<CustomerDetailsDto> customers) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (CustomerDetailsDto customer : customers) {
+            ids.add(customer.getId());
+        }
+        attachLoans(customers, loanRepository.findDetailRowsByCustomerIds(ids));
+    }
+
+    /**
+     * Folds the loan/schedule rows, ordered by loan id, into the customers' nested loan DTOs.
+     * Package-private for the benchmarks.
+     */
+    static void attachLoans(List<CustomerDetailsDto> customers, List<LoanScheduleRow> rows) {
+        Map<Long, CustomerDetailsDto> byId = new HashMap<>();
+        for (CustomerDetailsDto customer : customers) {
+            byId.put(customer.getId(), customer);
+        }
+        LoanDetailsDto loanDto = null;
+        // Schedule rule and stored installments of the current loan, if it has a compact schedule
+        CompactSchedule rule = null;
+        Map<Integer, RepaymentScheduleDto> stored = new HashMap<>();
+        for (LoanScheduleRow row : rows) {
+            // Rows are ordered by loan id, so a new id starts the next loan
+            if (loanDto == null || !loanDto.getId().equals(row.loanId())) {
+                expand(loanDto, rule, stored);
+                loanDto = new LoanDetailsDto();
+                loanDto.setId(row.loanId());
+                loanDto.setPrincipalAmount(row.principalAmount());
+                loanDto.setInterestRate(row.interestRate());
+                loanDto.setRepaymentPeriod(row.repaymentPeriod() == null ? 0 : row.repaymentPeriod());
+                loanDto.setTotalRepayableAmount(row.totalRepayableAmount());
+                loanDto.setStatus(row.status());
+                loanDto.setCreatedAt(row.loanCreatedAt());
+                loanDto.setRepaymentSchedules(new ArrayList<>());
+                byId.get(row.customerId()).getLoans().add(loanDto);
+                rule = row.compactSchedule()
+                        ? new CompactSchedule(row.loanId(), row.scheduleStartDate(), row.repaymentFrequency(),
+                                row.installmentAmount(), row.finalInstallmentAdjustment(),
+                                row.numberOfInstallments(), row.loanCreatedAt())
+                        : null;
+                stored.clear();
+            }
+            if (row.scheduleId() != null) {
+                RepaymentScheduleDto scheduleDto = new RepaymentScheduleDto();
+                scheduleDto.setScheduleId(row.scheduleId());
+                scheduleDto.setDueDate(row.dueDate());
+                scheduleDto.setAmountDue(row.amountDue());
+                scheduleDto.setEmi(row.emi());
+                scheduleDto.setAmountPaid(row.amountPaid());
+                scheduleDto.setPaymentDate(row.paymentDate());
+                scheduleDto.setPaymentStatus(row.paymentStatus());
+                scheduleDto.setCreatedAt(row.scheduleCreatedAt());
+                if (rule != null) {
+                    stored.put(row.installmentNumber(), scheduleDto);
+                } else {
+                    loanDto.getRepaymentSchedules().add(scheduleDto);
+                }
+            }
+        }
+        expand(loanDto, rule, stored);
+    }
+
+    // Lists every installment of a compact schedule, filling the ones without a row from the rule.
+    private static void expand(LoanDetailsDto loanDto, CompactSchedule rule, Map<Integer, RepaymentScheduleDto> stored) {
+        if (loanDto == null || rule == null) {
+            return;
+        }
+        List<RepaymentScheduleDto> schedules = rule.expand(stored, n -> {
+            RepaymentScheduleDto scheduleDto = new RepaymentScheduleDto();
+            scheduleDto.setScheduleId(rule.virtualId(n));
+            scheduleDto.setDueDate(rule.dueDate(n));
+            scheduleDto.setAmountDue(rule.amountDue(n));
+            // Same as a stored row: emi is only set on monthly schedules
+            scheduleDto.setEmi(rule.frequency() == Frequency.MONTHLY ? rule.amountDue(n) : null);
+            scheduleDto.setAmountPaid(BigDecimal.ZERO);
+            scheduleDto.setPaymentStatus(rule.statusOf(n));
+            scheduleDto.setCreatedAt(rule.createdAt());
+            return scheduleDto;
+        });
+        schedules.sort(Comparator.comparing(RepaymentScheduleDto::getDueDate));
+        loanDto.getRepaymentSchedules().addAll(schedules);
+    }
+}
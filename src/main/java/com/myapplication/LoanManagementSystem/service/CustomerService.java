@@ -2,9 +2,12 @@ package com.myapplication.LoanManagementSystem.service;
 
 
 import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Loan;
 import com.myapplication.LoanManagementSystem.repository.CustomerRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,6 +18,18 @@ public class CustomerService {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private RepaymentScheduleRepository repaymentScheduleRepository;
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private TrendBucketService trendBucketService;
+
+    @Autowired
+    private CashflowProjectionService cashflowProjectionService;
+
     public List<Customer> getAllCustomers(){
         return customerRepository.findAll();
     }
@@ -38,7 +53,18 @@ public class CustomerService {
         }).orElseThrow(() -> new RuntimeException("Customer not found with id " + id));
     }
 
+    @Transactional
     public void deleteCustomer(Long id){
-        customerRepository.deleteById(id);
+        customerRepository.findById(id).ifPresent(customer -> {
+            // The customer's loans are removed by cascade, so take them out of the rollup and trend buckets first
+            if (customer.getLoans() != null) {
+                for (Loan loan : customer.getLoans()) {
+                    portfolioRollupService.loanDeleted(loan, repaymentScheduleRepository.sumAmountPaidByLoanId(loan.getId()));
+                    trendBucketService.loanDeleted(loan);
+                }
+                cashflowProjectionService.schedulesChanged();
+            }
+            customerRepository.delete(customer);
+        });
     }
 }
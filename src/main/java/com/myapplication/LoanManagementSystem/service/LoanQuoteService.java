@@ -0,0 +1,144 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.loancalculation.LoanCalculationRequestDto;
+import com.myapplication.LoanManagementSystem.dto.loancalculation.LoanCalculationResponseDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.utils.BoundedCache;
+import com.myapplication.LoanManagementSystem.utils.CacheMetrics;
+import com.myapplication.LoanManagementSystem.utils.LoanCalculator;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memoizes loan arithmetic. Most quotes and new loans use one of a few dozen standard products,
+ * so the same (principal, period, rate, frequency) comes up again and again.
+ *
+ * Only the date-independent parts are cached; the due date is applied from today's date on every
+ * read. Both caches are bounded by size (least recently used entries go first) and report their
+ * hits and misses through CacheMetrics, tagged with the cache name.
+ */
+@Service
+public class LoanQuoteService {
+
+    private static final String QUOTE_CACHE = "loan-quotes";
+
+    private static final String TERMS_CACHE = "loan-terms";
+
+    // The results never go stale; the TTL only bounds how long an unused entry can linger
+    private static final Duration CACHE_TTL = Duration.ofDays(30);
+
+    /**
+     * The inputs to a calculation. BigDecimal.equals compares the scale too, so 100 and 100.00 are
+     * different keys; that costs an extra miss at worst, never a wrong result.
+     */
+    public record QuoteKey(BigDecimal principal, int repaymentPeriod, int interestRate, Frequency frequency) {
+    }
+
+    // Date-independent part of a LoanCalculator quote
+    private record Quote(BigDecimal totalRepayableAmount, BigDecimal emi, BigDecimal ewi, int numberOfInstallments) {
+    }
+
+    /**
+     * Installment count and total repayable amount of a new or edited loan (flat interest on the principal).
+     */
+    public record LoanTerms(int installments, BigDecimal totalRepayable) {
+    }
+
+    @Value("${loans.quote-cache.size:1000}")
+    private int cacheSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BoundedCache<QuoteKey, Quote> quotes;
+
+    private BoundedCache<QuoteKey, LoanTerms> terms;
+
+    @PostConstruct
+    void init() {
+        quotes = new BoundedCache<>(cacheSize, CACHE_TTL);
+        terms = new BoundedCache<>(cacheSize, CACHE_TTL);
+        CacheMetrics.register(meterRegistry, QUOTE_CACHE, quotes);
+        CacheMetrics.register(meterRegistry, TERMS_CACHE, terms);
+    }
+
+    /**
+     * Same result as LoanCalculator.calculateLoan, served from the cache when the inputs were seen before.
+     */
+    public LoanCalculationResponseDto calculateLoan(LoanCalculationRequestDto request) {
+        return calculateLoan(request, LocalDate.now());
+    }
+
+    /**
+     * Quotes for every request, in request order, all dated today.
+     */
+    public List<LoanCalculationResponseDto> calculateLoans(List<LoanCalculationRequestDto> requests) {
+        LocalDate today = LocalDate.now();
+        List<LoanCalculationResponseDto> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                results.add(calculateLoan(requests.get(i), today));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Loan calculation failed for item " + i + ": " + e.getMessage(), e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The terms LoanService gives a loan with these inputs.
+     */
+    public LoanTerms loanTerms(BigDecimal principal, int repaymentPeriod, int interestRate, Frequency frequency) {
+        return terms.get(new QuoteKey(principal, repaymentPeriod, interestRate, frequency), LoanQuoteService::computeTerms);
+    }
+
+    private LoanCalculationResponseDto calculateLoan(LoanCalculationRequestDto request, LocalDate today) {
+        QuoteKey key = new QuoteKey(request.getPrincipalAmount(), request.getRepaymentPeriod(),
+                request.getInterestRate(), request.getFrequency());
+        Quote quote = quotes.get(key, LoanQuoteService::computeQuote);
+        // A new DTO per call: callers get their own copy, never the cached state
+        LoanCalculationResponseDto response = new LoanCalculationResponseDto();
+        response.setTotalRepayableAmount(quote.totalRepayableAmount());
+        response.setDueDate(today.plusMonths(key.repaymentPeriod()));
+        response.setEmi(quote.emi());
+        response.setEwi(quote.ewi());
+        response.setNumberOfInstallments(quote.numberOfInstallments());
+        return response;
+    }
+
+    private static Quote computeQuote(QuoteKey key) {
+        LoanCalculationResponseDto calc = LoanCalculator.calculateLoan(key.principal(), key.repaymentPeriod(),
+                key.interestRate(), key.frequency());
+        return new Quote(calc.getTotalRepayableAmount(), calc.getEmi(), calc.getEwi(), calc.getNumberOfInstallments());
+    }
+
+    /**
+     * Number of installments LoanService schedules for a loan of this period and frequency.
+     */
+    public static int installmentCount(int repaymentPeriod, Frequency frequency) {
+        if (frequency == Frequency.WEEKLY) {
+            // Using an average of 4.33 weeks per month
+            return (int) Math.ceil(repaymentPeriod * 4.33);
+        }
+        return repaymentPeriod;
+    }
+
+    private static LoanTerms computeTerms(QuoteKey key) {
+        int installments = installmentCount(key.repaymentPeriod(), key.frequency());
+        // Flat interest: totalRepayable = principal + principal * (interestRate / 100)
+        BigDecimal totalInterest = key.principal()
+                .multiply(new BigDecimal(key.interestRate()))
+                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
+        return new LoanTerms(installments, key.principal().add(totalInterest));
+    }
+}
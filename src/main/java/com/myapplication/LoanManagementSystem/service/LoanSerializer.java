@@ -0,0 +1,122 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes writes against the same loan. Work for one loan runs under a striped in-process lock,
+ * in its own transaction that commits before the lock is released, so the next writer always reads
+ * committed state. Loans on different stripes run fully in parallel.
+ * The lock only covers this instance: @Version on Loan and RepaymentSchedule catches conflicting
+ * writers elsewhere, and the work is retried a bounded number of times when that happens.
+ */
+@Component
+public class LoanSerializer {
+
+    // Power of two so a stripe is picked with a mask
+    private static final int STRIPES = 64;
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final long RETRY_BACKOFF_MILLIS = 20;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    public LoanSerializer() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Runs the work for the given loan in a transaction while holding the loan's stripe lock,
+     * retrying on an optimistic locking failure.
+     */
+    public <T> T execute(Long loanId, Supplier<T> work) {
+        ReentrantLock lock = locks[stripeOf(loanId)];
+        lock.lock();
+        try {
+            return executeWithRetry(work);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Same as execute, for work spanning several loans. The stripes are taken in ascending order,
+     * so two batches with overlapping loans cannot deadlock each other.
+     */
+    public <T> T executeAll(Collection<Long> loanIds, Supplier<T> work) {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (Long loanId : loanIds) {
+            stripes.add(stripeOf(loanId));
+        }
+        List<ReentrantLock> held = new ArrayList<>(stripes.size());
+        try {
+            for (Integer stripe : stripes) {
+                locks[stripe].lock();
+                held.add(locks[stripe]);
+            }
+            return executeWithRetry(work);
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
+            }
+        }
+    }
+
+    public void run(Long loanId, Runnable work) {
+        execute(loanId, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private <T> T executeWithRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(status -> work.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private static int stripeOf(Long loanId) {
+        return Long.hashCode(loanId) & (STRIPES - 1);
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying a loan update", e);
+        }
+    }
+}
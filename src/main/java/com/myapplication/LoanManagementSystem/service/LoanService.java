@@ -1,24 +1,47 @@
 package com.myapplication.LoanManagementSystem.service;
 
+import com.myapplication.LoanManagementSystem.dto.BatchLoanItemResultDto;
+import com.myapplication.LoanManagementSystem.dto.BatchLoanResultDto;
 import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
 import com.myapplication.LoanManagementSystem.model.*;
 import com.myapplication.LoanManagementSystem.repository.CustomerRepository;
 import com.myapplication.LoanManagementSystem.repository.LoanRepository;
 import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import com.myapplication.LoanManagementSystem.utils.Rescheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 public class LoanService {
 
+    // Loans created per transaction by createLoans
+    private static final int BATCH_CHUNK_LOANS = 500;
+
+    // New loans store their schedule as a rule instead of one row per installment, see CompactSchedule
+    @Value("${loans.compact-schedules:false}")
+    private boolean compactSchedules;
+
     @Autowired
     private LoanRepository loanRepository;
 
@@ -28,6 +51,34 @@ public class LoanService {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private TrendBucketService trendBucketService;
+
+    @Autowired
+    private CashflowProjectionService cashflowProjectionService;
+
+    @Autowired
+    private LoanSerializer loanSerializer;
+
+    @Autowired
+    private LoanQuoteService loanQuoteService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
     public List<Loan> getAllLoans() {
         return loanRepository.findAll();
     }
@@ -39,11 +90,170 @@ public class LoanService {
     /**
      * Creates a new loan using flat interest calculations and generates an amortization schedule.
      */
+    @Transactional
     public Loan createLoan(LoanRequestDto dto) {
         // 1. Fetch the customer details
         Customer customer = customerRepository.findById(dto.getCustomerId())
                 .orElseThrow(() -> new RuntimeException("Customer not found with id " + dto.getCustomerId()));
 
+        Loan savedLoan = loanRepository.save(newLoan(customer, dto));
+        portfolioRollupService.loanCreated(savedLoan);
+        trendBucketService.loanCreated(savedLoan);
+        cashflowProjectionService.schedulesChanged();
+        return savedLoan;
+    }
+
+    /**
+     * Creates many loans at once, e.g. a group-lending cohort. Loans are created in chunks that each
+     * commit in one transaction, so loan and schedule inserts go to the database as JDBC batches.
+     * If a chunk fails, its loans are retried one at a time, so a bad item only fails itself.
+     */
+    public BatchLoanResultDto createLoans(List<LoanRequestDto> items) {
+        long started = System.nanoTime();
+        BatchLoanItemResultDto[] results = new BatchLoanItemResultDto[items.size()];
+
+        Set<Long> customerIds = new HashSet<>();
+        for (LoanRequestDto item : items) {
+            if (item != null && item.getCustomerId() != null) {
+                customerIds.add(item.getCustomerId());
+            }
+        }
+        Set<Long> existingCustomers = customerIds.isEmpty()
+                ? new HashSet<>() : new HashSet<>(customerRepository.findExistingIds(customerIds));
+
+        List<Integer> chunk = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            String error = validate(items.get(i), existingCustomers);
+            if (error != null) {
+                results[i] = failedItem(i, items.get(i), error);
+                continue;
+            }
+            chunk.add(i);
+            if (chunk.size() == BATCH_CHUNK_LOANS) {
+                createChunk(chunk, items, results);
+                chunk = new ArrayList<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            createChunk(chunk, items, results);
+        }
+        return summarise(results, System.nanoTime() - started);
+    }
+
+    private void createChunk(List<Integer> indexes, List<LoanRequestDto> items, BatchLoanItemResultDto[] results) {
+        try {
+            List<Loan> loans = transaction.execute(status -> insertLoans(indexes, items));
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = createdItem(indexes.get(i), loans.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (indexes.size() > 1) {
+                for (Integer index : indexes) {
+                    createChunk(List.of(index), items, results);
+                }
+            } else {
+                results[indexes.get(0)] = failedItem(indexes.get(0), items.get(indexes.get(0)), e.getMessage());
+            }
+        } finally {
+            // Drop the chunk's entities in case the request holds an open EntityManager
+            entityManager.clear();
+        }
+    }
+
+    // Runs inside the chunk's transaction; the inserts are flushed as batches at commit.
+    private List<Loan> insertLoans(List<Integer> indexes, List<LoanRequestDto> items) {
+        List<Loan> loans = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            LoanRequestDto dto = items.get(index);
+            // A reference is enough to set the foreign key; existence was checked up front
+            loans.add(newLoan(customerRepository.getReferenceById(dto.getCustomerId()), dto));
+        }
+        loanRepository.saveAll(loans);
+        portfolioRollupService.loansCreated(loans);
+        // Sorted so concurrent batches touch the trend buckets in the same order
+        Map<LocalDate, BigDecimal> principalByDate = new TreeMap<>();
+        Map<LocalDate, Integer> countByDate = new TreeMap<>();
+        for (Loan loan : loans) {
+            LocalDate date = loan.getCreatedAt().toLocalDate();
+            principalByDate.merge(date, loan.getPrincipalAmount(), BigDecimal::add);
+            countByDate.merge(date, 1, Integer::sum);
+        }
+        countByDate.forEach((date, count) ->
+                trendBucketService.record(TrendKind.DISBURSEMENT, date, count, principalByDate.get(date)));
+        cashflowProjectionService.schedulesChanged();
+        return loans;
+    }
+
+    private static String validate(LoanRequestDto item, Set<Long> existingCustomers) {
+        if (item == null || item.getCustomerId() == null) {
+            return "customerId is required";
+        }
+        if (!existingCustomers.contains(item.getCustomerId())) {
+            return "Customer not found with id " + item.getCustomerId();
+        }
+        if (item.getPrincipalAmount() == null || item.getPrincipalAmount().signum() <= 0) {
+            return "principalAmount must be greater than zero";
+        }
+        if (item.getInterestRate() < 0) {
+            return "interestRate must not be negative";
+        }
+        if (item.getRepaymentPeriod() <= 0) {
+            return "repaymentPeriod must be greater than zero";
+        }
+        if (item.getRepaymentFrequency() == null) {
+            return "repaymentFrequency is required";
+        }
+        return null;
+    }
+
+    private static BatchLoanItemResultDto createdItem(int index, Loan loan) {
+        BatchLoanItemResultDto result = new BatchLoanItemResultDto();
+        result.setIndex(index);
+        result.setCustomerId(loan.getCustomer().getId());
+        result.setSuccess(true);
+        result.setLoanId(loan.getId());
+        result.setInstallments(loan.getNumberOfInstallments());
+        result.setScheduleRows(loan.getRepaymentSchedules().size());
+        result.setTotalRepayableAmount(loan.getTotalRepayableAmount());
+        return result;
+    }
+
+    private static BatchLoanItemResultDto failedItem(int index, LoanRequestDto item, String error) {
+        BatchLoanItemResultDto result = new BatchLoanItemResultDto();
+        result.setIndex(index);
+        result.setCustomerId(item == null ? null : item.getCustomerId());
+        result.setSuccess(false);
+        result.setError(error);
+        return result;
+    }
+
+    private static BatchLoanResultDto summarise(BatchLoanItemResultDto[] results, long elapsedNanos) {
+        int succeeded = 0;
+        int schedules = 0;
+        long rows = 0;
+        for (BatchLoanItemResultDto result : results) {
+            if (result.isSuccess()) {
+                succeeded++;
+                schedules += result.getInstallments();
+                rows += 1 + result.getScheduleRows();
+            }
+        }
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        BatchLoanResultDto summary = new BatchLoanResultDto();
+        summary.setItemCount(results.length);
+        summary.setSucceeded(succeeded);
+        summary.setFailed(results.length - succeeded);
+        summary.setSchedulesCreated(schedules);
+        summary.setRowsInserted(rows);
+        summary.setElapsedMillis(elapsedNanos / 1_000_000);
+        summary.setLoansPerSecond(seconds > 0 ? succeeded / seconds : 0);
+        summary.setRowsPerSecond(seconds > 0 ? rows / seconds : 0);
+        summary.setItems(Arrays.asList(results));
+        return summary;
+    }
+
+    // Builds an unsaved loan with its amortization schedule; saving the loan cascades to the schedule.
+    private Loan newLoan(Customer customer, LoanRequestDto dto) {
         // 2. Create the Loan entity
         Loan loan = new Loan();
         loan.setCustomer(customer);
@@ -54,25 +264,12 @@ public class LoanService {
         loan.setStatus(LoanStatus.ACTIVE);
         loan.setCreatedAt(LocalDateTime.now());
 
-        // 3. Determine number of installments based on frequency
-        int installments;
-        if (loan.getRepaymentFrequency() == Frequency.MONTHLY) {
-            installments = dto.getRepaymentPeriod();
-        } else if (loan.getRepaymentFrequency() == Frequency.WEEKLY) {
-            // Using an average of 4.33 weeks per month
-            installments = (int) Math.ceil(dto.getRepaymentPeriod() * 4.33);
-        } else {
-            installments = dto.getRepaymentPeriod();
-        }
+        // 3-4. Number of installments and total repayable amount (flat interest), memoized per product
+        LoanQuoteService.LoanTerms terms = loanQuoteService.loanTerms(dto.getPrincipalAmount(),
+                dto.getRepaymentPeriod(), dto.getInterestRate(), dto.getRepaymentFrequency());
+        int installments = terms.installments();
         loan.setNumberOfInstallments(installments);
-
-        // 4. Calculate total repayable amount using flat interest:
-        // totalInterest = principal * (interestRate / 100)
-        // totalRepayable = principal + totalInterest
-        BigDecimal totalInterest = dto.getPrincipalAmount()
-                .multiply(new BigDecimal(dto.getInterestRate()))
-                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-        BigDecimal totalRepayable = dto.getPrincipalAmount().add(totalInterest);
+        BigDecimal totalRepayable = terms.totalRepayable();
         loan.setTotalRepayableAmount(totalRepayable);
 
         // 5. Set the overall loan due date based on frequency
@@ -86,26 +283,40 @@ public class LoanService {
         // 6. Generate the amortization schedule
         List<RepaymentSchedule> scheduleList = generateAmortizationSchedule(loan, installments, totalRepayable);
         loan.setRepaymentSchedules(scheduleList);
-
-        return loanRepository.save(loan);
+        return loan;
     }
 
     /**
      * Generates a flat interest amortization schedule.
      * For MONTHLY frequency, sets the installment in the "emi" field.
      * For WEEKLY frequency, sets the installment in the "ewi" field.
+     * With loans.compact-schedules enabled no rows are generated; the loan keeps the schedule rule instead.
+     * Package-private for the benchmarks.
      */
-    private List<RepaymentSchedule> generateAmortizationSchedule(Loan loan, int installments, BigDecimal totalRepayable) {
+    List<RepaymentSchedule> generateAmortizationSchedule(Loan loan, int installments, BigDecimal totalRepayable) {
         List<RepaymentSchedule> schedules = new ArrayList<>();
         LocalDate baseDate = LocalDate.now();
 
         // Compute installment amount as totalRepayable divided by the number of installments
         BigDecimal installmentAmount = totalRepayable.divide(new BigDecimal(installments), 2, RoundingMode.HALF_UP);
 
+        loan.setScheduleStartDate(baseDate);
+
+        // Compact: store the rule only; rows are created as installments receive money
+        boolean compact = compactSchedules && installments < CompactSchedule.MAX_INSTALLMENTS;
+        loan.setCompactSchedule(compact);
+        if (compact) {
+            loan.setInstallmentAmount(installmentAmount);
+            loan.setFinalInstallmentAdjustment(
+                    totalRepayable.subtract(installmentAmount.multiply(new BigDecimal(installments))));
+            return schedules;
+        }
+
         if (loan.getRepaymentFrequency() == Frequency.MONTHLY) {
             for (int i = 1; i <= installments; i++) {
                 RepaymentSchedule schedule = new RepaymentSchedule();
                 schedule.setLoan(loan);
+                schedule.setInstallmentNumber(i);
                 schedule.setDueDate(baseDate.plusMonths(i));
                 schedule.setEmi(installmentAmount); // For monthly, store in emi
                 // Optionally, you may set ewi to null explicitly
@@ -122,6 +333,7 @@ public class LoanService {
             for (int i = 1; i <= installments; i++) {
                 RepaymentSchedule schedule = new RepaymentSchedule();
                 schedule.setLoan(loan);
+                schedule.setInstallmentNumber(i);
                 schedule.setDueDate(baseDate.plusWeeks(i));
                 schedule.setEwi(installmentAmount); // For weekly, store in ewi
                 // Optionally, set emi to null explicitly
@@ -138,11 +350,21 @@ public class LoanService {
     }
 
     /**
-     * Updates an existing loan, recalculating computed fields and regenerating the repayment schedules.
+     * Updates an existing loan, recalculating computed fields and rescheduling its installments.
+     * Installments that have received money are kept with their payments; the outstanding balance is
+     * re-spread over the open ones, which are updated in place. See Rescheduler.
      */
     public Loan updateLoan(Long id, LoanRequestDto dto) {
+        // Serialized with payments on the same loan, which also change its schedule rows
+        return loanSerializer.execute(id, () -> reschedule(id, dto));
+    }
+
+    private Loan reschedule(Long id, LoanRequestDto dto) {
         Loan existingLoan = loanRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Loan not found with id " + id));
+        PortfolioRollupService.LoanFigures before = PortfolioRollupService.LoanFigures.of(existingLoan);
+        // Worked out with the old frequency, for loans that predate the stored start date
+        LocalDate startDate = Rescheduler.startDate(existingLoan);
 
         // Update allowed fields (customer remains unchanged)
         existingLoan.setPrincipalAmount(dto.getPrincipalAmount());
@@ -151,47 +373,42 @@ public class LoanService {
         existingLoan.setRepaymentFrequency(dto.getRepaymentFrequency());
 
         // Recalculate computed fields
-        int installments;
-        if (existingLoan.getRepaymentFrequency() == Frequency.MONTHLY) {
-            installments = dto.getRepaymentPeriod();
-        } else if (existingLoan.getRepaymentFrequency() == Frequency.WEEKLY) {
-            installments = (int) Math.ceil(dto.getRepaymentPeriod() * 4.33);
-        } else {
-            installments = dto.getRepaymentPeriod();
-        }
-        existingLoan.setNumberOfInstallments(installments);
-
-        BigDecimal totalInterest = dto.getPrincipalAmount()
-                .multiply(new BigDecimal(dto.getInterestRate()))
-                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-        BigDecimal totalRepayable = dto.getPrincipalAmount().add(totalInterest);
+        LoanQuoteService.LoanTerms terms = loanQuoteService.loanTerms(dto.getPrincipalAmount(),
+                dto.getRepaymentPeriod(), dto.getInterestRate(), dto.getRepaymentFrequency());
+        int installments = terms.installments();
+        BigDecimal totalRepayable = terms.totalRepayable();
         existingLoan.setTotalRepayableAmount(totalRepayable);
 
-        LocalDate baseDate = LocalDate.now();
-        if (existingLoan.getRepaymentFrequency() == Frequency.MONTHLY) {
-            existingLoan.setDueDate(baseDate.plusMonths(installments));
-        } else if (existingLoan.getRepaymentFrequency() == Frequency.WEEKLY) {
-            existingLoan.setDueDate(baseDate.plusWeeks(installments));
+        // Reshape the schedule in place; the count can exceed the requested one when paid installments sit past it
+        int scheduled = Rescheduler.reschedule(existingLoan, startDate, installments, totalRepayable);
+        existingLoan.setNumberOfInstallments(scheduled);
+        existingLoan.setDueDate(Rescheduler.dueDate(startDate, existingLoan.getRepaymentFrequency(), scheduled));
+
+        boolean fullyPaid = CompactSchedule.installmentsOf(existingLoan).stream()
+                .allMatch(rs -> rs.getPaymentStatus() == RepaymentStatus.PAID);
+        if (fullyPaid) {
+            existingLoan.setStatus(LoanStatus.PAID);
+        } else if (existingLoan.getStatus() == LoanStatus.PAID) {
+            existingLoan.setStatus(LoanStatus.ACTIVE);
         }
 
-        // Regenerate repayment schedules based on new parameters
-        List<RepaymentSchedule> newSchedules = generateAmortizationSchedule(existingLoan, installments, totalRepayable);
-
-        // Update the existing collection in place to avoid orphan removal issues
-        if (existingLoan.getRepaymentSchedules() != null) {
-            existingLoan.getRepaymentSchedules().clear();
-            existingLoan.getRepaymentSchedules().addAll(newSchedules);
-        } else {
-            existingLoan.setRepaymentSchedules(newSchedules);
-        }
-
-        return loanRepository.save(existingLoan);
+        Loan savedLoan = loanRepository.save(existingLoan);
+        portfolioRollupService.loanUpdated(before, savedLoan);
+        trendBucketService.principalChanged(savedLoan, before.principal());
+        cashflowProjectionService.schedulesChanged();
+        return savedLoan;
     }
 
 
 
+    @Transactional
     public void deleteLoan(Long id) {
-        loanRepository.deleteById(id);
+        loanRepository.findById(id).ifPresent(loan -> {
+            portfolioRollupService.loanDeleted(loan, repaymentScheduleRepository.sumAmountPaidByLoanId(id));
+            trendBucketService.loanDeleted(loan);
+            cashflowProjectionService.schedulesChanged();
+            loanRepository.delete(loan);
+        });
     }
 }
 
@@ -3,83 +3,78 @@ package com.myapplication.LoanManagementSystem.service;
 
 
 import com.myapplication.LoanManagementSystem.dto.stats.*;
-import com.myapplication.LoanManagementSystem.model.Loan;
-import com.myapplication.LoanManagementSystem.model.Payment;
-import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
-import com.myapplication.LoanManagementSystem.repository.LoanRepository;
-import com.myapplication.LoanManagementSystem.repository.PaymentRepository;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.PortfolioRollup;
+import com.myapplication.LoanManagementSystem.model.TrendBucket;
+import com.myapplication.LoanManagementSystem.model.TrendGranularity;
+import com.myapplication.LoanManagementSystem.model.TrendKind;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Portfolio statistics. Totals are read from the incrementally maintained portfolio rollup and
+ * trends from the pre-aggregated trend buckets, so the cost of a dashboard refresh does not
+ * depend on the number of loans or schedules.
+ */
 @Service
+@Transactional(readOnly = true)
 public class LoanStatsService {
 
     @Autowired
-    private LoanRepository loanRepository;
+    private TrendBucketService trendBucketService;
 
     @Autowired
-    private PaymentRepository paymentRepository;
+    private PortfolioRollupService portfolioRollupService;
 
     public LoanSummaryDto getLoanSummary() {
-        List<Loan> loans = loanRepository.findAll();
+        PortfolioRollup portfolio = portfolioRollupService.getPortfolio();
+        long loanCount = portfolio.getLoanCount();
         LoanSummaryDto summary = new LoanSummaryDto();
-        summary.setTotalLoans(loans.size());
+        summary.setTotalLoans((int) loanCount);
 
         // Total amount disbursed (sum of principal amounts)
-        BigDecimal totalPrincipal = loans.stream()
-                .map(Loan::getPrincipalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        summary.setTotalAmountDisbursed(totalPrincipal);
+        summary.setTotalAmountDisbursed(portfolio.getPrincipalDisbursed());
 
         // Breakdown by status
-        Map<String, Integer> statusCounts = loans.stream()
-                .collect(Collectors.groupingBy(l -> l.getStatus().toString(), Collectors.summingInt(l -> 1)));
+        Map<String, Integer> statusCounts = new HashMap<>();
+        for (LoanStatus status : LoanStatus.values()) {
+            long count = portfolio.countFor(status);
+            if (count > 0) {
+                statusCounts.put(status.toString(), (int) count);
+            }
+        }
         summary.setLoansByStatus(statusCounts);
 
         // Average loan amount
-        BigDecimal avgLoan = loans.isEmpty() ? BigDecimal.ZERO :
-                totalPrincipal.divide(new BigDecimal(loans.size()), 2, RoundingMode.HALF_UP);
-        summary.setAverageLoanAmount(avgLoan);
+        summary.setAverageLoanAmount(average(portfolio.getPrincipalDisbursed(), loanCount));
 
         // Average interest rate (assumes interestRate is stored as a percentage, e.g., 10)
-        BigDecimal totalInterestRate = loans.stream()
-                .map(Loan::getInterestRate)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal avgInterest = loans.isEmpty() ? BigDecimal.ZERO :
-                totalInterestRate.divide(new BigDecimal(loans.size()), 2, RoundingMode.HALF_UP);
-        summary.setAverageInterestRate(avgInterest);
+        summary.setAverageInterestRate(average(portfolio.getTotalInterestRate(), loanCount));
 
         // Average repayment period in months
-        double avgPeriod = loans.stream()
-                .mapToInt(l -> l.getRepaymentPeriod() == null ? 0 : l.getRepaymentPeriod())
-                .average().orElse(0.0);
-        summary.setAverageRepaymentPeriodMonths(avgPeriod);
+        summary.setAverageRepaymentPeriodMonths(loanCount == 0 ? 0.0 : (double) portfolio.getTotalRepaymentPeriod() / loanCount);
 
         return summary;
     }
 
     public LoansDisbursedVsPaidDto getLoansDisbursedVsPaid() {
-        List<Loan> loans = loanRepository.findAll();
+        PortfolioRollup portfolio = portfolioRollupService.getPortfolio();
         LoansDisbursedVsPaidDto dto = new LoansDisbursedVsPaidDto();
         // Using principal as disbursed amount
-        BigDecimal totalDisbursed = loans.stream()
-                .map(Loan::getPrincipalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalDisbursed = portfolio.getPrincipalDisbursed();
         dto.setTotalAmountDisbursed(totalDisbursed);
 
         // Total paid: sum payments from all repayment schedules
-        BigDecimal totalPaid = loans.stream()
-                .flatMap(loan -> loan.getRepaymentSchedules().stream())
-                .map(rs -> rs.getAmountPaid() == null ? BigDecimal.ZERO : rs.getAmountPaid())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalPaid = portfolio.getTotalPaid();
         dto.setTotalAmountPaid(totalPaid);
 
         double percentagePaid = totalDisbursed.compareTo(BigDecimal.ZERO) > 0 ?
@@ -90,89 +85,57 @@ public class LoanStatsService {
     }
 
     public PaymentSummaryDto getPaymentSummary() {
-        List<Loan> loans = loanRepository.findAll();
+        PortfolioRollup portfolio = portfolioRollupService.getPortfolio();
         PaymentSummaryDto summary = new PaymentSummaryDto();
 
         // Total amount repayable (sum of loan.totalRepayableAmount)
-        BigDecimal totalRepayable = loans.stream()
-                .map(Loan::getTotalRepayableAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalRepayable = portfolio.getTotalRepayable();
         summary.setTotalAmountRepayable(totalRepayable);
 
         // Total amount paid from all schedules
-        BigDecimal totalPaid = loans.stream()
-                .flatMap(loan -> loan.getRepaymentSchedules().stream())
-                .map(rs -> rs.getAmountPaid() == null ? BigDecimal.ZERO : rs.getAmountPaid())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalPaid = portfolio.getTotalPaid();
         summary.setTotalAmountPaid(totalPaid);
 
         // Remaining balance = totalRepayable - totalPaid
         summary.setTotalRemainingBalance(totalRepayable.subtract(totalPaid));
 
         // Average installment payment (we average the installment amount of each loan)
-        List<BigDecimal> installmentAmounts = loans.stream()
-                .map(loan -> {
-                    if (loan.getNumberOfInstallments() > 0) {
-                        return loan.getTotalRepayableAmount()
-                                .divide(new BigDecimal(loan.getNumberOfInstallments()), 2, RoundingMode.HALF_UP);
-                    }
-                    return BigDecimal.ZERO;
-                })
-                .collect(Collectors.toList());
-
-        BigDecimal sumInstallments = installmentAmounts.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal avgInstallment = installmentAmounts.isEmpty() ? BigDecimal.ZERO :
-                sumInstallments.divide(new BigDecimal(installmentAmounts.size()), 2, RoundingMode.HALF_UP);
-        summary.setAverageInstallmentPayment(avgInstallment);
+        summary.setAverageInstallmentPayment(average(portfolio.getTotalInstallmentAmount(), portfolio.getLoanCount()));
 
         return summary;
     }
 
-    public TrendsDto getTrends() {
-        List<Loan> loans = loanRepository.findAll();
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        // Disbursement trends: group loans by the month of their creation (or dueDate) and sum principal amounts and counts.
-        Map<String, TrendData> disbursementMap = loans.stream().collect(Collectors.groupingBy(
-                loan -> loan.getCreatedAt().toLocalDate().format(formatter),
-                Collectors.collectingAndThen(Collectors.toList(), list -> {
-                    TrendData td = new TrendData();
-                    td.setPeriod(list.get(0).getCreatedAt().toLocalDate().format(formatter));
-                    td.setCount(list.size());
-                    BigDecimal amount = list.stream()
-                            .map(Loan::getPrincipalAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    td.setAmount(amount);
-                    return td;
-                })
-        ));
-
-        // Payment trends: group payments by the month of paymentDate (from PaymentRepository)
-        // For simplicity, we can derive from repayment schedules that have a non-null paymentDate.
-        List<RepaymentSchedule> allSchedules = loans.stream()
-                .flatMap(loan -> loan.getRepaymentSchedules().stream())
-                .filter(rs -> rs.getPaymentDate() != null)
-                .collect(Collectors.toList());
-
-        Map<String, TrendData> paymentMap = allSchedules.stream().collect(Collectors.groupingBy(
-                rs -> rs.getPaymentDate().format(formatter),
-                Collectors.collectingAndThen(Collectors.toList(), list -> {
-                    TrendData td = new TrendData();
-                    td.setPeriod(list.get(0).getPaymentDate().format(formatter));
-                    td.setCount(list.size());
-                    BigDecimal totalPaid = list.stream()
-                            .map(rs -> rs.getAmountPaid() == null ? BigDecimal.ZERO : rs.getAmountPaid())
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    td.setAmount(totalPaid);
-                    return td;
-                })
-        ));
-
+    /**
+     * Disbursement and collection trends read from the pre-aggregated trend buckets.
+     * @param from first day to include (inclusive, widened to the start of its bucket); null for no lower bound
+     * @param to last day to include (inclusive); null for no upper bound
+     * @param granularity DAILY or MONTHLY buckets
+     */
+    public TrendsDto getTrends(LocalDate from, LocalDate to, TrendGranularity granularity) {
         TrendsDto trends = new TrendsDto();
-        trends.setDisbursementTrends(disbursementMap.values().stream().sorted((a, b) -> a.getPeriod().compareTo(b.getPeriod())).collect(Collectors.toList()));
-        trends.setPaymentTrends(paymentMap.values().stream().sorted((a, b) -> a.getPeriod().compareTo(b.getPeriod())).collect(Collectors.toList()));
+        // Disbursement trends: loans grouped by the period of their creation.
+        trends.setDisbursementTrends(toTrendData(
+                trendBucketService.getBuckets(TrendKind.DISBURSEMENT, granularity, from, to), granularity));
+        // Payment trends: payment records grouped by the period of their paymentDate.
+        trends.setPaymentTrends(toTrendData(
+                trendBucketService.getBuckets(TrendKind.COLLECTION, granularity, from, to), granularity));
         return trends;
     }
+
+    private List<TrendData> toTrendData(List<TrendBucket> buckets, TrendGranularity granularity) {
+        List<TrendData> trendData = new ArrayList<>(buckets.size());
+        for (TrendBucket bucket : buckets) {
+            TrendData td = new TrendData();
+            td.setPeriod(granularity.formatPeriod(bucket.getPeriodStart()));
+            td.setCount((int) bucket.getCount());
+            td.setAmount(bucket.getAmount());
+            trendData.add(td);
+        }
+        return trendData;
+    }
+
+    private static BigDecimal average(BigDecimal total, long count) {
+        return count == 0 ? BigDecimal.ZERO : total.divide(new BigDecimal(count), 2, RoundingMode.HALF_UP);
+    }
 }
 
@@ -0,0 +1,374 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.OverdueRunDto;
+import com.myapplication.LoanManagementSystem.model.OverdueRun;
+import com.myapplication.LoanManagementSystem.model.OverdueRunPartition;
+import com.myapplication.LoanManagementSystem.model.OverdueRunStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.OverdueRunPartitionRepository;
+import com.myapplication.LoanManagementSystem.repository.OverdueRunRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Nightly overdue classification. For a business date it marks every open installment that fell due
+ * before the date as LATE, and moves ACTIVE loans with an installment more than the configured number
+ * of days past due to DEFAULTED.
+ *
+ * A run splits the loan id space into ranges (partitions) that are processed in parallel on a bounded
+ * pool. Each partition owns whole loans: its installments are marked with one bulk UPDATE, and its
+ * loans are defaulted with one bulk UPDATE under the loans' LoanSerializer locks, in the same
+ * transaction that records the partition as completed. A run that stops part way is resumed by
+ * redoing the partitions that did not complete; marking LATE twice changes nothing, so the counts
+ * stay exact.
+ */
+@Service
+public class OverdueService {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueService.class);
+
+    private static final List<RepaymentStatus> OPEN = List.of(RepaymentStatus.PENDING, RepaymentStatus.PARTIALLY_PAID);
+
+    // Loan ids per IN list when looking up compact schedules
+    private static final int CHUNK_SIZE = 1000;
+
+    @Value("${loans.overdue.partitions:16}")
+    private int partitions;
+
+    @Value("${loans.overdue.threads:4}")
+    private int threads;
+
+    // An ACTIVE loan with an installment more than this many days past due is defaulted
+    @Value("${loans.overdue.default-after-days:90}")
+    private int defaultAfterDays;
+
+    @Autowired
+    private OverdueRunRepository runRepository;
+
+    @Autowired
+    private OverdueRunPartitionRepository partitionRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private LoanSerializer loanSerializer;
+
+    @Autowired
+    private PortfolioAgingService portfolioAgingService;
+
+    @Autowired
+    private CashflowProjectionService cashflowProjectionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate transaction;
+
+    private ThreadPoolExecutor partitionExecutor;
+
+    // Runs requested through the API are processed here, one at a time
+    private final ExecutorService runExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "overdue-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Held while a run is processed, so a scheduled and a requested run never overlap
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    private Timer runTimer;
+
+    private Counter schedulesMarkedLate;
+
+    private Counter loansDefaulted;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // A full queue makes the submitting thread process the partition itself instead of queueing more
+        partitionExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(partitions), runnable -> {
+            Thread thread = new Thread(runnable, "overdue-partition-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        runTimer = Timer.builder("loans.overdue.run")
+                .description("Time spent processing overdue runs")
+                .register(meterRegistry);
+        schedulesMarkedLate = Counter.builder("loans.overdue.schedules.late")
+                .description("Installments marked LATE by the overdue job")
+                .register(meterRegistry);
+        loansDefaulted = Counter.builder("loans.overdue.loans.defaulted")
+                .description("Loans moved to DEFAULTED by the overdue job")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runExecutor.shutdownNow();
+        partitionExecutor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${loans.overdue.cron:0 30 1 * * *}")
+    public void runNightly() {
+        try {
+            run(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.error("Overdue run for {} failed", LocalDate.now(), e);
+        }
+    }
+
+    /**
+     * Queues the run for the given date and returns it; progress is reported by getRun.
+     */
+    public OverdueRunDto start(LocalDate asOf) {
+        OverdueRun run = findOrPlan(asOf);
+        if (run.getStatus() != OverdueRunStatus.COMPLETED) {
+            runExecutor.submit(() -> run(asOf));
+        }
+        return toDto(run);
+    }
+
+    public OverdueRunDto getRun(Long runId) {
+        return toDto(runRepository.findById(runId)
+                .orElseThrow(() -> new RuntimeException("Overdue run not found with id " + runId)));
+    }
+
+    /**
+     * Processes the run for the given date to completion. A completed run is returned as it is; an
+     * unfinished one continues with the partitions that did not complete.
+     */
+    public OverdueRunDto run(LocalDate asOf) {
+        runLock.lock();
+        try {
+            OverdueRun run = findOrPlan(asOf);
+            if (run.getStatus() == OverdueRunStatus.COMPLETED) {
+                return toDto(run);
+            }
+            return process(run);
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    // Continues runs that were in progress when the application last stopped.
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        for (OverdueRun run : runRepository.findByStatusOrderById(OverdueRunStatus.RUNNING)) {
+            LocalDate asOf = run.getAsOfDate();
+            runExecutor.submit(() -> run(asOf));
+        }
+    }
+
+    private OverdueRunDto process(OverdueRun run) {
+        run.setStatus(OverdueRunStatus.RUNNING);
+        run.setLastError(null);
+        run.setFinishedAt(null);
+        if (run.getStartedAt() == null) {
+            run.setStartedAt(LocalDateTime.now());
+        }
+        run = runRepository.save(run);
+
+        long started = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (OverdueRunPartition partition : partitionRepository.findByRunIdAndCompletedFalseOrderByPartitionNo(run.getId())) {
+            LocalDate asOf = run.getAsOfDate();
+            LocalDate cutoff = run.getDefaultCutoffDate();
+            futures.add(partitionExecutor.submit(() -> processPartition(partition, asOf, cutoff)));
+        }
+        String error = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // The other partitions carry on; the failed one is redone when the run is resumed
+                log.warn("Overdue run {} partition failed", run.getId(), e.getCause());
+                error = String.valueOf(e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = "Interrupted";
+                break;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        long late = 0;
+        long defaulted = 0;
+        for (OverdueRunPartition partition : partitionRepository.findByRunIdOrderByPartitionNo(run.getId())) {
+            late += partition.getSchedulesMarkedLate();
+            defaulted += partition.getLoansDefaulted();
+        }
+        run.setSchedulesMarkedLate(late);
+        run.setLoansDefaulted(defaulted);
+        run.setProcessingMillis(run.getProcessingMillis() + TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        run.setStatus(error == null ? OverdueRunStatus.COMPLETED : OverdueRunStatus.FAILED);
+        run.setLastError(error == null ? null : truncate(error));
+        run.setFinishedAt(LocalDateTime.now());
+        run = runRepository.save(run);
+        // Statuses changed, so today's aging report and the projections filtered by status are stale
+        portfolioAgingService.invalidate();
+        cashflowProjectionService.invalidate();
+        log.info("Overdue run {} for {} {}: {} partitions, {} installments marked late, {} loans defaulted, {} ms",
+                run.getId(), run.getAsOfDate(), run.getStatus(), run.getPartitionCount(), late, defaulted,
+                run.getProcessingMillis());
+        return toDto(run);
+    }
+
+    private void processPartition(OverdueRunPartition partition, LocalDate asOf, LocalDate cutoff) {
+        long from = partition.getFromLoanId();
+        long to = partition.getToLoanId();
+
+        int late = transaction.execute(status -> {
+            int marked = scheduleRepository.markLate(OPEN, asOf, from, to);
+            OverdueRunPartition stored = partitionRepository.findById(partition.getId()).orElseThrow();
+            stored.setSchedulesMarkedLate(stored.getSchedulesMarkedLate() + marked);
+            return marked;
+        });
+        schedulesMarkedLate.increment(late);
+
+        // Found without locks, then checked again under the loans' locks before they are defaulted
+        Set<Long> candidates = defaultCandidates(cutoff, from, to);
+        int defaulted = loanSerializer.executeAll(candidates, () -> {
+            List<Long> loanIds = new ArrayList<>(defaultCandidates(cutoff, from, to));
+            loanIds.retainAll(candidates);
+            int count = loanIds.isEmpty() ? 0 : loanRepository.markDefaulted(loanIds);
+            portfolioRollupService.loansDefaulted(loanIds);
+            OverdueRunPartition stored = partitionRepository.findById(partition.getId()).orElseThrow();
+            stored.setLoansDefaulted(stored.getLoansDefaulted() + count);
+            stored.setCompleted(true);
+            stored.setCompletedAt(LocalDateTime.now());
+            return count;
+        });
+        loansDefaulted.increment(defaulted);
+    }
+
+    // ACTIVE loans in the range with an unpaid installment due before the cutoff, in ascending id order
+    private Set<Long> defaultCandidates(LocalDate cutoff, long from, long to) {
+        Set<Long> loanIds = new TreeSet<>(scheduleRepository.findActiveLoanIdsOpenBefore(cutoff, from, to));
+        // Installments of a compact schedule without a row have received nothing, so they count from their due date
+        List<CompactSchedule> rules = loanRepository.findActiveCompactSchedulesStartedBefore(cutoff, from, to);
+        for (int start = 0; start < rules.size(); start += CHUNK_SIZE) {
+            List<CompactSchedule> chunk = rules.subList(start, Math.min(start + CHUNK_SIZE, rules.size()));
+            Map<Long, Set<Integer>> stored = new HashMap<>();
+            for (Object[] row : scheduleRepository.findInstallmentNumbersByLoanIds(
+                    chunk.stream().map(CompactSchedule::loanId).toList())) {
+                stored.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((Integer) row[1]);
+            }
+            for (CompactSchedule rule : chunk) {
+                Set<Integer> rows = stored.getOrDefault(rule.loanId(), Set.of());
+                // Due dates increase with the installment number, so the first one without a row decides
+                for (int n = 1; n <= rule.count(); n++) {
+                    if (!rows.contains(n)) {
+                        if (rule.dueDate(n).isBefore(cutoff)) {
+                            loanIds.add(rule.loanId());
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return loanIds;
+    }
+
+    // The run for the date, with its partitions, created if there is none yet
+    private synchronized OverdueRun findOrPlan(LocalDate asOf) {
+        return runRepository.findByAsOfDate(asOf).orElseGet(() -> transaction.execute(status -> {
+            OverdueRun run = new OverdueRun();
+            run.setAsOfDate(asOf);
+            run.setDefaultCutoffDate(asOf.minusDays(defaultAfterDays));
+            run.setStatus(OverdueRunStatus.RUNNING);
+            Long minId = loanRepository.findMinId();
+            Long maxId = loanRepository.findMaxId();
+            List<OverdueRunPartition> ranges = new ArrayList<>();
+            if (minId != null) {
+                // Equal id ranges; ids come from pooled sequences, so loans are spread evenly across them
+                long size = maxId - minId + 1;
+                int count = (int) Math.min(partitions, size);
+                for (int i = 0; i < count; i++) {
+                    OverdueRunPartition partition = new OverdueRunPartition();
+                    partition.setPartitionNo(i);
+                    partition.setFromLoanId(minId + size * i / count);
+                    partition.setToLoanId(minId + size * (i + 1) / count - 1);
+                    ranges.add(partition);
+                }
+            }
+            run.setPartitionCount(ranges.size());
+            run = runRepository.save(run);
+            for (OverdueRunPartition partition : ranges) {
+                partition.setRunId(run.getId());
+            }
+            partitionRepository.saveAll(ranges);
+            return run;
+        }));
+    }
+
+    private OverdueRunDto toDto(OverdueRun run) {
+        OverdueRunDto dto = new OverdueRunDto();
+        dto.setRunId(run.getId());
+        dto.setAsOfDate(run.getAsOfDate());
+        dto.setDefaultCutoffDate(run.getDefaultCutoffDate());
+        dto.setStatus(run.getStatus());
+        dto.setPartitionCount(run.getPartitionCount());
+        dto.setPartitionsCompleted((int) partitionRepository.findByRunIdOrderByPartitionNo(run.getId()).stream()
+                .filter(OverdueRunPartition::isCompleted)
+                .count());
+        dto.setSchedulesMarkedLate(run.getSchedulesMarkedLate());
+        dto.setLoansDefaulted(run.getLoansDefaulted());
+        dto.setProcessingMillis(run.getProcessingMillis());
+        dto.setLastError(run.getLastError());
+        dto.setStartedAt(run.getStartedAt());
+        dto.setFinishedAt(run.getFinishedAt());
+        return dto;
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
@@ -0,0 +1,159 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentReceiptDto;
+import com.myapplication.LoanManagementSystem.model.PaymentReceipt;
+import com.myapplication.LoanManagementSystem.repository.PaymentReceiptRepository;
+import com.myapplication.LoanManagementSystem.utils.BoundedCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps payment posting idempotent. A request carrying an idempotency key stores a PaymentReceipt
+ * in the same transaction as its payments; the unique key means a retry, or a second instance
+ * racing with the first, cannot post the money twice. Recent receipts are also kept in a bounded
+ * in-memory cache, so a client retrying straight after a timeout gets its answer without a query.
+ */
+@Service
+public class PaymentIdempotencyService {
+
+    private static final int CACHE_SIZE = 10_000;
+
+    private static final Duration CACHE_TTL = Duration.ofHours(24);
+
+    private final BoundedCache<String, PaymentReceiptDto> recentReceipts = new BoundedCache<>(CACHE_SIZE, CACHE_TTL);
+
+    @Autowired
+    private PaymentReceiptRepository receiptRepository;
+
+    /**
+     * Trims the key; a missing or blank key means the request is not idempotent.
+     */
+    public String normaliseKey(String key) {
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        String trimmed = key.trim();
+        if (trimmed.length() > PaymentReceipt.MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency key must be at most " + PaymentReceipt.MAX_KEY_LENGTH + " characters");
+        }
+        return trimmed;
+    }
+
+    /**
+     * Returns the stored outcome of an earlier request with the same key, marked as a duplicate.
+     * Fails if the key was used for a different payment (loanId or scheduleId may be null when
+     * not known to the caller).
+     */
+    public Optional<PaymentReceiptDto> replay(String key, Long loanId, Long scheduleId, BigDecimal amount) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        return duplicateOf(recentReceipts.get(key, k -> receiptRepository.findByIdempotencyKey(k)
+                .map(PaymentIdempotencyService::toDto)
+                .orElse(null)), key, loanId, scheduleId, amount);
+    }
+
+    /**
+     * Same as replay, but only looks at the in-memory cache.
+     */
+    public Optional<PaymentReceiptDto> replayCached(String key, Long loanId, Long scheduleId, BigDecimal amount) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        return duplicateOf(recentReceipts.get(key), key, loanId, scheduleId, amount);
+    }
+
+    private static Optional<PaymentReceiptDto> duplicateOf(PaymentReceiptDto stored, String key, Long loanId,
+                                                           Long scheduleId, BigDecimal amount) {
+        if (stored == null) {
+            return Optional.empty();
+        }
+        boolean samePayment = (loanId == null || loanId.equals(stored.getLoanId()))
+                && Objects.equals(scheduleId, stored.getScheduleId())
+                && amount != null && amount.compareTo(stored.getPaymentAmount()) == 0;
+        if (!samePayment) {
+            throw new RuntimeException("Idempotency key " + key + " was already used for a different payment");
+        }
+        PaymentReceiptDto duplicate = copy(stored);
+        duplicate.setDuplicate(true);
+        duplicate.setMessage("Payment already processed for idempotency key " + key);
+        return Optional.of(duplicate);
+    }
+
+    /**
+     * Of the given keys, those that already have a receipt. One query for the keys not in the cache.
+     */
+    public Set<String> existingKeys(Collection<String> keys) {
+        Set<String> existing = new HashSet<>();
+        List<String> unknown = new ArrayList<>();
+        for (String key : keys) {
+            if (recentReceipts.get(key) != null) {
+                existing.add(key);
+            } else {
+                unknown.add(key);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            existing.addAll(receiptRepository.findExistingKeys(unknown));
+        }
+        return existing;
+    }
+
+    /**
+     * Stores the receipt in the caller's transaction when it has a key, and returns it as a DTO.
+     */
+    public PaymentReceiptDto record(PaymentReceipt receipt) {
+        if (receipt.getIdempotencyKey() != null) {
+            receiptRepository.save(receipt);
+        }
+        return toDto(receipt);
+    }
+
+    /**
+     * Caches a receipt once its transaction has committed.
+     */
+    public void remember(PaymentReceiptDto receipt) {
+        if (receipt.getIdempotencyKey() != null && !receipt.isDuplicate()) {
+            recentReceipts.put(receipt.getIdempotencyKey(), copy(receipt));
+        }
+    }
+
+    private static PaymentReceiptDto toDto(PaymentReceipt receipt) {
+        PaymentReceiptDto dto = new PaymentReceiptDto();
+        dto.setIdempotencyKey(receipt.getIdempotencyKey());
+        dto.setLoanId(receipt.getLoanId());
+        dto.setScheduleId(receipt.getScheduleId());
+        dto.setPaymentAmount(receipt.getPaymentAmount());
+        dto.setAmountAllocated(receipt.getAmountAllocated());
+        dto.setPaymentsRecorded(receipt.getPaymentsRecorded());
+        dto.setPaymentDate(receipt.getPaymentDate());
+        dto.setPostedAt(receipt.getCreatedAt());
+        return dto;
+    }
+
+    // Cached receipts are shared, so callers always get their own copy
+    private static PaymentReceiptDto copy(PaymentReceiptDto receipt) {
+        PaymentReceiptDto dto = new PaymentReceiptDto();
+        dto.setMessage(receipt.getMessage());
+        dto.setIdempotencyKey(receipt.getIdempotencyKey());
+        dto.setLoanId(receipt.getLoanId());
+        dto.setScheduleId(receipt.getScheduleId());
+        dto.setPaymentAmount(receipt.getPaymentAmount());
+        dto.setAmountAllocated(receipt.getAmountAllocated());
+        dto.setPaymentsRecorded(receipt.getPaymentsRecorded());
+        dto.setPaymentDate(receipt.getPaymentDate());
+        dto.setPostedAt(receipt.getPostedAt());
+        dto.setDuplicate(receipt.isDuplicate());
+        return dto;
+    }
+}
@@ -0,0 +1,479 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.payments.BatchPaymentItemResultDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentImportStatusDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentReceiptDto;
+import com.myapplication.LoanManagementSystem.model.PaymentImportError;
+import com.myapplication.LoanManagementSystem.model.PaymentImportJob;
+import com.myapplication.LoanManagementSystem.model.PaymentImportStatus;
+import com.myapplication.LoanManagementSystem.repository.PaymentImportErrorRepository;
+import com.myapplication.LoanManagementSystem.repository.PaymentImportJobRepository;
+import com.myapplication.LoanManagementSystem.utils.LineChunkReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Imports bank/M-Pesa settlement CSVs into payments.
+ * The upload is spooled to disk and read back in fixed-size chunks, so the file is never held in
+ * memory. Each chunk is posted through PaymentService.allocateBatch in one transaction that also
+ * stores the chunk's error rows and moves the job's checkpoint, so after a crash the import
+ * resumes at the first uncommitted line. If that transaction fails, the chunk is posted again one
+ * loan at a time, like PaymentService.batchPayments, so a bad loan only fails its own rows, and
+ * the checkpoint is then moved on its own.
+ *
+ * Expected format: comma-separated, one payment per line, with a header naming the loanId,
+ * paymentAmount and paymentDate (yyyy-MM-dd) columns in any order. Without a header the first
+ * three columns are taken in that order. Fields may be quoted but must not contain commas.
+ * An optional reference column (e.g. the M-Pesa receipt number) makes rows idempotent, so a file
+ * uploaded twice does not post its payments twice. Rows without one are keyed import-<jobId>-<line>,
+ * so a chunk posted again after a failed checkpoint does not post them twice either.
+ */
+@Service
+public class PaymentImportService {
+
+    // Lines read, parsed and posted per transaction
+    static final int CHUNK_LINES = 1000;
+
+    private static final int MAX_TEXT_LENGTH = 500;
+
+    // Amounts must fit the DECIMAL(38,2) amount columns; anything else would be rounded or rejected at insert
+    private static final int AMOUNT_PRECISION = 38;
+    private static final int AMOUNT_SCALE = 2;
+
+    @Value("${payments.import.directory:${java.io.tmpdir}/payment-imports}")
+    private String importDirectory;
+
+    @Autowired
+    private PaymentImportJobRepository jobRepository;
+
+    @Autowired
+    private PaymentImportErrorRepository errorRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentIdempotencyService idempotencyService;
+
+    @Autowired
+    private LoanSerializer loanSerializer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    // One import at a time, so a large settlement file cannot crowd out the online payment paths
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payment-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Stores the upload and queues it for import. Progress is reported by getStatus.
+     */
+    public PaymentImportStatusDto startImport(MultipartFile file) {
+        Path target;
+        try {
+            Path directory = Files.createDirectories(Paths.get(importDirectory));
+            target = directory.resolve(UUID.randomUUID() + ".csv");
+            file.transferTo(target);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store uploaded file " + file.getOriginalFilename(), e);
+        }
+        PaymentImportJob job = new PaymentImportJob();
+        job.setFileName(file.getOriginalFilename());
+        job.setStoredPath(target.toAbsolutePath().toString());
+        job.setStatus(PaymentImportStatus.PENDING);
+        job.setBytesTotal(file.getSize());
+        job = jobRepository.save(job);
+        submit(job.getId());
+        return toStatus(job);
+    }
+
+    public PaymentImportStatusDto getStatus(Long jobId) {
+        return toStatus(findJob(jobId));
+    }
+
+    /**
+     * Error rows of a job in line order, starting after the given line number.
+     */
+    public List<PaymentImportError> getErrors(Long jobId, long afterLine, int limit) {
+        findJob(jobId);
+        return errorRepository.findByJobIdAndLineNumberGreaterThanOrderByLineNumber(jobId, afterLine, Limit.of(limit));
+    }
+
+    /**
+     * Requeues a failed import; it continues from its last checkpoint.
+     */
+    public PaymentImportStatusDto resume(Long jobId) {
+        PaymentImportJob job = findJob(jobId);
+        if (job.getStatus() == PaymentImportStatus.FAILED) {
+            job.setStatus(PaymentImportStatus.PENDING);
+            job.setLastError(null);
+            job.setFinishedAt(null);
+            job = jobRepository.save(job);
+            submit(job.getId());
+        }
+        return toStatus(job);
+    }
+
+    // Picks up imports that were queued or running when the application last stopped.
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        for (PaymentImportJob job : jobRepository.findByStatusInOrderById(
+                List.of(PaymentImportStatus.PENDING, PaymentImportStatus.RUNNING))) {
+            submit(job.getId());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void submit(Long jobId) {
+        executor.submit(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        PaymentImportJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() == PaymentImportStatus.COMPLETED) {
+            return;
+        }
+        job.setStatus(PaymentImportStatus.RUNNING);
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(LocalDateTime.now());
+        }
+        job = jobRepository.save(job);
+
+        Path file = Paths.get(job.getStoredPath());
+        try {
+            CsvLayout layout = readLayout(file);
+            try (LineChunkReader reader = new LineChunkReader(file, job.getByteOffset())) {
+                List<String> lines;
+                while (!(lines = reader.readLines(CHUNK_LINES)).isEmpty()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        // Shutting down; the job stays RUNNING and resumes from its checkpoint on the next start
+                        return;
+                    }
+                    importChunk(jobId, lines, layout, reader.position());
+                }
+            }
+            finish(jobId, PaymentImportStatus.COMPLETED, null);
+            Files.deleteIfExists(file);
+        } catch (Exception e) {
+            finish(jobId, PaymentImportStatus.FAILED, e.getMessage());
+        }
+    }
+
+    // Posts one chunk and moves the checkpoint past it, all in one transaction if possible.
+    private void importChunk(Long jobId, List<String> lines, CsvLayout layout, long endOffset) {
+        long started = System.nanoTime();
+        long firstLine = jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Payment import not found with id " + jobId))
+                .getLinesRead() + 1;
+
+        List<BulkPaymentRequestDto> items = new ArrayList<>();
+        List<Long> itemLines = new ArrayList<>();
+        List<RowError> parseErrors = new ArrayList<>();
+        Set<Long> loanIds = new LinkedHashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            long lineNumber = firstLine + i;
+            String line = lines.get(i);
+            if (line.isBlank() || (lineNumber == 1 && layout.hasHeader())) {
+                continue;
+            }
+            try {
+                BulkPaymentRequestDto item = layout.parse(line);
+                if (item.getReference() == null || item.getReference().isBlank()) {
+                    item.setReference(importKey(jobId, lineNumber));
+                }
+                items.add(item);
+                itemLines.add(lineNumber);
+                loanIds.add(item.getLoanId());
+            } catch (RuntimeException e) {
+                parseErrors.add(new RowError(lineNumber, line, e.getMessage()));
+            }
+        }
+        Chunk chunk = new Chunk(lines, firstLine, endOffset, items, itemLines, parseErrors);
+
+        try {
+            loanSerializer.executeAll(loanIds, () -> checkpoint(jobId, chunk,
+                    items.isEmpty() ? List.of() : paymentService.allocateBatch(items), started));
+        } catch (RuntimeException e) {
+            // e.g. one loan's payments violate a constraint at commit; the loans that can be posted still are
+            List<BatchPaymentItemResultDto> results = postByLoan(items, loanIds);
+            transaction.execute(status -> checkpoint(jobId, chunk, results, started));
+        }
+    }
+
+    // Posts each loan's items in its own transaction. Results are in item order.
+    private List<BatchPaymentItemResultDto> postByLoan(List<BulkPaymentRequestDto> items, Set<Long> loanIds) {
+        Map<Long, List<Integer>> indexesByLoan = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            indexesByLoan.computeIfAbsent(items.get(i).getLoanId(), loanId -> new ArrayList<>()).add(i);
+        }
+        BatchPaymentItemResultDto[] results = new BatchPaymentItemResultDto[items.size()];
+        for (Long loanId : loanIds) {
+            List<Integer> indexes = indexesByLoan.get(loanId);
+            List<BulkPaymentRequestDto> loanItems = indexes.stream().map(items::get).toList();
+            try {
+                List<BatchPaymentItemResultDto> posted =
+                        loanSerializer.execute(loanId, () -> paymentService.allocateBatch(loanItems));
+                for (int i = 0; i < indexes.size(); i++) {
+                    results[indexes.get(i)] = posted.get(i);
+                }
+            } catch (RuntimeException e) {
+                for (Integer index : indexes) {
+                    BatchPaymentItemResultDto failed = new BatchPaymentItemResultDto();
+                    failed.setIndex(index);
+                    failed.setLoanId(loanId);
+                    failed.setAmountAllocated(BigDecimal.ZERO);
+                    failed.setAmountUnallocated(items.get(index).getPaymentAmount());
+                    failed.setError(e.getMessage());
+                    results[index] = failed;
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    // Stores the chunk's error rows and moves the job's counters and checkpoint past it, in the caller's transaction.
+    private PaymentImportJob checkpoint(Long jobId, Chunk chunk, List<BatchPaymentItemResultDto> results, long started) {
+        List<PaymentImportError> errors = new ArrayList<>();
+        for (RowError error : chunk.parseErrors()) {
+            errors.add(toEntity(jobId, error));
+        }
+        long succeeded = 0;
+        long paymentsRecorded = 0;
+        BigDecimal allocated = BigDecimal.ZERO;
+        for (int i = 0; i < results.size(); i++) {
+            BatchPaymentItemResultDto result = results.get(i);
+            long lineNumber = chunk.itemLines().get(i);
+            if (result.isSuccess()) {
+                succeeded++;
+                paymentsRecorded += result.getPaymentsRecorded();
+                allocated = allocated.add(result.getAmountAllocated());
+                BulkPaymentRequestDto item = chunk.items().get(i);
+                if (result.isDuplicate() && importKey(jobId, lineNumber).equals(item.getReference())) {
+                    // Posted by an earlier attempt at this chunk whose checkpoint failed; count it once, here
+                    PaymentReceiptDto receipt = idempotencyService.replay(item.getReference(), item.getLoanId(),
+                            null, item.getPaymentAmount()).orElseThrow();
+                    paymentsRecorded += receipt.getPaymentsRecorded();
+                    allocated = allocated.add(receipt.getAmountAllocated());
+                }
+            } else {
+                String line = chunk.lines().get((int) (lineNumber - chunk.firstLine()));
+                errors.add(toEntity(jobId, new RowError(lineNumber, line, result.getError())));
+            }
+        }
+        errorRepository.saveAll(errors);
+
+        PaymentImportJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Payment import not found with id " + jobId));
+        job.setByteOffset(chunk.endOffset());
+        job.setLinesRead(job.getLinesRead() + chunk.lines().size());
+        job.setRowsSucceeded(job.getRowsSucceeded() + succeeded);
+        job.setRowsFailed(job.getRowsFailed() + errors.size());
+        job.setPaymentsRecorded(job.getPaymentsRecorded() + paymentsRecorded);
+        job.setAmountAllocated(job.getAmountAllocated().add(allocated));
+        job.setProcessingMillis(job.getProcessingMillis() + (System.nanoTime() - started) / 1_000_000);
+        return job;
+    }
+
+    static String importKey(Long jobId, long lineNumber) {
+        return "import-" + jobId + "-" + lineNumber;
+    }
+
+    private void finish(Long jobId, PaymentImportStatus status, String error) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(status);
+            job.setLastError(truncate(error, 1000));
+            job.setFinishedAt(LocalDateTime.now());
+            jobRepository.save(job);
+        });
+    }
+
+    private PaymentImportJob findJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Payment import not found with id " + jobId));
+    }
+
+    // Reads the header line, if any, to find the columns.
+    private static CsvLayout readLayout(Path file) throws IOException {
+        try (LineChunkReader reader = new LineChunkReader(file, 0)) {
+            List<String> first = reader.readLines(1);
+            if (first.isEmpty()) {
+                return CsvLayout.DEFAULT;
+            }
+            String[] fields = split(first.get(0));
+            if (fields.length > 0 && isNumber(fields[0])) {
+                return CsvLayout.DEFAULT;
+            }
+            int loanId = -1;
+            int amount = -1;
+            int date = -1;
+            int reference = -1;
+            for (int i = 0; i < fields.length; i++) {
+                switch (fields[i].toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "")) {
+                    case "loanid", "loan" -> loanId = i;
+                    case "paymentamount", "amount" -> amount = i;
+                    case "paymentdate", "date" -> date = i;
+                    case "reference", "ref", "transactionreference", "receiptnumber" -> reference = i;
+                    default -> {
+                        // Other columns are ignored
+                    }
+                }
+            }
+            if (loanId < 0 || amount < 0 || date < 0) {
+                throw new RuntimeException("Header must name loanId, paymentAmount and paymentDate columns");
+            }
+            return new CsvLayout(true, loanId, amount, date, reference);
+        }
+    }
+
+    private static String[] split(String line) {
+        String[] fields = line.split(",", -1);
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i].trim();
+            if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+                field = field.substring(1, field.length() - 1).trim();
+            }
+            fields[i] = field;
+        }
+        return fields;
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            new BigDecimal(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static PaymentImportError toEntity(Long jobId, RowError error) {
+        PaymentImportError entity = new PaymentImportError();
+        entity.setJobId(jobId);
+        entity.setLineNumber(error.lineNumber());
+        entity.setLine(truncate(error.line(), MAX_TEXT_LENGTH));
+        entity.setMessage(truncate(error.message(), MAX_TEXT_LENGTH));
+        return entity;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private static PaymentImportStatusDto toStatus(PaymentImportJob job) {
+        PaymentImportStatusDto dto = new PaymentImportStatusDto();
+        long rows = job.getRowsSucceeded() + job.getRowsFailed();
+        dto.setJobId(job.getId());
+        dto.setFileName(job.getFileName());
+        dto.setStatus(job.getStatus());
+        dto.setBytesTotal(job.getBytesTotal());
+        dto.setBytesProcessed(job.getByteOffset());
+        dto.setPercentComplete(job.getBytesTotal() > 0 ? 100.0 * job.getByteOffset() / job.getBytesTotal() : 0);
+        dto.setRowsProcessed(rows);
+        dto.setRowsSucceeded(job.getRowsSucceeded());
+        dto.setRowsFailed(job.getRowsFailed());
+        dto.setPaymentsRecorded(job.getPaymentsRecorded());
+        dto.setAmountAllocated(job.getAmountAllocated());
+        dto.setRowsPerSecond(job.getProcessingMillis() > 0 ? rows * 1000.0 / job.getProcessingMillis() : 0);
+        dto.setLastError(job.getLastError());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+
+    private record RowError(long lineNumber, String line, String message) {
+    }
+
+    // One chunk of the file; items and itemLines are parallel lists
+    private record Chunk(List<String> lines, long firstLine, long endOffset, List<BulkPaymentRequestDto> items,
+                         List<Long> itemLines, List<RowError> parseErrors) {
+    }
+
+    // Column positions of the three fields an import needs, plus the optional reference (-1 if absent)
+    private record CsvLayout(boolean hasHeader, int loanIdColumn, int amountColumn, int dateColumn,
+                             int referenceColumn) {
+
+        static final CsvLayout DEFAULT = new CsvLayout(false, 0, 1, 2, -1);
+
+        BulkPaymentRequestDto parse(String line) {
+            String[] fields = split(line);
+            int needed = Math.max(loanIdColumn, Math.max(amountColumn, dateColumn)) + 1;
+            if (fields.length < needed) {
+                throw new RuntimeException("Expected at least " + needed + " columns but found " + fields.length);
+            }
+            BulkPaymentRequestDto item = new BulkPaymentRequestDto();
+            try {
+                item.setLoanId(Long.parseLong(fields[loanIdColumn]));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid loanId '" + fields[loanIdColumn] + "'");
+            }
+            BigDecimal amount;
+            try {
+                amount = new BigDecimal(fields[amountColumn]);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid paymentAmount '" + fields[amountColumn] + "'");
+            }
+            if (amount.stripTrailingZeros().scale() > AMOUNT_SCALE) {
+                throw new RuntimeException("Invalid paymentAmount '" + fields[amountColumn] + "', at most "
+                        + AMOUNT_SCALE + " decimal places");
+            }
+            if (amount.precision() - amount.scale() > AMOUNT_PRECISION - AMOUNT_SCALE) {
+                throw new RuntimeException("Invalid paymentAmount '" + fields[amountColumn] + "', at most "
+                        + (AMOUNT_PRECISION - AMOUNT_SCALE) + " digits before the decimal point");
+            }
+            item.setPaymentAmount(amount.setScale(AMOUNT_SCALE));
+            try {
+                item.setPaymentDate(LocalDate.parse(fields[dateColumn]));
+            } catch (DateTimeParseException e) {
+                throw new RuntimeException("Invalid paymentDate '" + fields[dateColumn] + "', expected yyyy-MM-dd");
+            }
+            if (referenceColumn >= 0 && referenceColumn < fields.length) {
+                item.setReference(fields[referenceColumn]);
+            }
+            return item;
+        }
+    }
+}
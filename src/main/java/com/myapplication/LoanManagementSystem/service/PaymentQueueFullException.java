@@ -0,0 +1,10 @@
+package com.myapplication.LoanManagementSystem.service;
+
+/**
+ * Thrown when the async payment queue is at capacity; the client should retry later.
+ */
+public class PaymentQueueFullException extends RuntimeException {
+    public PaymentQueueFullException(String message) {
+        super(message);
+    }
+}
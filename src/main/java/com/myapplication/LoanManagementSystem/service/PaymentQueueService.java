@@ -0,0 +1,543 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentReceiptDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.QueuedPaymentDto;
+import com.myapplication.LoanManagementSystem.model.PaymentQueuePartition;
+import com.myapplication.LoanManagementSystem.model.QueuedPayment;
+import com.myapplication.LoanManagementSystem.model.QueuedPaymentKind;
+import com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.PaymentQueuePartitionRepository;
+import com.myapplication.LoanManagementSystem.repository.QueuedPaymentRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Async mode for the payment endpoints, for payday spikes where posting inline would hold request
+ * threads for several database round trips. A request is validated, written to the payment_queue
+ * table and answered with a tracking id; the payment is posted later by PaymentService.
+ *
+ * Each loan maps to one of a fixed number of partitions, and each partition is worked by a single
+ * thread that posts its rows in id order, so a loan's payments are applied in the order they were
+ * accepted while different partitions run in parallel. With several instances, all of which must
+ * use the same partition count, a worker only polls while its instance holds the partition's lease
+ * in payment_queue_partitions, and claims each row with a conditional update before posting it.
+ * Every row is posted with an idempotency key, so a row that is picked up again after a crash or
+ * an expired lease is not posted twice. Rows queued under a different partition count are moved to
+ * their current partition on start.
+ *
+ * The queue is bounded: once the rows waiting in the table, across all instances, reach capacity
+ * new requests are refused with PaymentQueueFullException. Each instance keeps a running count
+ * that it re-reads from the table before refusing a request, so it does not drift. Depth, lag and
+ * per-partition throughput are published as metrics.
+ */
+@Service
+public class PaymentQueueService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentQueueService.class);
+
+    // Rows a worker reads per query
+    private static final int FETCH_SIZE = 100;
+
+    // Transient failures (e.g. lost optimistic locks) are retried this many times before the row fails
+    static final int MAX_ATTEMPTS = 5;
+
+    // Ids per statement when moving rows to their current partition
+    private static final int MOVE_CHUNK = 1000;
+
+    // Rows waiting to be posted, claimed or not
+    private static final Set<QueuedPaymentStatus> OPEN =
+            EnumSet.of(QueuedPaymentStatus.PENDING, QueuedPaymentStatus.PROCESSING);
+
+    @Value("${payments.queue.partitions:8}")
+    private int partitions;
+
+    @Value("${payments.queue.capacity:100000}")
+    private long capacity;
+
+    // Idle workers also poll, to pick up rows queued by another instance
+    @Value("${payments.queue.idle-poll-millis:1000}")
+    private long idlePollMillis;
+
+    // A partition whose holder stops renewing (e.g. it crashed) passes to another instance after this
+    @Value("${payments.queue.lease-seconds:30}")
+    private long leaseSeconds;
+
+    // Minimum age of the depth count before a full queue is re-counted from the table
+    @Value("${payments.queue.depth-refresh-millis:1000}")
+    private long depthRefreshMillis;
+
+    @Autowired
+    private QueuedPaymentRepository queueRepository;
+
+    @Autowired
+    private PaymentQueuePartitionRepository partitionRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentIdempotencyService idempotencyService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    // Lease owner and row claim id of this instance
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Rows waiting in the table as of the last count, plus those queued and posted here since
+    private final AtomicLong depth = new AtomicLong();
+
+    private volatile long depthCountedAt;
+
+    private volatile boolean running;
+
+    private Semaphore[] signals;
+
+    private AtomicLongArray partitionDepth;
+
+    // Enqueue time (epoch millis) of the oldest row each worker is working through, 0 when idle
+    private AtomicLongArray oldestPending;
+
+    // When each worker next renews its partition's lease (epoch millis), 0 while not held
+    private long[] leaseRenewAt;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private Timer queueLatency;
+
+    /**
+     * Validates and queues a single-installment payment.
+     */
+    public QueuedPaymentDto enqueueInstallment(Long scheduleId, PaymentRequestDto dto) {
+        Long loanId = CompactSchedule.isVirtualId(scheduleId)
+                ? CompactSchedule.loanIdOf(scheduleId)
+                : scheduleRepository.findLoanIdById(scheduleId)
+                        .orElseThrow(() -> new RuntimeException("Repayment schedule not found with id " + scheduleId));
+        QueuedPayment row = newRow(QueuedPaymentKind.INSTALLMENT, loanId, dto.getPaymentAmount(),
+                dto.getPaymentDate(), dto.getReference());
+        row.setScheduleId(scheduleId);
+        return enqueue(row);
+    }
+
+    /**
+     * Validates and queues a bulk payment.
+     */
+    public QueuedPaymentDto enqueueBulk(BulkPaymentRequestDto dto) {
+        if (dto.getLoanId() == null || !loanRepository.existsById(dto.getLoanId())) {
+            throw new RuntimeException("Loan not found with id " + dto.getLoanId());
+        }
+        return enqueue(newRow(QueuedPaymentKind.BULK, dto.getLoanId(), dto.getPaymentAmount(),
+                dto.getPaymentDate(), dto.getReference()));
+    }
+
+    public QueuedPaymentDto getQueuedPayment(Long trackingId) {
+        return queueRepository.findById(trackingId)
+                .map(PaymentQueueService::toDto)
+                .orElseThrow(() -> new RuntimeException("Queued payment not found with id " + trackingId));
+    }
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        signals = new Semaphore[partitions];
+        partitionDepth = new AtomicLongArray(partitions);
+        oldestPending = new AtomicLongArray(partitions);
+        leaseRenewAt = new long[partitions];
+        for (int p = 0; p < partitions; p++) {
+            if (!partitionRepository.existsById(p)) {
+                try {
+                    partitionRepository.save(new PaymentQueuePartition(p));
+                } catch (DataIntegrityViolationException e) {
+                    // Created by another instance starting at the same time
+                }
+            }
+        }
+        repartition();
+        // Rows left waiting by the last run, or by other instances, count towards the capacity
+        countDepth();
+        registerMetrics();
+        running = true;
+        for (int p = 0; p < partitions; p++) {
+            int partition = p;
+            signals[p] = new Semaphore(0);
+            Thread worker = new Thread(() -> work(partition), "payment-queue-" + p);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (transaction != null && !workers.isEmpty()) {
+            try {
+                // Lets another instance take over without waiting for the leases to expire
+                transaction.executeWithoutResult(status -> partitionRepository.releaseAll(instanceId));
+            } catch (RuntimeException e) {
+                log.warn("Could not release payment queue leases: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Moves rows whose partition does not match partitionOf(loanId), e.g. after the partition count changed
+    void repartition() {
+        Map<Integer, List<Long>> moves = new HashMap<>();
+        for (Object[] row : queueRepository.findPartitions(OPEN)) {
+            int target = partitionOf(((Number) row[1]).longValue());
+            if (((Number) row[2]).intValue() != target) {
+                moves.computeIfAbsent(target, p -> new ArrayList<>()).add(((Number) row[0]).longValue());
+            }
+        }
+        if (moves.isEmpty()) {
+            return;
+        }
+        int moved = transaction.execute(status -> {
+            int count = 0;
+            for (Map.Entry<Integer, List<Long>> move : moves.entrySet()) {
+                List<Long> ids = move.getValue();
+                for (int from = 0; from < ids.size(); from += MOVE_CHUNK) {
+                    count += queueRepository.movePartition(
+                            ids.subList(from, Math.min(from + MOVE_CHUNK, ids.size())), move.getKey());
+                }
+            }
+            return count;
+        });
+        log.info("Moved {} queued payments to their partition out of {}", moved, partitions);
+    }
+
+    // Re-reads the waiting rows of every instance from the table
+    synchronized void countDepth() {
+        long total = 0;
+        long[] counts = new long[partitions];
+        for (Object[] count : queueRepository.countByPartition(OPEN)) {
+            int partition = ((Number) count[0]).intValue();
+            // Only rows of another instance using a different partition count can fall outside
+            if (partition < partitions) {
+                counts[partition] = ((Number) count[1]).longValue();
+            }
+            total += ((Number) count[1]).longValue();
+        }
+        for (int p = 0; p < partitions; p++) {
+            partitionDepth.set(p, counts[p]);
+        }
+        depth.set(total);
+        depthCountedAt = System.currentTimeMillis();
+    }
+
+    private void countDepthIfStale() {
+        if (System.currentTimeMillis() - depthCountedAt >= depthRefreshMillis) {
+            countDepth();
+        }
+    }
+
+    private QueuedPayment newRow(QueuedPaymentKind kind, Long loanId, BigDecimal amount,
+                                 LocalDate paymentDate, String reference) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new RuntimeException("paymentAmount must be greater than zero");
+        }
+        if (paymentDate == null) {
+            throw new RuntimeException("paymentDate is required");
+        }
+        QueuedPayment row = new QueuedPayment();
+        row.setKind(kind);
+        row.setLoanId(loanId);
+        row.setPartition(partitionOf(loanId));
+        row.setPaymentAmount(amount);
+        row.setPaymentDate(paymentDate);
+        row.setReference(idempotencyService.normaliseKey(reference));
+        row.setStatus(QueuedPaymentStatus.PENDING);
+        return row;
+    }
+
+    private QueuedPaymentDto enqueue(QueuedPayment row) {
+        if (signals == null) {
+            throw new PaymentQueueFullException("Payment queue is not running yet, try again shortly");
+        }
+        // Reserve the slot first, so concurrent requests cannot overshoot the capacity
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            // Other instances may have posted rows since the last count
+            countDepthIfStale();
+            if (depth.incrementAndGet() > capacity) {
+                depth.decrementAndGet();
+                throw new PaymentQueueFullException("Payment queue is full (" + capacity + " pending), try again shortly");
+            }
+        }
+        try {
+            row = queueRepository.save(row);
+        } catch (RuntimeException e) {
+            depth.decrementAndGet();
+            throw e;
+        }
+        partitionDepth.incrementAndGet(row.getPartition());
+        signals[row.getPartition()].release();
+        return toDto(row);
+    }
+
+    private void work(int partition) {
+        while (running) {
+            try {
+                if (!holdLease(partition)) {
+                    // Another instance works this partition; wait for its lease to lapse
+                    oldestPending.set(partition, 0);
+                    Thread.sleep(Math.min(idlePollMillis, TimeUnit.SECONDS.toMillis(leaseSeconds)));
+                    continue;
+                }
+                List<QueuedPayment> rows = queueRepository.findByPartitionAndStatusOrderById(
+                        partition, QueuedPaymentStatus.PENDING, Limit.of(FETCH_SIZE));
+                if (rows.isEmpty()) {
+                    oldestPending.set(partition, 0);
+                    countDepthIfStale();
+                    signals[partition].tryAcquire(idlePollMillis, TimeUnit.MILLISECONDS);
+                    signals[partition].drainPermits();
+                    continue;
+                }
+                for (QueuedPayment row : rows) {
+                    if (!running) {
+                        return;
+                    }
+                    // Lease lost, or the row was taken by the holder before us: start over
+                    if (!holdLease(partition) || !claim(row)) {
+                        break;
+                    }
+                    oldestPending.set(partition, epochMillis(row.getCreatedAt()));
+                    if (!process(row)) {
+                        // Transient failure: keep the partition's order and retry this row first
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // e.g. the database is unreachable; wait and try again
+                log.warn("Payment queue partition {} failed to poll: {}", partition, e.getMessage());
+                sleepQuietly(idlePollMillis);
+            }
+        }
+    }
+
+    /**
+     * Takes or renews this instance's lease on the partition once half of it has run. When the lease
+     * is newly taken, rows the previous holder claimed but never finished are returned to pending.
+     */
+    private boolean holdLease(int partition) {
+        long now = System.currentTimeMillis();
+        if (now < leaseRenewAt[partition]) {
+            return true;
+        }
+        boolean taken = leaseRenewAt[partition] == 0;
+        LocalDateTime time = LocalDateTime.now();
+        boolean held = transaction.execute(status -> {
+            if (partitionRepository.acquire(partition, instanceId, time, time.plusSeconds(leaseSeconds)) == 0) {
+                return false;
+            }
+            if (taken) {
+                queueRepository.releaseClaims(partition, instanceId);
+            }
+            return true;
+        });
+        leaseRenewAt[partition] = held ? now + TimeUnit.SECONDS.toMillis(leaseSeconds) / 2 : 0;
+        return held;
+    }
+
+    private boolean claim(QueuedPayment row) {
+        if (transaction.execute(status -> queueRepository.claim(row.getId(), instanceId)) == 0) {
+            return false;
+        }
+        row.setStatus(QueuedPaymentStatus.PROCESSING);
+        row.setOwner(instanceId);
+        return true;
+    }
+
+    // Posts one claimed row and records the outcome. Returns false if the row should be retried.
+    private boolean process(QueuedPayment row) {
+        row.setAttempts(row.getAttempts() + 1);
+        try {
+            PaymentReceiptDto receipt = post(row);
+            row.setAmountAllocated(receipt.getAmountAllocated());
+            row.setPaymentsRecorded(receipt.getPaymentsRecorded());
+            row.setDuplicate(receipt.isDuplicate());
+            finish(row, QueuedPaymentStatus.COMPLETED, null);
+            return true;
+        } catch (TransientDataAccessException e) {
+            if (row.getAttempts() < MAX_ATTEMPTS) {
+                row.setStatus(QueuedPaymentStatus.PENDING);
+                row.setOwner(null);
+                queueRepository.save(row);
+                sleepQuietly(50L * row.getAttempts());
+                return false;
+            }
+            finish(row, QueuedPaymentStatus.FAILED, e.getMessage());
+            return true;
+        } catch (RuntimeException e) {
+            finish(row, QueuedPaymentStatus.FAILED, e.getMessage());
+            return true;
+        }
+    }
+
+    private PaymentReceiptDto post(QueuedPayment row) {
+        String reference = row.getReference() != null ? row.getReference() : "queue-" + row.getId();
+        if (row.getKind() == QueuedPaymentKind.INSTALLMENT) {
+            PaymentRequestDto dto = new PaymentRequestDto();
+            dto.setPaymentAmount(row.getPaymentAmount());
+            dto.setPaymentDate(row.getPaymentDate());
+            dto.setReference(reference);
+            return paymentService.payInstallment(row.getScheduleId(), dto);
+        }
+        BulkPaymentRequestDto dto = new BulkPaymentRequestDto();
+        dto.setLoanId(row.getLoanId());
+        dto.setPaymentAmount(row.getPaymentAmount());
+        dto.setPaymentDate(row.getPaymentDate());
+        dto.setReference(reference);
+        return paymentService.bulkPayment(dto);
+    }
+
+    private void finish(QueuedPayment row, QueuedPaymentStatus status, String error) {
+        row.setStatus(status);
+        row.setLastError(error == null || error.length() <= 1000 ? error : error.substring(0, 1000));
+        row.setProcessedAt(LocalDateTime.now());
+        queueRepository.save(row);
+        depth.decrementAndGet();
+        partitionDepth.decrementAndGet(row.getPartition());
+        Counter.builder("payments.queue.processed")
+                .description("Queued payments processed, by partition and outcome")
+                .tag("partition", String.valueOf(row.getPartition()))
+                .tag("outcome", status.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        queueLatency.record(Duration.between(row.getCreatedAt(), row.getProcessedAt()));
+    }
+
+    private void registerMetrics() {
+        // Counts are re-read from the table now and then, so a decrement can briefly run below zero
+        Gauge.builder("payments.queue.depth", depth, d -> Math.max(0, d.get()))
+                .description("Payments accepted in async mode and not yet posted, across instances")
+                .register(meterRegistry);
+        Gauge.builder("payments.queue.capacity", () -> capacity)
+                .description("Pending payments at which the queue starts refusing requests")
+                .register(meterRegistry);
+        Gauge.builder("payments.queue.lag", this, PaymentQueueService::lagSeconds)
+                .description("Age in seconds of the oldest payment a worker is still working through")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        for (int p = 0; p < partitions; p++) {
+            int partition = p;
+            Gauge.builder("payments.queue.partition.depth", partitionDepth,
+                            depths -> Math.max(0, depths.get(partition)))
+                    .description("Pending payments per partition, across instances")
+                    .tag("partition", String.valueOf(p))
+                    .register(meterRegistry);
+        }
+        queueLatency = Timer.builder("payments.queue.latency")
+                .description("Time from a payment being queued to it being posted")
+                .register(meterRegistry);
+    }
+
+    private double lagSeconds() {
+        long now = System.currentTimeMillis();
+        long lag = 0;
+        for (int p = 0; p < oldestPending.length(); p++) {
+            long oldest = oldestPending.get(p);
+            if (oldest > 0) {
+                lag = Math.max(lag, now - oldest);
+            }
+        }
+        return lag / 1000.0;
+    }
+
+    private int partitionOf(Long loanId) {
+        return Math.floorMod(Long.hashCode(loanId), partitions);
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static QueuedPaymentDto toDto(QueuedPayment row) {
+        QueuedPaymentDto dto = new QueuedPaymentDto();
+        dto.setTrackingId(row.getId());
+        dto.setKind(row.getKind());
+        dto.setStatus(row.getStatus());
+        dto.setLoanId(row.getLoanId());
+        dto.setScheduleId(row.getScheduleId());
+        dto.setPaymentAmount(row.getPaymentAmount());
+        dto.setPaymentDate(row.getPaymentDate());
+        dto.setReference(row.getReference());
+        dto.setAmountAllocated(row.getAmountAllocated());
+        dto.setPaymentsRecorded(row.getPaymentsRecorded());
+        dto.setDuplicate(row.isDuplicate());
+        dto.setAttempts(row.getAttempts());
+        dto.setError(row.getLastError());
+        dto.setEnqueuedAt(row.getCreatedAt());
+        dto.setProcessedAt(row.getProcessedAt());
+        return dto;
+    }
+}
@@ -1,7 +1,10 @@
 package com.myapplication.LoanManagementSystem.service;
 
+import com.myapplication.LoanManagementSystem.dto.payments.BatchPaymentItemResultDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BatchPaymentResultDto;
 import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
 import com.myapplication.LoanManagementSystem.dto.payments.PaymentDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentReceiptDto;
 import com.myapplication.LoanManagementSystem.dto.payments.PaymentRequestDto;
 import com.myapplication.LoanManagementSystem.dto.payments.PaymentSummaryDto;
 import com.myapplication.LoanManagementSystem.dto.payments.RepaymentScheduleDto;
@@ -9,16 +12,30 @@ import com.myapplication.LoanManagementSystem.model.*;
 import com.myapplication.LoanManagementSystem.repository.LoanRepository;
 import com.myapplication.LoanManagementSystem.repository.PaymentRepository;
 import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,12 +50,69 @@ public class PaymentService {
     @Autowired
     private LoanRepository loanRepository;
 
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private TrendBucketService trendBucketService;
+
+    @Autowired
+    private CashflowProjectionService cashflowProjectionService;
+
+    @Autowired
+    private LoanSerializer loanSerializer;
+
+    @Autowired
+    private PaymentIdempotencyService idempotencyService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Request items posted per transaction by batchPayments
+    private static final int BATCH_CHUNK_ITEMS = 500;
+
     /**
      * Pay a single installment by scheduleId.
+     * Serialized with other payments on the same loan, see LoanSerializer.
+     * A request whose reference was already posted returns the original receipt without posting again.
      */
-    public void payInstallment(Long scheduleId, PaymentRequestDto dto) {
-        RepaymentSchedule schedule = scheduleRepository.findById(scheduleId)
-                .orElseThrow(() -> new RuntimeException("Repayment schedule not found with id " + scheduleId));
+    public PaymentReceiptDto payInstallment(Long scheduleId, PaymentRequestDto dto) {
+        String key = idempotencyService.normaliseKey(dto.getReference());
+        // A retry of a recent request is answered from memory, without the lock or a query
+        Optional<PaymentReceiptDto> earlier = idempotencyService.replayCached(key, null, scheduleId, dto.getPaymentAmount());
+        if (earlier.isPresent()) {
+            return earlier.get();
+        }
+        // A virtual id (an installment of a compact schedule without a row yet) carries its loan id
+        Long loanId = CompactSchedule.isVirtualId(scheduleId)
+                ? CompactSchedule.loanIdOf(scheduleId)
+                : scheduleRepository.findLoanIdById(scheduleId)
+                        .orElseThrow(() -> new RuntimeException("Repayment schedule not found with id " + scheduleId));
+        PaymentReceiptDto receipt;
+        try {
+            // Checked again under the loan's lock, where a concurrent request with the same key has finished
+            receipt = loanSerializer.execute(loanId, () -> idempotencyService
+                    .replay(key, loanId, scheduleId, dto.getPaymentAmount())
+                    .orElseGet(() -> postInstallment(loanId, scheduleId, dto, key)));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance posted the same key and committed first; ours was rolled back
+            return idempotencyService.replay(key, loanId, scheduleId, dto.getPaymentAmount()).orElseThrow(() -> e);
+        }
+        if (!receipt.isDuplicate()) {
+            idempotencyService.remember(receipt);
+            receipt.setMessage("Installment paid successfully");
+        }
+        return receipt;
+    }
+
+    private PaymentReceiptDto postInstallment(Long loanId, Long scheduleId, PaymentRequestDto dto, String key) {
+        // Bumps the loan version so a payment posted concurrently by another instance fails and is retried
+        Loan loan = loanRepository.findByIdForPayment(loanId)
+                .orElseThrow(() -> new RuntimeException("Loan not found with id " + loanId));
+        RepaymentSchedule schedule = CompactSchedule.isVirtualId(scheduleId)
+                ? virtualInstallment(loan, scheduleId)
+                : scheduleRepository.findById(scheduleId)
+                        .orElseThrow(() -> new RuntimeException("Repayment schedule not found with id " + scheduleId));
 
         // Update schedule: add payment to existing amountPaid.
         BigDecimal newAmountPaid = (schedule.getAmountPaid() == null ? BigDecimal.ZERO : schedule.getAmountPaid())
@@ -59,34 +133,240 @@ public class PaymentService {
         payment.setPaymentAmount(dto.getPaymentAmount());
         payment.setPaymentDate(dto.getPaymentDate());
         payment.setRepaymentSchedule(schedule);
-        payment.setLoan(schedule.getLoan());
+        payment.setLoan(loan);
+        payment.setReference(key);
         paymentRepository.save(payment);
 
+        // Derived totals, in this transaction
+        portfolioRollupService.paymentPosted(loan.getId(), dto.getPaymentAmount());
+        trendBucketService.record(TrendKind.COLLECTION, dto.getPaymentDate(), 1, dto.getPaymentAmount());
+        cashflowProjectionService.schedulesChanged();
+
         // Check if entire loan is now paid
-        Loan loan = schedule.getLoan();
-        boolean allPaid = loan.getRepaymentSchedules().stream()
-                .allMatch(rs -> rs.getPaymentStatus() == RepaymentStatus.PAID);
-        if (allPaid) {
+        if (isFullyPaid(loan)) {
+            portfolioRollupService.statusChanged(loan.getId(), loan.getStatus(), LoanStatus.PAID);
             loan.setStatus(LoanStatus.PAID);
             loanRepository.save(loan);
         }
+        return idempotencyService.record(receipt(key, loanId, scheduleId, dto.getPaymentAmount(),
+                dto.getPaymentAmount(), 1, dto.getPaymentDate()));
     }
 
     /**
      * Make a bulk payment against a loan, allocating the payment from earliest to latest pending installment.
+     * Serialized with other payments on the same loan, see LoanSerializer.
+     * A request whose reference was already posted returns the original receipt without posting again.
      */
-    public void bulkPayment(BulkPaymentRequestDto dto) {
-        Loan loan = loanRepository.findById(dto.getLoanId())
+    public PaymentReceiptDto bulkPayment(BulkPaymentRequestDto dto) {
+        String key = idempotencyService.normaliseKey(dto.getReference());
+        Optional<PaymentReceiptDto> earlier = idempotencyService.replayCached(key, dto.getLoanId(), null, dto.getPaymentAmount());
+        if (earlier.isPresent()) {
+            return earlier.get();
+        }
+        if (!loanRepository.existsById(dto.getLoanId())) {
+            throw new RuntimeException("Loan not found with id " + dto.getLoanId());
+        }
+        PaymentReceiptDto receipt;
+        try {
+            receipt = loanSerializer.execute(dto.getLoanId(), () -> idempotencyService
+                    .replay(key, dto.getLoanId(), null, dto.getPaymentAmount())
+                    .orElseGet(() -> allocateBulkPayment(dto, key)));
+        } catch (DataIntegrityViolationException e) {
+            // Another instance posted the same key and committed first; ours was rolled back
+            return idempotencyService.replay(key, dto.getLoanId(), null, dto.getPaymentAmount()).orElseThrow(() -> e);
+        }
+        if (!receipt.isDuplicate()) {
+            idempotencyService.remember(receipt);
+            receipt.setMessage("Bulk payment processed successfully");
+        }
+        return receipt;
+    }
+
+    private PaymentReceiptDto allocateBulkPayment(BulkPaymentRequestDto dto, String key) {
+        Loan loan = loanRepository.findByIdForPayment(dto.getLoanId())
                 .orElseThrow(() -> new RuntimeException("Loan not found with id " + dto.getLoanId()));
 
+        List<Payment> payments = new ArrayList<>();
+        BigDecimal allocated = allocate(loan, dto.getPaymentAmount(), dto.getPaymentDate(), key, payments);
+        paymentRepository.saveAll(payments);
+        portfolioRollupService.paymentPosted(loan.getId(), allocated);
+        trendBucketService.record(TrendKind.COLLECTION, dto.getPaymentDate(), payments.size(), allocated);
+        cashflowProjectionService.schedulesChanged();
+
+        // Update loan status if all schedules are PAID
+        if (isFullyPaid(loan)) {
+            portfolioRollupService.statusChanged(loan.getId(), loan.getStatus(), LoanStatus.PAID);
+            loan.setStatus(LoanStatus.PAID);
+        }
+        loanRepository.save(loan);
+        return idempotencyService.record(receipt(key, loan.getId(), null, dto.getPaymentAmount(),
+                allocated, payments.size(), dto.getPaymentDate()));
+    }
+
+    /**
+     * Posts many bulk payments at once, e.g. a collections partner's settlement file.
+     * Items are grouped by loan and allocated with the same earliest-due-first rules as bulkPayment.
+     * Loans are posted in chunks that each commit in one transaction, so schedule updates and
+     * Payment inserts go to the database as JDBC batches. If a chunk fails, its loans are retried
+     * one at a time, so a bad loan only fails its own items. Items whose reference was already posted,
+     * or appears earlier in the same request, are reported as duplicates and skipped.
+     */
+    public BatchPaymentResultDto batchPayments(List<BulkPaymentRequestDto> items) {
+        long started = System.nanoTime();
+        BatchPaymentItemResultDto[] results = new BatchPaymentItemResultDto[items.size()];
+
+        Map<Long, List<Integer>> itemsByLoan = groupByLoan(items, results);
+
+        List<Long> chunk = new ArrayList<>();
+        int chunkItems = 0;
+        for (Map.Entry<Long, List<Integer>> entry : itemsByLoan.entrySet()) {
+            chunk.add(entry.getKey());
+            chunkItems += entry.getValue().size();
+            if (chunkItems >= BATCH_CHUNK_ITEMS) {
+                postChunk(chunk, items, itemsByLoan, results);
+                chunk = new ArrayList<>();
+                chunkItems = 0;
+            }
+        }
+        if (!chunk.isEmpty()) {
+            postChunk(chunk, items, itemsByLoan, results);
+        }
+        return summarise(results, itemsByLoan.size(), System.nanoTime() - started);
+    }
+
+    /**
+     * Allocates the items inside the caller's transaction, which must hold the items' loans through
+     * LoanSerializer.executeAll. Used by the settlement file import so a chunk of payments and its
+     * checkpoint commit together. Results are in item order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<BatchPaymentItemResultDto> allocateBatch(List<BulkPaymentRequestDto> items) {
+        BatchPaymentItemResultDto[] results = new BatchPaymentItemResultDto[items.size()];
+        Map<Long, List<Integer>> itemsByLoan = groupByLoan(items, results);
+        for (BatchPaymentItemResultDto result : allocateChunk(new ArrayList<>(itemsByLoan.keySet()), items, itemsByLoan)) {
+            results[result.getIndex()] = result;
+        }
+        return Arrays.asList(results);
+    }
+
+    // Groups valid items by loan, keeping request order within each loan; invalid items fail straight away.
+    private static Map<Long, List<Integer>> groupByLoan(List<BulkPaymentRequestDto> items,
+                                                        BatchPaymentItemResultDto[] results) {
+        Map<Long, List<Integer>> itemsByLoan = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            String error = validate(items.get(i));
+            if (error != null) {
+                results[i] = failedItem(i, items.get(i), error);
+            } else {
+                itemsByLoan.computeIfAbsent(items.get(i).getLoanId(), loanId -> new ArrayList<>()).add(i);
+            }
+        }
+        return itemsByLoan;
+    }
+
+    private void postChunk(List<Long> loanIds, List<BulkPaymentRequestDto> items,
+                           Map<Long, List<Integer>> itemsByLoan, BatchPaymentItemResultDto[] results) {
+        try {
+            List<BatchPaymentItemResultDto> posted =
+                    loanSerializer.executeAll(loanIds, () -> allocateChunk(loanIds, items, itemsByLoan));
+            for (BatchPaymentItemResultDto result : posted) {
+                results[result.getIndex()] = result;
+            }
+            // The chunk is committed; drop its entities in case the request holds an open EntityManager
+            entityManager.clear();
+        } catch (RuntimeException e) {
+            if (loanIds.size() > 1) {
+                for (Long loanId : loanIds) {
+                    postChunk(List.of(loanId), items, itemsByLoan, results);
+                }
+            } else {
+                for (Integer index : itemsByLoan.get(loanIds.get(0))) {
+                    results[index] = failedItem(index, items.get(index), e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Runs inside the chunk's transaction; nothing is written until the transaction flushes at commit.
+    private List<BatchPaymentItemResultDto> allocateChunk(List<Long> loanIds, List<BulkPaymentRequestDto> items,
+                                                          Map<Long, List<Integer>> itemsByLoan) {
+        Map<Long, Loan> loans = new HashMap<>();
+        for (Loan loan : loanRepository.findAllByIdForPayment(loanIds)) {
+            loans.put(loan.getId(), loan);
+        }
+        // One lookup for the whole chunk's references
+        Set<String> keys = new HashSet<>();
+        for (Long loanId : loanIds) {
+            for (Integer index : itemsByLoan.get(loanId)) {
+                String key = idempotencyService.normaliseKey(items.get(index).getReference());
+                if (key != null) {
+                    keys.add(key);
+                }
+            }
+        }
+        Set<String> postedKeys = keys.isEmpty() ? new HashSet<>() : idempotencyService.existingKeys(keys);
+
+        List<BatchPaymentItemResultDto> results = new ArrayList<>();
+        List<Payment> payments = new ArrayList<>();
+        Map<Long, BigDecimal> allocatedByLoan = new HashMap<>();
+        Map<Long, LoanStatus> settledFrom = new HashMap<>();
+        // Sorted so concurrent chunks touch the trend buckets in the same order
+        Map<LocalDate, Integer> countByDate = new TreeMap<>();
+        Map<LocalDate, BigDecimal> amountByDate = new TreeMap<>();
+
+        for (Long loanId : loanIds) {
+            Loan loan = loans.get(loanId);
+            for (Integer index : itemsByLoan.get(loanId)) {
+                BulkPaymentRequestDto item = items.get(index);
+                if (loan == null) {
+                    results.add(failedItem(index, item, "Loan not found with id " + loanId));
+                    continue;
+                }
+                String key = idempotencyService.normaliseKey(item.getReference());
+                if (key != null && !postedKeys.add(key)) {
+                    results.add(duplicateItem(index, item));
+                    continue;
+                }
+                int recordedBefore = payments.size();
+                BigDecimal allocated = allocate(loan, item.getPaymentAmount(), item.getPaymentDate(), key, payments);
+                int recorded = payments.size() - recordedBefore;
+                idempotencyService.record(receipt(key, loanId, null, item.getPaymentAmount(),
+                        allocated, recorded, item.getPaymentDate()));
+                allocatedByLoan.merge(loanId, allocated, BigDecimal::add);
+                if (recorded > 0) {
+                    countByDate.merge(item.getPaymentDate(), recorded, Integer::sum);
+                    amountByDate.merge(item.getPaymentDate(), allocated, BigDecimal::add);
+                }
+                results.add(appliedItem(index, item, allocated, recorded));
+            }
+            if (loan != null && loan.getStatus() != LoanStatus.PAID && isFullyPaid(loan)) {
+                settledFrom.put(loanId, loan.getStatus());
+                loan.setStatus(LoanStatus.PAID);
+            }
+        }
+        paymentRepository.saveAll(payments);
+        portfolioRollupService.paymentsPosted(allocatedByLoan, settledFrom);
+        countByDate.forEach((date, count) ->
+                trendBucketService.record(TrendKind.COLLECTION, date, count, amountByDate.get(date)));
+        cashflowProjectionService.schedulesChanged();
+        return results;
+    }
+
+    /**
+     * Allocates an amount to the loan's pending installments from earliest to latest due date, adding
+     * one Payment per installment touched to the given list. Returns the amount allocated.
+     * Package-private for the benchmarks.
+     */
+    BigDecimal allocate(Loan loan, BigDecimal amount, LocalDate paymentDate, String reference,
+                                List<Payment> payments) {
         // Sort installments by due date
-        List<RepaymentSchedule> schedules = loan.getRepaymentSchedules().stream()
+        List<RepaymentSchedule> schedules = CompactSchedule.installmentsOf(loan).stream()
                 .filter(rs -> rs.getDueDate() != null)
                 .filter(rs -> rs.getPaymentStatus() != RepaymentStatus.PAID)
                 .sorted(Comparator.comparing(RepaymentSchedule::getDueDate))
                 .collect(Collectors.toList());
 
-        BigDecimal remainingPayment = dto.getPaymentAmount();
+        BigDecimal remainingPayment = amount;
 
         for (RepaymentSchedule schedule : schedules) {
             if (remainingPayment.compareTo(BigDecimal.ZERO) <= 0) {
@@ -96,79 +376,175 @@ public class PaymentService {
             BigDecimal alreadyPaid = schedule.getAmountPaid() == null ? BigDecimal.ZERO : schedule.getAmountPaid();
             BigDecimal installmentBalance = schedule.getAmountDue().subtract(alreadyPaid);
             BigDecimal paymentForThisInstallment = remainingPayment.min(installmentBalance);
+            if (schedule.getId() == null) {
+                // First money on an installment of a compact schedule: it becomes a stored row
+                loan.getRepaymentSchedules().add(schedule);
+                scheduleRepository.save(schedule);
+            }
 
             // Update schedule amountPaid and status
             BigDecimal newAmountPaid = alreadyPaid.add(paymentForThisInstallment);
             schedule.setAmountPaid(newAmountPaid);
             if (newAmountPaid.compareTo(schedule.getAmountDue()) >= 0) {
                 schedule.setPaymentStatus(RepaymentStatus.PAID);
-                schedule.setPaymentDate(dto.getPaymentDate());
+                schedule.setPaymentDate(paymentDate);
             } else if (newAmountPaid.compareTo(BigDecimal.ZERO) > 0) {
                 schedule.setPaymentStatus(RepaymentStatus.PARTIALLY_PAID);
             }
-            scheduleRepository.save(schedule);
 
             // Create a Payment record for auditing
             Payment payment = new Payment();
             payment.setPaymentAmount(paymentForThisInstallment);
-            payment.setPaymentDate(dto.getPaymentDate());
+            payment.setPaymentDate(paymentDate);
             payment.setRepaymentSchedule(schedule);
             payment.setLoan(loan);
-            paymentRepository.save(payment);
+            payment.setReference(reference);
+            payments.add(payment);
 
             remainingPayment = remainingPayment.subtract(paymentForThisInstallment);
         }
+        return amount.subtract(remainingPayment);
+    }
 
-        // Update loan status if all schedules are PAID
-        boolean allPaid = loan.getRepaymentSchedules().stream()
+    private static PaymentReceipt receipt(String key, Long loanId, Long scheduleId, BigDecimal amount,
+                                          BigDecimal allocated, int paymentsRecorded, LocalDate paymentDate) {
+        PaymentReceipt receipt = new PaymentReceipt();
+        receipt.setIdempotencyKey(key);
+        receipt.setLoanId(loanId);
+        receipt.setScheduleId(scheduleId);
+        receipt.setPaymentAmount(amount);
+        receipt.setAmountAllocated(allocated);
+        receipt.setPaymentsRecorded(paymentsRecorded);
+        receipt.setPaymentDate(paymentDate);
+        return receipt;
+    }
+
+    /**
+     * The stored row for an installment of a compact schedule, created (unsaved, added to the loan)
+     * if the installment has no row yet.
+     */
+    private static RepaymentSchedule virtualInstallment(Loan loan, Long virtualId) {
+        int installment = CompactSchedule.installmentOf(virtualId);
+        if (!loan.isCompactSchedule() || installment < 1 || installment > loan.getNumberOfInstallments()) {
+            throw new RuntimeException("Repayment schedule not found with id " + virtualId);
+        }
+        for (RepaymentSchedule schedule : loan.getRepaymentSchedules()) {
+            if (schedule.getInstallmentNumber() != null && schedule.getInstallmentNumber() == installment) {
+                return schedule;
+            }
+        }
+        RepaymentSchedule schedule = CompactSchedule.of(loan).newInstallment(loan, installment);
+        loan.getRepaymentSchedules().add(schedule);
+        return schedule;
+    }
+
+    private static boolean isFullyPaid(Loan loan) {
+        return CompactSchedule.installmentsOf(loan).stream()
                 .allMatch(rs -> rs.getPaymentStatus() == RepaymentStatus.PAID);
-        if (allPaid) {
-            loan.setStatus(LoanStatus.PAID);
+    }
+
+    private static String validate(BulkPaymentRequestDto item) {
+        if (item == null || item.getLoanId() == null) {
+            return "loanId is required";
         }
-        loanRepository.save(loan);
+        if (item.getPaymentAmount() == null || item.getPaymentAmount().signum() <= 0) {
+            return "paymentAmount must be greater than zero";
+        }
+        if (item.getPaymentDate() == null) {
+            return "paymentDate is required";
+        }
+        if (item.getReference() != null && item.getReference().trim().length() > PaymentReceipt.MAX_KEY_LENGTH) {
+            return "reference must be at most " + PaymentReceipt.MAX_KEY_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private static BatchPaymentItemResultDto appliedItem(int index, BulkPaymentRequestDto item,
+                                                         BigDecimal allocated, int paymentsRecorded) {
+        BatchPaymentItemResultDto result = new BatchPaymentItemResultDto();
+        result.setIndex(index);
+        result.setLoanId(item.getLoanId());
+        result.setSuccess(true);
+        result.setAmountAllocated(allocated);
+        result.setAmountUnallocated(item.getPaymentAmount().subtract(allocated));
+        result.setPaymentsRecorded(paymentsRecorded);
+        return result;
+    }
+
+    private static BatchPaymentItemResultDto duplicateItem(int index, BulkPaymentRequestDto item) {
+        BatchPaymentItemResultDto result = appliedItem(index, item, BigDecimal.ZERO, 0);
+        result.setAmountUnallocated(BigDecimal.ZERO);
+        result.setDuplicate(true);
+        return result;
+    }
+
+    private static BatchPaymentItemResultDto failedItem(int index, BulkPaymentRequestDto item, String error) {
+        BatchPaymentItemResultDto result = new BatchPaymentItemResultDto();
+        result.setIndex(index);
+        result.setLoanId(item == null ? null : item.getLoanId());
+        result.setSuccess(false);
+        result.setAmountAllocated(BigDecimal.ZERO);
+        result.setAmountUnallocated(item == null ? null : item.getPaymentAmount());
+        result.setError(error);
+        return result;
+    }
+
+    private static BatchPaymentResultDto summarise(BatchPaymentItemResultDto[] results, int loanCount, long elapsedNanos) {
+        BatchPaymentResultDto summary = new BatchPaymentResultDto();
+        BigDecimal totalAllocated = BigDecimal.ZERO;
+        int succeeded = 0;
+        int paymentsRecorded = 0;
+        for (BatchPaymentItemResultDto result : results) {
+            if (result.isSuccess()) {
+                succeeded++;
+                paymentsRecorded += result.getPaymentsRecorded();
+                totalAllocated = totalAllocated.add(result.getAmountAllocated());
+            }
+        }
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        summary.setItemCount(results.length);
+        summary.setSucceeded(succeeded);
+        summary.setFailed(results.length - succeeded);
+        summary.setLoanCount(loanCount);
+        summary.setPaymentsRecorded(paymentsRecorded);
+        summary.setTotalAllocated(totalAllocated);
+        summary.setElapsedMillis(elapsedNanos / 1_000_000);
+        summary.setItemsPerSecond(seconds > 0 ? results.length / seconds : 0);
+        summary.setPaymentsPerSecond(seconds > 0 ? paymentsRecorded / seconds : 0);
+        summary.setItems(Arrays.asList(results));
+        return summary;
     }
 
     /**
      * Retrieves all repayment schedules for a given loan as DTOs.
      */
+    @Transactional(readOnly = true)
     public List<RepaymentScheduleDto> getSchedulesByLoan(Long loanId) {
-        List<RepaymentSchedule> schedules = scheduleRepository.findByLoan_Id(loanId);
-        List<RepaymentScheduleDto> dtos = new ArrayList<>();
-        for (RepaymentSchedule s : schedules) {
-            RepaymentScheduleDto dto = new RepaymentScheduleDto();
-            dto.setScheduleId(s.getId());
-            dto.setDueDate(s.getDueDate());
-            dto.setAmountDue(s.getAmountDue());
-            // Depending on the loan frequency, show either emi or ewi
-            if (s.getLoan().getRepaymentFrequency() == Frequency.MONTHLY) {
-                dto.setEmi(s.getEmi());
-            } else if (s.getLoan().getRepaymentFrequency() == Frequency.WEEKLY) {
-                dto.setEwi(s.getEwi());
-            }
-            dto.setAmountPaid(s.getAmountPaid());
-            dto.setPaymentDate(s.getPaymentDate());
-            dto.setPaymentStatus(s.getPaymentStatus());
-            dto.setCreatedAt(s.getCreatedAt());
-            dtos.add(dto);
+        // Selected straight into DTOs: no managed entities and no per-row load of the loan
+        List<RepaymentScheduleDto> stored = scheduleRepository.findScheduleDtosByLoanId(loanId);
+        Optional<CompactSchedule> compact = loanRepository.findCompactScheduleById(loanId);
+        if (compact.isEmpty()) {
+            return stored;
+        }
+        // Fill in the installments of a compact schedule that have no row yet
+        CompactSchedule rule = compact.get();
+        Map<Integer, RepaymentScheduleDto> byInstallment = new HashMap<>();
+        for (RepaymentScheduleDto dto : stored) {
+            byInstallment.put(dto.getInstallmentNumber(), dto);
         }
-        return dtos;
+        List<RepaymentScheduleDto> schedules = new ArrayList<>(rule.expand(byInstallment, n -> new RepaymentScheduleDto(
+                rule.virtualId(n), rule.dueDate(n), rule.amountDue(n), rule.amountDue(n), rule.amountDue(n),
+                BigDecimal.ZERO, null, rule.statusOf(n), rule.createdAt(), rule.frequency(), n)));
+        schedules.sort(Comparator.comparing(RepaymentScheduleDto::getDueDate));
+        return schedules;
     }
 
     /**
      * Retrieves all payment records for a given loan as DTOs.
      */
+    @Transactional(readOnly = true)
     public List<PaymentDto> getPaymentsByLoan(Long loanId) {
-        List<Payment> payments = paymentRepository.findByLoan_Id(loanId);
-        List<PaymentDto> dtos = new ArrayList<>();
-        for (Payment p : payments) {
-            PaymentDto dto = new PaymentDto();
-            dto.setPaymentId(p.getPaymentId());
-            dto.setPaymentAmount(p.getPaymentAmount());
-            dto.setPaymentDate(p.getPaymentDate());
-            dto.setCreatedAt(p.getCreatedAt());
-            dtos.add(dto);
-        }
-        return dtos;
+        return paymentRepository.findPaymentDtosByLoanId(loanId);
     }
 
     /**
@@ -184,7 +560,7 @@ public class PaymentService {
         BigDecimal totalPaid = loan.getRepaymentSchedules().stream()
                 .map(rs -> rs.getAmountPaid() == null ? BigDecimal.ZERO : rs.getAmountPaid())
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
-        long remainingInstallments = loan.getRepaymentSchedules().stream()
+        long remainingInstallments = CompactSchedule.installmentsOf(loan).stream()
                 .filter(rs -> rs.getPaymentStatus() != RepaymentStatus.PAID)
                 .count();
         BigDecimal remainingBalance = loan.getTotalRepayableAmount().subtract(totalPaid);
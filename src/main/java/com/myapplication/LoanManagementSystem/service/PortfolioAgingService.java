@@ -0,0 +1,203 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.stats.AgingBucketDto;
+import com.myapplication.LoanManagementSystem.dto.stats.AgingReportDto;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.repository.projection.AgingBucketTotal;
+import com.myapplication.LoanManagementSystem.repository.projection.CompactLoanBalance;
+import com.myapplication.LoanManagementSystem.repository.projection.InstallmentState;
+import com.myapplication.LoanManagementSystem.utils.BoundedCache;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arrears aging and portfolio at risk (PAR) of the open loans, i.e. ACTIVE and DEFAULTED.
+ *
+ * Loans whose schedule is fully stored are aggregated by the database in a single grouped query.
+ * Loans with a compact schedule are paged through in id order and their installments derived from
+ * the rule. The report only changes meaningfully from one day to the next, so it is computed once
+ * per business day; the overdue job invalidates it when it reclassifies loans.
+ */
+@Service
+public class PortfolioAgingService {
+
+    // Lower bound (days past due) of each bucket; bucket 0 holds loans with nothing overdue
+    private static final int[] BUCKET_START = {0, 1, 31, 61, 91, 181};
+
+    private static final String[] BUCKET_LABEL = {"current", "1-30", "31-60", "61-90", "91-180", "181+"};
+
+    private static final List<LoanStatus> OPEN_STATUSES = List.of(LoanStatus.ACTIVE, LoanStatus.DEFAULTED);
+
+    // Compact loans read per page
+    private static final int PAGE_SIZE = 1000;
+
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    // Today's report, and yesterday's until it ages out
+    private final BoundedCache<LocalDate, AgingReportDto> reports = new BoundedCache<>(2, Duration.ofDays(1));
+
+    private final Object computeLock = new Object();
+
+    /**
+     * Today's aging report. Concurrent callers on a cold cache wait for one computation instead of
+     * each scanning the schedules. The returned report is shared and must not be modified.
+     */
+    public AgingReportDto getAging() {
+        LocalDate today = LocalDate.now();
+        AgingReportDto report = reports.get(today);
+        if (report != null) {
+            return report;
+        }
+        synchronized (computeLock) {
+            report = reports.get(today);
+            if (report == null) {
+                report = compute(today);
+                reports.put(today, report);
+            }
+            return report;
+        }
+    }
+
+    // The report is recomputed on the next read
+    public void invalidate() {
+        reports.clear();
+    }
+
+    private AgingReportDto compute(LocalDate today) {
+        long[] loans = new long[BUCKET_START.length];
+        BigDecimal[] outstanding = new BigDecimal[BUCKET_START.length];
+        BigDecimal[] arrears = new BigDecimal[BUCKET_START.length];
+        for (int i = 0; i < BUCKET_START.length; i++) {
+            outstanding[i] = BigDecimal.ZERO;
+            arrears[i] = BigDecimal.ZERO;
+        }
+
+        for (AgingBucketTotal total : scheduleRepository.sumAgingByBucket(today, today.minusDays(30),
+                today.minusDays(60), today.minusDays(90), today.minusDays(180))) {
+            int bucket = total.getBucket();
+            loans[bucket] += total.getLoans();
+            outstanding[bucket] = outstanding[bucket].add(orZero(total.getOutstanding()));
+            arrears[bucket] = arrears[bucket].add(orZero(total.getArrears()));
+        }
+
+        long afterId = 0;
+        List<CompactLoanBalance> page;
+        do {
+            page = loanRepository.findCompactLoansAfter(afterId, OPEN_STATUSES, Limit.of(PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            Map<Long, Map<Integer, InstallmentState>> stored = new HashMap<>();
+            for (InstallmentState state : scheduleRepository.findInstallmentStatesByLoanIds(
+                    page.stream().map(CompactLoanBalance::loanId).toList())) {
+                stored.computeIfAbsent(state.loanId(), id -> new HashMap<>()).put(state.installmentNumber(), state);
+            }
+            for (CompactLoanBalance loan : page) {
+                CompactSchedule rule = loan.rule();
+                Map<Integer, InstallmentState> rows = stored.getOrDefault(loan.loanId(), Map.of());
+                LocalDate oldestDue = null;
+                BigDecimal loanOutstanding = orZero(loan.totalRepayableAmount());
+                for (InstallmentState row : rows.values()) {
+                    loanOutstanding = loanOutstanding.subtract(orZero(row.amountPaid()));
+                }
+                BigDecimal loanArrears = BigDecimal.ZERO;
+                // Installments without a row have received nothing
+                for (int n = 1; n <= rule.count(); n++) {
+                    InstallmentState row = rows.get(n);
+                    LocalDate dueDate = row != null ? row.dueDate() : rule.dueDate(n);
+                    BigDecimal unpaid = row != null
+                            ? orZero(row.amountDue()).subtract(orZero(row.amountPaid()))
+                            : rule.amountDue(n);
+                    boolean paid = row != null && row.paymentStatus() == RepaymentStatus.PAID;
+                    if (!paid && dueDate.isBefore(today)) {
+                        loanArrears = loanArrears.add(unpaid);
+                        if (oldestDue == null || dueDate.isBefore(oldestDue)) {
+                            oldestDue = dueDate;
+                        }
+                    }
+                }
+                int bucket = bucketOf(oldestDue == null ? 0 : ChronoUnit.DAYS.between(oldestDue, today));
+                loans[bucket]++;
+                outstanding[bucket] = outstanding[bucket].add(loanOutstanding);
+                arrears[bucket] = arrears[bucket].add(loanArrears);
+            }
+            afterId = page.get(page.size() - 1).loanId();
+        } while (page.size() == PAGE_SIZE);
+
+        AgingReportDto report = new AgingReportDto();
+        report.setAsOfDate(today);
+        List<AgingBucketDto> buckets = new ArrayList<>();
+        BigDecimal totalOutstanding = BigDecimal.ZERO;
+        BigDecimal totalArrears = BigDecimal.ZERO;
+        long loanCount = 0;
+        for (int i = 0; i < BUCKET_START.length; i++) {
+            AgingBucketDto bucket = new AgingBucketDto();
+            bucket.setLabel(BUCKET_LABEL[i]);
+            bucket.setMinDaysPastDue(BUCKET_START[i]);
+            bucket.setMaxDaysPastDue(i + 1 < BUCKET_START.length ? BUCKET_START[i + 1] - 1 : null);
+            bucket.setLoanCount(loans[i]);
+            bucket.setOutstandingBalance(outstanding[i]);
+            bucket.setArrearsAmount(arrears[i]);
+            buckets.add(bucket);
+            loanCount += loans[i];
+            totalOutstanding = totalOutstanding.add(outstanding[i]);
+            totalArrears = totalArrears.add(arrears[i]);
+        }
+        report.setBuckets(buckets);
+        report.setLoanCount(loanCount);
+        report.setTotalOutstanding(totalOutstanding);
+        report.setTotalArrears(totalArrears);
+        report.setPar1(par(outstanding, 1, totalOutstanding));
+        report.setPar30(par(outstanding, 2, totalOutstanding));
+        report.setPar60(par(outstanding, 3, totalOutstanding));
+        report.setPar90(par(outstanding, 4, totalOutstanding));
+        report.setGeneratedAt(LocalDateTime.now());
+        return report;
+    }
+
+    private static int bucketOf(long daysPastDue) {
+        int bucket = 0;
+        while (bucket + 1 < BUCKET_START.length && daysPastDue >= BUCKET_START[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    // Outstanding balance in the given bucket and above, as a percentage of the total
+    private static BigDecimal par(BigDecimal[] outstanding, int fromBucket, BigDecimal total) {
+        if (total.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal atRisk = BigDecimal.ZERO;
+        for (int i = fromBucket; i < outstanding.length; i++) {
+            atRisk = atRisk.add(outstanding[i]);
+        }
+        return atRisk.multiply(HUNDRED).divide(total, 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
@@ -0,0 +1,342 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.stats.RollupDriftDto;
+import com.myapplication.LoanManagementSystem.dto.stats.RollupRebuildDto;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.PortfolioRollup;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.PortfolioRollupRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.repository.projection.LoanAggregate;
+import com.myapplication.LoanManagementSystem.repository.projection.StatusCount;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maintains the portfolio_rollup totals. Loan and payment services report their changes here
+ * as deltas inside their own transaction, so the rollup commits or rolls back together with them.
+ */
+@Service
+public class PortfolioRollupService implements SmartInitializingSingleton {
+
+    @Autowired
+    private PortfolioRollupRepository rollupRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * The figures of a loan that feed the rollup, captured before the loan is modified.
+     */
+    public record LoanFigures(Long loanId, BigDecimal principal, BigDecimal totalRepayable, BigDecimal interestRate,
+                              int repaymentPeriod, BigDecimal installmentAmount, LoanStatus status) {
+
+        public static LoanFigures of(Loan loan) {
+            return new LoanFigures(loan.getId(),
+                    orZero(loan.getPrincipalAmount()),
+                    orZero(loan.getTotalRepayableAmount()),
+                    orZero(loan.getInterestRate()),
+                    loan.getRepaymentPeriod() == null ? 0 : loan.getRepaymentPeriod(),
+                    installmentAmountOf(loan),
+                    loan.getStatus());
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loanCreated(Loan loan) {
+        LoanFigures figures = LoanFigures.of(loan);
+        applyLoan(figures, 1, BigDecimal.ONE);
+        applyStatus(figures.loanId(), null, figures.status());
+    }
+
+    /**
+     * Adds several new loans in one pass, folded per slot and applied in ascending slot order
+     * like paymentsPosted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loansCreated(List<Loan> loans) {
+        Map<Integer, LoanFigures> totalsBySlot = new TreeMap<>();
+        Map<Integer, long[]> statusBySlot = new TreeMap<>();
+        for (Loan loan : loans) {
+            LoanFigures figures = LoanFigures.of(loan);
+            int slot = PortfolioRollup.slotFor(loan.getId());
+            totalsBySlot.merge(slot, figures, (a, b) -> new LoanFigures(null,
+                    a.principal().add(b.principal()),
+                    a.totalRepayable().add(b.totalRepayable()),
+                    a.interestRate().add(b.interestRate()),
+                    a.repaymentPeriod() + b.repaymentPeriod(),
+                    a.installmentAmount().add(b.installmentAmount()),
+                    null));
+            long[] counts = statusBySlot.computeIfAbsent(slot, s -> new long[4]);
+            counts[0]++;
+            counts[1] += delta(LoanStatus.ACTIVE, null, figures.status());
+            counts[2] += delta(LoanStatus.PAID, null, figures.status());
+            counts[3] += delta(LoanStatus.DEFAULTED, null, figures.status());
+        }
+        totalsBySlot.forEach((slot, totals) -> {
+            long[] counts = statusBySlot.get(slot);
+            rollupRepository.applyLoanDelta(slot, counts[0], totals.principal(), totals.totalRepayable(),
+                    totals.interestRate(), totals.repaymentPeriod(), totals.installmentAmount());
+            rollupRepository.applyStatusDelta(slot, counts[1], counts[2], counts[3]);
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loanUpdated(LoanFigures before, Loan loan) {
+        LoanFigures after = LoanFigures.of(loan);
+        applyLoan(before, -1, BigDecimal.ONE.negate());
+        applyLoan(after, 1, BigDecimal.ONE);
+        applyStatus(after.loanId(), before.status(), after.status());
+    }
+
+    /**
+     * @param amountPaid the total already received on the loan, which leaves the portfolio with it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loanDeleted(Loan loan, BigDecimal amountPaid) {
+        LoanFigures figures = LoanFigures.of(loan);
+        applyLoan(figures, -1, BigDecimal.ONE.negate());
+        applyStatus(figures.loanId(), figures.status(), null);
+        paymentPosted(figures.loanId(), orZero(amountPaid).negate());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Long loanId, LoanStatus from, LoanStatus to) {
+        applyStatus(loanId, from, to);
+    }
+
+    /**
+     * Moves the given loans from ACTIVE to DEFAULTED, folded per slot and applied in ascending slot order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loansDefaulted(Collection<Long> loanIds) {
+        Map<Integer, Long> countBySlot = new TreeMap<>();
+        for (Long loanId : loanIds) {
+            countBySlot.merge(PortfolioRollup.slotFor(loanId), 1L, Long::sum);
+        }
+        countBySlot.forEach((slot, count) -> rollupRepository.applyStatusDelta(slot, -count, 0, count));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentPosted(Long loanId, BigDecimal amount) {
+        if (amount == null || amount.signum() == 0) {
+            return;
+        }
+        rollupRepository.applyPaidDelta(PortfolioRollup.slotFor(loanId), amount);
+    }
+
+    /**
+     * Applies the payments of several loans in one pass. The changes are folded per slot and applied in
+     * ascending slot order, so concurrent batches take the rollup row locks in the same order.
+     *
+     * @param settledFrom loans that became PAID, mapped to their previous status
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentsPosted(Map<Long, BigDecimal> amountsByLoan, Map<Long, LoanStatus> settledFrom) {
+        Map<Integer, BigDecimal> paidBySlot = new TreeMap<>();
+        amountsByLoan.forEach((loanId, amount) ->
+                paidBySlot.merge(PortfolioRollup.slotFor(loanId), orZero(amount), BigDecimal::add));
+        Map<Integer, long[]> statusBySlot = new TreeMap<>();
+        settledFrom.forEach((loanId, from) -> {
+            long[] counts = statusBySlot.computeIfAbsent(PortfolioRollup.slotFor(loanId), slot -> new long[3]);
+            counts[0] += delta(LoanStatus.ACTIVE, from, LoanStatus.PAID);
+            counts[1] += delta(LoanStatus.PAID, from, LoanStatus.PAID);
+            counts[2] += delta(LoanStatus.DEFAULTED, from, LoanStatus.PAID);
+        });
+        Set<Integer> slots = new TreeSet<>(paidBySlot.keySet());
+        slots.addAll(statusBySlot.keySet());
+        for (Integer slot : slots) {
+            BigDecimal paid = paidBySlot.getOrDefault(slot, BigDecimal.ZERO);
+            if (paid.signum() != 0) {
+                rollupRepository.applyPaidDelta(slot, paid);
+            }
+            long[] counts = statusBySlot.get(slot);
+            if (counts != null && (counts[0] != 0 || counts[1] != 0 || counts[2] != 0)) {
+                rollupRepository.applyStatusDelta(slot, counts[0], counts[1], counts[2]);
+            }
+        }
+    }
+
+    /**
+     * Returns the portfolio totals, i.e. the sum of all slot rows.
+     */
+    @Transactional(readOnly = true)
+    public PortfolioRollup getPortfolio() {
+        PortfolioRollup total = new PortfolioRollup(-1);
+        for (PortfolioRollup slot : rollupRepository.findAll()) {
+            total.setLoanCount(total.getLoanCount() + slot.getLoanCount());
+            total.setActiveCount(total.getActiveCount() + slot.getActiveCount());
+            total.setPaidCount(total.getPaidCount() + slot.getPaidCount());
+            total.setDefaultedCount(total.getDefaultedCount() + slot.getDefaultedCount());
+            total.setPrincipalDisbursed(total.getPrincipalDisbursed().add(orZero(slot.getPrincipalDisbursed())));
+            total.setTotalRepayable(total.getTotalRepayable().add(orZero(slot.getTotalRepayable())));
+            total.setTotalPaid(total.getTotalPaid().add(orZero(slot.getTotalPaid())));
+            total.setTotalInterestRate(total.getTotalInterestRate().add(orZero(slot.getTotalInterestRate())));
+            total.setTotalRepaymentPeriod(total.getTotalRepaymentPeriod() + slot.getTotalRepaymentPeriod());
+            total.setTotalInstallmentAmount(total.getTotalInstallmentAmount().add(orZero(slot.getTotalInstallmentAmount())));
+            if (slot.getRebuiltAt() != null) {
+                total.setRebuiltAt(slot.getRebuiltAt());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Recomputes the rollup from loans and repayment schedules, reporting any field that had drifted.
+     */
+    @Transactional
+    public RollupRebuildDto rebuild() {
+        List<PortfolioRollup> slots = rollupRepository.findAllForUpdate();
+        PortfolioRollup stored = getPortfolio();
+
+        LoanAggregate totals = loanRepository.aggregateLoans();
+        PortfolioRollup actual = new PortfolioRollup(0);
+        actual.setLoanCount(totals.getTotalLoans() == null ? 0 : totals.getTotalLoans());
+        actual.setPrincipalDisbursed(orZero(totals.getTotalPrincipal()));
+        actual.setTotalRepayable(orZero(totals.getTotalRepayable()));
+        actual.setTotalInterestRate(orZero(totals.getTotalInterestRate()));
+        actual.setTotalRepaymentPeriod(totals.getTotalRepaymentPeriod() == null ? 0 : totals.getTotalRepaymentPeriod());
+        actual.setTotalInstallmentAmount(orZero(totals.getTotalInstallmentAmount()));
+        actual.setTotalPaid(orZero(scheduleRepository.sumAmountPaid()));
+        for (StatusCount statusCount : loanRepository.countByStatus()) {
+            switch (statusCount.getStatus()) {
+                case ACTIVE -> actual.setActiveCount(statusCount.getCount());
+                case PAID -> actual.setPaidCount(statusCount.getCount());
+                case DEFAULTED -> actual.setDefaultedCount(statusCount.getCount());
+            }
+        }
+
+        List<RollupDriftDto> drift = new ArrayList<>();
+        compare(drift, "loanCount", stored.getLoanCount(), actual.getLoanCount());
+        compare(drift, "activeCount", stored.getActiveCount(), actual.getActiveCount());
+        compare(drift, "paidCount", stored.getPaidCount(), actual.getPaidCount());
+        compare(drift, "defaultedCount", stored.getDefaultedCount(), actual.getDefaultedCount());
+        compare(drift, "principalDisbursed", stored.getPrincipalDisbursed(), actual.getPrincipalDisbursed());
+        compare(drift, "totalRepayable", stored.getTotalRepayable(), actual.getTotalRepayable());
+        compare(drift, "totalPaid", stored.getTotalPaid(), actual.getTotalPaid());
+        compare(drift, "totalInterestRate", stored.getTotalInterestRate(), actual.getTotalInterestRate());
+        compare(drift, "totalRepaymentPeriod", stored.getTotalRepaymentPeriod(), actual.getTotalRepaymentPeriod());
+        compare(drift, "totalInstallmentAmount", stored.getTotalInstallmentAmount(), actual.getTotalInstallmentAmount());
+
+        // The recomputed totals go into slot 0 and every other slot restarts from zero. Rows are
+        // overwritten in place (they are locked above) so deltas waiting on them are applied afterwards.
+        LocalDateTime now = LocalDateTime.now();
+        Map<Integer, PortfolioRollup> bySlot = new HashMap<>();
+        for (PortfolioRollup slot : slots) {
+            bySlot.put(slot.getSlot(), slot);
+        }
+        for (int slot = 0; slot < PortfolioRollup.SLOTS; slot++) {
+            PortfolioRollup row = bySlot.computeIfAbsent(slot, PortfolioRollup::new);
+            PortfolioRollup source = slot == 0 ? actual : new PortfolioRollup(slot);
+            row.setLoanCount(source.getLoanCount());
+            row.setActiveCount(source.getActiveCount());
+            row.setPaidCount(source.getPaidCount());
+            row.setDefaultedCount(source.getDefaultedCount());
+            row.setPrincipalDisbursed(source.getPrincipalDisbursed());
+            row.setTotalRepayable(source.getTotalRepayable());
+            row.setTotalPaid(source.getTotalPaid());
+            row.setTotalInterestRate(source.getTotalInterestRate());
+            row.setTotalRepaymentPeriod(source.getTotalRepaymentPeriod());
+            row.setTotalInstallmentAmount(source.getTotalInstallmentAmount());
+            row.setRebuiltAt(now);
+        }
+        rollupRepository.saveAll(bySlot.values());
+
+        RollupRebuildDto report = new RollupRebuildDto();
+        report.setDriftDetected(!drift.isEmpty());
+        report.setDrift(drift);
+        report.setRebuiltAt(now);
+        return report;
+    }
+
+    // Makes sure the slot rows exist before the first delta is applied; a delta against a missing
+    // row would be lost and only show up as drift on the next rebuild. Runs before the web server
+    // starts, so no request can apply a delta while the slots are still being seeded.
+    @Override
+    public void afterSingletonsInstantiated() {
+        transaction.executeWithoutResult(status -> {
+            if (rollupRepository.count() != PortfolioRollup.SLOTS) {
+                rebuild();
+            }
+        });
+    }
+
+    private void applyLoan(LoanFigures figures, long sign, BigDecimal signum) {
+        int slot = PortfolioRollup.slotFor(figures.loanId());
+        rollupRepository.applyLoanDelta(slot, sign,
+                figures.principal().multiply(signum),
+                figures.totalRepayable().multiply(signum),
+                figures.interestRate().multiply(signum),
+                sign * figures.repaymentPeriod(),
+                figures.installmentAmount().multiply(signum));
+    }
+
+    private void applyStatus(Long loanId, LoanStatus from, LoanStatus to) {
+        if (from == to) {
+            return;
+        }
+        long active = delta(LoanStatus.ACTIVE, from, to);
+        long paid = delta(LoanStatus.PAID, from, to);
+        long defaulted = delta(LoanStatus.DEFAULTED, from, to);
+        rollupRepository.applyStatusDelta(PortfolioRollup.slotFor(loanId), active, paid, defaulted);
+    }
+
+    private static long delta(LoanStatus status, LoanStatus from, LoanStatus to) {
+        return (to == status ? 1 : 0) - (from == status ? 1 : 0);
+    }
+
+    // Mirrors the installment amount used by LoanRepository.aggregateLoans
+    private static BigDecimal installmentAmountOf(Loan loan) {
+        if (loan.getNumberOfInstallments() > 0 && loan.getTotalRepayableAmount() != null) {
+            return loan.getTotalRepayableAmount()
+                    .divide(new BigDecimal(loan.getNumberOfInstallments()), 2, RoundingMode.HALF_UP);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private static void compare(List<RollupDriftDto> drift, String field, long stored, long actual) {
+        compare(drift, field, BigDecimal.valueOf(stored), BigDecimal.valueOf(actual));
+    }
+
+    private static void compare(List<RollupDriftDto> drift, String field, BigDecimal stored, BigDecimal actual) {
+        if (stored.compareTo(actual) != 0) {
+            drift.add(new RollupDriftDto(field, stored, actual));
+        }
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
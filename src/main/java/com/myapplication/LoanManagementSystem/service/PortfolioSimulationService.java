@@ -0,0 +1,284 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.simulation.ScenarioResultDto;
+import com.myapplication.LoanManagementSystem.dto.simulation.SimulationResultDto;
+import com.myapplication.LoanManagementSystem.dto.simulation.SimulationScenarioDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.projection.LoanTermsRow;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * What-if pricing of the active portfolio: how total repayable and interest would move if the
+ * matching loans had a different rate or period.
+ *
+ * The terms of every active loan are loaded once into primitive arrays (principal in cents, rate in
+ * basis points) and kept for a configurable time, so every scenario of a request, and of the requests
+ * that follow, prices the same snapshot. Loans are priced with the flat-interest terms LoanService
+ * gives new loans, in integer cents; the current side is recomputed the same way, so a delta only
+ * reflects the scenario. Scenarios run in parallel on a dedicated fork-join pool, each one summing
+ * over the loans with a parallel stream.
+ */
+@Service
+public class PortfolioSimulationService {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioSimulationService.class);
+
+    public static final int MAX_SCENARIOS = 50;
+
+    // Loans read per page while loading the snapshot
+    private static final int PAGE_SIZE = 5000;
+
+    private static final Frequency[] FREQUENCIES = Frequency.values();
+
+    // Indexes of the per-scenario sums
+    private static final int LOANS = 0;
+    private static final int CURRENT_INTEREST = 1;
+    private static final int SIMULATED_INTEREST = 2;
+    private static final int CURRENT_INSTALLMENTS = 3;
+    private static final int SIMULATED_INSTALLMENTS = 4;
+    private static final int PRINCIPAL = 5;
+    private static final int SUMS = 6;
+
+    @Value("${loans.simulation.snapshot-ttl-minutes:10}")
+    private long snapshotTtlMinutes;
+
+    // 0 uses one thread per processor
+    @Value("${loans.simulation.parallelism:0}")
+    private int parallelism;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    private ForkJoinPool pool;
+
+    private volatile Snapshot snapshot;
+
+    private final Object loadLock = new Object();
+
+    /**
+     * The active loans as parallel arrays; index i of every array is the same loan. Never modified
+     * once built, so scenarios read it without locking.
+     */
+    private record Snapshot(int size, long[] principalCents, int[] rateBasisPoints, int[] periods,
+                            byte[] frequencies, LocalDateTime takenAt, long expiresAtNanos) {
+    }
+
+    /**
+     * A scenario with its rates in basis points. A filter, newRate or newPeriod of -1 is not set.
+     */
+    private record Scenario(String name, int frequency, int currentRate, int currentPeriod,
+                            int newRate, int rateChange, int newPeriod, int periodChange) {
+    }
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Prices every scenario against the same snapshot of the active loans.
+     * @param refreshSnapshot reload the loans even if the cached snapshot has not expired
+     */
+    public SimulationResultDto simulate(List<SimulationScenarioDto> scenarios, boolean refreshSnapshot) {
+        if (scenarios == null || scenarios.isEmpty()) {
+            throw new RuntimeException("At least one scenario is required");
+        }
+        if (scenarios.size() > MAX_SCENARIOS) {
+            throw new RuntimeException("At most " + MAX_SCENARIOS + " scenarios can be simulated at once");
+        }
+        List<Scenario> compiled = IntStream.range(0, scenarios.size())
+                .mapToObj(i -> compile(scenarios.get(i), i))
+                .toList();
+        Snapshot loans = snapshot(refreshSnapshot);
+
+        List<ScenarioResultDto> results;
+        try {
+            results = pool.submit(() -> compiled.parallelStream().map(scenario -> evaluate(scenario, loans)).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Simulation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        SimulationResultDto result = new SimulationResultDto();
+        result.setSnapshotTakenAt(loans.takenAt());
+        result.setSnapshotLoans(loans.size());
+        result.setScenarios(results);
+        return result;
+    }
+
+    // The cached snapshot, loaded again once expired; concurrent callers wait for a single load
+    private Snapshot snapshot(boolean refresh) {
+        Snapshot current = snapshot;
+        if (!refresh && current != null && System.nanoTime() - current.expiresAtNanos() < 0) {
+            return current;
+        }
+        synchronized (loadLock) {
+            if (snapshot != current && snapshot != null) {
+                // Another caller loaded a fresh one while this one waited
+                return snapshot;
+            }
+            snapshot = load();
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() {
+        long started = System.nanoTime();
+        LocalDateTime takenAt = LocalDateTime.now();
+        int capacity = PAGE_SIZE;
+        long[] principals = new long[capacity];
+        int[] rates = new int[capacity];
+        int[] periods = new int[capacity];
+        byte[] frequencies = new byte[capacity];
+        int size = 0;
+
+        long afterId = 0;
+        List<LoanTermsRow> page;
+        do {
+            page = loanRepository.findLoanTermsAfter(afterId, LoanStatus.ACTIVE, Limit.of(PAGE_SIZE));
+            if (size + page.size() > capacity) {
+                capacity = Math.max(capacity * 2, size + page.size());
+                principals = Arrays.copyOf(principals, capacity);
+                rates = Arrays.copyOf(rates, capacity);
+                periods = Arrays.copyOf(periods, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            for (LoanTermsRow row : page) {
+                // A loan missing any of its terms cannot be priced
+                if (row.principalAmount() == null || row.interestRate() == null || row.repaymentPeriod() == null) {
+                    continue;
+                }
+                principals[size] = row.principalAmount().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+                rates[size] = row.interestRate().movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+                periods[size] = row.repaymentPeriod();
+                frequencies[size] = (byte) (row.repaymentFrequency() == null ? -1 : row.repaymentFrequency().ordinal());
+                size++;
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).loanId();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        long elapsed = System.nanoTime() - started;
+        log.info("Simulation snapshot of {} active loans loaded in {} ms", size, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        return new Snapshot(size, principals, rates, periods, frequencies, takenAt,
+                System.nanoTime() + TimeUnit.MINUTES.toNanos(snapshotTtlMinutes));
+    }
+
+    private ScenarioResultDto evaluate(Scenario scenario, Snapshot loans) {
+        long[] sums = IntStream.range(0, loans.size()).parallel()
+                .collect(() -> new long[SUMS], (acc, i) -> accumulate(scenario, loans, i, acc), (a, b) -> {
+                    for (int k = 0; k < SUMS; k++) {
+                        a[k] += b[k];
+                    }
+                });
+        BigDecimal principal = BigDecimal.valueOf(sums[PRINCIPAL], 2);
+        BigDecimal currentInterest = BigDecimal.valueOf(sums[CURRENT_INTEREST], 2);
+        BigDecimal simulatedInterest = BigDecimal.valueOf(sums[SIMULATED_INTEREST], 2);
+
+        ScenarioResultDto result = new ScenarioResultDto();
+        result.setName(scenario.name());
+        result.setLoansAffected(sums[LOANS]);
+        result.setCurrentTotalRepayable(principal.add(currentInterest));
+        result.setSimulatedTotalRepayable(principal.add(simulatedInterest));
+        result.setTotalRepayableDelta(simulatedInterest.subtract(currentInterest));
+        result.setCurrentInterest(currentInterest);
+        result.setSimulatedInterest(simulatedInterest);
+        result.setInterestDelta(simulatedInterest.subtract(currentInterest));
+        result.setCurrentInstallments(sums[CURRENT_INSTALLMENTS]);
+        result.setSimulatedInstallments(sums[SIMULATED_INSTALLMENTS]);
+        return result;
+    }
+
+    private static void accumulate(Scenario scenario, Snapshot loans, int i, long[] acc) {
+        int frequency = loans.frequencies()[i];
+        int rate = loans.rateBasisPoints()[i];
+        int period = loans.periods()[i];
+        if ((scenario.frequency() != -1 && scenario.frequency() != frequency)
+                || (scenario.currentRate() != -1 && scenario.currentRate() != rate)
+                || (scenario.currentPeriod() != -1 && scenario.currentPeriod() != period)) {
+            return;
+        }
+        int newRate = scenario.newRate() != -1 ? scenario.newRate() : Math.max(0, rate + scenario.rateChange());
+        int newPeriod = scenario.newPeriod() != -1 ? scenario.newPeriod() : Math.max(1, period + scenario.periodChange());
+        Frequency loanFrequency = frequency == -1 ? null : FREQUENCIES[frequency];
+        long principal = loans.principalCents()[i];
+
+        acc[LOANS]++;
+        acc[PRINCIPAL] += principal;
+        acc[CURRENT_INTEREST] += interestCents(principal, rate);
+        acc[SIMULATED_INTEREST] += interestCents(principal, newRate);
+        acc[CURRENT_INSTALLMENTS] += LoanQuoteService.installmentCount(period, loanFrequency);
+        acc[SIMULATED_INSTALLMENTS] += LoanQuoteService.installmentCount(newPeriod, loanFrequency);
+    }
+
+    // principal * rate / 100 rounded half-up to cents, as in LoanQuoteService.loanTerms
+    private static long interestCents(long principalCents, int rateBasisPoints) {
+        return Math.addExact(Math.multiplyExact(principalCents, rateBasisPoints), 5_000) / 10_000;
+    }
+
+    private static Scenario compile(SimulationScenarioDto dto, int index) {
+        String name = dto.getName() != null ? dto.getName() : "scenario " + (index + 1);
+        if (dto.getNewRate() != null && dto.getRateChange() != null) {
+            throw new RuntimeException(name + ": set newRate or rateChange, not both");
+        }
+        if (dto.getNewPeriod() != null && dto.getPeriodChange() != null) {
+            throw new RuntimeException(name + ": set newPeriod or periodChange, not both");
+        }
+        if (dto.getNewRate() == null && dto.getRateChange() == null
+                && dto.getNewPeriod() == null && dto.getPeriodChange() == null) {
+            throw new RuntimeException(name + ": no rate or period change given");
+        }
+        if (dto.getNewRate() != null && dto.getNewRate().signum() < 0) {
+            throw new RuntimeException(name + ": newRate must not be negative");
+        }
+        if (dto.getNewPeriod() != null && dto.getNewPeriod() <= 0) {
+            throw new RuntimeException(name + ": newPeriod must be greater than zero");
+        }
+        return new Scenario(name,
+                dto.getFrequency() == null ? -1 : dto.getFrequency().ordinal(),
+                dto.getCurrentRate() == null ? -1 : basisPoints(dto.getCurrentRate(), name),
+                dto.getCurrentPeriod() == null ? -1 : dto.getCurrentPeriod(),
+                dto.getNewRate() == null ? -1 : basisPoints(dto.getNewRate(), name),
+                dto.getRateChange() == null ? 0 : basisPoints(dto.getRateChange(), name),
+                dto.getNewPeriod() == null ? -1 : dto.getNewPeriod(),
+                dto.getPeriodChange() == null ? 0 : dto.getPeriodChange());
+    }
+
+    private static int basisPoints(BigDecimal rate, String name) {
+        try {
+            return rate.setScale(2, RoundingMode.UNNECESSARY).movePointRight(2).intValueExact();
+        } catch (ArithmeticException e) {
+            throw new RuntimeException(name + ": rates can have at most two decimals, got " + rate);
+        }
+    }
+}
@@ -5,7 +5,9 @@ import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
 import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +17,12 @@ public class RepaymentScheduleService {
     @Autowired
     private RepaymentScheduleRepository repaymentScheduleRepository;
 
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private CashflowProjectionService cashflowProjectionService;
+
     public List<RepaymentSchedule> getAllSchedules(){
         return repaymentScheduleRepository.findAll();
     }
@@ -23,12 +31,18 @@ public class RepaymentScheduleService {
         return repaymentScheduleRepository.findById(id);
     }
 
+    @Transactional
     public RepaymentSchedule createSchedule(RepaymentSchedule schedule){
-        return repaymentScheduleRepository.save(schedule);
+        RepaymentSchedule created = repaymentScheduleRepository.save(schedule);
+        portfolioRollupService.paymentPosted(loanId(created), created.getAmountPaid());
+        cashflowProjectionService.schedulesChanged();
+        return created;
     }
 
+    @Transactional
     public RepaymentSchedule updateSchedule(Long id, RepaymentSchedule scheduleDetails){
         return repaymentScheduleRepository.findById(id).map(schedule -> {
+            BigDecimal paidBefore = orZero(schedule.getAmountPaid());
             schedule.setDueDate(scheduleDetails.getDueDate());
             schedule.setAmountDue(scheduleDetails.getAmountDue());
             schedule.setEmi(scheduleDetails.getEmi());
@@ -38,11 +52,27 @@ public class RepaymentScheduleService {
             schedule.setCreatedAt(scheduleDetails.getCreatedAt());
             // Update the associated loan if needed.
             schedule.setLoan(scheduleDetails.getLoan());
-            return repaymentScheduleRepository.save(schedule);
+            RepaymentSchedule updated = repaymentScheduleRepository.save(schedule);
+            portfolioRollupService.paymentPosted(loanId(updated), orZero(updated.getAmountPaid()).subtract(paidBefore));
+            cashflowProjectionService.schedulesChanged();
+            return updated;
         }).orElseThrow(() -> new RuntimeException("Repayment Schedule not found with id " + id));
     }
 
+    @Transactional
     public void deleteSchedule(Long id){
-        repaymentScheduleRepository.deleteById(id);
+        repaymentScheduleRepository.findById(id).ifPresent(schedule -> {
+            portfolioRollupService.paymentPosted(loanId(schedule), orZero(schedule.getAmountPaid()).negate());
+            cashflowProjectionService.schedulesChanged();
+            repaymentScheduleRepository.delete(schedule);
+        });
+    }
+
+    private static Long loanId(RepaymentSchedule schedule) {
+        return schedule.getLoan() == null ? null : schedule.getLoan().getId();
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
     }
 }
@@ -0,0 +1,173 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.model.BackfillMarker;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.TrendBucket;
+import com.myapplication.LoanManagementSystem.model.TrendGranularity;
+import com.myapplication.LoanManagementSystem.model.TrendKind;
+import com.myapplication.LoanManagementSystem.repository.BackfillMarkerRepository;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.PaymentRepository;
+import com.myapplication.LoanManagementSystem.repository.TrendBucketRepository;
+import com.myapplication.LoanManagementSystem.repository.projection.DailyTotal;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the daily and monthly disbursement/collection buckets behind /stats/trends up to date.
+ * Changes are recorded inside the caller's transaction, like the portfolio rollup.
+ */
+@Service
+public class TrendBucketService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendBucketService.class);
+
+    static final String BACKFILL = "trend-buckets";
+
+    @Autowired
+    private TrendBucketRepository trendBucketRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private BackfillMarkerRepository backfillMarkerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Adds count and amount to the day and month buckets containing the given date.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(TrendKind kind, LocalDate date, long count, BigDecimal amount) {
+        if (date == null || amount == null || (count == 0 && amount.signum() == 0)) {
+            return;
+        }
+        for (TrendGranularity granularity : TrendGranularity.values()) {
+            trendBucketRepository.upsert(kind.name(), granularity.name(), granularity.bucketStart(date), count, amount);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loanCreated(Loan loan) {
+        record(TrendKind.DISBURSEMENT, disbursementDate(loan), 1, loan.getPrincipalAmount());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void principalChanged(Loan loan, BigDecimal principalBefore) {
+        BigDecimal delta = loan.getPrincipalAmount().subtract(principalBefore == null ? BigDecimal.ZERO : principalBefore);
+        record(TrendKind.DISBURSEMENT, disbursementDate(loan), 0, delta);
+    }
+
+    /**
+     * Takes a loan's disbursement and all of its payments out of the buckets.
+     * Must be called before the loan (and, by cascade, its payments) is deleted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loanDeleted(Loan loan) {
+        record(TrendKind.DISBURSEMENT, disbursementDate(loan), -1, loan.getPrincipalAmount().negate());
+        paymentsDeleted(loan.getId());
+    }
+
+    /**
+     * Takes the payments recorded against a loan out of the collection buckets, before they are deleted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void paymentsDeleted(Long loanId) {
+        for (DailyTotal day : paymentRepository.sumPaymentsByDayForLoan(loanId)) {
+            record(TrendKind.COLLECTION, toDate(day), -day.getCount(), day.getAmount().negate());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<TrendBucket> getBuckets(TrendKind kind, TrendGranularity granularity, LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return trendBucketRepository.findByKindAndGranularityOrderByPeriodStart(kind, granularity);
+        }
+        LocalDate start = from == null ? LocalDate.of(1970, 1, 1) : granularity.bucketStart(from);
+        LocalDate end = to == null ? LocalDate.of(9999, 12, 31) : to;
+        return trendBucketRepository.findByKindAndGranularityAndPeriodStartBetweenOrderByPeriodStart(kind, granularity, start, end);
+    }
+
+    /**
+     * Recomputes every bucket from the loans and payments tables.
+     */
+    @Transactional
+    public void rebuild() {
+        trendBucketRepository.deleteAllInBatch();
+        List<TrendBucket> buckets = new ArrayList<>();
+        buckets.addAll(toBuckets(TrendKind.DISBURSEMENT, loanRepository.sumDisbursementsByDay()));
+        buckets.addAll(toBuckets(TrendKind.COLLECTION, paymentRepository.sumPaymentsByDay()));
+        trendBucketRepository.saveAll(buckets);
+    }
+
+    /**
+     * Backfills the buckets the first time the application starts against existing data. Runs before
+     * the web server starts, so no request records into a bucket the backfill is about to replace.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            transaction.executeWithoutResult(status -> {
+                if (!backfillMarkerRepository.existsById(BACKFILL)) {
+                    rebuild();
+                    backfillMarkerRepository.saveAndFlush(new BackfillMarker(BACKFILL, LocalDateTime.now()));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance starting at the same time backfilled first
+            log.info("Trend buckets were backfilled by another instance");
+        }
+    }
+
+    private List<TrendBucket> toBuckets(TrendKind kind, List<DailyTotal> days) {
+        Map<String, TrendBucket> buckets = new LinkedHashMap<>();
+        for (DailyTotal day : days) {
+            LocalDate date = toDate(day);
+            for (TrendGranularity granularity : TrendGranularity.values()) {
+                LocalDate periodStart = granularity.bucketStart(date);
+                TrendBucket bucket = buckets.computeIfAbsent(granularity + ":" + periodStart,
+                        key -> new TrendBucket(kind, granularity, periodStart));
+                bucket.setCount(bucket.getCount() + day.getCount());
+                bucket.setAmount(bucket.getAmount().add(day.getAmount() == null ? BigDecimal.ZERO : day.getAmount()));
+            }
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    private static LocalDate disbursementDate(Loan loan) {
+        return loan.getCreatedAt() == null ? LocalDate.now() : loan.getCreatedAt().toLocalDate();
+    }
+
+    private static LocalDate toDate(DailyTotal day) {
+        return LocalDate.of(day.getYear(), day.getMonth(), day.getDay());
+    }
+}
@@ -0,0 +1,41 @@
+package com.myapplication.LoanManagementSystem.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Publishes the hits, misses, hit ratio and size of a BoundedCache, tagged with the cache name.
+ */
+public final class CacheMetrics {
+
+    private CacheMetrics() {
+    }
+
+    public static void register(MeterRegistry meterRegistry, String name, BoundedCache<?, ?> cache) {
+        FunctionCounter.builder("cache.gets", cache, BoundedCache::hits)
+                .description("Cache lookups, by result")
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", cache, BoundedCache::misses)
+                .description("Cache lookups, by result")
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("cache.hit.ratio", cache, CacheMetrics::hitRatio)
+                .description("Share of lookups served from the cache since startup")
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", cache, BoundedCache::size)
+                .description("Entries in the cache")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    private static double hitRatio(BoundedCache<?, ?> cache) {
+        long hits = cache.hits();
+        long lookups = hits + cache.misses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
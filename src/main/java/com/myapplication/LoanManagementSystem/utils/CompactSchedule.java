@@ -0,0 +1,136 @@
+package com.myapplication.LoanManagementSystem.utils;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * The rule behind a loan with a compact schedule: installment n (1-based) falls due n weeks or
+ * months after the start date, and every installment is the same amount except the last, which
+ * also carries the rounding difference. Only installments that have received money (or been
+ * edited) are stored as repayment_schedule rows; the rest are derived from the rule when needed.
+ *
+ * An installment without a row is addressed by a negative virtual schedule id that encodes the
+ * loan id and installment number, so clients can pay it like any other installment.
+ */
+public record CompactSchedule(Long loanId, LocalDate startDate, Frequency frequency, BigDecimal installmentAmount,
+                              BigDecimal finalAdjustment, int count, LocalDateTime createdAt) {
+
+    // Installment numbers must stay below this for virtual ids to be decodable
+    public static final int MAX_INSTALLMENTS = 10_000;
+
+    public static CompactSchedule of(Loan loan) {
+        return new CompactSchedule(loan.getId(), loan.getScheduleStartDate(), loan.getRepaymentFrequency(),
+                loan.getInstallmentAmount(), loan.getFinalInstallmentAdjustment(), loan.getNumberOfInstallments(),
+                loan.getCreatedAt());
+    }
+
+    public LocalDate dueDate(int installment) {
+        return frequency == Frequency.WEEKLY ? startDate.plusWeeks(installment) : startDate.plusMonths(installment);
+    }
+
+    public BigDecimal amountDue(int installment) {
+        if (installment == count && finalAdjustment != null) {
+            return installmentAmount.add(finalAdjustment);
+        }
+        return installmentAmount;
+    }
+
+    /**
+     * Status of an installment without a row: nothing has been paid on it, so it is LATE once its due
+     * date has passed, the same as the overdue job would mark a stored row.
+     */
+    public RepaymentStatus statusOf(int installment) {
+        return dueDate(installment).isBefore(LocalDate.now()) ? RepaymentStatus.LATE : RepaymentStatus.PENDING;
+    }
+
+    public long virtualId(int installment) {
+        return virtualId(loanId, installment);
+    }
+
+    /**
+     * An unsaved schedule row for the installment, in the state the rule gives it (nothing paid).
+     */
+    public RepaymentSchedule newInstallment(Loan loan, int installment) {
+        RepaymentSchedule schedule = new RepaymentSchedule();
+        schedule.setLoan(loan);
+        schedule.setInstallmentNumber(installment);
+        schedule.setDueDate(dueDate(installment));
+        schedule.setAmountDue(amountDue(installment));
+        if (frequency == Frequency.WEEKLY) {
+            schedule.setEwi(amountDue(installment));
+        } else {
+            schedule.setEmi(amountDue(installment));
+        }
+        schedule.setAmountPaid(BigDecimal.ZERO);
+        schedule.setPaymentStatus(statusOf(installment));
+        schedule.setCreatedAt(createdAt);
+        return schedule;
+    }
+
+    /**
+     * All installments in order: the stored item where there is one, otherwise the one made by virtualItem.
+     */
+    public <T> List<T> expand(Map<Integer, T> stored, IntFunction<T> virtualItem) {
+        List<T> items = new ArrayList<>(count);
+        for (int installment = 1; installment <= count; installment++) {
+            T item = stored.get(installment);
+            items.add(item != null ? item : virtualItem.apply(installment));
+        }
+        return items;
+    }
+
+    /**
+     * The loan's installments as entities, in due date order. For a compact loan the installments
+     * without a row are unsaved entities with a null id; see scheduleIdOf.
+     */
+    public static List<RepaymentSchedule> installmentsOf(Loan loan) {
+        List<RepaymentSchedule> rows = loan.getRepaymentSchedules() == null ? List.of() : loan.getRepaymentSchedules();
+        if (!loan.isCompactSchedule()) {
+            return rows;
+        }
+        CompactSchedule rule = of(loan);
+        Map<Integer, RepaymentSchedule> stored = new HashMap<>();
+        for (RepaymentSchedule row : rows) {
+            stored.put(row.getInstallmentNumber(), row);
+        }
+        List<RepaymentSchedule> installments = new ArrayList<>(rule.expand(stored, n -> rule.newInstallment(loan, n)));
+        // A stored installment may have been moved to another due date
+        installments.sort(Comparator.comparing(RepaymentSchedule::getDueDate));
+        return installments;
+    }
+
+    /**
+     * The id clients use for the installment: the row id, or the virtual id if it has no row yet.
+     */
+    public static Long scheduleIdOf(Loan loan, RepaymentSchedule schedule) {
+        return schedule.getId() != null ? schedule.getId() : virtualId(loan.getId(), schedule.getInstallmentNumber());
+    }
+
+    public static long virtualId(long loanId, int installment) {
+        return -(loanId * MAX_INSTALLMENTS + installment);
+    }
+
+    public static boolean isVirtualId(Long scheduleId) {
+        return scheduleId != null && scheduleId < 0;
+    }
+
+    public static long loanIdOf(long virtualId) {
+        return -virtualId / MAX_INSTALLMENTS;
+    }
+
+    public static int installmentOf(long virtualId) {
+        return (int) (-virtualId % MAX_INSTALLMENTS);
+    }
+}
@@ -0,0 +1,101 @@
+package com.myapplication.LoanManagementSystem.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a UTF-8 text file line by line in chunks, starting at any byte offset, and reports the byte
+ * offset just after the last line returned. Import jobs store that offset as their checkpoint and
+ * reopen the file there after a restart. Accepts \n and \r\n line endings.
+ */
+public class LineChunkReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long position;
+    private boolean endOfFile;
+
+    public LineChunkReader(Path file, long startOffset) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.channel.position(startOffset);
+        this.position = startOffset;
+        // Start empty so the first read fills the buffer
+        this.buffer.flip();
+    }
+
+    /**
+     * Returns up to maxLines lines, or an empty list once the end of the file has been reached.
+     */
+    public List<String> readLines(int maxLines) throws IOException {
+        List<String> lines = new ArrayList<>(maxLines);
+        while (lines.size() < maxLines) {
+            if (!buffer.hasRemaining()) {
+                if (endOfFile) {
+                    break;
+                }
+                buffer.clear();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) {
+                    endOfFile = true;
+                    // Last line without a trailing newline
+                    if (lineLength > 0) {
+                        lines.add(takeLine());
+                    }
+                    break;
+                }
+            }
+            while (buffer.hasRemaining() && lines.size() < maxLines) {
+                byte b = buffer.get();
+                position++;
+                if (b == '\n') {
+                    lines.add(takeLine());
+                } else {
+                    append(b);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Byte offset just after the last line returned by readLines.
+     */
+    public long position() {
+        return position - lineLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void append(byte b) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[lineLength++] = b;
+    }
+
+    private String takeLine() {
+        int length = lineLength;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        String text = new String(line, 0, length, StandardCharsets.UTF_8);
+        lineLength = 0;
+        return text;
+    }
+}
@@ -9,6 +9,29 @@ import java.time.LocalDate;
 
 public class LoanCalculator {
 
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    private static final BigDecimal TWELVE = new BigDecimal("12");
+
+    // Rates and periods that cover practically every quote; BigDecimal is immutable, so the
+    // precomputed quotients are shared. Values outside the tables are computed the same way.
+    private static final int CACHED_RATES = 101;
+
+    private static final int CACHED_PERIODS = 601;
+
+    private static final BigDecimal[] RATE_DECIMALS = new BigDecimal[CACHED_RATES];
+
+    private static final BigDecimal[] PERIODS_IN_YEARS = new BigDecimal[CACHED_PERIODS];
+
+    static {
+        for (int rate = 0; rate < CACHED_RATES; rate++) {
+            RATE_DECIMALS[rate] = rateDecimal(rate);
+        }
+        for (int period = 0; period < CACHED_PERIODS; period++) {
+            PERIODS_IN_YEARS[period] = periodInYears(period);
+        }
+    }
+
     /**
      * Calculates loan repayment details.
      * @param principal the principal amount
@@ -18,14 +41,23 @@ public class LoanCalculator {
      * @return the calculated response including total repayable, due date, EMI/EWI and number of installments
      */
     public static LoanCalculationResponseDto calculateLoan(BigDecimal principal, int repaymentPeriod, int interestRate, Frequency frequency) {
+        return calculateLoan(principal, repaymentPeriod, interestRate, frequency, LocalDate.now());
+    }
+
+    /**
+     * Same as calculateLoan, with the due date counted from the given date.
+     */
+    public static LoanCalculationResponseDto calculateLoan(BigDecimal principal, int repaymentPeriod, int interestRate,
+                                                           Frequency frequency, LocalDate createdAt) {
         LoanCalculationResponseDto result = new LoanCalculationResponseDto();
 
         // Convert whole number interest rate to a decimal (e.g., 10 becomes 0.10)
-        BigDecimal interestRateDecimal = new BigDecimal(interestRate).divide(new BigDecimal("100"), MathContext.DECIMAL64);
+        BigDecimal interestRateDecimal = interestRate >= 0 && interestRate < CACHED_RATES
+                ? RATE_DECIMALS[interestRate] : rateDecimal(interestRate);
 
         // Convert repayment period from months to years for interest calculation
-        BigDecimal periodInYears = new BigDecimal(repaymentPeriod)
-                .divide(new BigDecimal("12"), MathContext.DECIMAL64);
+        BigDecimal periodInYears = repaymentPeriod >= 0 && repaymentPeriod < CACHED_PERIODS
+                ? PERIODS_IN_YEARS[repaymentPeriod] : periodInYears(repaymentPeriod);
 
         // Calculate simple interest: Interest = Principal * Interest Rate * Time (in years)
         BigDecimal interest = principal.multiply(interestRateDecimal)
@@ -37,14 +69,13 @@ public class LoanCalculator {
         result.setTotalRepayableAmount(totalRepayableAmount);
 
         // Calculate due date: current date plus repayment period (in months)
-        LocalDate createdAt = LocalDate.now();
         LocalDate dueDate = createdAt.plusMonths(repaymentPeriod);
         result.setDueDate(dueDate);
 
         if (frequency == Frequency.MONTHLY) {
             // For monthly frequency, the number of installments equals the repayment period (in months)
             int installments = repaymentPeriod;
-            BigDecimal emi = totalRepayableAmount.divide(new BigDecimal(installments), 2, RoundingMode.HALF_UP);
+            BigDecimal emi = installmentAmount(totalRepayableAmount, installments);
             result.setEmi(emi);
             result.setNumberOfInstallments(installments);
             result.setEwi(null);  // Not applicable for monthly
@@ -52,7 +83,7 @@ public class LoanCalculator {
             // For weekly frequency, we convert the period to an approximate number of weeks.
             // Here, we use 4.345 as the average number of weeks per month.
             int installments = (int) Math.ceil(repaymentPeriod * 4.345);
-            BigDecimal ewi = totalRepayableAmount.divide(new BigDecimal(installments), 2, RoundingMode.HALF_UP);
+            BigDecimal ewi = installmentAmount(totalRepayableAmount, installments);
             result.setEwi(ewi);
             result.setNumberOfInstallments(installments);
             result.setEmi(null);  // Not applicable for weekly
@@ -60,4 +91,29 @@ public class LoanCalculator {
 
         return result;
     }
+
+    /**
+     * total / installments rounded half-up to cents. The total already has scale 2, so while it fits in
+     * a long this is an integer division on cents; the result equals the BigDecimal division.
+     */
+    private static BigDecimal installmentAmount(BigDecimal total, int installments) {
+        if (installments <= 0 || total.scale() != 2 || total.unscaledValue().bitLength() > 62) {
+            return total.divide(new BigDecimal(installments), 2, RoundingMode.HALF_UP);
+        }
+        long cents = total.unscaledValue().longValue();
+        long quotient = cents / installments;
+        long remainder = Math.abs(cents % installments);
+        if (remainder * 2 >= installments) {
+            quotient += Long.signum(cents);
+        }
+        return BigDecimal.valueOf(quotient, 2);
+    }
+
+    private static BigDecimal rateDecimal(int interestRate) {
+        return new BigDecimal(interestRate).divide(HUNDRED, MathContext.DECIMAL64);
+    }
+
+    private static BigDecimal periodInYears(int repaymentPeriod) {
+        return new BigDecimal(repaymentPeriod).divide(TWELVE, MathContext.DECIMAL64);
+    }
 }
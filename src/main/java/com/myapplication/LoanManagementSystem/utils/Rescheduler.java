@@ -0,0 +1,196 @@
+package com.myapplication.LoanManagementSystem.utils;
+
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Reshapes a loan's repayment schedule in place after its terms change.
+ *
+ * Installments that have received money are kept exactly as they are, together with their payments.
+ * The balance they do not cover is spread evenly over the open installments, which take the lowest
+ * installment numbers not held by a kept one; the last open installment carries the rounding
+ * difference. Open rows that keep their number are updated only where a value changed, extra rows
+ * are removed and missing ones added, so Hibernate writes just the delta.
+ */
+public final class Rescheduler {
+
+    private Rescheduler() {
+    }
+
+    /**
+     * The date installment n is counted from. Loans created before the start date was stored get it
+     * from their first row, using the frequency the rows were generated with.
+     */
+    public static LocalDate startDate(Loan loan) {
+        if (loan.getScheduleStartDate() != null) {
+            return loan.getScheduleStartDate();
+        }
+        List<RepaymentSchedule> rows = loan.getRepaymentSchedules() == null ? List.of() : loan.getRepaymentSchedules();
+        RepaymentSchedule first = rows.stream()
+                .filter(row -> row.getDueDate() != null)
+                .min(Comparator.comparing(RepaymentSchedule::getDueDate))
+                .orElse(null);
+        if (first != null) {
+            int number = first.getInstallmentNumber() != null ? first.getInstallmentNumber() : 1;
+            return loan.getRepaymentFrequency() == Frequency.WEEKLY
+                    ? first.getDueDate().minusWeeks(number)
+                    : first.getDueDate().minusMonths(number);
+        }
+        return loan.getCreatedAt() != null ? loan.getCreatedAt().toLocalDate() : LocalDate.now();
+    }
+
+    public static LocalDate dueDate(LocalDate start, Frequency frequency, int installment) {
+        return frequency == Frequency.WEEKLY ? start.plusWeeks(installment) : start.plusMonths(installment);
+    }
+
+    /**
+     * Fits the loan's schedule to the given number of installments and total repayable amount.
+     * The loan's frequency must already be the new one.
+     *
+     * @return the number of installments in the new schedule
+     */
+    public static int reschedule(Loan loan, LocalDate start, int installments, BigDecimal totalRepayable) {
+        if (loan.getRepaymentSchedules() == null) {
+            loan.setRepaymentSchedules(new ArrayList<>());
+        }
+        List<RepaymentSchedule> rows = loan.getRepaymentSchedules();
+        numberUnnumberedRows(rows);
+
+        Set<Integer> kept = new HashSet<>();
+        BigDecimal keptDue = BigDecimal.ZERO;
+        Map<Integer, RepaymentSchedule> open = new HashMap<>();
+        int lastKept = 0;
+        for (RepaymentSchedule row : rows) {
+            if (hasReceivedMoney(row)) {
+                kept.add(row.getInstallmentNumber());
+                keptDue = keptDue.add(orZero(row.getAmountDue()));
+                lastKept = Math.max(lastKept, row.getInstallmentNumber());
+            } else {
+                open.put(row.getInstallmentNumber(), row);
+            }
+        }
+
+        BigDecimal outstanding = totalRepayable.subtract(keptDue);
+        // Gaps below the last kept installment are always filled so installments stay numbered 1..n
+        int gaps = lastKept - kept.size();
+        int openCount;
+        if (outstanding.signum() <= 0) {
+            openCount = gaps;
+        } else {
+            openCount = Math.max(Math.max(installments - kept.size(), gaps), 1);
+        }
+        Set<Integer> slots = new HashSet<>();
+        int last = 0;
+        for (int n = 1; slots.size() < openCount; n++) {
+            if (!kept.contains(n)) {
+                slots.add(n);
+                last = n;
+            }
+        }
+        int count = Math.max(last, lastKept);
+
+        BigDecimal amount = BigDecimal.ZERO;
+        BigDecimal adjustment = BigDecimal.ZERO;
+        if (openCount > 0 && outstanding.signum() > 0) {
+            amount = outstanding.divide(BigDecimal.valueOf(openCount), 2, RoundingMode.HALF_UP);
+            adjustment = outstanding.subtract(amount.multiply(BigDecimal.valueOf(openCount)));
+        }
+
+        // Open installments that are no longer part of the schedule
+        rows.removeIf(row -> !hasReceivedMoney(row) && !slots.contains(row.getInstallmentNumber()));
+
+        Frequency frequency = loan.getRepaymentFrequency();
+        for (int n : slots) {
+            BigDecimal due = n == last ? amount.add(adjustment) : amount;
+            RepaymentSchedule row = open.get(n);
+            if (row == null) {
+                // A compact schedule derives open installments from the rule; only an installment the
+                // rule cannot express (the rounding difference not on the final one) needs a row
+                if (loan.isCompactSchedule() && (n != last || last == count)) {
+                    continue;
+                }
+                row = new RepaymentSchedule();
+                row.setLoan(loan);
+                row.setInstallmentNumber(n);
+                row.setAmountPaid(BigDecimal.ZERO);
+                row.setPaymentStatus(RepaymentStatus.PENDING);
+                row.setCreatedAt(LocalDateTime.now());
+                rows.add(row);
+            }
+            update(row, dueDate(start, frequency, n), due, frequency);
+        }
+
+        loan.setScheduleStartDate(start);
+        if (loan.isCompactSchedule()) {
+            loan.setInstallmentAmount(amount);
+            loan.setFinalInstallmentAdjustment(last == count ? adjustment : BigDecimal.ZERO);
+        }
+        return count;
+    }
+
+    // Sets the values that differ, so an unchanged installment is not written
+    private static void update(RepaymentSchedule row, LocalDate dueDate, BigDecimal due, Frequency frequency) {
+        if (!dueDate.equals(row.getDueDate())) {
+            row.setDueDate(dueDate);
+        }
+        if (row.getAmountDue() == null || row.getAmountDue().compareTo(due) != 0) {
+            row.setAmountDue(due);
+        }
+        BigDecimal emi = frequency == Frequency.WEEKLY ? null : due;
+        BigDecimal ewi = frequency == Frequency.WEEKLY ? due : null;
+        if (!sameAmount(row.getEmi(), emi)) {
+            row.setEmi(emi);
+        }
+        if (!sameAmount(row.getEwi(), ewi)) {
+            row.setEwi(ewi);
+        }
+        // Nothing is owed on a zero installment, e.g. when the new total is already covered. An installment
+        // moved to a date that has not passed is no longer late.
+        RepaymentStatus status = due.signum() == 0 ? RepaymentStatus.PAID
+                : row.getPaymentStatus() == RepaymentStatus.PAID ? RepaymentStatus.PENDING
+                : row.getPaymentStatus() == RepaymentStatus.LATE && !dueDate.isBefore(LocalDate.now()) ? RepaymentStatus.PENDING
+                : row.getPaymentStatus();
+        if (status != row.getPaymentStatus()) {
+            row.setPaymentStatus(status);
+        }
+    }
+
+    // Rows from before installment numbers were stored are numbered by due date
+    private static void numberUnnumberedRows(List<RepaymentSchedule> rows) {
+        if (rows.stream().allMatch(row -> row.getInstallmentNumber() != null)) {
+            return;
+        }
+        List<RepaymentSchedule> byDueDate = new ArrayList<>(rows);
+        byDueDate.sort(Comparator.comparing(RepaymentSchedule::getDueDate, Comparator.nullsLast(Comparator.naturalOrder())));
+        for (int i = 0; i < byDueDate.size(); i++) {
+            byDueDate.get(i).setInstallmentNumber(i + 1);
+        }
+    }
+
+    private static boolean hasReceivedMoney(RepaymentSchedule row) {
+        return row.getAmountPaid() != null && row.getAmountPaid().signum() > 0;
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return Objects.equals(a, b) || (a != null && b != null && a.compareTo(b) == 0);
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
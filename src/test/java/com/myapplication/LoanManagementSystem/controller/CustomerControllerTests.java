@@ -0,0 +1,187 @@
+package com.myapplication.LoanManagementSystem.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsPageDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.repository.CustomerRepository;
+import com.myapplication.LoanManagementSystem.service.CustomerDetailsService;
+import com.myapplication.LoanManagementSystem.service.LoanService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Walking the keyset pages by their cursors, and reading the NDJSON stream, both return every
+ * customer exactly once, in id order and with the same details as the full listing. Customers
+ * added during a walk do not shift the pages already read.
+ */
+// Own context: the customers added here would change the statement counts of the other details tests
+@SpringBootTest(properties = "loans.overdue.partitions=4")
+class CustomerControllerTests {
+
+    // More than one of the service's fetch chunks, so the stream crosses a chunk boundary
+    private static final int CUSTOMERS = 520;
+
+    @Autowired
+    private CustomerController customerController;
+
+    @Autowired
+    private CustomerDetailsService customerDetailsService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void createCustomers() {
+        if (customerRepository.count() >= CUSTOMERS) {
+            return;
+        }
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Customer();
+            customer.setFirstname("Page" + i);
+            customer.setLastname("Test");
+            customer.setNationalIdentityCard("PG-" + i + "-" + System.nanoTime());
+            customer.setRegistrationDate(LocalDate.now());
+            customers.add(customer);
+        }
+        customers = customerRepository.saveAll(customers);
+        // A few with loans, on both sides of the chunk boundary
+        for (int i : new int[]{0, 1, 499, 500, 519}) {
+            LoanRequestDto dto = new LoanRequestDto();
+            dto.setCustomerId(customers.get(i).getId());
+            dto.setPrincipalAmount(new BigDecimal("1200"));
+            dto.setInterestRate(10);
+            dto.setRepaymentPeriod(3);
+            dto.setRepaymentFrequency(Frequency.MONTHLY);
+            loanService.createLoan(dto);
+        }
+    }
+
+    @Test
+    void pagesFollowTheCursorToTheEnd() {
+        List<CustomerDetailsDto> all = customerDetailsService.getAllCustomerDetails();
+        List<CustomerDetailsDto> paged = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            CustomerDetailsPageDto page = customerController.getCustomerDetailsPage(cursor, 150).getBody();
+            pages++;
+            assertTrue(page.getCustomers().size() <= 150);
+            paged.addAll(page.getCustomers());
+            if (page.getNextCursor() != null) {
+                // The cursor is the last id of the page
+                assertEquals(page.getCustomers().get(page.getCustomers().size() - 1).getId(), page.getNextCursor());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals((all.size() + 149) / 150, pages);
+        assertEquals(all, paged);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        List<Long> ids = customerRepository.findAll().stream().map(Customer::getId).sorted().toList();
+
+        // Exactly the remaining customers: no further page, even though the page is full
+        CustomerDetailsPageDto page = customerController.getCustomerDetailsPage(ids.get(ids.size() - 3), 2).getBody();
+        assertEquals(List.of(ids.get(ids.size() - 2), ids.get(ids.size() - 1)),
+                page.getCustomers().stream().map(CustomerDetailsDto::getId).toList());
+        assertNull(page.getNextCursor());
+
+        page = customerController.getCustomerDetailsPage(ids.get(ids.size() - 1), 2).getBody();
+        assertTrue(page.getCustomers().isEmpty());
+        assertNull(page.getNextCursor());
+
+        // Sizes are clamped to 1..MAX_PAGE_SIZE
+        page = customerController.getCustomerDetailsPage(null, 0).getBody();
+        assertEquals(List.of(ids.get(0)), page.getCustomers().stream().map(CustomerDetailsDto::getId).toList());
+        assertEquals(ids.get(0), page.getNextCursor());
+        page = customerController.getCustomerDetailsPage(null, 10_000).getBody();
+        assertEquals(CustomerDetailsService.MAX_PAGE_SIZE, page.getCustomers().size());
+        assertEquals(ids.get(CustomerDetailsService.MAX_PAGE_SIZE - 1), page.getNextCursor());
+    }
+
+    @Test
+    void customersAddedDuringTheWalkDoNotShiftThePages() {
+        List<Long> before = customerRepository.findAll().stream().map(Customer::getId).sorted().toList();
+        CustomerDetailsPageDto first = customerController.getCustomerDetailsPage(null, 100).getBody();
+        List<Long> walked = new ArrayList<>(first.getCustomers().stream().map(CustomerDetailsDto::getId).toList());
+
+        // An offset would now skip or repeat a row; the cursor carries on after the last id read
+        Customer added = new Customer();
+        added.setFirstname("Late");
+        added.setLastname("Arrival");
+        added.setNationalIdentityCard("LA-" + System.nanoTime());
+        added.setRegistrationDate(LocalDate.now());
+        added = customerRepository.save(added);
+
+        Long cursor = first.getNextCursor();
+        while (cursor != null) {
+            CustomerDetailsPageDto page = customerController.getCustomerDetailsPage(cursor, 100).getBody();
+            walked.addAll(page.getCustomers().stream().map(CustomerDetailsDto::getId).toList());
+            cursor = page.getNextCursor();
+        }
+
+        List<Long> expected = new ArrayList<>(before);
+        expected.add(added.getId());
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    void streamWritesOneCustomerPerLine() throws IOException {
+        List<CustomerDetailsDto> all = customerDetailsService.getAllCustomerDetails();
+
+        ResponseEntity<StreamingResponseBody> response = customerController.streamCustomerDetails();
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertTrue(body.endsWith("\n"));
+        List<CustomerDetailsDto> streamed = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            streamed.add(objectMapper.readValue(line, CustomerDetailsDto.class));
+        }
+        assertTrue(streamed.size() >= CUSTOMERS);
+        assertEquals(all, streamed);
+        assertEquals(5, streamed.stream().filter(customer -> !customer.getLoans().isEmpty()).count());
+    }
+
+    @Test
+    void streamRunsOutsideATransaction() {
+        List<Boolean> inTransaction = new ArrayList<>();
+        customerDetailsService.streamCustomerDetails(
+                customer -> inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive()));
+
+        assertTrue(inTransaction.size() >= CUSTOMERS);
+        assertFalse(inTransaction.contains(true));
+    }
+}
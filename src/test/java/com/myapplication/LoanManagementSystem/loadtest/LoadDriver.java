@@ -0,0 +1,209 @@
+package com.myapplication.LoanManagementSystem.loadtest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Closed-loop HTTP load: a fixed number of workers each send a request, wait for the whole
+ * response and send the next, picking the operation at random by weight. A warmup phase runs first
+ * and is not recorded. Latencies are kept in Micrometer timers with client-side percentiles.
+ * Responses of 400 and above, and connection failures, count as errors.
+ */
+public class LoadDriver {
+
+    /**
+     * One kind of request. The supplier is called for every request, from several threads.
+     */
+    public record Operation(String name, int weight, Supplier<HttpRequest> request) {
+    }
+
+    public record OperationResult(String name, long requests, long errors, double requestsPerSecond,
+                                  double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+    }
+
+    public record Report(int concurrency, Duration elapsed, List<OperationResult> operations, OperationResult total) {
+
+        public void print(PrintStream out) {
+            out.printf("%d workers for %.1f s%n", concurrency, elapsed.toMillis() / 1000.0);
+            out.printf("%-28s %9s %7s %9s %9s %9s %9s %9s%n",
+                    "operation", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+            for (OperationResult result : operations) {
+                print(out, result);
+            }
+            print(out, total);
+        }
+
+        private static void print(PrintStream out, OperationResult result) {
+            out.printf("%-28s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", result.name(), result.requests(),
+                    result.errors(), result.requestsPerSecond(), result.p50Millis(), result.p95Millis(),
+                    result.p99Millis(), result.maxMillis());
+        }
+    }
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final int concurrency;
+
+    private final HttpClient httpClient;
+
+    public LoadDriver(int concurrency) {
+        this.concurrency = concurrency;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public Report run(List<Operation> operations, Duration warmup, Duration duration) {
+        List<Operation> weighted = operations.stream().filter(operation -> operation.weight() > 0).toList();
+        if (weighted.isEmpty()) {
+            throw new RuntimeException("No operation has a weight above 0");
+        }
+        if (!warmup.isZero()) {
+            drive(weighted, warmup, new Meters(weighted, warmup));
+        }
+        Meters meters = new Meters(weighted, duration);
+        long elapsedNanos = drive(weighted, duration, meters);
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        List<OperationResult> results = new ArrayList<>();
+        for (int i = 0; i < weighted.size(); i++) {
+            results.add(result(weighted.get(i).name(), meters.timers[i], meters.errors[i], seconds));
+        }
+        return new Report(concurrency, Duration.ofNanos(elapsedNanos), results,
+                result("all", meters.allTimer, meters.allErrors, seconds));
+    }
+
+    private long drive(List<Operation> operations, Duration duration, Meters meters) {
+        int[] cumulativeWeights = new int[operations.size()];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            totalWeight += operations.get(i).weight();
+            cumulativeWeights[i] = totalWeight;
+        }
+        int weights = totalWeight;
+
+        long started = System.nanoTime();
+        long deadline = started + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int w = 0; w < concurrency; w++) {
+                running.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                        int pick = ThreadLocalRandom.current().nextInt(weights);
+                        int index = 0;
+                        while (cumulativeWeights[index] <= pick) {
+                            index++;
+                        }
+                        send(operations.get(index), index, meters);
+                    }
+                }));
+            }
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while driving load", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Load worker failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private void send(Operation operation, int index, Meters meters) {
+        HttpRequest request = operation.request().get();
+        long started = System.nanoTime();
+        boolean failed;
+        try {
+            failed = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 400;
+        } catch (IOException e) {
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long elapsed = System.nanoTime() - started;
+        meters.timers[index].record(elapsed, TimeUnit.NANOSECONDS);
+        meters.allTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        if (failed) {
+            meters.errors[index].increment();
+            meters.allErrors.increment();
+        }
+    }
+
+    private static OperationResult result(String name, Timer timer, Counter errors, double seconds) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        double[] percentiles = new double[PERCENTILES.length];
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                if (value.percentile() == PERCENTILES[i]) {
+                    percentiles[i] = value.value(TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        return new OperationResult(name, snapshot.count(), (long) errors.count(),
+                seconds > 0 ? snapshot.count() / seconds : 0,
+                percentiles[0], percentiles[1], percentiles[2], snapshot.max(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Timers and error counters of one phase, per operation and overall.
+     */
+    private static class Meters {
+
+        private final Timer[] timers;
+
+        private final Counter[] errors;
+
+        private final Timer allTimer;
+
+        private final Counter allErrors;
+
+        Meters(List<Operation> operations, Duration duration) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            // One histogram for the whole phase: it must not rotate out samples before the report
+            Duration expiry = duration.plusMinutes(10);
+            timers = new Timer[operations.size()];
+            errors = new Counter[operations.size()];
+            for (int i = 0; i < operations.size(); i++) {
+                timers[i] = timer(registry, operations.get(i).name(), expiry);
+                errors[i] = registry.counter("loadtest.errors", "operation", operations.get(i).name());
+            }
+            allTimer = timer(registry, "all", expiry);
+            allErrors = registry.counter("loadtest.errors", "operation", "all");
+        }
+
+        private static Timer timer(SimpleMeterRegistry registry, String operation, Duration expiry) {
+            return Timer.builder("loadtest.requests")
+                    .tag("operation", operation)
+                    .publishPercentiles(PERCENTILES)
+                    .percentilePrecision(3)
+                    .distributionStatisticExpiry(expiry)
+                    .distributionStatisticBufferLength(1)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.myapplication.LoanManagementSystem.loadtest;
+
+import com.myapplication.LoanManagementSystem.service.LoanStatsService;
+import com.myapplication.LoanManagementSystem.service.PortfolioRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The generated portfolio is internally consistent and the application carries on from it, and
+ * the load driver gets error-free answers from every operation of the harness.
+ */
+// Generates a portfolio and drives HTTP load, so only run with the loadtest profile
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// The load adds loans and payments, so the exact counts are checked first
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class LoadHarnessTests {
+
+    private static final int CUSTOMERS = 100;
+
+    private static final int LOANS = 300;
+
+    // Generated once for the context; both tests read it
+    private static PortfolioDataGenerator.Summary summary;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private LoanStatsService loanStatsService;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    void generateOnce() {
+        if (summary == null) {
+            summary = new PortfolioDataGenerator(context)
+                    .generate(new PortfolioDataGenerator.Settings(CUSTOMERS, LOANS, 7, LocalDate.now()));
+        }
+    }
+
+    @Test
+    @Order(1)
+    void generatesAConsistentPortfolio() {
+        assertEquals(CUSTOMERS, count("select count(*) from customers"));
+        assertEquals(LOANS, count("select count(*) from loans"));
+        assertEquals(summary.schedules(), count("select count(*) from repayment_schedule"));
+        assertEquals(summary.payments(), count("select count(*) from payments"));
+        assertTrue(summary.payments() > 0);
+
+        // Every loan has its installments, paid loans have nothing left open, and payments add up
+        assertEquals(0, count("select count(*) from loans l where l.number_of_installments <> "
+                + "(select count(*) from repayment_schedule s where s.loan_id = l.id)"));
+        assertEquals(0, count("select count(*) from repayment_schedule s join loans l on l.id = s.loan_id "
+                + "where l.status = 'PAID' and s.payment_status <> 'PAID'"));
+        assertEquals(0, jdbcTemplate.queryForObject("select sum(payment_amount) from payments", BigDecimal.class)
+                .compareTo(jdbcTemplate.queryForObject("select sum(amount_paid) from repayment_schedule", BigDecimal.class)));
+        for (String status : List.of("ACTIVE", "PAID", "DEFAULTED")) {
+            assertTrue(count("select count(*) from loans where status = '" + status + "'") > 0, status);
+        }
+
+        // The rollup was rebuilt from the generated rows
+        assertEquals(LOANS, loanStatsService.getLoanSummary().getTotalLoans());
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    @Test
+    @Order(2)
+    void drivesEveryOperationWithoutErrors() {
+        LoadDriver driver = new LoadDriver(2);
+        // One short run per operation, including those left out of the default mix
+        for (LoadDriver.Operation operation : LoadTestRunner.operations(URI.create("http://localhost:" + port), context)) {
+            LoadDriver.Report report = driver.run(List.of(new LoadDriver.Operation(operation.name(), 1, operation.request())),
+                    Duration.ZERO, Duration.ofMillis(300));
+            LoadDriver.OperationResult result = report.operations().get(0);
+            assertTrue(result.requests() > 0, result.name());
+            assertEquals(result.requests(), report.total().requests(), result.name());
+            assertEquals(0, result.errors(), result.name());
+            assertTrue(result.p50Millis() > 0 && result.p50Millis() <= result.p99Millis(), result.name());
+        }
+        // New loans and payments were written on top of the generated ids
+        assertTrue(count("select count(*) from loans") > LOANS);
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
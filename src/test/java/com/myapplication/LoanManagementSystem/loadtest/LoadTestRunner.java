@@ -0,0 +1,191 @@
+package com.myapplication.LoanManagementSystem.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myapplication.LoanManagementSystem.LoanManagementSystemApplication;
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Starts the application in-process on the test classpath (embedded H2 in MySQL mode), fills it
+ * with a generated portfolio and drives HTTP load at it, printing latency percentiles and
+ * throughput per operation. Nothing outside the JVM is needed. Run through the loadtest profile:
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--loadtest.customers=100000 --loadtest.loans=300000"
+ * </pre>
+ * Settings are Spring properties, so they can be given as --name=value arguments:
+ * loadtest.customers, loadtest.loans, loadtest.seed, loadtest.concurrency, loadtest.warmup-seconds,
+ * loadtest.duration-seconds and loadtest.weight.&lt;operation&gt; (0 leaves an operation out).
+ * Any application property can be overridden the same way, e.g. --spring.datasource.url for a
+ * file-backed H2 database when the portfolio does not fit in memory.
+ */
+public final class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    // Relative frequency of each operation unless overridden with loadtest.weight.<name>
+    private static final Map<String, Integer> DEFAULT_WEIGHTS = Map.ofEntries(
+            Map.entry("customer-details", 3),
+            Map.entry("customer-details-page", 2),
+            // The full listing returns every customer; opt in with --loadtest.weight.customer-details-all=1
+            Map.entry("customer-details-all", 0),
+            Map.entry("stats-loans-summary", 1),
+            Map.entry("stats-disbursed-vs-paid", 1),
+            Map.entry("stats-payment-summary", 1),
+            Map.entry("stats-trends", 1),
+            Map.entry("stats-aging", 1),
+            Map.entry("stats-cashflow-projection", 1),
+            Map.entry("payments", 3),
+            Map.entry("loans-post", 1));
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) {
+        // Below command-line arguments, above the test application.yml
+        setDefault("server.port", "0");
+        // devtools is on the classpath; its restart would run everything below a second time
+        setDefault("spring.devtools.restart.enabled", "false");
+        setDefault("spring.jpa.properties.hibernate.generate_statistics", "false");
+        setDefault("logging.level.org.springframework.security", "INFO");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LoanManagementSystemApplication.class)
+                .run(args);
+        int exitCode = 0;
+        try {
+            Environment environment = context.getEnvironment();
+            PortfolioDataGenerator.Settings settings = new PortfolioDataGenerator.Settings(
+                    environment.getProperty("loadtest.customers", Integer.class, 10_000),
+                    environment.getProperty("loadtest.loans", Integer.class, 30_000),
+                    environment.getProperty("loadtest.seed", Long.class, 42L),
+                    LocalDate.now());
+            System.out.printf("Generating %d customers and %d loans...%n", settings.customers(), settings.loans());
+            PortfolioDataGenerator.Summary summary = new PortfolioDataGenerator(context).generate(settings);
+            System.out.printf("Generated %d customers, %d loans, %d schedule rows and %d payments: %d rows in %.1f s (%.0f rows/s)%n",
+                    summary.customers(), summary.loans(), summary.schedules(), summary.payments(), summary.rows(),
+                    summary.elapsedMillis() / 1000.0, summary.rowsPerSecond());
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<LoadDriver.Operation> operations = operations(URI.create("http://localhost:" + port), context);
+            LoadDriver driver = new LoadDriver(environment.getProperty("loadtest.concurrency", Integer.class, 16));
+            LoadDriver.Report report = driver.run(operations,
+                    Duration.ofSeconds(environment.getProperty("loadtest.warmup-seconds", Long.class, 10L)),
+                    Duration.ofSeconds(environment.getProperty("loadtest.duration-seconds", Long.class, 60L)));
+            report.print(System.out);
+        } catch (RuntimeException e) {
+            log.error("Load test failed", e);
+            exitCode = 1;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * The operations against the application at baseUri, over the customers and active loans in its
+     * database. Package-private for the tests.
+     */
+    static List<LoadDriver.Operation> operations(URI baseUri, ApplicationContext context) {
+        Environment environment = context.getEnvironment();
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        long[] customerIds = ids(jdbcTemplate, "select id from customers");
+        long[] activeLoanIds = ids(jdbcTemplate, "select id from loans where status = 'ACTIVE'");
+        if (customerIds.length == 0 || activeLoanIds.length == 0) {
+            throw new RuntimeException("No customers or active loans to drive load at");
+        }
+
+        List<LoadDriver.Operation> operations = new ArrayList<>();
+        add(operations, environment, "customer-details",
+                () -> get(baseUri, "/customers/details/" + pick(customerIds)));
+        add(operations, environment, "customer-details-page",
+                () -> get(baseUri, "/customers/details/page?size=20&afterId=" + (pick(customerIds) - 1)));
+        add(operations, environment, "customer-details-all", () -> get(baseUri, "/customers/details"));
+        add(operations, environment, "stats-loans-summary", () -> get(baseUri, "/stats/loans-summary"));
+        add(operations, environment, "stats-disbursed-vs-paid", () -> get(baseUri, "/stats/loans-disbursed-vs-paid"));
+        add(operations, environment, "stats-payment-summary", () -> get(baseUri, "/stats/payment-summary"));
+        add(operations, environment, "stats-trends", () -> get(baseUri, "/stats/trends"));
+        add(operations, environment, "stats-aging", () -> get(baseUri, "/stats/aging"));
+        add(operations, environment, "stats-cashflow-projection", () -> get(baseUri, "/stats/cashflow-projection"));
+        add(operations, environment, "payments", () -> {
+            BulkPaymentRequestDto payment = new BulkPaymentRequestDto();
+            payment.setLoanId(pick(activeLoanIds));
+            // Small amounts, so loans are rarely settled by the load itself
+            payment.setPaymentAmount(BigDecimal.valueOf(100 + ThreadLocalRandom.current().nextInt(1900)));
+            payment.setPaymentDate(LocalDate.now());
+            payment.setReference("LT-" + UUID.randomUUID());
+            return post(baseUri, "/payments", json(objectMapper, payment));
+        });
+        add(operations, environment, "loans-post", () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            LoanRequestDto loan = new LoanRequestDto();
+            loan.setCustomerId(pick(customerIds));
+            loan.setPrincipalAmount(BigDecimal.valueOf(5_000 + 500L * random.nextInt(200)));
+            loan.setInterestRate(10 + random.nextInt(15));
+            loan.setRepaymentPeriod(random.nextBoolean() ? 6 : 12);
+            loan.setRepaymentFrequency(random.nextInt(10) < 7 ? Frequency.MONTHLY : Frequency.WEEKLY);
+            return post(baseUri, "/loans/post", json(objectMapper, loan));
+        });
+        return operations;
+    }
+
+    private static void add(List<LoadDriver.Operation> operations, Environment environment, String name,
+                            Supplier<HttpRequest> request) {
+        int weight = environment.getProperty("loadtest.weight." + name, Integer.class, DEFAULT_WEIGHTS.get(name));
+        operations.add(new LoadDriver.Operation(name, weight, request));
+    }
+
+    private static HttpRequest get(URI baseUri, String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).GET().build();
+    }
+
+    private static HttpRequest post(URI baseUri, String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String json(ObjectMapper objectMapper, Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialise " + value, e);
+        }
+    }
+
+    private static long pick(long[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private static long[] ids(JdbcTemplate jdbcTemplate, String sql) {
+        return jdbcTemplate.queryForList(sql, Long.class).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.myapplication.LoanManagementSystem.loadtest;
+
+import com.myapplication.LoanManagementSystem.config.IdGeneratorAligner;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.service.CashflowProjectionService;
+import com.myapplication.LoanManagementSystem.service.LoanQuoteService;
+import com.myapplication.LoanManagementSystem.service.PortfolioAgingService;
+import com.myapplication.LoanManagementSystem.service.PortfolioRollupService;
+import com.myapplication.LoanManagementSystem.service.TrendBucketService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills the database of a running application with a synthetic portfolio: customers, loans, their
+ * repayment schedules and the payments made so far, as they would look after a few years of use.
+ * Rows are written with JDBC batch inserts, one transaction per chunk of loans, bypassing the
+ * services; the loan terms and schedules follow the same rules as LoanService. Afterwards the id
+ * generators are moved past the new rows, the rollup and trend buckets are rebuilt and the report
+ * caches dropped, so the application can carry on serving and writing as if it had created the
+ * data itself.
+ */
+public class PortfolioDataGenerator {
+
+    /**
+     * What to generate. Loans go to customers picked at random, so customers without a loan exist
+     * when loans is not much larger than customers. The same seed and date give the same portfolio.
+     */
+    public record Settings(int customers, int loans, long seed, LocalDate today) {
+    }
+
+    public record Summary(long customers, long loans, long schedules, long payments, long elapsedMillis) {
+
+        public long rows() {
+            return customers + loans + schedules + payments;
+        }
+
+        public double rowsPerSecond() {
+            return elapsedMillis > 0 ? rows() * 1000.0 / elapsedMillis : 0;
+        }
+    }
+
+    // Loans written per transaction
+    private static final int CHUNK = 1000;
+
+    private static final String[] FIRST_NAMES = {"Wanjiru", "Otieno", "Achieng", "Kamau", "Njeri", "Mutua", "Akinyi",
+            "Kiprop", "Wambui", "Omondi", "Chebet", "Mwangi", "Atieno", "Kariuki", "Nyambura", "Kipchoge"};
+
+    private static final String[] LAST_NAMES = {"Kamau", "Odhiambo", "Wafula", "Njoroge", "Kiplagat", "Mutiso",
+            "Ochieng", "Githinji", "Korir", "Nduta", "Barasa", "Wekesa", "Macharia", "Owino", "Jeptoo", "Gitau"};
+
+    // Repayment periods in months, weighted towards the common 6 and 12 month products
+    private static final int[] PERIODS = {3, 6, 6, 6, 12, 12, 12, 12, 18, 24, 24, 36};
+
+    private static final int[] RATES = {8, 10, 12, 12, 14, 15, 15, 18, 20, 24};
+
+    private static final String INSERT_CUSTOMER = "insert into customers (firstname, lastname, national_identity_card, "
+            + "phone_number, registration_date) values (?, ?, ?, ?, ?)";
+
+    // Declared types: with none, every null parameter costs a parameter metadata lookup
+    private static final int[] CUSTOMER_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DATE};
+
+    private static final String INSERT_LOAN = "insert into loans (id, customer_id, principal_amount, interest_rate, "
+            + "due_date, repayment_period, repayment_frequency, total_repayable_amount, status, created_at, version, "
+            + "number_of_installments, compact_schedule, schedule_start_date) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, false, ?)";
+
+    private static final int[] LOAN_TYPES = {Types.BIGINT, Types.BIGINT, Types.DECIMAL, Types.DECIMAL, Types.DATE,
+            Types.INTEGER, Types.VARCHAR, Types.DECIMAL, Types.VARCHAR, Types.TIMESTAMP, Types.INTEGER, Types.DATE};
+
+    private static final String INSERT_SCHEDULE = "insert into repayment_schedule (schedule_id, loan_id, "
+            + "installment_number, due_date, amount_due, emi, ewi, amount_paid, payment_date, payment_status, "
+            + "created_at, version) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final int[] SCHEDULE_TYPES = {Types.BIGINT, Types.BIGINT, Types.INTEGER, Types.DATE, Types.DECIMAL,
+            Types.DECIMAL, Types.DECIMAL, Types.DECIMAL, Types.DATE, Types.VARCHAR, Types.TIMESTAMP};
+
+    private static final String INSERT_PAYMENT = "insert into payments (payment_id, payment_amount, payment_date, "
+            + "reference, created_at, loan_id, repayment_schedule_id) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] PAYMENT_TYPES = {Types.BIGINT, Types.DECIMAL, Types.DATE, Types.VARCHAR, Types.TIMESTAMP,
+            Types.BIGINT, Types.BIGINT};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LoanQuoteService loanQuoteService;
+
+    private final IdGeneratorAligner idGeneratorAligner;
+
+    private final PortfolioRollupService portfolioRollupService;
+
+    private final TrendBucketService trendBucketService;
+
+    private final PortfolioAgingService portfolioAgingService;
+
+    private final CashflowProjectionService cashflowProjectionService;
+
+    private final int defaultAfterDays;
+
+    public PortfolioDataGenerator(ApplicationContext context) {
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        loanQuoteService = context.getBean(LoanQuoteService.class);
+        idGeneratorAligner = context.getBean(IdGeneratorAligner.class);
+        portfolioRollupService = context.getBean(PortfolioRollupService.class);
+        trendBucketService = context.getBean(TrendBucketService.class);
+        portfolioAgingService = context.getBean(PortfolioAgingService.class);
+        cashflowProjectionService = context.getBean(CashflowProjectionService.class);
+        defaultAfterDays = context.getEnvironment().getProperty("loans.overdue.default-after-days", Integer.class, 90);
+    }
+
+    public Summary generate(Settings settings) {
+        long started = System.nanoTime();
+        Random random = new Random(settings.seed());
+        LocalDate today = settings.today();
+
+        // Customers first; their ids come from the IDENTITY column
+        long[] customerIds = new long[settings.customers()];
+        int[] registeredDaysAgo = new int[settings.customers()];
+        long lastId = maxId("customers", "id");
+        long idCardBase = 20_000_000L + lastId;
+        for (int from = 0; from < settings.customers(); from += CHUNK) {
+            int to = Math.min(from + CHUNK, settings.customers());
+            List<Object[]> rows = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                registeredDaysAgo[i] = 30 + random.nextInt(1500);
+                rows.add(new Object[]{FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                        LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                        String.valueOf(idCardBase + i),
+                        String.format("07%08d", random.nextInt(100_000_000)),
+                        today.minusDays(registeredDaysAgo[i])});
+            }
+            long after = lastId;
+            int count = to - from;
+            List<Long> ids = transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(INSERT_CUSTOMER, rows, CUSTOMER_TYPES);
+                return jdbcTemplate.queryForList("select id from customers where id > ? order by id limit ?",
+                        Long.class, after, count);
+            });
+            for (int i = 0; i < count; i++) {
+                customerIds[from + i] = ids.get(i);
+            }
+            lastId = ids.get(count - 1);
+        }
+
+        long nextLoanId = maxId("loans", "id") + 1;
+        long nextScheduleId = maxId("repayment_schedule", "schedule_id") + 1;
+        long nextPaymentId = maxId("payments", "payment_id") + 1;
+        long schedules = 0;
+        long payments = 0;
+        for (int from = 0; from < settings.loans(); from += CHUNK) {
+            int to = Math.min(from + CHUNK, settings.loans());
+            List<Object[]> loanRows = new ArrayList<>(to - from);
+            List<Object[]> scheduleRows = new ArrayList<>();
+            List<Object[]> paymentRows = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                long loanId = nextLoanId++;
+                int customer = random.nextInt(customerIds.length);
+                LocalDate disbursed = today.minusDays(random.nextInt(Math.min(registeredDaysAgo[customer], 730) + 1));
+                LocalDateTime createdAt = disbursed.atTime(8 + random.nextInt(10), random.nextInt(60));
+
+                // Log-normal principal around 50,000, in steps of 500
+                long principal = Math.round(Math.exp(Math.log(50_000) + 0.8 * random.nextGaussian()) / 500) * 500;
+                BigDecimal principalAmount = BigDecimal.valueOf(Math.max(5_000, Math.min(2_000_000, principal)));
+                int rate = RATES[random.nextInt(RATES.length)];
+                int period = PERIODS[random.nextInt(PERIODS.length)];
+                Frequency frequency = random.nextInt(10) < 7 ? Frequency.MONTHLY : Frequency.WEEKLY;
+                LoanQuoteService.LoanTerms terms = loanQuoteService.loanTerms(principalAmount, period, rate, frequency);
+                int installments = terms.installments();
+                BigDecimal installmentAmount = terms.totalRepayable()
+                        .divide(new BigDecimal(installments), 2, RoundingMode.HALF_UP);
+
+                // Most borrowers pay on time, some pay late, and some stop paying part way through
+                int behaviour = random.nextInt(100);
+                int lateDays = behaviour < 75 ? 0 : 1 + random.nextInt(40);
+                int stopAfter = behaviour < 90 ? installments : random.nextInt(installments);
+
+                boolean allPaid = true;
+                boolean overdue = false;
+                for (int n = 1; n <= installments; n++) {
+                    long scheduleId = nextScheduleId++;
+                    LocalDate due = frequency == Frequency.MONTHLY ? disbursed.plusMonths(n) : disbursed.plusWeeks(n);
+                    LocalDate paidOn = lateDays == 0 ? due.minusDays(random.nextInt(6)) : due.plusDays(lateDays);
+                    BigDecimal amountPaid = BigDecimal.ZERO;
+                    RepaymentStatus status;
+                    if (n <= stopAfter && !paidOn.isAfter(today)) {
+                        amountPaid = installmentAmount;
+                        status = RepaymentStatus.PAID;
+                    } else if (n == stopAfter + 1 && !due.isAfter(today) && random.nextInt(3) == 0) {
+                        // A part payment before the borrower stopped
+                        paidOn = due.isAfter(today.minusDays(5)) ? today : due.plusDays(random.nextInt(5));
+                        amountPaid = installmentAmount.multiply(BigDecimal.valueOf(30 + random.nextInt(41)))
+                                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+                        status = RepaymentStatus.PARTIALLY_PAID;
+                    } else {
+                        // The nightly overdue job marks open installments past their due date LATE
+                        status = due.isBefore(today) ? RepaymentStatus.LATE : RepaymentStatus.PENDING;
+                    }
+                    if (status != RepaymentStatus.PAID) {
+                        allPaid = false;
+                        overdue |= due.isBefore(today.minusDays(defaultAfterDays));
+                    }
+                    scheduleRows.add(new Object[]{scheduleId, loanId, n, due, installmentAmount,
+                            frequency == Frequency.MONTHLY ? installmentAmount : null,
+                            frequency == Frequency.WEEKLY ? installmentAmount : null,
+                            amountPaid, amountPaid.signum() > 0 ? paidOn : null, status.name(), createdAt});
+                    if (amountPaid.signum() > 0) {
+                        long paymentId = nextPaymentId++;
+                        paymentRows.add(new Object[]{paymentId, amountPaid, paidOn, String.format("SIM%010d", paymentId),
+                                paidOn.atTime(6 + random.nextInt(16), random.nextInt(60)), loanId, scheduleId});
+                    }
+                }
+                LoanStatus status = allPaid ? LoanStatus.PAID : overdue ? LoanStatus.DEFAULTED : LoanStatus.ACTIVE;
+                LocalDate dueDate = frequency == Frequency.MONTHLY
+                        ? disbursed.plusMonths(installments) : disbursed.plusWeeks(installments);
+                loanRows.add(new Object[]{loanId, customerIds[customer], principalAmount, new BigDecimal(rate), dueDate,
+                        period, frequency.name(), terms.totalRepayable(), status.name(), createdAt, installments,
+                        disbursed});
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_LOAN, loanRows, LOAN_TYPES);
+                jdbcTemplate.batchUpdate(INSERT_SCHEDULE, scheduleRows, SCHEDULE_TYPES);
+                jdbcTemplate.batchUpdate(INSERT_PAYMENT, paymentRows, PAYMENT_TYPES);
+            });
+            schedules += scheduleRows.size();
+            payments += paymentRows.size();
+        }
+
+        // The rows above were written behind the application's back
+        idGeneratorAligner.align();
+        portfolioRollupService.rebuild();
+        trendBucketService.rebuild();
+        portfolioAgingService.invalidate();
+        cashflowProjectionService.invalidate();
+        return new Summary(settings.customers(), settings.loans(), schedules, payments,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long maxId(String table, String idColumn) {
+        Long max = jdbcTemplate.queryForObject("select max(" + idColumn + ") from " + table, Long.class);
+        return max == null ? 0 : max;
+    }
+}
@@ -0,0 +1,76 @@
+package com.myapplication.LoanManagementSystem.security;
+
+import com.myapplication.LoanManagementSystem.model.User;
+import com.myapplication.LoanManagementSystem.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hot accounts are served without a query, erasing the credentials of a returned UserDetails does
+ * not reach the cache, and an evicted account is read again.
+ */
+@SpringBootTest
+class CustomUserDetailsServiceTests {
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void servesHotAccountsFromTheCache() {
+        userRepository.save(user("cached.user", "hash-1"));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        UserDetails first = userDetailsService.loadUserByUsername("cached.user");
+        ((CredentialsContainer) first).eraseCredentials();
+        statistics.clear();
+        UserDetails second = userDetailsService.loadUserByUsername("cached.user");
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals("hash-1", second.getPassword());
+        assertTrue(meterRegistry.get("cache.hit.ratio").tag("cache", "user-details").gauge().value() > 0);
+
+        // A changed password is seen once the account is evicted
+        User stored = userRepository.findByUsername("cached.user").orElseThrow();
+        stored.setPassword("hash-2");
+        userRepository.save(stored);
+        assertEquals("hash-1", userDetailsService.loadUserByUsername("cached.user").getPassword());
+        userDetailsService.evict("cached.user");
+        assertEquals("hash-2", userDetailsService.loadUserByUsername("cached.user").getPassword());
+    }
+
+    @Test
+    void usernamesAreUnique() {
+        userRepository.save(user("unique.user", "hash"));
+        assertThrows(DataIntegrityViolationException.class, () -> userRepository.save(user("unique.user", "other")));
+    }
+
+    private static User user(String username, String password) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(password);
+        user.setFirstname("Cache");
+        user.setLastname("User");
+        user.setEmail(username + "@example.com");
+        return user;
+    }
+}
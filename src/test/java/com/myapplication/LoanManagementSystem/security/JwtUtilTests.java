@@ -0,0 +1,56 @@
+package com.myapplication.LoanManagementSystem.security;
+
+import com.myapplication.LoanManagementSystem.model.User;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Issued tokens verify, from the cache or not, and tokens not signed with our key never do.
+ */
+class JwtUtilTests {
+
+    @Test
+    void verifiesIssuedTokensWithAndWithoutTheCache() {
+        for (JwtUtil jwtUtil : new JwtUtil[]{new JwtUtil(100), new JwtUtil(0)}) {
+            String token = jwtUtil.generateToken("jane");
+            assertEquals("jane", jwtUtil.getUsernameFromToken(token));
+            // The second read of the same token is served from the cache when there is one
+            assertEquals("jane", jwtUtil.getUsernameFromToken(token));
+            assertTrue(jwtUtil.validateToken(token, "jane"));
+            assertFalse(jwtUtil.validateToken(token, "john"));
+
+            User user = new User();
+            user.setUsername("jane");
+            assertTrue(jwtUtil.validateToken(token, user));
+        }
+    }
+
+    @Test
+    void rejectsTokensNotSignedWithOurKey() {
+        JwtUtil jwtUtil = new JwtUtil(100);
+        String unsigned = Jwts.builder().setSubject("jane")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000)).compact();
+        String foreign = Jwts.builder().setSubject("jane")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.secretKeyFor(SignatureAlgorithm.HS512)).compact();
+        String valid = jwtUtil.generateToken("jane");
+        String tampered = valid.substring(0, valid.length() - 2) + (valid.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtUtil.getUsernameFromToken(unsigned));
+        assertThrows(JwtException.class, () -> jwtUtil.getUsernameFromToken(foreign));
+        assertThrows(JwtException.class, () -> jwtUtil.getUsernameFromToken(tampered));
+        User user = new User();
+        user.setUsername("jane");
+        assertFalse(jwtUtil.validateToken(foreign, user));
+    }
+}
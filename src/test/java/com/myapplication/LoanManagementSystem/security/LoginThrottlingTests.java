@@ -0,0 +1,164 @@
+package com.myapplication.LoanManagementSystem.security;
+
+import com.myapplication.LoanManagementSystem.apiresponses.ApiResponse;
+import com.myapplication.LoanManagementSystem.controller.AuthController;
+import com.myapplication.LoanManagementSystem.dto.AuthenticationRequestDto;
+import com.myapplication.LoanManagementSystem.dto.UserRegistrationDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sign-in goes through the shared bounded encoder, excess failed attempts are refused before
+ * hashing, and a saturated hashing pool turns callers away instead of queueing without limit.
+ */
+@SpringBootTest(properties = {"security.login-limit.per-username=3", "security.login-limit.per-ip=5"})
+class LoginThrottlingTests {
+
+    @Autowired
+    private AuthController authController;
+
+    @Autowired
+    private LoginAttemptLimiter loginAttemptLimiter;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Test
+    void registersAndSignsInThroughTheSharedEncoder() {
+        assertInstanceOf(BoundedPasswordEncoder.class, passwordEncoder);
+        MockHttpServletRequest request = request("10.0.0.1");
+        UserRegistrationDto registration = new UserRegistrationDto();
+        registration.setUsername("throttled.user");
+        registration.setFirstname("Throttled");
+        registration.setLastname("User");
+        registration.setEmail("throttled.user@example.com");
+        registration.setPassword("s3cret!");
+        assertEquals(HttpStatus.OK, authController.registerUser(registration, request).getStatusCode());
+
+        AuthenticationRequestDto login = new AuthenticationRequestDto();
+        login.setUsername("throttled.user");
+        login.setPassword("s3cret!");
+        ResponseEntity<?> response = authController.authenticateUser(login, request);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String token = ((ApiResponse) response.getBody()).getToken();
+        assertEquals("throttled.user", jwtUtil.getUsernameFromToken(token));
+
+        // Successful sign-ins do not count
+        for (int i = 0; i < 5; i++) {
+            assertEquals(HttpStatus.OK, authController.authenticateUser(login, request).getStatusCode());
+        }
+
+        // Three failures for this username; the next attempt is refused without checking the password
+        AuthenticationRequestDto wrong = new AuthenticationRequestDto();
+        wrong.setUsername("throttled.user");
+        wrong.setPassword("guess");
+        for (int i = 0; i < 3; i++) {
+            assertThrows(BadCredentialsException.class, () -> authController.authenticateUser(wrong, request("10.0.0.4")));
+        }
+        ResponseEntity<?> refused = authController.authenticateUser(login, request);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, refused.getStatusCode());
+    }
+
+    @Test
+    void successClearsTheUsernameFailures() {
+        assertFalse(loginAttemptLimiter.isBlocked("dave", "10.0.0.5"));
+        loginAttemptLimiter.recordFailure("dave", "10.0.0.5");
+        loginAttemptLimiter.recordFailure("dave", "10.0.0.5");
+        loginAttemptLimiter.recordSuccess("Dave");
+        loginAttemptLimiter.recordFailure("dave", "10.0.0.6");
+        loginAttemptLimiter.recordFailure("dave", "10.0.0.6");
+        assertFalse(loginAttemptLimiter.isBlocked("dave", "10.0.0.7"));
+        loginAttemptLimiter.recordFailure("dave", "10.0.0.6");
+        assertTrue(loginAttemptLimiter.isBlocked("dave", "10.0.0.7"));
+
+        // The address keeps its failures: 2 so far, 3 more reach the limit of 5
+        for (int i = 0; i < 3; i++) {
+            loginAttemptLimiter.recordFailure(null, "10.0.0.5");
+        }
+        assertTrue(loginAttemptLimiter.isBlocked("erin", "10.0.0.5"));
+    }
+
+    @Test
+    void limitsAttemptsPerUsernameAndPerAddress() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(loginAttemptLimiter.tryAcquire("alice", "10.0.0.2"));
+        }
+        assertFalse(loginAttemptLimiter.tryAcquire("ALICE", "10.0.0.9"));
+
+        assertTrue(loginAttemptLimiter.tryAcquire("bob", "10.0.0.2"));
+        assertTrue(loginAttemptLimiter.tryAcquire(null, "10.0.0.2"));
+        // The address has used its 5 attempts, whatever the username
+        assertFalse(loginAttemptLimiter.tryAcquire("carol", "10.0.0.2"));
+        assertTrue(loginAttemptLimiter.tryAcquire("carol", "10.0.0.3"));
+    }
+
+    @Test
+    void turnsCallersAwayWhenTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 1, 1, registry);
+        try {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+            // Wait until the second call is queued behind the first
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (registry.get("auth.password.queue.depth").gauge().value() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("third"));
+            assertEquals(1, registry.get("auth.password.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("first", running.get(10, TimeUnit.SECONDS));
+            assertEquals("second", queued.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            encoder.shutdown();
+        }
+    }
+
+    private static MockHttpServletRequest request(String address) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setRemoteAddr(address);
+        return request;
+    }
+}
@@ -0,0 +1,155 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.stats.CashflowBucketDto;
+import com.myapplication.LoanManagementSystem.dto.stats.CashflowProjectionDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.ProjectionGranularity;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Every bucket must hold exactly the unpaid installments falling due in it, whatever the bucket
+ * size, and a posted payment must show up in the next read.
+ */
+@SpringBootTest
+class CashflowProjectionServiceTests {
+
+    @Autowired
+    private CashflowProjectionService cashflowProjectionService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void bucketsMatchTheUnpaidInstallments() {
+        Long customerId = createCustomer();
+        loanService.createLoan(loan(customerId, Frequency.MONTHLY, 18));
+        loanService.createLoan(loan(customerId, Frequency.WEEKLY, 4));
+        ReflectionTestUtils.setField(loanService, "compactSchedules", true);
+        try {
+            Loan compact = loanService.createLoan(loan(customerId, Frequency.MONTHLY, 6));
+            pay(compact.getId(), new BigDecimal("1500"));
+        } finally {
+            ReflectionTestUtils.setField(loanService, "compactSchedules", false);
+        }
+
+        CashflowProjectionDto monthly = cashflowProjectionService.getProjection(12, ProjectionGranularity.MONTHLY, null, null, null);
+        assertBucketsMatch(monthly, null);
+        // The first and last calendar months are partial unless today is the 1st
+        assertEquals(LocalDate.now().getDayOfMonth() == 1 ? 12 : 13, monthly.getBuckets().size());
+
+        CashflowProjectionDto weekly = cashflowProjectionService.getProjection(12, ProjectionGranularity.WEEKLY, null, null, null);
+        assertBucketsMatch(weekly, null);
+        CashflowProjectionDto tenDays = cashflowProjectionService.getProjection(12, null, 10, null, null);
+        assertBucketsMatch(tenDays, null);
+        assertEquals(0, monthly.getTotalExpected().compareTo(weekly.getTotalExpected()));
+        assertEquals(0, monthly.getTotalExpected().compareTo(tenDays.getTotalExpected()));
+
+        CashflowProjectionDto weeklyLoans = cashflowProjectionService.getProjection(12, ProjectionGranularity.MONTHLY, null,
+                Frequency.WEEKLY, List.of(LoanStatus.ACTIVE));
+        assertBucketsMatch(weeklyLoans, Frequency.WEEKLY);
+    }
+
+    @Test
+    void paymentsInvalidateTheCachedProjection() {
+        Loan loan = loanService.createLoan(loan(createCustomer(), Frequency.MONTHLY, 6));
+        CashflowProjectionDto before = cashflowProjectionService.getProjection(12, ProjectionGranularity.MONTHLY, null, null, null);
+        assertSame(before, cashflowProjectionService.getProjection(12, ProjectionGranularity.MONTHLY, null, null, null));
+
+        pay(loan.getId(), new BigDecimal("700"));
+        CashflowProjectionDto after = cashflowProjectionService.getProjection(12, ProjectionGranularity.MONTHLY, null, null, null);
+        assertNotSame(before, after);
+        BigDecimal owedBefore = before.getTotalExpected().add(before.getOverdueAmount());
+        BigDecimal owedAfter = after.getTotalExpected().add(after.getOverdueAmount());
+        assertEquals(0, owedBefore.subtract(new BigDecimal("700")).compareTo(owedAfter));
+    }
+
+    // Compares every bucket with a sum over the installments of all loans matching the filters
+    private void assertBucketsMatch(CashflowProjectionDto projection, Frequency frequency) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            BigDecimal total = BigDecimal.ZERO;
+            for (CashflowBucketDto bucket : projection.getBuckets()) {
+                BigDecimal expected = BigDecimal.ZERO;
+                long installments = 0;
+                for (Loan loan : loanRepository.findAll()) {
+                    if (!projection.getLoanStatuses().contains(loan.getStatus())
+                            || (frequency != null && loan.getRepaymentFrequency() != frequency)) {
+                        continue;
+                    }
+                    for (RepaymentSchedule installment : CompactSchedule.installmentsOf(loan)) {
+                        LocalDate dueDate = installment.getDueDate();
+                        if (installment.getPaymentStatus() != RepaymentStatus.PAID
+                                && !dueDate.isBefore(bucket.getStartDate()) && !dueDate.isAfter(bucket.getEndDate())) {
+                            expected = expected.add(installment.getAmountDue().subtract(installment.getAmountPaid()));
+                            installments++;
+                        }
+                    }
+                }
+                assertEquals(0, expected.compareTo(bucket.getExpectedAmount()), bucket.getPeriod());
+                assertEquals(installments, bucket.getInstallments(), bucket.getPeriod());
+                total = total.add(expected);
+            }
+            assertEquals(0, total.compareTo(projection.getTotalExpected()));
+        });
+    }
+
+    private void pay(Long loanId, BigDecimal amount) {
+        BulkPaymentRequestDto payment = new BulkPaymentRequestDto();
+        payment.setLoanId(loanId);
+        payment.setPaymentAmount(amount);
+        payment.setPaymentDate(LocalDate.now());
+        paymentService.bulkPayment(payment);
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Cashflow");
+        customer.setLastname("Borrower");
+        customer.setNationalIdentityCard("CF-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private static LoanRequestDto loan(Long customerId, Frequency frequency, int months) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal("9000"));
+        dto.setInterestRate(12);
+        dto.setRepaymentPeriod(months);
+        dto.setRepaymentFrequency(frequency);
+        return dto;
+    }
+}
@@ -0,0 +1,156 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.LoanDetailsDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.RepaymentScheduleDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * With compact schedules a loan stores its schedule rule, and an installment only gets a row once it
+ * receives money. Every view must still show the full schedule.
+ */
+@SpringBootTest(properties = "loans.compact-schedules=true")
+class CompactScheduleTests {
+
+    private static final int INSTALLMENTS = 7;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerDetailsService customerDetailsService;
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Test
+    void installmentsAreMaterialisedAsTheyArePaid() {
+        Long customerId = createCustomer();
+        Loan loan = createLoan(customerId);
+        assertTrue(scheduleRepository.findByLoan_Id(loan.getId()).isEmpty());
+
+        List<RepaymentScheduleDto> schedules = paymentService.getSchedulesByLoan(loan.getId());
+        assertEquals(INSTALLMENTS, schedules.size());
+        assertTrue(schedules.stream().allMatch(s -> CompactSchedule.isVirtualId(s.getScheduleId())));
+        // The final installment carries the rounding difference, so the schedule adds up exactly
+        BigDecimal scheduled = schedules.stream().map(RepaymentScheduleDto::getAmountDue)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, loan.getTotalRepayableAmount().compareTo(scheduled));
+
+        // Pay the first installment by its virtual id
+        RepaymentScheduleDto first = schedules.get(0);
+        PaymentRequestDto installment = new PaymentRequestDto();
+        installment.setPaymentAmount(first.getAmountDue());
+        installment.setPaymentDate(LocalDate.now());
+        paymentService.payInstallment(first.getScheduleId(), installment);
+        assertEquals(1, scheduleRepository.findByLoan_Id(loan.getId()).size());
+
+        // A bulk payment covering one and a half installments touches two more
+        BulkPaymentRequestDto bulk = new BulkPaymentRequestDto();
+        bulk.setLoanId(loan.getId());
+        bulk.setPaymentAmount(first.getAmountDue().multiply(new BigDecimal("1.5")));
+        bulk.setPaymentDate(LocalDate.now());
+        paymentService.bulkPayment(bulk);
+        assertEquals(3, scheduleRepository.findByLoan_Id(loan.getId()).size());
+
+        schedules = paymentService.getSchedulesByLoan(loan.getId());
+        assertEquals(INSTALLMENTS, schedules.size());
+        assertEquals(RepaymentStatus.PAID, schedules.get(0).getPaymentStatus());
+        assertEquals(RepaymentStatus.PAID, schedules.get(1).getPaymentStatus());
+        assertEquals(RepaymentStatus.PARTIALLY_PAID, schedules.get(2).getPaymentStatus());
+        assertFalse(CompactSchedule.isVirtualId(schedules.get(2).getScheduleId()));
+        assertTrue(CompactSchedule.isVirtualId(schedules.get(3).getScheduleId()));
+
+        CustomerDetailsDto details = customerDetailsService.getCustomerDetails(customerId).orElseThrow();
+        LoanDetailsDto loanDetails = details.getLoans().get(0);
+        assertEquals(INSTALLMENTS, loanDetails.getRepaymentSchedules().size());
+        assertEquals(schedules.get(3).getScheduleId(), loanDetails.getRepaymentSchedules().get(3).getScheduleId());
+
+        // Paying the rest settles the loan even though some installments never had a row of their own
+        BulkPaymentRequestDto rest = new BulkPaymentRequestDto();
+        rest.setLoanId(loan.getId());
+        rest.setPaymentAmount(loan.getTotalRepayableAmount().subtract(scheduleRepository.sumAmountPaidByLoanId(loan.getId())));
+        rest.setPaymentDate(LocalDate.now());
+        paymentService.bulkPayment(rest);
+        assertEquals(LoanStatus.PAID, loanRepository.findById(loan.getId()).orElseThrow().getStatus());
+        assertEquals(INSTALLMENTS, scheduleRepository.findByLoan_Id(loan.getId()).size());
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    @Test
+    void reschedulingKeepsTheScheduleCompact() {
+        Loan loan = createLoan(createCustomer());
+        PaymentRequestDto installment = new PaymentRequestDto();
+        RepaymentScheduleDto first = paymentService.getSchedulesByLoan(loan.getId()).get(0);
+        installment.setPaymentAmount(first.getAmountDue());
+        installment.setPaymentDate(LocalDate.now());
+        paymentService.payInstallment(first.getScheduleId(), installment);
+
+        LoanRequestDto longer = new LoanRequestDto();
+        longer.setPrincipalAmount(new BigDecimal("12345"));
+        longer.setInterestRate(10);
+        longer.setRepaymentPeriod(INSTALLMENTS + 5);
+        longer.setRepaymentFrequency(Frequency.MONTHLY);
+        Loan updated = loanService.updateLoan(loan.getId(), longer);
+
+        assertEquals(1, scheduleRepository.findByLoan_Id(loan.getId()).size());
+        List<RepaymentScheduleDto> schedules = paymentService.getSchedulesByLoan(loan.getId());
+        assertEquals(INSTALLMENTS + 5, schedules.size());
+        assertEquals(RepaymentStatus.PAID, schedules.get(0).getPaymentStatus());
+        BigDecimal scheduled = schedules.stream().map(RepaymentScheduleDto::getAmountDue)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, updated.getTotalRepayableAmount().compareTo(scheduled));
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Compact");
+        customer.setLastname("Borrower");
+        customer.setNationalIdentityCard("CB-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private Loan createLoan(Long customerId) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal("10000"));
+        dto.setInterestRate(10);
+        dto.setRepaymentPeriod(INSTALLMENTS);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return loanService.createLoan(dto);
+    }
+}
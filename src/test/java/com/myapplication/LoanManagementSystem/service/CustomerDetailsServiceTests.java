@@ -0,0 +1,101 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsDto;
+import com.myapplication.LoanManagementSystem.dto.customerdetails.CustomerDetailsPageDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the customer details fetch plans: the number of statements must not grow with the
+ * number of loans or schedules.
+ */
+@SpringBootTest
+class CustomerDetailsServiceTests {
+
+    private static final int LOANS_PER_CUSTOMER = 3;
+
+    @Autowired
+    private CustomerDetailsService customerDetailsService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> customerIds = new ArrayList<>();
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            Customer customer = new Customer();
+            customer.setFirstname("Stat" + i);
+            customer.setLastname("Test");
+            customer.setNationalIdentityCard("ST-" + System.nanoTime());
+            customer.setPhoneNumber("0700000" + i);
+            customer.setRegistrationDate(LocalDate.now());
+            Long customerId = customerService.createCustomer(customer).getId();
+            customerIds.add(customerId);
+            for (int j = 0; j < LOANS_PER_CUSTOMER; j++) {
+                LoanRequestDto dto = new LoanRequestDto();
+                dto.setCustomerId(customerId);
+                dto.setPrincipalAmount(new BigDecimal("1000"));
+                dto.setInterestRate(10);
+                dto.setRepaymentPeriod(6);
+                dto.setRepaymentFrequency(Frequency.MONTHLY);
+                loanService.createLoan(dto);
+            }
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void customerDetailsByIdRunsTwoStatements() {
+        CustomerDetailsDto details = customerDetailsService.getCustomerDetails(customerIds.get(0)).orElseThrow();
+
+        assertEquals(LOANS_PER_CUSTOMER, details.getLoans().size());
+        details.getLoans().forEach(loan -> assertEquals(6, loan.getRepaymentSchedules().size()));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void allCustomerDetailsRunsThreeStatements() {
+        List<CustomerDetailsDto> details = customerDetailsService.getAllCustomerDetails();
+
+        assertTrue(details.size() >= customerIds.size());
+        // ids, customers with loans, loans with schedules
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void customerDetailsPageRunsThreeStatements() {
+        CustomerDetailsPageDto page = customerDetailsService.getCustomerDetailsPage(customerIds.get(0) - 1, 2);
+
+        assertEquals(2, page.getCustomers().size());
+        assertEquals(customerIds.get(1), page.getNextCursor());
+        page.getCustomers().forEach(customer -> assertEquals(LOANS_PER_CUSTOMER, customer.getLoans().size()));
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,74 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.loancalculation.LoanCalculationRequestDto;
+import com.myapplication.LoanManagementSystem.dto.loancalculation.LoanCalculationResponseDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.utils.LoanCalculator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cached quotes must match a fresh calculation, carry today's due date and never share state between callers.
+ */
+@SpringBootTest(properties = "loans.quote-cache.size=50")
+class LoanQuoteServiceTests {
+
+    @Autowired
+    private LoanQuoteService loanQuoteService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void repeatedQuotesAreServedFromTheCache() {
+        LoanCalculationRequestDto request = request("7350.50", 9, 13, Frequency.WEEKLY);
+        double hitsBefore = gets("hit");
+        double missesBefore = gets("miss");
+
+        LoanCalculationResponseDto first = loanQuoteService.calculateLoan(request);
+        first.setEwi(BigDecimal.ZERO);
+        List<LoanCalculationResponseDto> again = loanQuoteService.calculateLoans(List.of(request, request));
+
+        LoanCalculationResponseDto expected = LoanCalculator.calculateLoan(request.getPrincipalAmount(),
+                request.getRepaymentPeriod(), request.getInterestRate(), request.getFrequency());
+        for (LoanCalculationResponseDto quote : again) {
+            assertEquals(expected.getTotalRepayableAmount(), quote.getTotalRepayableAmount());
+            assertEquals(expected.getEwi(), quote.getEwi());
+            assertEquals(expected.getNumberOfInstallments(), quote.getNumberOfInstallments());
+            assertEquals(LocalDate.now().plusMonths(9), quote.getDueDate());
+        }
+        assertEquals(1, gets("miss") - missesBefore);
+        assertEquals(2, gets("hit") - hitsBefore);
+    }
+
+    @Test
+    void cacheStaysWithinItsSize() {
+        for (int i = 0; i < 200; i++) {
+            loanQuoteService.calculateLoan(request(String.valueOf(1000 + i), 12, 10, Frequency.MONTHLY));
+        }
+        assertTrue(meterRegistry.get("cache.size").tag("cache", "loan-quotes").gauge().value() <= 50);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "loan-quotes").tag("result", result)
+                .functionCounter().count();
+    }
+
+    private static LoanCalculationRequestDto request(String principal, int months, int rate, Frequency frequency) {
+        LoanCalculationRequestDto request = new LoanCalculationRequestDto();
+        request.setPrincipalAmount(new BigDecimal(principal));
+        request.setRepaymentPeriod(months);
+        request.setInterestRate(rate);
+        request.setFrequency(frequency);
+        return request;
+    }
+}
@@ -0,0 +1,155 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.PaymentRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Editing a loan keeps the installments that have been paid and only writes the rows that change.
+ */
+@SpringBootTest
+class LoanRescheduleTests {
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void paidInstallmentsSurviveAndOnlyTheDeltaIsWritten() {
+        Loan loan = loanService.createLoan(loan(createCustomer(), "10000", 6));
+        List<RepaymentSchedule> original = schedules(loan.getId());
+        pay(loan.getId(), original.get(0).getAmountDue().add(original.get(1).getAmountDue()));
+        BigDecimal paid = scheduleRepository.sumAmountPaidByLoanId(loan.getId());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Longer and larger: the four open rows are updated in place and two are added
+        statistics.clear();
+        Loan longer = loanService.updateLoan(loan.getId(), loan(null, "12000", 8));
+        EntityStatistics scheduleWrites = statistics.getEntityStatistics(RepaymentSchedule.class.getName());
+        assertEquals(2, scheduleWrites.getInsertCount());
+        assertEquals(4, scheduleWrites.getUpdateCount());
+        assertEquals(0, scheduleWrites.getDeleteCount());
+        List<RepaymentSchedule> rescheduled = schedules(loan.getId());
+        assertEquals(8, rescheduled.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(original.get(i).getId(), rescheduled.get(i).getId());
+        }
+        assertEquals(RepaymentStatus.PAID, rescheduled.get(1).getPaymentStatus());
+        assertEquals(0, original.get(1).getAmountDue().compareTo(rescheduled.get(1).getAmountDue()));
+        assertEquals(0, longer.getTotalRepayableAmount().compareTo(sumDue(rescheduled)));
+        assertEquals(0, paid.compareTo(scheduleRepository.sumAmountPaidByLoanId(loan.getId())));
+        assertEquals(2, paymentRepository.findByLoan_Id(loan.getId()).size());
+
+        // Same terms again: nothing in the schedule changes
+        statistics.clear();
+        loanService.updateLoan(loan.getId(), loan(null, "12000", 8));
+        scheduleWrites = statistics.getEntityStatistics(RepaymentSchedule.class.getName());
+        assertEquals(0, scheduleWrites.getUpdateCount() + scheduleWrites.getInsertCount() + scheduleWrites.getDeleteCount());
+
+        // Shorter: only the surplus open rows are deleted
+        statistics.clear();
+        Loan shorter = loanService.updateLoan(loan.getId(), loan(null, "12000", 3));
+        scheduleWrites = statistics.getEntityStatistics(RepaymentSchedule.class.getName());
+        assertEquals(5, scheduleWrites.getDeleteCount());
+        assertEquals(0, scheduleWrites.getInsertCount());
+        List<RepaymentSchedule> shortened = schedules(loan.getId());
+        assertEquals(3, shortened.size());
+        assertEquals(3, shorter.getNumberOfInstallments());
+        assertEquals(0, shorter.getTotalRepayableAmount().compareTo(sumDue(shortened)));
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    @Test
+    void loweringTheTotalBelowWhatWasPaidSettlesTheLoan() {
+        Loan loan = loanService.createLoan(loan(createCustomer(), "6000", 6));
+        pay(loan.getId(), new BigDecimal("3300"));
+
+        Loan updated = loanService.updateLoan(loan.getId(), loan(null, "2000", 6));
+
+        assertEquals(LoanStatus.PAID, loanRepository.findById(updated.getId()).orElseThrow().getStatus());
+        assertTrue(schedules(loan.getId()).stream().allMatch(rs -> rs.getPaymentStatus() == RepaymentStatus.PAID));
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    private List<RepaymentSchedule> schedules(Long loanId) {
+        List<RepaymentSchedule> schedules = scheduleRepository.findByLoan_Id(loanId);
+        schedules.sort(Comparator.comparing(RepaymentSchedule::getInstallmentNumber));
+        return schedules;
+    }
+
+    private void pay(Long loanId, BigDecimal amount) {
+        BulkPaymentRequestDto dto = new BulkPaymentRequestDto();
+        dto.setLoanId(loanId);
+        dto.setPaymentAmount(amount);
+        dto.setPaymentDate(LocalDate.now());
+        paymentService.bulkPayment(dto);
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Rescheduled");
+        customer.setLastname("Borrower");
+        customer.setNationalIdentityCard("RB-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private static BigDecimal sumDue(List<RepaymentSchedule> schedules) {
+        return schedules.stream().map(RepaymentSchedule::getAmountDue).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static LoanRequestDto loan(Long customerId, String principal, int months) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal(principal));
+        dto.setInterestRate(10);
+        dto.setRepaymentPeriod(months);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return dto;
+    }
+}
@@ -0,0 +1,84 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.BatchLoanResultDto;
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bulk loan origination: bad items fail on their own, and inserts are batched.
+ */
+@SpringBootTest
+class LoanServiceBatchTests {
+
+    private static final int LOANS = 120;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void createsLoansWithBatchedInserts() {
+        Customer customer = new Customer();
+        customer.setFirstname("Cohort");
+        customer.setLastname("Member");
+        customer.setNationalIdentityCard("CM-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        Long customerId = customerService.createCustomer(customer).getId();
+
+        List<LoanRequestDto> items = new ArrayList<>();
+        for (int i = 0; i < LOANS; i++) {
+            items.add(loan(customerId, 12, Frequency.WEEKLY));
+        }
+        items.add(loan(Long.MAX_VALUE, 12, Frequency.WEEKLY));
+        items.add(loan(customerId, 0, Frequency.MONTHLY));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        BatchLoanResultDto result = loanService.createLoans(items);
+
+        assertEquals(LOANS, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+        assertFalse(result.getItems().get(LOANS).isSuccess());
+        assertFalse(result.getItems().get(LOANS + 1).isSuccess());
+        // 12 months is 52 weekly installments
+        assertEquals(LOANS * 52, result.getSchedulesCreated());
+        // One insert per row would be thousands of statements
+        assertTrue(statistics.getPrepareStatementCount() < result.getRowsInserted() / 20,
+                "statements: " + statistics.getPrepareStatementCount());
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    private static LoanRequestDto loan(Long customerId, int months, Frequency frequency) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal("5000"));
+        dto.setInterestRate(12);
+        dto.setRepaymentPeriod(months);
+        dto.setRepaymentFrequency(frequency);
+        return dto;
+    }
+}
@@ -0,0 +1,144 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.OverdueRunDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.OverdueRun;
+import com.myapplication.LoanManagementSystem.model.OverdueRunPartition;
+import com.myapplication.LoanManagementSystem.model.OverdueRunStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.OverdueRunPartitionRepository;
+import com.myapplication.LoanManagementSystem.repository.OverdueRunRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The overdue job marks past-due installments LATE, defaults loans past the threshold, and can be
+ * run again or resumed for the same date without counting anything twice.
+ */
+@SpringBootTest(properties = {"loans.overdue.partitions=3", "loans.overdue.default-after-days=90"})
+class OverdueServiceTests {
+
+    @Autowired
+    private OverdueService overdueService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private OverdueRunRepository runRepository;
+
+    @Autowired
+    private OverdueRunPartitionRepository partitionRepository;
+
+    @Test
+    void marksLateInstallmentsAndDefaultsLoansPastTheThreshold() {
+        LocalDate today = LocalDate.now();
+        Long customerId = createCustomer();
+        Loan longOverdue = loanService.createLoan(loan(customerId));
+        Loan recentlyOverdue = loanService.createLoan(loan(customerId));
+        Loan current = loanService.createLoan(loan(customerId));
+        moveDueDates(longOverdue.getId(), today.minusDays(120));
+        moveDueDates(recentlyOverdue.getId(), today.minusDays(40), today.minusDays(10));
+
+        OverdueRunDto run = overdueService.run(today);
+        assertEquals(OverdueRunStatus.COMPLETED, run.getStatus());
+        assertEquals(3, run.getPartitionCount());
+        assertEquals(3, run.getPartitionsCompleted());
+        assertEquals(3, run.getSchedulesMarkedLate());
+        assertEquals(1, run.getLoansDefaulted());
+
+        assertEquals(LoanStatus.DEFAULTED, status(longOverdue.getId()));
+        assertEquals(LoanStatus.ACTIVE, status(recentlyOverdue.getId()));
+        assertEquals(LoanStatus.ACTIVE, status(current.getId()));
+        assertEquals(1, countLate(longOverdue.getId()));
+        assertEquals(2, countLate(recentlyOverdue.getId()));
+        assertEquals(0, countLate(current.getId()));
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+
+        // The same date again is answered from the completed run
+        OverdueRunDto again = overdueService.run(today);
+        assertEquals(run.getRunId(), again.getRunId());
+        assertEquals(1, again.getLoansDefaulted());
+
+        // A run interrupted part way redoes its open partitions without counting anything twice
+        OverdueRun stored = runRepository.findById(run.getRunId()).orElseThrow();
+        stored.setStatus(OverdueRunStatus.FAILED);
+        runRepository.save(stored);
+        for (OverdueRunPartition partition : partitionRepository.findByRunIdOrderByPartitionNo(run.getRunId())) {
+            partition.setCompleted(false);
+            partitionRepository.save(partition);
+        }
+        OverdueRunDto resumed = overdueService.run(today);
+        assertEquals(OverdueRunStatus.COMPLETED, resumed.getStatus());
+        assertEquals(3, resumed.getSchedulesMarkedLate());
+        assertEquals(1, resumed.getLoansDefaulted());
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    // Moves the first installments of the loan to the given due dates
+    private void moveDueDates(Long loanId, LocalDate... dueDates) {
+        List<RepaymentSchedule> schedules = scheduleRepository.findByLoan_Id(loanId);
+        schedules.sort(Comparator.comparing(RepaymentSchedule::getDueDate));
+        for (int i = 0; i < dueDates.length; i++) {
+            schedules.get(i).setDueDate(dueDates[i]);
+        }
+        scheduleRepository.saveAll(schedules);
+    }
+
+    private long countLate(Long loanId) {
+        return scheduleRepository.findByLoan_Id(loanId).stream()
+                .filter(schedule -> schedule.getPaymentStatus() == RepaymentStatus.LATE)
+                .count();
+    }
+
+    private LoanStatus status(Long loanId) {
+        return loanRepository.findById(loanId).orElseThrow().getStatus();
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Overdue");
+        customer.setLastname("Borrower");
+        customer.setNationalIdentityCard("OB-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private static LoanRequestDto loan(Long customerId) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal("6000"));
+        dto.setInterestRate(10);
+        dto.setRepaymentPeriod(6);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return dto;
+    }
+}
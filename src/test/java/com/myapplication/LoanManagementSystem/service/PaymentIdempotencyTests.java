@@ -0,0 +1,132 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BatchPaymentResultDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentReceiptDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A payment posted again with the same idempotency key must return the first result and not move money.
+ */
+@SpringBootTest
+class PaymentIdempotencyTests {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("250.00");
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Test
+    void repeatedKeyReturnsOriginalReceipt() {
+        Long loanId = createLoan();
+        String key = "RETRY-" + System.nanoTime();
+
+        PaymentReceiptDto first = paymentService.bulkPayment(payment(loanId, AMOUNT, key));
+        PaymentReceiptDto second = paymentService.bulkPayment(payment(loanId, AMOUNT, key));
+
+        assertFalse(first.isDuplicate());
+        assertTrue(second.isDuplicate());
+        assertEquals(0, first.getAmountAllocated().compareTo(second.getAmountAllocated()));
+        assertEquals(0, AMOUNT.compareTo(scheduleRepository.sumAmountPaidByLoanId(loanId)));
+        assertThrows(RuntimeException.class,
+                () -> paymentService.bulkPayment(payment(loanId, new BigDecimal("1.00"), key)));
+    }
+
+    @Test
+    void concurrentRetriesPostOnce() throws Exception {
+        Long loanId = createLoan();
+        String key = "RACE-" + System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PaymentReceiptDto>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return paymentService.bulkPayment(payment(loanId, AMOUNT, key));
+            }));
+        }
+        start.countDown();
+        int posted = 0;
+        for (Future<PaymentReceiptDto> future : futures) {
+            if (!future.get(1, TimeUnit.MINUTES).isDuplicate()) {
+                posted++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, posted);
+        assertEquals(0, AMOUNT.compareTo(scheduleRepository.sumAmountPaidByLoanId(loanId)));
+    }
+
+    @Test
+    void batchSkipsReferencesAlreadyPosted() {
+        Long loanId = createLoan();
+        String key = "BATCH-" + System.nanoTime();
+        paymentService.bulkPayment(payment(loanId, AMOUNT, key));
+
+        BatchPaymentResultDto result = paymentService.batchPayments(List.of(
+                payment(loanId, AMOUNT, key),
+                payment(loanId, AMOUNT, key + "-2"),
+                payment(loanId, AMOUNT, key + "-2")));
+
+        assertEquals(3, result.getSucceeded());
+        assertTrue(result.getItems().get(0).isDuplicate());
+        assertFalse(result.getItems().get(1).isDuplicate());
+        assertTrue(result.getItems().get(2).isDuplicate());
+        assertEquals(0, AMOUNT.multiply(BigDecimal.valueOf(2)).compareTo(scheduleRepository.sumAmountPaidByLoanId(loanId)));
+    }
+
+    private Long createLoan() {
+        Customer customer = new Customer();
+        customer.setFirstname("Idempotent");
+        customer.setLastname("Payer");
+        customer.setNationalIdentityCard("IP-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerService.createCustomer(customer).getId());
+        dto.setPrincipalAmount(new BigDecimal("10000"));
+        dto.setInterestRate(10);
+        dto.setRepaymentPeriod(6);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return loanService.createLoan(dto).getId();
+    }
+
+    private static BulkPaymentRequestDto payment(Long loanId, BigDecimal amount, String reference) {
+        BulkPaymentRequestDto dto = new BulkPaymentRequestDto();
+        dto.setLoanId(loanId);
+        dto.setPaymentAmount(amount);
+        dto.setPaymentDate(LocalDate.now());
+        dto.setReference(reference);
+        return dto;
+    }
+}
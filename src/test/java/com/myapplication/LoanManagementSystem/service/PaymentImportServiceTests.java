@@ -0,0 +1,221 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentImportStatusDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Payment;
+import com.myapplication.LoanManagementSystem.model.PaymentImportError;
+import com.myapplication.LoanManagementSystem.model.PaymentImportStatus;
+import com.myapplication.LoanManagementSystem.repository.PaymentRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * A loan whose payments cannot be written only fails its own rows. A settlement file whose second
+ * checkpoint fails is resumed from the checkpoint after the first: every row ends up posted exactly
+ * once, repeated references are skipped, and the job's counters match the rows and payments written.
+ * Amounts that do not fit the amount columns become error rows.
+ */
+@SpringBootTest
+class PaymentImportServiceTests {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.50");
+
+    // Data rows after the header, spread over two chunks
+    private static final int ROWS = PaymentImportService.CHUNK_LINES + 500;
+
+    @Autowired
+    private PaymentImportService paymentImportService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void resumesAFailedImportWithoutPostingTwice() throws InterruptedException {
+        Long customerId = createCustomer();
+        Long first = createLoan(customerId);
+        Long second = createLoan(customerId);
+        // Only paid in the second chunk
+        Long third = createLoan(customerId);
+        String prefix = "IMP-" + System.nanoTime() + "-";
+
+        Map<Long, BigDecimal> expected = new LinkedHashMap<>();
+        List.of(first, second, third).forEach(loanId -> expected.put(loanId, BigDecimal.ZERO));
+        int duplicates = 0;
+        // Columns in a different order from the default, with an extra one that is ignored
+        StringBuilder csv = new StringBuilder("Reference,Channel,Payment Date,Amount,Loan ID\r\n");
+        for (int row = 1; row <= ROWS; row++) {
+            // File line row + 1; the first chunk ends at line CHUNK_LINES
+            boolean firstChunk = row < PaymentImportService.CHUNK_LINES;
+            Long loanId = firstChunk ? (row % 2 == 0 ? first : second) : List.of(first, second, third).get(row % 3);
+            // The second chunk's rows have no reference of their own and are keyed by job and line
+            String reference = firstChunk ? prefix + row : "";
+            String date = LocalDate.now().toString();
+            String loan = loanId.toString();
+            switch (row) {
+                case 10 -> reference = prefix + 5;
+                case 1200 -> reference = prefix + 7;
+                case 20 -> loan = "L-20";
+                case 1300 -> date = "2024/01/01";
+                case 1100 -> loan = "0";
+                default -> {
+                }
+            }
+            if (row == 30) {
+                csv.append("\r\n");
+                continue;
+            }
+            csv.append('"').append(reference).append("\",MPESA,").append(date).append(',')
+                    .append(AMOUNT).append(',').append(loan).append("\r\n");
+            if (row == 10 || row == 1200) {
+                duplicates++;
+            } else if (row != 20 && row != 1300 && row != 1100) {
+                expected.merge(loanId, AMOUNT, BigDecimal::add);
+            }
+        }
+        MockMultipartFile file = new MockMultipartFile("file", "settlement.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        PaymentImportStatusDto status;
+        // Payments of the third loan cannot be inserted, so the second chunk is posted loan by loan;
+        // the error row of line 1101 cannot be stored either, so its checkpoint fails after that
+        jdbcTemplate.execute("alter table payments add constraint chk_import_test check (loan_id <> " + third + ")");
+        jdbcTemplate.execute("alter table payment_import_errors add constraint chk_import_error_test check (line_number <> 1101)");
+        try {
+            status = await(paymentImportService.startImport(file).getJobId());
+        } finally {
+            jdbcTemplate.execute("alter table payments drop constraint chk_import_test");
+            jdbcTemplate.execute("alter table payment_import_errors drop constraint chk_import_error_test");
+        }
+        assertEquals(PaymentImportStatus.FAILED, status.getStatus());
+        assertNotNull(status.getLastError());
+        // Only the first checkpoint committed: its lines less the header and the blank line, one of them failed
+        assertEquals(PaymentImportService.CHUNK_LINES - 1 - 1, status.getRowsProcessed());
+        assertEquals(1, status.getRowsFailed());
+        assertTrue(status.getBytesProcessed() > 0 && status.getBytesProcessed() < status.getBytesTotal());
+        assertTrue(paymentRepository.findByLoan_Id(third).isEmpty());
+        // The other loans' payments of the second chunk were committed by the fallback
+        assertEquals(0, expected.get(first).compareTo(scheduleRepository.sumAmountPaidByLoanId(first)));
+        assertEquals(0, expected.get(second).compareTo(scheduleRepository.sumAmountPaidByLoanId(second)));
+
+        paymentImportService.resume(status.getJobId());
+        status = await(status.getJobId());
+
+        assertEquals(PaymentImportStatus.COMPLETED, status.getStatus());
+        assertNull(status.getLastError());
+        assertEquals(status.getBytesTotal(), status.getBytesProcessed());
+        // Every row but the header and the blank line, once
+        assertEquals(ROWS - 1, status.getRowsProcessed());
+        assertEquals(3, status.getRowsFailed());
+        assertEquals(ROWS - 1 - 3, status.getRowsSucceeded());
+
+        BigDecimal total = BigDecimal.ZERO;
+        int paymentRows = 0;
+        for (Map.Entry<Long, BigDecimal> loan : expected.entrySet()) {
+            assertEquals(0, loan.getValue().compareTo(scheduleRepository.sumAmountPaidByLoanId(loan.getKey())),
+                    "loan " + loan.getKey());
+            total = total.add(loan.getValue());
+            paymentRows += paymentRepository.findByLoan_Id(loan.getKey()).size();
+        }
+        assertEquals(0, AMOUNT.multiply(BigDecimal.valueOf(ROWS - 1 - 3 - duplicates)).compareTo(total));
+        assertEquals(0, total.compareTo(status.getAmountAllocated()));
+        assertEquals(paymentRows, status.getPaymentsRecorded());
+
+        // Rows without a reference were posted under their job and line key
+        String key = PaymentImportService.importKey(status.getJobId(), 1001);
+        assertTrue(paymentRepository.findByLoan_Id(List.of(first, second, third).get(1000 % 3)).stream()
+                .map(Payment::getReference).anyMatch(key::equals));
+
+        // Error rows carry their file line numbers, the header being line 1
+        List<PaymentImportError> errors = paymentImportService.getErrors(status.getJobId(), 0, 10);
+        assertEquals(List.of(21L, 1101L, 1301L), errors.stream().map(PaymentImportError::getLineNumber).toList());
+        assertTrue(errors.get(0).getMessage().contains("loanId"));
+        assertTrue(errors.get(1).getMessage().contains("Loan not found"));
+        assertTrue(errors.get(2).getMessage().contains("paymentDate"));
+    }
+
+    @Test
+    void amountsMustFitTheAmountColumns() throws InterruptedException {
+        Long loanId = createLoan(createCustomer());
+        String csv = "loanId,paymentAmount,paymentDate\n"
+                + loanId + ",1.505," + LocalDate.now() + "\n"
+                + loanId + ",1" + "0".repeat(36) + "," + LocalDate.now() + "\n"
+                + loanId + ",2.50," + LocalDate.now() + "\n"
+                // Trailing zeros are not extra decimal places
+                + loanId + ",1.5000," + LocalDate.now() + "\n";
+        MockMultipartFile file = new MockMultipartFile("file", "amounts.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+
+        PaymentImportStatusDto status = await(paymentImportService.startImport(file).getJobId());
+
+        assertEquals(PaymentImportStatus.COMPLETED, status.getStatus());
+        assertEquals(2, status.getRowsSucceeded());
+        assertEquals(0, new BigDecimal("4.00").compareTo(status.getAmountAllocated()));
+        assertEquals(0, new BigDecimal("4.00").compareTo(scheduleRepository.sumAmountPaidByLoanId(loanId)));
+        List<PaymentImportError> errors = paymentImportService.getErrors(status.getJobId(), 0, 10);
+        assertEquals(List.of(2L, 3L), errors.stream().map(PaymentImportError::getLineNumber).toList());
+        assertTrue(errors.get(0).getMessage().contains("decimal places"));
+        assertTrue(errors.get(1).getMessage().contains("digits"));
+    }
+
+    private PaymentImportStatusDto await(Long jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (System.currentTimeMillis() < deadline) {
+            PaymentImportStatusDto status = paymentImportService.getStatus(jobId);
+            if (status.getStatus() == PaymentImportStatus.COMPLETED || status.getStatus() == PaymentImportStatus.FAILED) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Import " + jobId + " did not finish");
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Import");
+        customer.setLastname("Payer");
+        customer.setNationalIdentityCard("IP-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private Long createLoan(Long customerId) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal("5000"));
+        dto.setInterestRate(12);
+        dto.setRepaymentPeriod(12);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return loanService.createLoan(dto).getId();
+    }
+}
@@ -0,0 +1,161 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.QueuedPaymentDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.QueuedPayment;
+import com.myapplication.LoanManagementSystem.model.QueuedPaymentKind;
+import com.myapplication.LoanManagementSystem.model.QueuedPaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.QueuedPaymentRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Payments accepted in async mode are all posted, each exactly once, including rows left behind
+ * under a different partition count.
+ */
+@SpringBootTest
+class PaymentQueueServiceTests {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("40.00");
+
+    @Autowired
+    private PaymentQueueService paymentQueueService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private QueuedPaymentRepository queueRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void queuedPaymentsArePostedInOrder() throws Exception {
+        Long loanA = createLoan();
+        Long loanB = createLoan();
+        List<QueuedPaymentDto> queued = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            queued.add(paymentQueueService.enqueueBulk(payment(i % 2 == 0 ? loanA : loanB)));
+        }
+
+        List<QueuedPaymentDto> processed = new ArrayList<>();
+        for (QueuedPaymentDto dto : queued) {
+            processed.add(awaitProcessed(dto.getTrackingId()));
+        }
+
+        for (QueuedPaymentDto dto : processed) {
+            assertEquals(QueuedPaymentStatus.COMPLETED, dto.getStatus());
+            assertEquals(0, AMOUNT.compareTo(dto.getAmountAllocated()));
+        }
+        // Same loan, same partition: posted in the order they were accepted
+        for (int i = 2; i < processed.size(); i++) {
+            assertFalse(processed.get(i - 2).getProcessedAt().isAfter(processed.get(i).getProcessedAt()));
+        }
+        BigDecimal perLoan = AMOUNT.multiply(BigDecimal.TEN);
+        assertEquals(0, perLoan.compareTo(scheduleRepository.sumAmountPaidByLoanId(loanA)));
+        assertEquals(0, perLoan.compareTo(scheduleRepository.sumAmountPaidByLoanId(loanB)));
+        assertEquals(0.0, meterRegistry.get("payments.queue.depth").gauge().value());
+    }
+
+    @Test
+    void strandedRowsAreMovedToTheirPartition() throws Exception {
+        Long loanId = createLoan();
+        // Queued by a run with more partitions and claimed by an instance that is gone
+        QueuedPayment stranded = new QueuedPayment();
+        stranded.setKind(QueuedPaymentKind.BULK);
+        stranded.setLoanId(loanId);
+        stranded.setPartition(99);
+        stranded.setPaymentAmount(AMOUNT);
+        stranded.setPaymentDate(LocalDate.now());
+        stranded.setStatus(QueuedPaymentStatus.PROCESSING);
+        stranded.setOwner("gone");
+        stranded = queueRepository.save(stranded);
+
+        // What start() does before the workers run
+        paymentQueueService.repartition();
+        paymentQueueService.countDepth();
+        QueuedPayment moved = queueRepository.findById(stranded.getId()).orElseThrow();
+        assertEquals(QueuedPaymentStatus.PENDING, moved.getStatus());
+        assertNull(moved.getOwner());
+        assertTrue(moved.getPartition() < 99);
+        assertEquals(1.0, meterRegistry.get("payments.queue.depth").gauge().value());
+
+        // Queued after it for the same loan, so it wakes the partition and is posted second
+        QueuedPaymentDto later = paymentQueueService.enqueueBulk(payment(loanId));
+        QueuedPaymentDto first = awaitProcessed(stranded.getId());
+        later = awaitProcessed(later.getTrackingId());
+        assertEquals(QueuedPaymentStatus.COMPLETED, first.getStatus());
+        assertEquals(QueuedPaymentStatus.COMPLETED, later.getStatus());
+        assertFalse(first.getProcessedAt().isAfter(later.getProcessedAt()));
+        assertEquals(0, AMOUNT.add(AMOUNT).compareTo(scheduleRepository.sumAmountPaidByLoanId(loanId)));
+        assertEquals(0.0, meterRegistry.get("payments.queue.depth").gauge().value());
+    }
+
+    @Test
+    void invalidPaymentsAreRejectedBeforeQueueing() {
+        BulkPaymentRequestDto unknownLoan = payment(Long.MAX_VALUE);
+        assertThrows(RuntimeException.class, () -> paymentQueueService.enqueueBulk(unknownLoan));
+
+        BulkPaymentRequestDto noAmount = payment(createLoan());
+        noAmount.setPaymentAmount(null);
+        assertThrows(RuntimeException.class, () -> paymentQueueService.enqueueBulk(noAmount));
+    }
+
+    private QueuedPaymentDto awaitProcessed(Long trackingId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        QueuedPaymentDto dto = paymentQueueService.getQueuedPayment(trackingId);
+        while ((dto.getStatus() == QueuedPaymentStatus.PENDING || dto.getStatus() == QueuedPaymentStatus.PROCESSING)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            dto = paymentQueueService.getQueuedPayment(trackingId);
+        }
+        return dto;
+    }
+
+    private Long createLoan() {
+        Customer customer = new Customer();
+        customer.setFirstname("Queued");
+        customer.setLastname("Payer");
+        customer.setNationalIdentityCard("QP-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerService.createCustomer(customer).getId());
+        dto.setPrincipalAmount(new BigDecimal("10000"));
+        dto.setInterestRate(10);
+        dto.setRepaymentPeriod(6);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return loanService.createLoan(dto).getId();
+    }
+
+    private static BulkPaymentRequestDto payment(Long loanId) {
+        BulkPaymentRequestDto dto = new BulkPaymentRequestDto();
+        dto.setLoanId(loanId);
+        dto.setPaymentAmount(AMOUNT);
+        dto.setPaymentDate(LocalDate.now());
+        return dto;
+    }
+}
@@ -0,0 +1,207 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BatchPaymentItemResultDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BatchPaymentResultDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.repository.PaymentRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A batch spanning several chunks reports one result per item in request order, a loan whose
+ * chunk fails to commit only fails its own items, and the totals add up to what was written.
+ */
+@SpringBootTest
+class PaymentServiceBatchTests {
+
+    private static final int LOANS = 30;
+
+    // 1200 items: three chunks of whole loans
+    private static final int ITEMS_PER_LOAN = 40;
+
+    private static final BigDecimal AMOUNT = new BigDecimal("25.00");
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void resultsFollowRequestOrderAcrossChunks() {
+        List<Long> loanIds = createLoans();
+        List<BulkPaymentRequestDto> items = interleaved(loanIds);
+
+        BatchPaymentResultDto result = paymentService.batchPayments(items);
+
+        assertEquals(items.size(), result.getItems().size());
+        for (int i = 0; i < items.size(); i++) {
+            BatchPaymentItemResultDto item = result.getItems().get(i);
+            assertEquals(i, item.getIndex());
+            assertEquals(items.get(i).getLoanId(), item.getLoanId());
+            assertTrue(item.isSuccess(), item.getError());
+            assertEquals(0, AMOUNT.compareTo(item.getAmountAllocated()));
+        }
+        for (Long loanId : loanIds) {
+            assertEquals(0, AMOUNT.multiply(BigDecimal.valueOf(ITEMS_PER_LOAN))
+                    .compareTo(scheduleRepository.sumAmountPaidByLoanId(loanId)));
+        }
+        assertTotals(result, loanIds);
+    }
+
+    @Test
+    void failedChunkIsRetriedLoanByLoan() {
+        List<Long> loanIds = createLoans();
+        // In the first chunk, with other loans before and after it
+        Long badLoanId = loanIds.get(5);
+        List<BulkPaymentRequestDto> items = interleaved(loanIds);
+        // Items that never reach a chunk: one invalid, one repeating a reference earlier in the request
+        items.get(0).setReference("BATCH-" + System.nanoTime());
+        BulkPaymentRequestDto repeated = payment(loanIds.get(1), AMOUNT);
+        repeated.setReference(items.get(0).getReference());
+        items.add(repeated);
+        items.add(payment(loanIds.get(2), BigDecimal.ZERO));
+
+        BatchPaymentResultDto result;
+        // Payments of the bad loan cannot be inserted, so its whole chunk fails at commit
+        jdbcTemplate.execute("alter table payments add constraint chk_batch_test check (loan_id <> " + badLoanId + ")");
+        try {
+            result = paymentService.batchPayments(items);
+        } finally {
+            jdbcTemplate.execute("alter table payments drop constraint chk_batch_test");
+        }
+
+        assertEquals(items.size(), result.getItems().size());
+        for (int i = 0; i < items.size() - 2; i++) {
+            BatchPaymentItemResultDto item = result.getItems().get(i);
+            assertEquals(i, item.getIndex());
+            if (items.get(i).getLoanId().equals(badLoanId)) {
+                assertFalse(item.isSuccess());
+                assertNotNull(item.getError());
+                assertEquals(0, BigDecimal.ZERO.compareTo(item.getAmountAllocated()));
+            } else {
+                assertTrue(item.isSuccess(), item.getError());
+            }
+        }
+        assertTrue(result.getItems().get(items.size() - 2).isDuplicate());
+        assertFalse(result.getItems().get(items.size() - 1).isSuccess());
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(scheduleRepository.sumAmountPaidByLoanId(badLoanId)));
+        assertTrue(paymentRepository.findByLoan_Id(badLoanId).isEmpty());
+        for (Long loanId : loanIds) {
+            if (!loanId.equals(badLoanId)) {
+                assertEquals(0, AMOUNT.multiply(BigDecimal.valueOf(ITEMS_PER_LOAN))
+                        .compareTo(scheduleRepository.sumAmountPaidByLoanId(loanId)));
+            }
+        }
+        // The bad loan's items and the invalid item; the duplicate counts as handled
+        assertEquals(ITEMS_PER_LOAN + 1, result.getFailed());
+        assertTotals(result, loanIds);
+    }
+
+    // Checks the summary against the items and against the rows actually written.
+    private void assertTotals(BatchPaymentResultDto result, List<Long> loanIds) {
+        int succeeded = 0;
+        int posted = 0;
+        int paymentsRecorded = 0;
+        BigDecimal allocated = BigDecimal.ZERO;
+        for (BatchPaymentItemResultDto item : result.getItems()) {
+            if (item.isSuccess()) {
+                succeeded++;
+                posted += item.isDuplicate() ? 0 : 1;
+                paymentsRecorded += item.getPaymentsRecorded();
+                allocated = allocated.add(item.getAmountAllocated());
+            }
+        }
+        assertEquals(result.getItems().size(), result.getItemCount());
+        assertEquals(succeeded, result.getSucceeded());
+        assertEquals(result.getItemCount() - succeeded, result.getFailed());
+        assertEquals(LOANS, result.getLoanCount());
+        assertEquals(paymentsRecorded, result.getPaymentsRecorded());
+        assertEquals(0, allocated.compareTo(result.getTotalAllocated()));
+
+        int paymentRows = 0;
+        BigDecimal paid = BigDecimal.ZERO;
+        for (Long loanId : loanIds) {
+            paymentRows += paymentRepository.findByLoan_Id(loanId).size();
+            paid = paid.add(scheduleRepository.sumAmountPaidByLoanId(loanId));
+        }
+        assertEquals(paymentRows, result.getPaymentsRecorded());
+        // One item per loan straddles two installments and records two payments
+        assertTrue(paymentRows > posted);
+        assertEquals(0, paid.compareTo(result.getTotalAllocated()));
+
+        assertTrue(result.getElapsedMillis() >= 0);
+        assertTrue(result.getItemsPerSecond() > 0);
+        assertTrue(result.getPaymentsPerSecond() > 0);
+        assertEquals(result.getPaymentsRecorded() / (double) result.getItemCount(),
+                result.getPaymentsPerSecond() / result.getItemsPerSecond(), 1e-9);
+    }
+
+    // Round-robin over the loans, so each loan's items are spread through the request
+    private static List<BulkPaymentRequestDto> interleaved(List<Long> loanIds) {
+        List<BulkPaymentRequestDto> items = new ArrayList<>();
+        for (int round = 0; round < ITEMS_PER_LOAN; round++) {
+            for (Long loanId : loanIds) {
+                items.add(payment(loanId, AMOUNT));
+            }
+        }
+        return items;
+    }
+
+    private List<Long> createLoans() {
+        Customer customer = new Customer();
+        customer.setFirstname("Batch");
+        customer.setLastname("Payer");
+        customer.setNationalIdentityCard("BP-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        Long customerId = customerService.createCustomer(customer).getId();
+        List<Long> loanIds = new ArrayList<>();
+        for (int i = 0; i < LOANS; i++) {
+            LoanRequestDto dto = new LoanRequestDto();
+            dto.setCustomerId(customerId);
+            dto.setPrincipalAmount(new BigDecimal("5000"));
+            dto.setInterestRate(12);
+            dto.setRepaymentPeriod(12);
+            dto.setRepaymentFrequency(Frequency.MONTHLY);
+            loanIds.add(loanService.createLoan(dto).getId());
+        }
+        return loanIds;
+    }
+
+    private static BulkPaymentRequestDto payment(Long loanId, BigDecimal amount) {
+        BulkPaymentRequestDto dto = new BulkPaymentRequestDto();
+        dto.setLoanId(loanId);
+        dto.setPaymentAmount(amount);
+        dto.setPaymentDate(LocalDate.now());
+        return dto;
+    }
+}
@@ -0,0 +1,167 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentDto;
+import com.myapplication.LoanManagementSystem.dto.payments.PaymentRequestDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Posts payments from many threads at once and checks that no update is lost.
+ */
+@SpringBootTest
+class PaymentServiceConcurrencyTests {
+
+    private static final int THREADS_PER_LOAN = 4;
+    private static final int PAYMENTS_PER_THREAD = 25;
+    private static final BigDecimal BULK_AMOUNT = new BigDecimal("10.00");
+    private static final BigDecimal INSTALLMENT_AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private LoanSerializer loanSerializer;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Test
+    void concurrentPaymentsAreAllApplied() throws Exception {
+        Long customerId = createCustomer();
+        Long loanA = createLoan(customerId);
+        Long loanB = createLoan(customerId);
+        Long lastScheduleA = lastScheduleId(loanA);
+        Long lastScheduleB = lastScheduleId(loanB);
+        BigDecimal paidBefore = portfolioRollupService.getPortfolio().getTotalPaid();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_PER_LOAN * 2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS_PER_LOAN * 2; t++) {
+            Long loanId = t % 2 == 0 ? loanA : loanB;
+            Long scheduleId = t % 2 == 0 ? lastScheduleA : lastScheduleB;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < PAYMENTS_PER_THREAD; i++) {
+                    // Mix allocating payments with direct payments to one installment of the same loan
+                    paymentService.bulkPayment(bulkPayment(loanId));
+                    paymentService.payInstallment(scheduleId, installmentPayment());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        BigDecimal expectedPerLoan = BULK_AMOUNT.add(INSTALLMENT_AMOUNT)
+                .multiply(BigDecimal.valueOf((long) THREADS_PER_LOAN * PAYMENTS_PER_THREAD));
+        for (Long loanId : List.of(loanA, loanB)) {
+            assertEquals(0, expectedPerLoan.compareTo(scheduleRepository.sumAmountPaidByLoanId(loanId)));
+            BigDecimal recorded = paymentService.getPaymentsByLoan(loanId).stream()
+                    .map(PaymentDto::getPaymentAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertEquals(0, expectedPerLoan.compareTo(recorded));
+        }
+        BigDecimal paidAfter = portfolioRollupService.getPortfolio().getTotalPaid();
+        assertEquals(0, expectedPerLoan.multiply(BigDecimal.valueOf(2)).compareTo(paidAfter.subtract(paidBefore)));
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    @Test
+    void differentLoansDoNotBlockEachOther() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> loanSerializer.run(1L, () -> {
+            holding.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        try {
+            assertTrue(holding.await(10, TimeUnit.SECONDS));
+            // Loan 2 is on another stripe, so it must complete while loan 1 is still held
+            CountDownLatch done = new CountDownLatch(1);
+            new Thread(() -> loanSerializer.run(2L, done::countDown)).start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Concurrent");
+        customer.setLastname("Payer");
+        customer.setNationalIdentityCard("CP-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private Long createLoan(Long customerId) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal("100000"));
+        dto.setInterestRate(10);
+        dto.setRepaymentPeriod(12);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return loanService.createLoan(dto).getId();
+    }
+
+    private Long lastScheduleId(Long loanId) {
+        return scheduleRepository.findScheduleDtosByLoanId(loanId).stream()
+                .reduce((first, second) -> second)
+                .orElseThrow()
+                .getScheduleId();
+    }
+
+    private static BulkPaymentRequestDto bulkPayment(Long loanId) {
+        BulkPaymentRequestDto dto = new BulkPaymentRequestDto();
+        dto.setLoanId(loanId);
+        dto.setPaymentAmount(BULK_AMOUNT);
+        dto.setPaymentDate(LocalDate.now());
+        return dto;
+    }
+
+    private static PaymentRequestDto installmentPayment() {
+        PaymentRequestDto dto = new PaymentRequestDto();
+        dto.setPaymentAmount(INSTALLMENT_AMOUNT);
+        dto.setPaymentDate(LocalDate.now());
+        return dto;
+    }
+}
@@ -0,0 +1,198 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.dto.stats.AgingBucketDto;
+import com.myapplication.LoanManagementSystem.dto.stats.AgingReportDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.model.RepaymentStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.utils.CompactSchedule;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The aging report must match a loan-by-loan computation over every open loan, stored and compact
+ * schedules alike, and be served from the cache within the day.
+ */
+@SpringBootTest
+class PortfolioAgingServiceTests {
+
+    private static final int[] BUCKET_START = {0, 1, 31, 61, 91, 181};
+
+    @Autowired
+    private PortfolioAgingService portfolioAgingService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void matchesALoanByLoanComputation() {
+        LocalDate today = LocalDate.now();
+        Long customerId = createCustomer();
+        Loan current = loanService.createLoan(loan(customerId));
+        Loan late = loanService.createLoan(loan(customerId));
+        Loan veryLate = loanService.createLoan(loan(customerId));
+        moveDueDates(late.getId(), today.minusDays(45), today.minusDays(15));
+        moveDueDates(veryLate.getId(), today.minusDays(200));
+        pay(late.getId(), new BigDecimal("300"));
+
+        Loan compact;
+        ReflectionTestUtils.setField(loanService, "compactSchedules", true);
+        try {
+            compact = loanService.createLoan(loan(customerId));
+        } finally {
+            ReflectionTestUtils.setField(loanService, "compactSchedules", false);
+        }
+        // Starting the rule 70 days back puts the first two installments in arrears
+        compact.setScheduleStartDate(today.minusDays(70).minusMonths(1));
+        loanRepository.save(compact);
+        pay(compact.getId(), new BigDecimal("500"));
+
+        portfolioAgingService.invalidate();
+        AgingReportDto report = portfolioAgingService.getAging();
+        AgingReportDto expected = expected(today);
+        assertEquals(expected.getLoanCount(), report.getLoanCount());
+        assertEquals(0, expected.getTotalOutstanding().compareTo(report.getTotalOutstanding()));
+        assertEquals(0, expected.getTotalArrears().compareTo(report.getTotalArrears()));
+        for (int i = 0; i < BUCKET_START.length; i++) {
+            AgingBucketDto want = expected.getBuckets().get(i);
+            AgingBucketDto got = report.getBuckets().get(i);
+            assertEquals(want.getLoanCount(), got.getLoanCount(), got.getLabel());
+            assertEquals(0, want.getOutstandingBalance().compareTo(got.getOutstandingBalance()), got.getLabel());
+            assertEquals(0, want.getArrearsAmount().compareTo(got.getArrearsAmount()), got.getLabel());
+        }
+        assertTrue(report.getPar1().compareTo(report.getPar30()) >= 0);
+        assertTrue(report.getPar90().signum() > 0);
+
+        // Served from the cache until invalidated
+        assertSame(report, portfolioAgingService.getAging());
+        portfolioAgingService.invalidate();
+        assertNotSame(report, portfolioAgingService.getAging());
+    }
+
+    // Buckets built loan by loan from the entities
+    private AgingReportDto expected(LocalDate today) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            long[] loans = new long[BUCKET_START.length];
+            BigDecimal[] outstanding = {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO,
+                    BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+            BigDecimal[] arrears = outstanding.clone();
+            for (Loan loan : loanRepository.findAll()) {
+                if (loan.getStatus() != LoanStatus.ACTIVE && loan.getStatus() != LoanStatus.DEFAULTED) {
+                    continue;
+                }
+                BigDecimal balance = loan.getTotalRepayableAmount();
+                for (RepaymentSchedule row : loan.getRepaymentSchedules()) {
+                    balance = balance.subtract(row.getAmountPaid());
+                }
+                LocalDate oldest = null;
+                BigDecimal overdue = BigDecimal.ZERO;
+                for (RepaymentSchedule installment : CompactSchedule.installmentsOf(loan)) {
+                    if (installment.getPaymentStatus() != RepaymentStatus.PAID && installment.getDueDate().isBefore(today)) {
+                        overdue = overdue.add(installment.getAmountDue().subtract(installment.getAmountPaid()));
+                        if (oldest == null || installment.getDueDate().isBefore(oldest)) {
+                            oldest = installment.getDueDate();
+                        }
+                    }
+                }
+                long daysPastDue = oldest == null ? 0 : ChronoUnit.DAYS.between(oldest, today);
+                int bucket = 0;
+                while (bucket + 1 < BUCKET_START.length && daysPastDue >= BUCKET_START[bucket + 1]) {
+                    bucket++;
+                }
+                loans[bucket]++;
+                outstanding[bucket] = outstanding[bucket].add(balance);
+                arrears[bucket] = arrears[bucket].add(overdue);
+            }
+            AgingReportDto report = new AgingReportDto();
+            report.setBuckets(new ArrayList<>());
+            report.setTotalOutstanding(BigDecimal.ZERO);
+            report.setTotalArrears(BigDecimal.ZERO);
+            for (int i = 0; i < BUCKET_START.length; i++) {
+                AgingBucketDto bucket = new AgingBucketDto();
+                bucket.setLoanCount(loans[i]);
+                bucket.setOutstandingBalance(outstanding[i]);
+                bucket.setArrearsAmount(arrears[i]);
+                report.getBuckets().add(bucket);
+                report.setLoanCount(report.getLoanCount() + loans[i]);
+                report.setTotalOutstanding(report.getTotalOutstanding().add(outstanding[i]));
+                report.setTotalArrears(report.getTotalArrears().add(arrears[i]));
+            }
+            return report;
+        });
+    }
+
+    // Moves the first installments of the loan to the given due dates
+    private void moveDueDates(Long loanId, LocalDate... dueDates) {
+        List<RepaymentSchedule> schedules = scheduleRepository.findByLoan_Id(loanId);
+        schedules.sort(Comparator.comparing(RepaymentSchedule::getDueDate));
+        for (int i = 0; i < dueDates.length; i++) {
+            schedules.get(i).setDueDate(dueDates[i]);
+        }
+        scheduleRepository.saveAll(schedules);
+    }
+
+    private void pay(Long loanId, BigDecimal amount) {
+        BulkPaymentRequestDto payment = new BulkPaymentRequestDto();
+        payment.setLoanId(loanId);
+        payment.setPaymentAmount(amount);
+        payment.setPaymentDate(LocalDate.now());
+        paymentService.bulkPayment(payment);
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Aging");
+        customer.setLastname("Borrower");
+        customer.setNationalIdentityCard("AB-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private static LoanRequestDto loan(Long customerId) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal("6000"));
+        dto.setInterestRate(10);
+        dto.setRepaymentPeriod(6);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return dto;
+    }
+}
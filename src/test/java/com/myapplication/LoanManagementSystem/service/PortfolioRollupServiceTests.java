@@ -0,0 +1,142 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.model.PortfolioRollup;
+import com.myapplication.LoanManagementSystem.model.RepaymentSchedule;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import com.myapplication.LoanManagementSystem.repository.RepaymentScheduleRepository;
+import com.myapplication.LoanManagementSystem.repository.projection.LoanAggregate;
+import com.myapplication.LoanManagementSystem.repository.projection.StatusCount;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The rollup slots follow every kind of loan change in step with the tables: after creating,
+ * updating, paying, deleting and defaulting loans the slot sums equal the aggregate queries and a
+ * rebuild finds nothing to correct.
+ */
+// Own context: the overdue run below must only see this test's loans
+@SpringBootTest(properties = "loans.overdue.partitions=2")
+class PortfolioRollupServiceTests {
+
+    @Autowired
+    private PortfolioRollupService portfolioRollupService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OverdueService overdueService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Test
+    void slotsStayInStepWithTheTables() {
+        LocalDate today = LocalDate.now();
+        Long customerId = createCustomer();
+        // Enough loans to spread over several slots
+        Loan[] loans = new Loan[6];
+        for (int i = 0; i < loans.length; i++) {
+            loans[i] = loanService.createLoan(loan(customerId, new BigDecimal(5000 + 1000 * i), 6 + i, Frequency.MONTHLY));
+        }
+        loanService.createLoans(List.of(loan(customerId, new BigDecimal("2500"), 3, Frequency.WEEKLY),
+                loan(customerId, new BigDecimal("7300"), 12, Frequency.WEEKLY)));
+
+        // Rescheduled with new terms, including after money was received
+        loanService.updateLoan(loans[0].getId(), loan(customerId, new BigDecimal("9000"), 9, Frequency.WEEKLY));
+        pay(loans[1].getId(), new BigDecimal("1234.56"));
+        loanService.updateLoan(loans[1].getId(), loan(customerId, new BigDecimal("8000"), 4, Frequency.MONTHLY));
+
+        // Part paid, paid off, and deleted after a payment
+        pay(loans[2].getId(), new BigDecimal("500"));
+        Long settledId = loans[3].getId();
+        pay(settledId, scheduleRepository.findByLoan_Id(settledId).stream()
+                .map(RepaymentSchedule::getAmountDue)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        assertEquals(LoanStatus.PAID, loanRepository.findById(settledId).orElseThrow().getStatus());
+        pay(loans[4].getId(), new BigDecimal("750"));
+        loanService.deleteLoan(loans[4].getId());
+
+        // Defaulted by the overdue job
+        List<RepaymentSchedule> schedules = scheduleRepository.findByLoan_Id(loans[5].getId());
+        schedules.forEach(schedule -> schedule.setDueDate(schedule.getDueDate().minusYears(1)));
+        scheduleRepository.saveAll(schedules);
+        assertEquals(1, overdueService.run(today).getLoansDefaulted());
+
+        PortfolioRollup portfolio = portfolioRollupService.getPortfolio();
+        LoanAggregate totals = loanRepository.aggregateLoans();
+        assertEquals(7, totals.getTotalLoans());
+        assertEquals(totals.getTotalLoans(), portfolio.getLoanCount());
+        assertEquals(0, totals.getTotalPrincipal().compareTo(portfolio.getPrincipalDisbursed()));
+        assertEquals(0, totals.getTotalRepayable().compareTo(portfolio.getTotalRepayable()));
+        assertEquals(0, totals.getTotalInterestRate().compareTo(portfolio.getTotalInterestRate()));
+        assertEquals(totals.getTotalRepaymentPeriod(), portfolio.getTotalRepaymentPeriod());
+        assertEquals(0, totals.getTotalInstallmentAmount().compareTo(portfolio.getTotalInstallmentAmount()));
+        assertEquals(0, scheduleRepository.sumAmountPaid().compareTo(portfolio.getTotalPaid()));
+
+        Map<LoanStatus, Long> counts = new EnumMap<>(LoanStatus.class);
+        for (StatusCount statusCount : loanRepository.countByStatus()) {
+            counts.put(statusCount.getStatus(), statusCount.getCount());
+        }
+        assertEquals(5, counts.get(LoanStatus.ACTIVE));
+        assertEquals(1, counts.get(LoanStatus.PAID));
+        assertEquals(1, counts.get(LoanStatus.DEFAULTED));
+        for (LoanStatus status : LoanStatus.values()) {
+            assertEquals(counts.getOrDefault(status, 0L), portfolio.countFor(status), status.name());
+        }
+
+        assertFalse(portfolioRollupService.rebuild().isDriftDetected());
+    }
+
+    private void pay(Long loanId, BigDecimal amount) {
+        BulkPaymentRequestDto payment = new BulkPaymentRequestDto();
+        payment.setLoanId(loanId);
+        payment.setPaymentAmount(amount);
+        payment.setPaymentDate(LocalDate.now());
+        paymentService.bulkPayment(payment);
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Rollup");
+        customer.setLastname("Borrower");
+        customer.setNationalIdentityCard("RB-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private static LoanRequestDto loan(Long customerId, BigDecimal principal, int months, Frequency frequency) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(principal);
+        dto.setInterestRate(12);
+        dto.setRepaymentPeriod(months);
+        dto.setRepaymentFrequency(frequency);
+        return dto;
+    }
+}
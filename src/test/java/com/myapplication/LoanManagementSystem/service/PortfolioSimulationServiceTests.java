@@ -0,0 +1,154 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.simulation.ScenarioResultDto;
+import com.myapplication.LoanManagementSystem.dto.simulation.SimulationResultDto;
+import com.myapplication.LoanManagementSystem.dto.simulation.SimulationScenarioDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.LoanStatus;
+import com.myapplication.LoanManagementSystem.repository.LoanRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Every scenario must match pricing the matching active loans one by one with LoanQuoteService, and
+ * the snapshot must be shared until it is refreshed.
+ */
+@SpringBootTest
+class PortfolioSimulationServiceTests {
+
+    @Autowired
+    private PortfolioSimulationService portfolioSimulationService;
+
+    @Autowired
+    private LoanQuoteService loanQuoteService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void scenariosMatchLoanByLoanPricing() {
+        Long customerId = createCustomer();
+        loanService.createLoan(loan(customerId, "10000", 12, 12, Frequency.MONTHLY));
+        loanService.createLoan(loan(customerId, "4550.55", 12, 6, Frequency.MONTHLY));
+        loanService.createLoan(loan(customerId, "8000", 12, 3, Frequency.WEEKLY));
+        loanService.createLoan(loan(customerId, "7000", 10, 9, Frequency.MONTHLY));
+
+        SimulationScenarioDto monthly = scenario("monthly 12% to 14%");
+        monthly.setFrequency(Frequency.MONTHLY);
+        monthly.setCurrentRate(new BigDecimal("12"));
+        monthly.setNewRate(new BigDecimal("14"));
+        SimulationScenarioDto allUp = scenario("all +2 points");
+        allUp.setRateChange(new BigDecimal("2.00"));
+        SimulationScenarioDto longerWeekly = scenario("weekly +2 months");
+        longerWeekly.setFrequency(Frequency.WEEKLY);
+        longerWeekly.setPeriodChange(2);
+
+        SimulationResultDto result = portfolioSimulationService.simulate(List.of(monthly, allUp, longerWeekly), true);
+        assertEquals(3, result.getScenarios().size());
+        assertMatches(result.getScenarios().get(0),
+                loan -> loan.getRepaymentFrequency() == Frequency.MONTHLY && rate(loan) == 12, rate -> 14, period -> period);
+        assertMatches(result.getScenarios().get(1), loan -> true, rate -> rate + 2, period -> period);
+        assertMatches(result.getScenarios().get(2),
+                loan -> loan.getRepaymentFrequency() == Frequency.WEEKLY, rate -> rate, period -> period + 2);
+
+        // Later requests share the snapshot until it is refreshed
+        loanService.createLoan(loan(customerId, "5000", 12, 12, Frequency.MONTHLY));
+        SimulationResultDto cached = portfolioSimulationService.simulate(List.of(monthly), false);
+        assertEquals(result.getSnapshotTakenAt(), cached.getSnapshotTakenAt());
+        assertEquals(result.getScenarios().get(0), cached.getScenarios().get(0));
+        SimulationResultDto refreshed = portfolioSimulationService.simulate(List.of(monthly), true);
+        assertEquals(result.getSnapshotLoans() + 1, refreshed.getSnapshotLoans());
+        assertMatches(refreshed.getScenarios().get(0),
+                loan -> loan.getRepaymentFrequency() == Frequency.MONTHLY && rate(loan) == 12, rate -> 14, period -> period);
+    }
+
+    @Test
+    void rejectsScenariosWithoutAChange() {
+        SimulationScenarioDto nothing = scenario("no change");
+        nothing.setFrequency(Frequency.MONTHLY);
+        assertThrows(RuntimeException.class, () -> portfolioSimulationService.simulate(List.of(nothing), false));
+        SimulationScenarioDto both = scenario("both");
+        both.setNewRate(new BigDecimal("10"));
+        both.setRateChange(BigDecimal.ONE);
+        assertThrows(RuntimeException.class, () -> portfolioSimulationService.simulate(List.of(both), false));
+    }
+
+    // Prices every matching active loan before and after the change with LoanQuoteService.loanTerms
+    private void assertMatches(ScenarioResultDto result, Predicate<Loan> matches, IntUnaryOperator newRate,
+                               IntUnaryOperator newPeriod) {
+        long loans = 0;
+        long installments = 0;
+        long simulatedInstallments = 0;
+        BigDecimal current = BigDecimal.ZERO;
+        BigDecimal simulated = BigDecimal.ZERO;
+        for (Loan loan : loanRepository.findAll()) {
+            if (loan.getStatus() != LoanStatus.ACTIVE || !matches.test(loan)) {
+                continue;
+            }
+            int rate = rate(loan);
+            LoanQuoteService.LoanTerms before = loanQuoteService.loanTerms(loan.getPrincipalAmount(),
+                    loan.getRepaymentPeriod(), rate, loan.getRepaymentFrequency());
+            LoanQuoteService.LoanTerms after = loanQuoteService.loanTerms(loan.getPrincipalAmount(),
+                    newPeriod.applyAsInt(loan.getRepaymentPeriod()), newRate.applyAsInt(rate), loan.getRepaymentFrequency());
+            loans++;
+            installments += before.installments();
+            simulatedInstallments += after.installments();
+            current = current.add(before.totalRepayable());
+            simulated = simulated.add(after.totalRepayable());
+        }
+        assertEquals(loans, result.getLoansAffected(), result.getName());
+        assertEquals(0, current.compareTo(result.getCurrentTotalRepayable()), result.getName());
+        assertEquals(0, simulated.compareTo(result.getSimulatedTotalRepayable()), result.getName());
+        assertEquals(0, simulated.subtract(current).compareTo(result.getTotalRepayableDelta()), result.getName());
+        assertEquals(installments, result.getCurrentInstallments(), result.getName());
+        assertEquals(simulatedInstallments, result.getSimulatedInstallments(), result.getName());
+    }
+
+    private static int rate(Loan loan) {
+        return loan.getInterestRate().intValueExact();
+    }
+
+    private static SimulationScenarioDto scenario(String name) {
+        SimulationScenarioDto scenario = new SimulationScenarioDto();
+        scenario.setName(name);
+        return scenario;
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Simulation");
+        customer.setLastname("Borrower");
+        customer.setNationalIdentityCard("SB-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private static LoanRequestDto loan(Long customerId, String principal, int rate, int months, Frequency frequency) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(new BigDecimal(principal));
+        dto.setInterestRate(rate);
+        dto.setRepaymentPeriod(months);
+        dto.setRepaymentFrequency(frequency);
+        return dto;
+    }
+}
@@ -0,0 +1,217 @@
+package com.myapplication.LoanManagementSystem.service;
+
+import com.myapplication.LoanManagementSystem.dto.LoanRequestDto;
+import com.myapplication.LoanManagementSystem.dto.payments.BulkPaymentRequestDto;
+import com.myapplication.LoanManagementSystem.model.Customer;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import com.myapplication.LoanManagementSystem.model.Loan;
+import com.myapplication.LoanManagementSystem.model.TrendBucket;
+import com.myapplication.LoanManagementSystem.model.TrendGranularity;
+import com.myapplication.LoanManagementSystem.model.TrendKind;
+import com.myapplication.LoanManagementSystem.repository.BackfillMarkerRepository;
+import com.myapplication.LoanManagementSystem.repository.TrendBucketRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recording creates a missing bucket and adds to an existing one, the range query returns only
+ * the buckets of the requested kind, granularity and period, and a rebuild reproduces the buckets
+ * the loans and payments recorded. The startup backfill runs once per database, not whenever the
+ * table is empty.
+ */
+// Own context: rebuild() replaces every bucket in the database
+@SpringBootTest(properties = "loans.overdue.partitions=3")
+class TrendBucketServiceTests {
+
+    @Autowired
+    private TrendBucketService trendBucketService;
+
+    @Autowired
+    private TrendBucketRepository trendBucketRepository;
+
+    @Autowired
+    private BackfillMarkerRepository backfillMarkerRepository;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void createsAndIncrementsBuckets() {
+        // Far in the past, clear of the buckets the loans in this context record
+        LocalDate day = LocalDate.of(2001, 3, 14);
+        record(TrendKind.COLLECTION, day, 1, new BigDecimal("100.50"));
+        record(TrendKind.COLLECTION, day, 2, new BigDecimal("49.50"));
+        record(TrendKind.COLLECTION, day.plusDays(1), 1, new BigDecimal("10"));
+        // Nothing to add, so no bucket either
+        record(TrendKind.COLLECTION, day.plusDays(2), 0, BigDecimal.ZERO);
+
+        List<TrendBucket> days = trendBucketService.getBuckets(TrendKind.COLLECTION, TrendGranularity.DAILY,
+                day, day.plusDays(2));
+        assertEquals(2, days.size());
+        assertBucket(days.get(0), day, 3, "150.00");
+        assertBucket(days.get(1), day.plusDays(1), 1, "10");
+
+        List<TrendBucket> months = trendBucketService.getBuckets(TrendKind.COLLECTION, TrendGranularity.MONTHLY,
+                day, day);
+        assertEquals(1, months.size());
+        assertBucket(months.get(0), LocalDate.of(2001, 3, 1), 4, "160.00");
+        assertTrue(trendBucketService.getBuckets(TrendKind.DISBURSEMENT, TrendGranularity.DAILY, day, day).isEmpty());
+    }
+
+    @Test
+    void filtersByKindGranularityAndPeriod() {
+        LocalDate first = LocalDate.of(2002, 1, 31);
+        LocalDate second = LocalDate.of(2002, 2, 10);
+        LocalDate third = LocalDate.of(2002, 3, 5);
+        record(TrendKind.DISBURSEMENT, first, 1, new BigDecimal("1000"));
+        record(TrendKind.DISBURSEMENT, second, 1, new BigDecimal("2000"));
+        record(TrendKind.DISBURSEMENT, third, 1, new BigDecimal("3000"));
+        record(TrendKind.COLLECTION, second, 1, new BigDecimal("500"));
+
+        // Both ends are inclusive
+        List<TrendBucket> days = trendBucketService.getBuckets(TrendKind.DISBURSEMENT, TrendGranularity.DAILY,
+                first, second);
+        assertEquals(List.of(first, second), days.stream().map(TrendBucket::getPeriodStart).toList());
+        days = trendBucketService.getBuckets(TrendKind.DISBURSEMENT, TrendGranularity.DAILY,
+                first.plusDays(1), third.minusDays(1));
+        assertEquals(List.of(second), days.stream().map(TrendBucket::getPeriodStart).toList());
+
+        // A from date inside a month still includes that month's bucket
+        List<TrendBucket> months = trendBucketService.getBuckets(TrendKind.DISBURSEMENT, TrendGranularity.MONTHLY,
+                LocalDate.of(2002, 2, 20), LocalDate.of(2002, 3, 31));
+        assertEquals(List.of(LocalDate.of(2002, 2, 1), LocalDate.of(2002, 3, 1)),
+                months.stream().map(TrendBucket::getPeriodStart).toList());
+
+        // Open-ended on either side
+        months = trendBucketService.getBuckets(TrendKind.DISBURSEMENT, TrendGranularity.MONTHLY,
+                null, LocalDate.of(2002, 1, 31));
+        assertTrue(months.stream().allMatch(bucket -> !bucket.getPeriodStart().isAfter(LocalDate.of(2002, 1, 31))));
+        assertTrue(months.stream().anyMatch(bucket -> bucket.getPeriodStart().equals(LocalDate.of(2002, 1, 1))));
+        months = trendBucketService.getBuckets(TrendKind.COLLECTION, TrendGranularity.MONTHLY,
+                LocalDate.of(2002, 2, 1), null);
+        assertTrue(months.stream().noneMatch(bucket -> bucket.getPeriodStart().isBefore(LocalDate.of(2002, 2, 1))));
+        assertTrue(months.stream().anyMatch(bucket -> bucket.getPeriodStart().equals(LocalDate.of(2002, 2, 1))));
+    }
+
+    @Test
+    void rebuildReproducesTheRecordedBuckets() {
+        // Start from buckets that match the tables exactly
+        trendBucketService.rebuild();
+
+        LocalDate today = LocalDate.now();
+        Long customerId = createCustomer();
+        Loan first = loanService.createLoan(loan(customerId, new BigDecimal("6000")));
+        Loan second = loanService.createLoan(loan(customerId, new BigDecimal("4000")));
+        pay(first.getId(), new BigDecimal("250"), today);
+        pay(first.getId(), new BigDecimal("125.25"), today.minusMonths(1));
+        pay(second.getId(), new BigDecimal("300"), today.minusMonths(1));
+        Loan deleted = loanService.createLoan(loan(customerId, new BigDecimal("9000")));
+        pay(deleted.getId(), new BigDecimal("700"), today.minusMonths(2));
+        loanService.deleteLoan(deleted.getId());
+
+        List<TrendBucket> recorded = trendBucketRepository.findAll();
+        assertBucket(find(recorded, TrendKind.DISBURSEMENT, TrendGranularity.DAILY, today), today, 2, "10000");
+        assertBucket(find(recorded, TrendKind.COLLECTION, TrendGranularity.DAILY, today.minusMonths(1)),
+                today.minusMonths(1), 2, "425.25");
+
+        // A lost bucket comes back, and the rest are unchanged
+        trendBucketRepository.delete(find(recorded, TrendKind.COLLECTION, TrendGranularity.DAILY, today));
+        trendBucketService.rebuild();
+        List<TrendBucket> rebuilt = trendBucketRepository.findAll();
+        for (TrendBucket bucket : recorded) {
+            // Emptied by the deletion; a rebuild leaves no row for them at all
+            if (bucket.getCount() == 0 && bucket.getAmount().signum() == 0) {
+                continue;
+            }
+            TrendBucket match = find(rebuilt, bucket.getKind(), bucket.getGranularity(), bucket.getPeriodStart());
+            assertBucket(match, bucket.getPeriodStart(), bucket.getCount(), bucket.getAmount().toPlainString());
+        }
+        assertTrue(rebuilt.stream().allMatch(bucket -> bucket.getCount() > 0));
+        assertBucket(find(rebuilt, TrendKind.COLLECTION, TrendGranularity.DAILY, today), today, 1, "250");
+    }
+
+    @Test
+    void backfillRunsOncePerDatabase() {
+        assertTrue(backfillMarkerRepository.existsById(TrendBucketService.BACKFILL));
+        // Not backed by any loan, so only a rebuild would remove it
+        record(TrendKind.DISBURSEMENT, LocalDate.of(2003, 6, 1), 1, new BigDecimal("3000"));
+        List<TrendBucket> before = trendBucketRepository.findAll();
+
+        // As on the next start: the marker is there, so the buckets are left alone
+        trendBucketService.afterSingletonsInstantiated();
+        assertEquals(before.size(), trendBucketRepository.findAll().size());
+
+        // Without it the buckets are rebuilt, and the marker is written again
+        backfillMarkerRepository.deleteById(TrendBucketService.BACKFILL);
+        trendBucketService.afterSingletonsInstantiated();
+        assertTrue(backfillMarkerRepository.existsById(TrendBucketService.BACKFILL));
+        assertTrue(trendBucketService.getBuckets(TrendKind.DISBURSEMENT, TrendGranularity.DAILY,
+                LocalDate.of(2003, 6, 1), LocalDate.of(2003, 6, 1)).isEmpty());
+    }
+
+    private void record(TrendKind kind, LocalDate date, long count, BigDecimal amount) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> trendBucketService.record(kind, date, count, amount));
+    }
+
+    private static TrendBucket find(List<TrendBucket> buckets, TrendKind kind, TrendGranularity granularity,
+                                    LocalDate periodStart) {
+        return buckets.stream()
+                .filter(bucket -> bucket.getKind() == kind && bucket.getGranularity() == granularity
+                        && bucket.getPeriodStart().equals(periodStart))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + granularity + " " + kind + " bucket for " + periodStart));
+    }
+
+    private static void assertBucket(TrendBucket bucket, LocalDate periodStart, long count, String amount) {
+        assertEquals(periodStart, bucket.getPeriodStart());
+        assertEquals(count, bucket.getCount());
+        assertEquals(0, new BigDecimal(amount).compareTo(bucket.getAmount()), bucket.getAmount().toPlainString());
+    }
+
+    private void pay(Long loanId, BigDecimal amount, LocalDate date) {
+        BulkPaymentRequestDto payment = new BulkPaymentRequestDto();
+        payment.setLoanId(loanId);
+        payment.setPaymentAmount(amount);
+        payment.setPaymentDate(date);
+        paymentService.bulkPayment(payment);
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setFirstname("Trend");
+        customer.setLastname("Borrower");
+        customer.setNationalIdentityCard("TB-" + System.nanoTime());
+        customer.setRegistrationDate(LocalDate.now());
+        return customerService.createCustomer(customer).getId();
+    }
+
+    private static LoanRequestDto loan(Long customerId, BigDecimal principal) {
+        LoanRequestDto dto = new LoanRequestDto();
+        dto.setCustomerId(customerId);
+        dto.setPrincipalAmount(principal);
+        dto.setInterestRate(12);
+        dto.setRepaymentPeriod(6);
+        dto.setRepaymentFrequency(Frequency.MONTHLY);
+        return dto;
+    }
+}
@@ -0,0 +1,111 @@
+package com.myapplication.LoanManagementSystem.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lines come back exactly as written whatever the chunk size, line endings or buffer boundaries, and
+ * reopening the file at a reported position continues with the next line.
+ */
+class LineChunkReaderTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumesAtTheReportedPosition() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            lines.add(i + ",payment " + i);
+        }
+        Path file = write(String.join("\n", lines) + "\n");
+
+        List<String> read = new ArrayList<>();
+        long offset = 0;
+        // Uneven chunks, reopening the file each time like an import resuming from its checkpoint
+        for (int chunk = 1; ; chunk = chunk % 997 + 7) {
+            try (LineChunkReader reader = new LineChunkReader(file, offset)) {
+                List<String> next = reader.readLines(chunk);
+                if (next.isEmpty()) {
+                    break;
+                }
+                read.addAll(next);
+                offset = reader.position();
+            }
+        }
+        assertEquals(lines, read);
+        assertEquals(Files.size(file), offset);
+
+        // A checkpoint in the middle of the file, past the first buffer
+        long middle = lines.subList(0, 12_345).stream().mapToLong(line -> line.length() + 1).sum();
+        assertTrue(middle > 64 * 1024);
+        try (LineChunkReader reader = new LineChunkReader(file, middle)) {
+            assertEquals(lines.subList(12_345, 12_355), reader.readLines(10));
+            assertEquals(middle + lines.subList(12_345, 12_355).stream().mapToLong(line -> line.length() + 1).sum(),
+                    reader.position());
+        }
+    }
+
+    @Test
+    void stripsCarriageReturns() throws IOException {
+        Path file = write("loanId,amount\r\n1,10.00\r\n\r\n2,20.00\r\n");
+
+        try (LineChunkReader reader = new LineChunkReader(file, 0)) {
+            assertEquals(List.of("loanId,amount", "1,10.00"), reader.readLines(2));
+            // Past the \r\n, not between the two bytes
+            assertEquals("loanId,amount\r\n1,10.00\r\n".length(), reader.position());
+            assertEquals(List.of("", "2,20.00"), reader.readLines(10));
+            assertEquals(Files.size(file), reader.position());
+            assertTrue(reader.readLines(10).isEmpty());
+        }
+    }
+
+    @Test
+    void returnsALastLineWithoutNewline() throws IOException {
+        Path file = write("1,10.00\n2,20.00");
+
+        try (LineChunkReader reader = new LineChunkReader(file, 0)) {
+            assertEquals(List.of("1,10.00", "2,20.00"), reader.readLines(10));
+            assertEquals(Files.size(file), reader.position());
+            assertTrue(reader.readLines(10).isEmpty());
+        }
+        // Also when it is all that is left after a restart
+        try (LineChunkReader reader = new LineChunkReader(file, "1,10.00\n".length())) {
+            assertEquals(List.of("2,20.00"), reader.readLines(1));
+            assertTrue(reader.readLines(1).isEmpty());
+        }
+    }
+
+    @Test
+    void decodesCharactersSplitAcrossBuffers() throws IOException {
+        // Each shift cuts the multibyte characters at a different byte at the 64 KB buffer boundary
+        for (int shift = 0; shift < 9; shift++) {
+            List<String> lines = List.of("x".repeat(64 * 1024 - 1 - shift) + "€ñ😀 M-Pesa", "1,ñandú,€10", "2,done");
+            Path file = write(String.join("\n", lines) + "\n");
+
+            try (LineChunkReader reader = new LineChunkReader(file, 0)) {
+                assertEquals(lines.subList(0, 2), reader.readLines(2), "shift " + shift);
+                long offset = reader.position();
+                assertEquals((lines.get(0) + "\n" + lines.get(1) + "\n").getBytes(StandardCharsets.UTF_8).length, offset);
+                try (LineChunkReader resumed = new LineChunkReader(file, offset)) {
+                    assertEquals(lines.subList(2, 3), resumed.readLines(10));
+                    assertEquals(Files.size(file), resumed.position());
+                }
+            }
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("payments.csv"), content, StandardCharsets.UTF_8);
+    }
+}
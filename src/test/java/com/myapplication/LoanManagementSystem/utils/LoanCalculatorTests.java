@@ -0,0 +1,78 @@
+package com.myapplication.LoanManagementSystem.utils;
+
+import com.myapplication.LoanManagementSystem.dto.loancalculation.LoanCalculationRequestDto;
+import com.myapplication.LoanManagementSystem.dto.loancalculation.LoanCalculationResponseDto;
+import com.myapplication.LoanManagementSystem.model.Frequency;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The calculator must give exactly the results, scale included, of the original all-BigDecimal formula.
+ */
+class LoanCalculatorTests {
+
+    @Test
+    void matchesTheReferenceFormula() {
+        Random random = new Random(42);
+        List<LoanCalculationRequestDto> requests = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            LoanCalculationRequestDto request = new LoanCalculationRequestDto();
+            // Whole, cent and odd-scale principals, including ones past the long fast path
+            BigDecimal principal = switch (i % 4) {
+                case 0 -> BigDecimal.valueOf(random.nextInt(5_000_000));
+                case 1 -> BigDecimal.valueOf(random.nextLong(1_000_000_000L), 2);
+                case 2 -> BigDecimal.valueOf(random.nextLong(1_000_000_000L), 3);
+                default -> new BigDecimal("98765432109876543210.55");
+            };
+            request.setPrincipalAmount(principal);
+            request.setRepaymentPeriod(1 + random.nextInt(i % 10 == 0 ? 900 : 120));
+            request.setInterestRate(random.nextInt(i % 10 == 0 ? 250 : 40));
+            request.setFrequency(i % 2 == 0 ? Frequency.MONTHLY : Frequency.WEEKLY);
+            requests.add(request);
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            LoanCalculationRequestDto request = requests.get(i);
+            LoanCalculationResponseDto expected = reference(request);
+            LoanCalculationResponseDto actual = LoanCalculator.calculateLoan(request.getPrincipalAmount(),
+                    request.getRepaymentPeriod(), request.getInterestRate(), request.getFrequency());
+            // equals on BigDecimal compares the scale as well as the value
+            assertEquals(expected.getTotalRepayableAmount(), actual.getTotalRepayableAmount(), "item " + i);
+            assertEquals(expected.getEmi(), actual.getEmi(), "item " + i);
+            assertEquals(expected.getEwi(), actual.getEwi(), "item " + i);
+            assertEquals(expected.getNumberOfInstallments(), actual.getNumberOfInstallments(), "item " + i);
+            assertEquals(expected.getDueDate(), actual.getDueDate(), "item " + i);
+        }
+    }
+
+    // The calculator as it was before the constants were cached
+    private static LoanCalculationResponseDto reference(LoanCalculationRequestDto request) {
+        LoanCalculationResponseDto result = new LoanCalculationResponseDto();
+        BigDecimal interestRateDecimal = new BigDecimal(request.getInterestRate()).divide(new BigDecimal("100"), MathContext.DECIMAL64);
+        BigDecimal periodInYears = new BigDecimal(request.getRepaymentPeriod()).divide(new BigDecimal("12"), MathContext.DECIMAL64);
+        BigDecimal interest = request.getPrincipalAmount().multiply(interestRateDecimal).multiply(periodInYears, MathContext.DECIMAL64);
+        BigDecimal total = request.getPrincipalAmount().add(interest).setScale(2, RoundingMode.HALF_UP);
+        result.setTotalRepayableAmount(total);
+        result.setDueDate(LocalDate.now().plusMonths(request.getRepaymentPeriod()));
+        int installments = request.getFrequency() == Frequency.MONTHLY
+                ? request.getRepaymentPeriod()
+                : (int) Math.ceil(request.getRepaymentPeriod() * 4.345);
+        BigDecimal installment = total.divide(new BigDecimal(installments), 2, RoundingMode.HALF_UP);
+        if (request.getFrequency() == Frequency.MONTHLY) {
+            result.setEmi(installment);
+        } else {
+            result.setEwi(installment);
+        }
+        result.setNumberOfInstallments(installments);
+        return result;
+    }
+}